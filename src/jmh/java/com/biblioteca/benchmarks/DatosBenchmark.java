@@ -0,0 +1,114 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.domain.entity.Libro;
+import com.biblioteca.domain.entity.Prestamo;
+import com.biblioteca.domain.entity.Usuario;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Datos deterministas para los benchmarks: entidades sueltas para mapeadores y serialización,
+ * e inserción masiva por JDBC para preparar la base de datos de los servicios.
+ */
+final class DatosBenchmark {
+
+    private static final int TAMANO_LOTE = 10_000;
+    private static final LocalDate FECHA_BASE = LocalDate.of(2020, 1, 1);
+
+    private DatosBenchmark() {
+    }
+
+    static Libro libro(long i) {
+        Libro libro = new Libro();
+        libro.setId(i);
+        libro.setTitulo("Título del libro número " + i);
+        libro.setAutor("Autor " + (i % 5_000));
+        libro.setIsbn(isbn(i));
+        libro.setFechaPublicacion(FECHA_BASE.minusDays(i % 20_000));
+        libro.setVersion(0L);
+        return libro;
+    }
+
+    static Usuario usuario(long i) {
+        Usuario usuario = new Usuario();
+        usuario.setId(i);
+        usuario.setNombre("Usuario " + i);
+        usuario.setEmail(email(i));
+        usuario.setTelefono(String.format("600-%03d-%04d", (i / 10_000) % 1_000, i % 10_000));
+        usuario.setFechaRegistro(FECHA_BASE.plusDays(i % 1_500));
+        usuario.setVersion(0L);
+        return usuario;
+    }
+
+    static Prestamo prestamo(long i) {
+        Prestamo prestamo = new Prestamo();
+        prestamo.setId(i);
+        prestamo.setLibro(libro(i));
+        prestamo.setUsuario(usuario(i % 1_000));
+        prestamo.setFechaPrestamo(FECHA_BASE.plusDays(i % 1_500));
+        prestamo.setFechaDevolucion(FECHA_BASE.plusDays(i % 1_500 + 21));
+        prestamo.setVersion(0L);
+        return prestamo;
+    }
+
+    static String isbn(long i) {
+        return "jmh-" + i;
+    }
+
+    static String email(long i) {
+        return "usuario-" + i + "@benchmark.local";
+    }
+
+    /**
+     * Inserta {@code libros} libros, {@code usuarios} usuarios y {@code prestamos} préstamos ya devueltos,
+     * en lotes JDBC. Los índices de libros y usuarios se corresponden con su ISBN y su email.
+     */
+    static void poblar(JdbcTemplate jdbcTemplate, long libros, long usuarios, long prestamos) {
+        insertarEnLotes(jdbcTemplate, "INSERT INTO libros (titulo, autor, isbn, fecha_publicacion, version) VALUES (?, ?, ?, ?, 0)",
+                libros, i -> {
+                    Libro libro = libro(i);
+                    return new Object[]{libro.getTitulo(), libro.getAutor(), libro.getIsbn(), libro.getFechaPublicacion()};
+                });
+        insertarEnLotes(jdbcTemplate, "INSERT INTO usuarios (nombre, email, telefono, fecha_registro, version) VALUES (?, ?, ?, ?, 0)",
+                usuarios, i -> {
+                    Usuario usuario = usuario(i);
+                    return new Object[]{usuario.getNombre(), usuario.getEmail(), usuario.getTelefono(), usuario.getFechaRegistro()};
+                });
+        long primerLibro = maximo(jdbcTemplate, "libros") - libros + 1;
+        long primerUsuario = maximo(jdbcTemplate, "usuarios") - usuarios + 1;
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        insertarEnLotes(jdbcTemplate, "INSERT INTO prestamos (id, libro_id, usuario_id, fecha_prestamo, fecha_devolucion, version) VALUES (NEXT VALUE FOR prestamos_seq, ?, ?, ?, ?, 0)",
+                prestamos, i -> {
+                    LocalDate fechaPrestamo = FECHA_BASE.plusDays(aleatorio.nextInt(1_500));
+                    return new Object[]{primerLibro + aleatorio.nextLong(libros), primerUsuario + aleatorio.nextLong(usuarios),
+                            fechaPrestamo, fechaPrestamo.plusDays(aleatorio.nextInt(1, 30))};
+                });
+    }
+
+    static long maximo(JdbcTemplate jdbcTemplate, String tabla) {
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + tabla, Long.class);
+    }
+
+    private static void insertarEnLotes(JdbcTemplate jdbcTemplate, String sql, long filas, Fila fila) {
+        List<Object[]> lote = new ArrayList<>(TAMANO_LOTE);
+        for (long i = 0; i < filas; i++) {
+            lote.add(fila.parametros(i));
+            if (lote.size() == TAMANO_LOTE) {
+                jdbcTemplate.batchUpdate(sql, lote);
+                lote.clear();
+            }
+        }
+        if (!lote.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, lote);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Fila {
+        Object[] parametros(long i);
+    }
+}
@@ -0,0 +1,83 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.domain.entity.Libro;
+import com.biblioteca.domain.entity.Prestamo;
+import com.biblioteca.domain.entity.Usuario;
+import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTORequest;
+import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.mapper.LibroMapper;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTORequest;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.mapper.PrestamoMapper;
+import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTOResponse;
+import com.biblioteca.infrastructure.controllers.usuario.mapper.UsuarioMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de los mapeadores MapStruct entre entidades y DTOs, por objeto.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapeadoresBenchmark {
+
+    private final LibroMapper libroMapper = Mappers.getMapper(LibroMapper.class);
+    private final UsuarioMapper usuarioMapper = Mappers.getMapper(UsuarioMapper.class);
+    private final PrestamoMapper prestamoMapper = Mappers.getMapper(PrestamoMapper.class);
+
+    private Libro libro;
+    private Usuario usuario;
+    private Prestamo prestamo;
+    private LibroDTORequest libroDTORequest;
+    private PrestamoDTORequest prestamoDTORequest;
+
+    @Setup
+    public void setUp() {
+        libro = DatosBenchmark.libro(1);
+        usuario = DatosBenchmark.usuario(1);
+        prestamo = DatosBenchmark.prestamo(1);
+        libroDTORequest = libroMapper.toDTORequest(libro);
+        prestamoDTORequest = new PrestamoDTORequest(1L, 1L, prestamo.getFechaPrestamo(), prestamo.getFechaDevolucion());
+    }
+
+    @Benchmark
+    public LibroDTOResponse libroADTOResponse() {
+        return libroMapper.toDTOResponse(libro);
+    }
+
+    @Benchmark
+    public Libro libroDTORequestAEntidad() {
+        return libroMapper.toEntity(libroDTORequest);
+    }
+
+    @Benchmark
+    public UsuarioDTOResponse usuarioADTOResponse() {
+        return usuarioMapper.toDTOResponse(usuario);
+    }
+
+    // Incluye la lectura de libro.id y usuario.id de las asociaciones
+    @Benchmark
+    public PrestamoDTOResponse prestamoADTOResponse() {
+        return prestamoMapper.toDTOResponse(prestamo);
+    }
+
+    @Benchmark
+    public Prestamo prestamoDTORequestAEntidad() {
+        return prestamoMapper.toEntity(prestamoDTORequest);
+    }
+}
@@ -0,0 +1,79 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.mapper.LibroMapper;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.mapper.PrestamoMapper;
+import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTOResponse;
+import com.biblioteca.infrastructure.controllers.usuario.mapper.UsuarioMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización Jackson de los listados de DTOs tal como los escriben los controladores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionBenchmark {
+
+    @Param({"100", "10000"})
+    private int tamano;
+
+    // Misma configuración base que el ObjectMapper de Spring Boot (fechas ISO-8601, módulos registrados)
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<LibroDTOResponse> libros;
+    private List<UsuarioDTOResponse> usuarios;
+    private List<PrestamoDTOResponse> prestamos;
+
+    @Setup
+    public void setUp() {
+        LibroMapper libroMapper = Mappers.getMapper(LibroMapper.class);
+        UsuarioMapper usuarioMapper = Mappers.getMapper(UsuarioMapper.class);
+        PrestamoMapper prestamoMapper = Mappers.getMapper(PrestamoMapper.class);
+        libros = new ArrayList<>(tamano);
+        usuarios = new ArrayList<>(tamano);
+        prestamos = new ArrayList<>(tamano);
+        for (long i = 0; i < tamano; i++) {
+            libros.add(libroMapper.toDTOResponse(DatosBenchmark.libro(i)));
+            usuarios.add(usuarioMapper.toDTOResponse(DatosBenchmark.usuario(i)));
+            prestamos.add(prestamoMapper.toDTOResponse(DatosBenchmark.prestamo(i)));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializarLibros() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(libros);
+    }
+
+    @Benchmark
+    public byte[] serializarUsuarios() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(usuarios);
+    }
+
+    @Benchmark
+    public byte[] serializarPrestamos() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(prestamos);
+    }
+}
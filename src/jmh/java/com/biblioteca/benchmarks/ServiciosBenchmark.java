@@ -0,0 +1,162 @@
+package com.biblioteca.benchmarks;
+
+import com.biblioteca.GestionBibliotecaApplication;
+import com.biblioteca.application.service.disponibilidad.IndiceDisponibilidad;
+import com.biblioteca.application.service.libro.LibroServicio;
+import com.biblioteca.application.service.paginacion.CursorPaginacion;
+import com.biblioteca.application.service.prestamo.PrestamoServicio;
+import com.biblioteca.application.service.usuario.UsuarioServicio;
+import com.biblioteca.domain.entity.Usuario;
+import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTORequest;
+import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTORequest;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.ResultadoLotePrestamoDTOResponse;
+import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTORequest;
+import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTOResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rutas de lectura y escritura de los servicios contra H2 embebida con el contexto completo de Spring
+ * (cachés, transacciones, Hibernate). {@code filas} es el número de libros y de préstamos; los usuarios son la décima parte.
+ * Con {@code -p filas=10000000} conviene dar más memoria al fork: {@code -jvmArgsAppend -Xmx8g}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ServiciosBenchmark {
+
+    private static final int TAMANO_LOTE_PRESTAMOS = 100;
+
+    @Param({"10000", "1000000"})
+    private long filas;
+
+    private ConfigurableApplicationContext contexto;
+    private LibroServicio libroServicio;
+    private UsuarioServicio usuarioServicio;
+    private PrestamoServicio prestamoServicio;
+    private IndiceDisponibilidad indiceDisponibilidad;
+
+    private long primerLibro;
+    private long ultimoLibro;
+    private long primerUsuario;
+    private long ultimoUsuario;
+    private long[] idsPrestamos;
+    private final AtomicLong librosNuevos = new AtomicLong();
+
+    @Setup
+    public void setUp() {
+        contexto = new SpringApplicationBuilder(GestionBibliotecaApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "spring.jpa.show-sql=false",
+                        // Los servicios registran cada llamada a nivel INFO; medirlo sería medir la consola
+                        "logging.level.com.biblioteca=WARN",
+                        "logging.level.org.hibernate=WARN")
+                .run();
+        libroServicio = contexto.getBean(LibroServicio.class);
+        usuarioServicio = contexto.getBean(UsuarioServicio.class);
+        prestamoServicio = contexto.getBean(PrestamoServicio.class);
+        indiceDisponibilidad = contexto.getBean(IndiceDisponibilidad.class);
+
+        JdbcTemplate jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+        long usuarios = Math.max(filas / 10, 1);
+        DatosBenchmark.poblar(jdbcTemplate, filas, usuarios, filas);
+        // Los libros y usuarios de data.sql quedan delante; solo se eligen los generados, que tienen IDs consecutivos
+        primerLibro = DatosBenchmark.maximo(jdbcTemplate, "libros") - filas + 1;
+        ultimoLibro = primerLibro + filas - 1;
+        primerUsuario = DatosBenchmark.maximo(jdbcTemplate, "usuarios") - usuarios + 1;
+        ultimoUsuario = primerUsuario + usuarios - 1;
+        // La secuencia de préstamos avanza de 50 en 50, así que sus IDs no son consecutivos
+        idsPrestamos = jdbcTemplate.queryForList("SELECT id FROM prestamos", Long.class).stream().mapToLong(Long::longValue).toArray();
+        // Los préstamos se insertan por JDBC después del arranque, sin pasar por los servicios
+        indiceDisponibilidad.reconstruir();
+    }
+
+    @TearDown
+    public void tearDown() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public LibroDTOResponse obtenerLibroPorId() {
+        return libroServicio.obtenerLibroPorId(aleatorio(primerLibro, ultimoLibro)).orElseThrow();
+    }
+
+    @Benchmark
+    public UsuarioDTOResponse obtenerUsuarioPorId() {
+        return usuarioServicio.obtenerUsuarioPorId(aleatorio(primerUsuario, ultimoUsuario)).orElseThrow();
+    }
+
+    @Benchmark
+    public PrestamoDTOResponse obtenerPrestamoPorId() {
+        long id = idsPrestamos[ThreadLocalRandom.current().nextInt(idsPrestamos.length)];
+        return prestamoServicio.obtenerPrestamoPorId(id).orElseThrow();
+    }
+
+    @Benchmark
+    public boolean estaPrestado() {
+        return indiceDisponibilidad.estaPrestado(aleatorio(primerLibro, ultimoLibro));
+    }
+
+    @Benchmark
+    public PaginaDTOResponse<LibroDTOResponse> obtenerPaginaDeLibros() {
+        String cursor = CursorPaginacion.codificar(aleatorio(primerLibro, ultimoLibro));
+        return libroServicio.obtenerPaginaDeLibros(cursor, CursorPaginacion.LIMITE_POR_DEFECTO);
+    }
+
+    @Benchmark
+    public LibroDTOResponse guardarLibro() {
+        long n = librosNuevos.incrementAndGet();
+        return libroServicio.guardarLibro(new LibroDTORequest("Libro nuevo " + n, "Autor", "jmh-nuevo-" + n, LocalDate.now()));
+    }
+
+    @Benchmark
+    public UsuarioDTOResponse actualizarUsuario() {
+        long id = aleatorio(primerUsuario, ultimoUsuario);
+        Usuario usuario = DatosBenchmark.usuario(id - primerUsuario);
+        return usuarioServicio.actualizarUsuario(id, new UsuarioDTORequest(usuario.getNombre() + " (editado)",
+                usuario.getEmail(), usuario.getTelefono(), usuario.getFechaRegistro()));
+    }
+
+    @Benchmark
+    public List<ResultadoLotePrestamoDTOResponse> guardarPrestamosEnLote() {
+        List<PrestamoDTORequest> lote = new ArrayList<>(TAMANO_LOTE_PRESTAMOS);
+        LocalDate hoy = LocalDate.now();
+        for (int i = 0; i < TAMANO_LOTE_PRESTAMOS; i++) {
+            lote.add(new PrestamoDTORequest(aleatorio(primerLibro, ultimoLibro), aleatorio(primerUsuario, ultimoUsuario), hoy, hoy.plusDays(21)));
+        }
+        return prestamoServicio.guardarPrestamosEnLote(lote);
+    }
+
+    private static long aleatorio(long desde, long hasta) {
+        return ThreadLocalRandom.current().nextLong(desde, hasta + 1);
+    }
+}
@@ -0,0 +1,495 @@
+package com.biblioteca.application.service.archivo;
+
+import com.biblioteca.application.service.estadisticas.EstadisticasPrestamos;
+import com.biblioteca.application.service.estadisticas.ResumenesPrestamos;
+import com.biblioteca.domain.entity.PuntoControl;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.FiltroPrestamosDTORequest;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorioBusqueda.Orden;
+import com.biblioteca.infrastructure.repository.PuntoControlRepositorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Archivo en disco de los préstamos devueltos hace más de {@code biblioteca.archivo.dias-antiguedad} días.
+ *
+ * <p>Cada noche los préstamos que cumplen el plazo se escriben en segmentos columnares inmutables
+ * ({@link SegmentoPrestamos}) y se borran de la tabla prestamos, que se queda con los abiertos y los recientes: sus
+ * índices y las consultas de disponibilidad, cupos y vencidos no crecen con el historial. Cada segmento es un lote en
+ * su propia transacción: las filas se bloquean, el fichero se escribe y se sincroniza, se publica para las lecturas y
+ * solo entonces se borran las filas. Una lectura concurrente puede ver un préstamo en los dos sitios (se queda con el
+ * de la tabla) pero nunca en ninguno. Si la transacción falla, el segmento se retira y se borra.</p>
+ *
+ * <p>Un préstamo archivado es historia cerrada y de solo lectura: se lee por ID, en las búsquedas y en la exportación,
+ * pero no se modifica ni se borra, y no cambia con el autor de su libro ni con el borrado de su libro o su usuario.</p>
+ *
+ * <p>Cuando hay más de {@code biblioteca.archivo.maximo-segmentos} segmentos se reescriben fusionados en menos ficheros,
+ * para que una búsqueda no tenga que recorrer uno por noche.</p>
+ *
+ * <p>Sin {@code biblioteca.archivo.directorio} el archivo está desactivado: no se archiva nada (ni se programa,
+ * véase {@link ProgramacionArchivoPrestamos}) y las lecturas ven un archivo vacío. Un directorio temporal borraría
+ * al parar préstamos que ya no están en la tabla.</p>
+ *
+ * <p>El archivo exige una base de datos persistente: los segmentos guardan IDs de la tabla prestamos, y con una base
+ * de datos nueva (H2 en memoria tras un reinicio) esos IDs se vuelven a asignar. Cada lote y cada compactación anotan
+ * en puntos_control el número del último segmento escrito contra esta base de datos, y al arrancar el directorio
+ * tiene que corresponder con esa marca: segmentos sin marca, segmentos más nuevos que ella o una marca sin segmentos
+ * impiden abrir el archivo (y arrancar la aplicación) en lugar de mezclar préstamos de otra base de datos.</p>
+ */
+@Component
+@EnableConfigurationProperties(ArchivoPropiedades.class)
+public class ArchivoPrestamos {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchivoPrestamos.class);
+
+    static final String PUNTO_CONTROL = "archivo-prestamos";
+    private static final String PREFIJO = "prestamos-";
+    // Segmento de un lote cuyo commit aún no consta, y segmento de una compactación sin terminar
+    private static final String TEMPORAL = ".tmp";
+    private static final String COMPACTANDO = ".compactando";
+
+    private static final String SQL_BLOQUEAR = "SELECT id FROM prestamos WHERE fecha_devolucion < ? AND id > ? ORDER BY id FETCH FIRST ? ROWS ONLY FOR UPDATE";
+    // Se releen ya bloqueados: una reapertura confirmada mientras se esperaba el cerrojo deja fuera al préstamo
+    private static final String SQL_LEER = "SELECT id, libro_id, usuario_id, fecha_prestamo, fecha_devolucion, version FROM prestamos WHERE id = ANY(?) AND fecha_devolucion < ? ORDER BY id";
+    private static final String SQL_ELIMINAR = "DELETE FROM prestamos WHERE id = ANY(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ResumenesPrestamos resumenesPrestamos;
+    private final EstadisticasPrestamos estadisticasPrestamos;
+    private final PuntoControlRepositorio puntoControlRepositorio;
+    private final TransactionTemplate transaccion;
+    private final ArchivoPropiedades propiedades;
+    private final Path directorio; // null con el archivo desactivado
+    private final AtomicBoolean ejecutando = new AtomicBoolean();
+    private final AtomicLong secuencia = new AtomicLong();
+
+    // Lista inmutable que se sustituye entera: las lecturas la recorren sin cerrojos
+    private volatile List<SegmentoPrestamos> segmentos = List.of();
+
+    @Autowired
+    public ArchivoPrestamos(JdbcTemplate jdbcTemplate, ResumenesPrestamos resumenesPrestamos, EstadisticasPrestamos estadisticasPrestamos,
+                            PuntoControlRepositorio puntoControlRepositorio, PlatformTransactionManager transactionManager,
+                            ArchivoPropiedades propiedades) throws IOException {
+        this.jdbcTemplate = jdbcTemplate;
+        this.resumenesPrestamos = resumenesPrestamos;
+        this.estadisticasPrestamos = estadisticasPrestamos;
+        this.puntoControlRepositorio = puntoControlRepositorio;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.propiedades = propiedades;
+        this.directorio = propiedades.directorio().isBlank() ? null : Files.createDirectories(Path.of(propiedades.directorio()));
+    }
+
+    public boolean habilitado() {
+        return directorio != null;
+    }
+
+    /**
+     * Abre los segmentos del directorio, que tienen que corresponder con la marca de puntos_control. Un segmento
+     * temporal completo es de un lote que se interrumpió alrededor del commit: si la marca no llega a su número la
+     * transacción no se confirmó y se descarta; si llega, se confirmó (la marca se anota en la misma transacción que
+     * borra sus filas) y se publica.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void cargar() {
+        if (!habilitado()) {
+            logger.info("Archivo de préstamos desactivado: biblioteca.archivo.directorio no está configurado");
+            return;
+        }
+        try {
+            List<Path> ficheros;
+            try (Stream<Path> listado = Files.list(directorio)) {
+                ficheros = listado.filter(fichero -> fichero.getFileName().toString().startsWith(PREFIJO)).sorted().toList();
+            }
+            long marca = comprobarMarca(ficheros);
+            List<SegmentoPrestamos> abiertos = new ArrayList<>();
+            for (Path fichero : ficheros) {
+                String nombre = fichero.getFileName().toString();
+                secuencia.accumulateAndGet(numero(fichero), Math::max);
+                if (nombre.endsWith(SegmentoPrestamos.EXTENSION)) {
+                    abiertos.add(SegmentoPrestamos.abrir(fichero));
+                } else if (nombre.endsWith(TEMPORAL) && numero(fichero) <= marca && completo(fichero)) {
+                    Path ruta = fichero.resolveSibling(nombre(numero(fichero), SegmentoPrestamos.EXTENSION));
+                    Files.move(fichero, ruta, StandardCopyOption.ATOMIC_MOVE);
+                    abiertos.add(SegmentoPrestamos.abrir(ruta));
+                    logger.warn("Segmento de préstamos archivados recuperado de un lote interrumpido: {}", ruta);
+                } else {
+                    Files.deleteIfExists(fichero);
+                }
+            }
+            secuencia.accumulateAndGet(marca, Math::max); // Una compactación interrumpida pudo dejar la marca por delante
+            segmentos = List.copyOf(abiertos);
+            logger.info("Archivo de préstamos abierto en {}: {} segmentos con {} préstamos", directorio, abiertos.size(),
+                    abiertos.stream().mapToLong(SegmentoPrestamos::filas).sum());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error abriendo el archivo de préstamos", e);
+        }
+    }
+
+    // Devuelve el número del último segmento escrito contra esta base de datos, o 0 si aún no se ha archivado nada
+    private long comprobarMarca(List<Path> ficheros) {
+        Long marca = puntoControlRepositorio.findById(PUNTO_CONTROL).map(PuntoControl::getUltimoId).orElse(null);
+        List<Path> segmentosEnDisco = ficheros.stream()
+                .filter(fichero -> fichero.getFileName().toString().endsWith(SegmentoPrestamos.EXTENSION))
+                .toList();
+        if (marca == null && !segmentosEnDisco.isEmpty()) {
+            throw new IllegalStateException("El archivo de préstamos de " + directorio + " no es de esta base de datos: "
+                    + "no consta en puntos_control. El archivo necesita una base de datos persistente; con una nueva, "
+                    + "biblioteca.archivo.directorio debe apuntar a un directorio vacío");
+        }
+        // El primer lote pudo interrumpirse tras el commit y antes de renombrar su segmento temporal
+        if (marca != null && segmentosEnDisco.isEmpty() && ficheros.stream().noneMatch(fichero -> numero(fichero) == marca)) {
+            throw new IllegalStateException("Faltan los segmentos del archivo de préstamos en " + directorio
+                    + ": puntos_control registra el segmento " + marca);
+        }
+        for (Path segmento : segmentosEnDisco) {
+            if (numero(segmento) > marca) {
+                throw new IllegalStateException("El segmento " + segmento + " es posterior al último escrito contra esta "
+                        + "base de datos (" + marca + "): el archivo de préstamos no es de esta base de datos");
+            }
+        }
+        return marca == null ? 0 : marca;
+    }
+
+    // Se anota en la transacción del lote, o antes de publicar los segmentos de una compactación
+    private void marcar(long numero) {
+        puntoControlRepositorio.save(new PuntoControl(PUNTO_CONTROL, null, numero));
+    }
+
+    private static boolean completo(Path temporal) {
+        try {
+            return SegmentoPrestamos.abrir(temporal).filas() > 0;
+        } catch (IOException e) {
+            return false; // Incompleto: el lote falló antes de llegar al commit
+        }
+    }
+
+    public void archivar(LocalDate hoy) {
+        if (!habilitado()) {
+            logger.warn("Archivo de préstamos desactivado: biblioteca.archivo.directorio no está configurado; no se archiva");
+            return;
+        }
+        if (!ejecutando.compareAndSet(false, true)) {
+            logger.warn("Archivo de préstamos ya en curso; se omite esta ejecución");
+            return;
+        }
+        try {
+            long inicio = System.nanoTime();
+            LocalDate limite = hoy.minusDays(propiedades.diasAntiguedad());
+            long archivados = 0;
+            for (Lote lote = archivarLote(limite, 0); lote != null; lote = archivarLote(limite, lote.ultimoId())) {
+                archivados += lote.filas();
+            }
+            logger.info("Archivo de préstamos: {} préstamos devueltos antes de {} archivados en {} ms",
+                    archivados, limite, (System.nanoTime() - inicio) / 1_000_000);
+            if (segmentos.size() > propiedades.maximoSegmentos()) {
+                fusionarSegmentos();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error archivando préstamos", e);
+        } finally {
+            ejecutando.set(false);
+        }
+    }
+
+    // Devuelve null cuando ya no quedan préstamos que archivar detrás de ultimoId
+    private Lote archivarLote(LocalDate limite, long ultimoId) throws IOException {
+        Path temporal = directorio.resolve(nombre(secuencia.incrementAndGet(), TEMPORAL));
+        SegmentoPrestamos[] publicado = new SegmentoPrestamos[1];
+        Lote lote;
+        try {
+            lote = transaccion.execute(estado -> {
+                List<Long> bloqueados = jdbcTemplate.queryForList(SQL_BLOQUEAR, Long.class, limite, ultimoId, propiedades.filasPorSegmento());
+                if (bloqueados.isEmpty()) {
+                    return null;
+                }
+                List<Long> ids = new ArrayList<>(bloqueados.size());
+                Set<LocalDate> fechas = new TreeSet<>();
+                try {
+                    escribirSegmento(temporal, bloqueados, limite, ids, fechas);
+                    if (ids.isEmpty()) {
+                        Files.delete(temporal);
+                    } else {
+                        publicado[0] = SegmentoPrestamos.abrir(temporal);
+                        publicar(publicado[0]);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (!ids.isEmpty()) {
+                    Long[] archivados = ids.toArray(Long[]::new);
+                    resumenesPrestamos.prestamosArchivados(archivados, fechas);
+                    estadisticasPrestamos.prestamosArchivados(archivados);
+                    jdbcTemplate.update(SQL_ELIMINAR, (Object) archivados);
+                    marcar(numero(temporal));
+                }
+                return new Lote(ids.size(), bloqueados.get(bloqueados.size() - 1));
+            });
+        } catch (RuntimeException e) {
+            if (publicado[0] != null) {
+                reemplazar(List.of(publicado[0]), List.of());
+            }
+            Files.deleteIfExists(temporal);
+            throw e;
+        }
+        if (publicado[0] != null) {
+            // Confirmado: el segmento pasa a su nombre definitivo
+            Path ruta = directorio.resolve(nombre(numero(temporal), SegmentoPrestamos.EXTENSION));
+            Files.move(temporal, ruta, StandardCopyOption.ATOMIC_MOVE);
+            reemplazar(List.of(publicado[0]), List.of(SegmentoPrestamos.abrir(ruta)));
+        }
+        return lote;
+    }
+
+    private void escribirSegmento(Path temporal, List<Long> bloqueados, LocalDate limite, List<Long> ids, Set<LocalDate> fechas) throws IOException {
+        try (SegmentoPrestamos.Escritor escritor = new SegmentoPrestamos.Escritor(temporal, propiedades.filasPorGrupo())) {
+            RowCallbackHandler fila = resultado -> {
+                PrestamoDTOResponse prestamo = new PrestamoDTOResponse(resultado.getLong(1), resultado.getLong(2), resultado.getLong(3),
+                        resultado.getObject(4, LocalDate.class), resultado.getObject(5, LocalDate.class), resultado.getLong(6));
+                try {
+                    escritor.agregar(prestamo);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                ids.add(prestamo.getId());
+                fechas.add(prestamo.getFechaPrestamo());
+            };
+            jdbcTemplate.query(SQL_LEER, fila, bloqueados.toArray(Long[]::new), limite);
+        }
+    }
+
+    public void compactar() {
+        if (!habilitado()) {
+            return;
+        }
+        if (!ejecutando.compareAndSet(false, true)) {
+            logger.warn("Archivo de préstamos ya en curso; se omite la compactación");
+            return;
+        }
+        try {
+            fusionarSegmentos();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error compactando el archivo de préstamos", e);
+        } finally {
+            ejecutando.set(false);
+        }
+    }
+
+    // Reescribe todos los segmentos en orden de ID en segmentos llenos; las lecturas siguen con los anteriores hasta el cambio
+    private void fusionarSegmentos() throws IOException {
+        long inicio = System.nanoTime();
+        List<SegmentoPrestamos> anteriores = segmentos;
+        if (anteriores.size() < 2) {
+            return;
+        }
+        List<Path> escritos = new ArrayList<>();
+        List<SegmentoPrestamos> nuevos = new ArrayList<>();
+        try {
+            Iterator<PrestamoDTOResponse> prestamos = new Fusion(anteriores.stream().map(SegmentoPrestamos::recorrer).toList());
+            SegmentoPrestamos.Escritor escritor = null;
+            try {
+                while (prestamos.hasNext()) {
+                    if (escritor == null) {
+                        Path temporal = directorio.resolve(nombre(secuencia.incrementAndGet(), COMPACTANDO));
+                        escritos.add(temporal);
+                        escritor = new SegmentoPrestamos.Escritor(temporal, propiedades.filasPorGrupo());
+                    }
+                    escritor.agregar(prestamos.next());
+                    if (escritor.filas() == propiedades.filasPorSegmento()) {
+                        escritor.close();
+                        escritor = null;
+                    }
+                }
+            } finally {
+                if (escritor != null) {
+                    escritor.close();
+                }
+            }
+            // Antes de renombrarlos: una interrupción a medias deja segmentos con números que la marca ya cubre
+            marcar(secuencia.get());
+            for (int i = 0; i < escritos.size(); i++) {
+                Path ruta = directorio.resolve(nombre(numero(escritos.get(i)), SegmentoPrestamos.EXTENSION));
+                Files.move(escritos.get(i), ruta, StandardCopyOption.ATOMIC_MOVE);
+                escritos.set(i, ruta);
+                nuevos.add(SegmentoPrestamos.abrir(ruta));
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Path escrito : escritos) {
+                Files.deleteIfExists(escrito);
+            }
+            throw e;
+        }
+        reemplazar(anteriores, nuevos);
+        // Una lectura que aún recorra un segmento anterior conserva su mapeo en memoria
+        for (SegmentoPrestamos anterior : anteriores) {
+            Files.deleteIfExists(anterior.ruta());
+        }
+        logger.info("Archivo de préstamos compactado: {} segmentos fusionados en {} en {} ms",
+                anteriores.size(), nuevos.size(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private synchronized void publicar(SegmentoPrestamos segmento) {
+        List<SegmentoPrestamos> nuevos = new ArrayList<>(segmentos);
+        nuevos.add(segmento);
+        segmentos = List.copyOf(nuevos);
+    }
+
+    private synchronized void reemplazar(List<SegmentoPrestamos> anteriores, List<SegmentoPrestamos> nuevos) {
+        List<SegmentoPrestamos> resultado = new ArrayList<>(segmentos);
+        resultado.removeAll(anteriores);
+        resultado.addAll(nuevos);
+        segmentos = List.copyOf(resultado);
+    }
+
+    public Optional<PrestamoDTOResponse> buscarPorId(long id) {
+        for (SegmentoPrestamos segmento : segmentos) {
+            if (id >= segmento.minId() && id <= segmento.maxId()) {
+                PrestamoDTOResponse prestamo = segmento.buscar(id);
+                if (prestamo != null) {
+                    return Optional.of(prestamo);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Todos los préstamos archivados por ID ascendente. Los segmentos se solapan (cada noche archiva devoluciones de
+     * cualquier ID), así que se fusionan; cada segmento se descomprime por grupos a medida que se consume el stream.
+     */
+    public Stream<PrestamoDTOResponse> recorrer() {
+        return flujo(new Fusion(segmentos.stream().map(SegmentoPrestamos::recorrer).toList()));
+    }
+
+    /**
+     * Hasta {@code limite} préstamos archivados con la semántica de
+     * {@link com.biblioteca.infrastructure.repository.PrestamoRepositorioBusqueda#buscar}, para combinarlos con los de la
+     * tabla mediante {@link #combinar}.
+     */
+    public List<PrestamoDTOResponse> buscar(FiltroPrestamosDTORequest filtro, Orden orden, LocalDate fechaAnterior, long ultimoId, int limite) {
+        SegmentoPrestamos.Recolector recolector = new SegmentoPrestamos.Recolector(orden, limite);
+        for (SegmentoPrestamos segmento : segmentos) {
+            segmento.buscar(filtro, orden, fechaAnterior, ultimoId, recolector);
+        }
+        return recolector.resultado();
+    }
+
+    /**
+     * Fusiona por ID los préstamos de la tabla con los archivados, los dos ya ordenados por ID. Un préstamo en los dos
+     * sitios (lote de archivo sin confirmar) sale una vez, con los datos de la tabla. Cerrar el resultado cierra ambos.
+     */
+    public static Stream<PrestamoDTOResponse> combinarPorId(Stream<PrestamoDTOResponse> calientes, Stream<PrestamoDTOResponse> archivados) {
+        return flujo(new Fusion(List.of(calientes.iterator(), archivados.iterator())))
+                .onClose(calientes::close)
+                .onClose(archivados::close);
+    }
+
+    /**
+     * Los {@code limite} primeros según {@code orden} entre una página de la tabla y una del archivo pedidas con la
+     * misma posición. Como en {@link #combinarPorId}, si un préstamo está en las dos gana la tabla.
+     */
+    public static List<PrestamoDTOResponse> combinar(List<PrestamoDTOResponse> calientes, List<PrestamoDTOResponse> archivados, Orden orden, int limite) {
+        if (archivados.isEmpty()) {
+            return calientes;
+        }
+        Set<Long> ids = new HashSet<>();
+        calientes.forEach(prestamo -> ids.add(prestamo.getId()));
+        List<PrestamoDTOResponse> todos = new ArrayList<>(calientes);
+        archivados.stream().filter(prestamo -> !ids.contains(prestamo.getId())).forEach(todos::add);
+        todos.sort(SegmentoPrestamos.comparador(orden));
+        return todos.size() > limite ? List.copyOf(todos.subList(0, limite)) : todos;
+    }
+
+    private static Stream<PrestamoDTOResponse> flujo(Iterator<PrestamoDTOResponse> prestamos) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(prestamos, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static String nombre(long numero, String extension) {
+        return String.format("%s%012d%s", PREFIJO, numero, extension);
+    }
+
+    private static long numero(Path fichero) {
+        String nombre = fichero.getFileName().toString();
+        return Long.parseLong(nombre.substring(PREFIJO.length(), nombre.indexOf('.')));
+    }
+
+    private record Lote(int filas, long ultimoId) {
+    }
+
+    /**
+     * Fusión por ID de varias secuencias ordenadas por ID. Con IDs repetidos sale solo el de la primera secuencia.
+     */
+    private static final class Fusion implements Iterator<PrestamoDTOResponse> {
+
+        private record Cabeza(PrestamoDTOResponse prestamo, int fuente) {
+        }
+
+        private final List<Iterator<PrestamoDTOResponse>> fuentes;
+        private final PriorityQueue<Cabeza> cabezas = new PriorityQueue<>(
+                Comparator.comparing((Cabeza cabeza) -> cabeza.prestamo().getId()).thenComparingInt(Cabeza::fuente));
+        private Long ultimoId;
+
+        private Fusion(List<Iterator<PrestamoDTOResponse>> fuentes) {
+            this.fuentes = fuentes;
+            for (int fuente = 0; fuente < fuentes.size(); fuente++) {
+                avanzar(fuente);
+            }
+        }
+
+        private void avanzar(int fuente) {
+            if (fuentes.get(fuente).hasNext()) {
+                cabezas.add(new Cabeza(fuentes.get(fuente).next(), fuente));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!cabezas.isEmpty() && cabezas.peek().prestamo().getId().equals(ultimoId)) {
+                avanzar(cabezas.poll().fuente());
+            }
+            return !cabezas.isEmpty();
+        }
+
+        @Override
+        public PrestamoDTOResponse next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Cabeza cabeza = cabezas.poll();
+            avanzar(cabeza.fuente());
+            ultimoId = cabeza.prestamo().getId();
+            return cabeza.prestamo();
+        }
+    }
+}
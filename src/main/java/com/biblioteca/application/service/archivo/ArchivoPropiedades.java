@@ -0,0 +1,30 @@
+package com.biblioteca.application.service.archivo;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuración del archivo de préstamos devueltos (biblioteca.archivo.*).
+ *
+ * @param directorio       directorio de los segmentos; vacío, el archivo está desactivado y no se archiva nada. Solo
+ *                         tiene sentido fijarlo con una base de datos persistente: con H2 en memoria los préstamos
+ *                         archivados de una ejecución anterior no corresponden a nada
+ * @param diasAntiguedad   días desde la devolución a partir de los cuales un préstamo se archiva
+ * @param filasPorSegmento préstamos por segmento; cada segmento se escribe y se borra de prestamos en una transacción
+ * @param filasPorGrupo    filas por grupo dentro de un segmento, la unidad que se descomprime en una lectura
+ * @param maximoSegmentos  segmentos a partir de los cuales se compactan en menos ficheros más grandes
+ */
+@ConfigurationProperties("biblioteca.archivo")
+public record ArchivoPropiedades(String directorio,
+                                 @DefaultValue("365") int diasAntiguedad,
+                                 @DefaultValue("100000") int filasPorSegmento,
+                                 @DefaultValue("4096") int filasPorGrupo,
+                                 @DefaultValue("32") int maximoSegmentos) {
+
+    public ArchivoPropiedades {
+        directorio = directorio != null ? directorio.strip() : "";
+        if (diasAntiguedad < 1 || filasPorSegmento < 1 || filasPorGrupo < 1 || filasPorGrupo > filasPorSegmento || maximoSegmentos < 2) {
+            throw new IllegalArgumentException("Configuración de biblioteca.archivo inválida");
+        }
+    }
+}
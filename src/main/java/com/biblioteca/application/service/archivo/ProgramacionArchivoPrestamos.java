@@ -0,0 +1,32 @@
+package com.biblioteca.application.service.archivo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Archivo nocturno de préstamos, solo con {@code biblioteca.archivo.directorio} configurado: sin él no hay dónde
+ * guardar los segmentos de forma duradera.
+ */
+@Component
+@EnableScheduling
+@ConditionalOnExpression("!'${biblioteca.archivo.directorio:}'.isBlank()")
+public class ProgramacionArchivoPrestamos {
+
+    private final ArchivoPrestamos archivoPrestamos;
+
+    @Autowired
+    public ProgramacionArchivoPrestamos(ArchivoPrestamos archivoPrestamos) {
+        this.archivoPrestamos = archivoPrestamos;
+    }
+
+    // Cada noche, después de la detección de vencidos
+    @Scheduled(cron = "${biblioteca.archivo.cron:0 45 3 * * *}")
+    public void archivar() {
+        archivoPrestamos.archivar(LocalDate.now());
+    }
+}
@@ -0,0 +1,520 @@
+package com.biblioteca.application.service.archivo;
+
+import com.biblioteca.infrastructure.controllers.prestamo.dto.FiltroPrestamosDTORequest;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorioBusqueda.Orden;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Fichero inmutable de préstamos archivados, en formato columnar y ordenados por ID.
+ *
+ * <p>Las filas se reparten en grupos de tamaño fijo. Dentro de cada grupo, cada columna se guarda por separado como
+ * una secuencia de varints comprimida con Deflate: el ID y las fechas como diferencia con la fila anterior (casi
+ * siempre un número pequeño), el resto tal cual. Una consulta solo descomprime las columnas que necesita de los grupos
+ * que pueden contener resultados; el pie guarda por grupo los mínimos y máximos de ID y fechas para descartar el resto
+ * sin leerlos.</p>
+ *
+ * <pre>
+ * MAGIA | grupo 0: columna 0 .. columna 5 | grupo 1 ... | pie: (posición, filas, longitudes, mínimos y máximos) por grupo
+ *       | número de grupos | posición del pie | MAGIA
+ * </pre>
+ *
+ * <p>El fichero se mapea en memoria de solo lectura: el sistema operativo decide qué páginas mantener y el mapeo
+ * sigue siendo válido aunque el fichero se borre (compactación) mientras una lectura lo recorre.</p>
+ */
+final class SegmentoPrestamos {
+
+    static final String EXTENSION = ".seg";
+
+    private static final long MAGIA = 0x4249424C50525354L; // "BIBLPRST"
+    private static final int COLUMNAS = 6;
+    private static final int ID = 0;
+    private static final int LIBRO = 1;
+    private static final int USUARIO = 2;
+    private static final int FECHA_PRESTAMO = 3;
+    private static final int FECHA_DEVOLUCION = 4;
+    private static final int VERSION = 5;
+    // Posición, filas, longitudes de las columnas, ID mínimo y máximo y los extremos de las dos fechas en días
+    private static final int BYTES_GRUPO = Long.BYTES + Integer.BYTES + COLUMNAS * Integer.BYTES + 2 * Long.BYTES + 4 * Integer.BYTES;
+    private static final int BYTES_COLA = Integer.BYTES + 2 * Long.BYTES;
+
+    private final Path ruta;
+    private final ByteBuffer datos;
+    private final List<Grupo> grupos;
+    private final long filas;
+
+    private SegmentoPrestamos(Path ruta, ByteBuffer datos, List<Grupo> grupos) {
+        this.ruta = ruta;
+        this.datos = datos;
+        this.grupos = grupos;
+        this.filas = grupos.stream().mapToLong(Grupo::filas).sum();
+    }
+
+    static SegmentoPrestamos abrir(Path ruta) throws IOException {
+        MappedByteBuffer datos;
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        if (datos.capacity() < Long.BYTES + BYTES_COLA || datos.getLong(0) != MAGIA || datos.getLong(datos.capacity() - Long.BYTES) != MAGIA) {
+            throw new IOException("Segmento de préstamos archivados inválido o incompleto: " + ruta);
+        }
+        int cola = datos.capacity() - BYTES_COLA;
+        int numeroGrupos = datos.getInt(cola);
+        int posicion = (int) datos.getLong(cola + Integer.BYTES);
+        List<Grupo> grupos = new ArrayList<>(numeroGrupos);
+        for (int i = 0; i < numeroGrupos; i++, posicion += BYTES_GRUPO) {
+            int[] longitudes = new int[COLUMNAS];
+            for (int c = 0; c < COLUMNAS; c++) {
+                longitudes[c] = datos.getInt(posicion + 12 + c * Integer.BYTES);
+            }
+            int extremos = posicion + 12 + COLUMNAS * Integer.BYTES;
+            grupos.add(new Grupo(datos.getLong(posicion), datos.getInt(posicion + 8), longitudes,
+                    datos.getLong(extremos), datos.getLong(extremos + 8),
+                    datos.getInt(extremos + 16), datos.getInt(extremos + 20), datos.getInt(extremos + 24), datos.getInt(extremos + 28)));
+        }
+        return new SegmentoPrestamos(ruta, datos, List.copyOf(grupos));
+    }
+
+    Path ruta() {
+        return ruta;
+    }
+
+    long filas() {
+        return filas;
+    }
+
+    long minId() {
+        return grupos.isEmpty() ? Long.MAX_VALUE : grupos.get(0).minId();
+    }
+
+    long maxId() {
+        return grupos.isEmpty() ? Long.MIN_VALUE : grupos.get(grupos.size() - 1).maxId();
+    }
+
+    PrestamoDTOResponse buscar(long id) {
+        for (Grupo grupo : grupos) {
+            if (id < grupo.minId() || id > grupo.maxId()) {
+                continue;
+            }
+            long[] ids = columna(grupo, ID);
+            int fila = Arrays.binarySearch(ids, id);
+            return fila >= 0 ? fila(columnas(grupo, ids), fila) : null;
+        }
+        return null;
+    }
+
+    // Todas las filas por ID ascendente; descomprime un grupo cada vez
+    Iterator<PrestamoDTOResponse> recorrer() {
+        return new Iterator<>() {
+            private int grupo = -1;
+            private PrestamoDTOResponse[] filasGrupo = new PrestamoDTOResponse[0];
+            private int fila;
+
+            @Override
+            public boolean hasNext() {
+                while (fila == filasGrupo.length && grupo + 1 < grupos.size()) {
+                    filasGrupo = leerGrupo(grupos.get(++grupo));
+                    fila = 0;
+                }
+                return fila < filasGrupo.length;
+            }
+
+            @Override
+            public PrestamoDTOResponse next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return filasGrupo[fila++];
+            }
+        };
+    }
+
+    /**
+     * Añade al recolector los préstamos que cumplen el filtro y van detrás de la posición según el orden, con la misma
+     * semántica que {@link com.biblioteca.infrastructure.repository.PrestamoRepositorioBusqueda#buscar}. Los grupos que
+     * no pueden mejorar lo ya recogido se saltan sin descomprimirlos.
+     */
+    void buscar(FiltroPrestamosDTORequest filtro, Orden orden, LocalDate fechaAnterior, long ultimoId, Recolector recolector) {
+        if (Boolean.TRUE.equals(filtro.getAbierto())) {
+            return; // Solo se archivan préstamos devueltos
+        }
+        long prestamoDesde = dia(filtro.getPrestamoDesde(), Long.MIN_VALUE);
+        long prestamoHasta = dia(filtro.getPrestamoHasta(), Long.MAX_VALUE);
+        long devolucionDesde = dia(filtro.getDevolucionDesde(), Long.MIN_VALUE);
+        long devolucionHasta = dia(filtro.getDevolucionHasta(), Long.MAX_VALUE);
+        long anterior = dia(fechaAnterior, Long.MIN_VALUE);
+        int columnaOrden = switch (orden) {
+            case ID -> ID;
+            case FECHA_PRESTAMO -> FECHA_PRESTAMO;
+            case FECHA_DEVOLUCION -> FECHA_DEVOLUCION;
+        };
+        for (Grupo grupo : grupos) {
+            if (grupo.maxPrestamo() < prestamoDesde || grupo.minPrestamo() > prestamoHasta
+                    || grupo.maxDevolucion() < devolucionDesde || grupo.minDevolucion() > devolucionHasta
+                    || (ultimoId > 0 && (orden == Orden.ID ? grupo.maxId() <= ultimoId : grupo.maximo(columnaOrden) < anterior))
+                    || recolector.descarta(grupo.minimo(columnaOrden), orden)) {
+                continue;
+            }
+            // Columna a columna: cada condición descomprime solo su columna y reduce los candidatos
+            long[] ids = columna(grupo, ID);
+            boolean[] candidatos = new boolean[grupo.filas()];
+            Arrays.fill(candidatos, true);
+            int restantes = grupo.filas();
+            if (filtro.getUsuarioId() != null) {
+                restantes = filtrar(columna(grupo, USUARIO), candidatos, restantes, filtro.getUsuarioId(), filtro.getUsuarioId());
+            }
+            if (restantes > 0 && filtro.getLibroId() != null) {
+                restantes = filtrar(columna(grupo, LIBRO), candidatos, restantes, filtro.getLibroId(), filtro.getLibroId());
+            }
+            if (restantes > 0 && (filtro.getPrestamoDesde() != null || filtro.getPrestamoHasta() != null)) {
+                restantes = filtrar(columna(grupo, FECHA_PRESTAMO), candidatos, restantes, prestamoDesde, prestamoHasta);
+            }
+            if (restantes > 0 && (filtro.getDevolucionDesde() != null || filtro.getDevolucionHasta() != null)) {
+                restantes = filtrar(columna(grupo, FECHA_DEVOLUCION), candidatos, restantes, devolucionDesde, devolucionHasta);
+            }
+            if (restantes > 0 && ultimoId > 0) {
+                long[] fechas = orden == Orden.ID ? null : columna(grupo, columnaOrden);
+                for (int fila = 0; fila < candidatos.length; fila++) {
+                    if (candidatos[fila] && !(orden == Orden.ID ? ids[fila] > ultimoId
+                            : fechas[fila] > anterior || (fechas[fila] == anterior && ids[fila] > ultimoId))) {
+                        candidatos[fila] = false;
+                        restantes--;
+                    }
+                }
+            }
+            if (restantes == 0) {
+                continue;
+            }
+            long[][] columnas = columnas(grupo, ids);
+            for (int fila = 0; fila < candidatos.length; fila++) {
+                if (candidatos[fila]) {
+                    recolector.agregar(fila(columnas, fila));
+                }
+            }
+        }
+    }
+
+    private static int filtrar(long[] valores, boolean[] candidatos, int restantes, long desde, long hasta) {
+        for (int fila = 0; fila < candidatos.length; fila++) {
+            if (candidatos[fila] && (valores[fila] < desde || valores[fila] > hasta)) {
+                candidatos[fila] = false;
+                restantes--;
+            }
+        }
+        return restantes;
+    }
+
+    private PrestamoDTOResponse[] leerGrupo(Grupo grupo) {
+        long[][] columnas = columnas(grupo, columna(grupo, ID));
+        PrestamoDTOResponse[] resultado = new PrestamoDTOResponse[grupo.filas()];
+        for (int fila = 0; fila < resultado.length; fila++) {
+            resultado[fila] = fila(columnas, fila);
+        }
+        return resultado;
+    }
+
+    private long[][] columnas(Grupo grupo, long[] ids) {
+        long[][] columnas = new long[COLUMNAS][];
+        columnas[ID] = ids;
+        for (int c = 1; c < COLUMNAS; c++) {
+            columnas[c] = columna(grupo, c);
+        }
+        return columnas;
+    }
+
+    private static PrestamoDTOResponse fila(long[][] columnas, int fila) {
+        return new PrestamoDTOResponse(columnas[ID][fila], columnas[LIBRO][fila], columnas[USUARIO][fila],
+                LocalDate.ofEpochDay(columnas[FECHA_PRESTAMO][fila]), LocalDate.ofEpochDay(columnas[FECHA_DEVOLUCION][fila]),
+                columnas[VERSION][fila]);
+    }
+
+    private long[] columna(Grupo grupo, int columna) {
+        long posicion = grupo.posicion();
+        for (int c = 0; c < columna; c++) {
+            posicion += grupo.longitudes()[c];
+        }
+        byte[] varints = new byte[grupo.filas() * 10]; // Un varint ocupa como mucho 10 bytes
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(datos.slice((int) posicion, grupo.longitudes()[columna]));
+            int longitud = 0;
+            while (!inflater.finished()) {
+                int leidos = inflater.inflate(varints, longitud, varints.length - longitud);
+                if (leidos == 0 && (inflater.needsInput() || longitud == varints.length)) {
+                    throw new DataFormatException("columna truncada");
+                }
+                longitud += leidos;
+            }
+            return decodificar(ByteBuffer.wrap(varints, 0, longitud), grupo.filas(), columna);
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Columna " + columna + " dañada en " + ruta, e));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long[] decodificar(ByteBuffer varints, int filas, int columna) {
+        long[] valores = new long[filas];
+        long anterior = 0;
+        for (int fila = 0; fila < filas; fila++) {
+            long valor = leerVarint(varints);
+            valores[fila] = switch (columna) {
+                case ID -> anterior += valor;
+                case FECHA_PRESTAMO, FECHA_DEVOLUCION -> anterior += (valor >>> 1) ^ -(valor & 1); // zigzag
+                default -> valor;
+            };
+        }
+        return valores;
+    }
+
+    private static long leerVarint(ByteBuffer entrada) {
+        long valor = 0;
+        for (int desplazamiento = 0; ; desplazamiento += 7) {
+            byte b = entrada.get();
+            valor |= (long) (b & 0x7F) << desplazamiento;
+            if (b >= 0) {
+                return valor;
+            }
+        }
+    }
+
+    private static long dia(LocalDate fecha, long siNula) {
+        return fecha != null ? fecha.toEpochDay() : siNula;
+    }
+
+    // El orden de las páginas de búsqueda: por la fecha del orden y, a igual fecha, por ID
+    static Comparator<PrestamoDTOResponse> comparador(Orden orden) {
+        Comparator<PrestamoDTOResponse> porId = Comparator.comparing(PrestamoDTOResponse::getId);
+        return switch (orden) {
+            case ID -> porId;
+            case FECHA_PRESTAMO -> Comparator.comparing(PrestamoDTOResponse::getFechaPrestamo).thenComparing(porId);
+            case FECHA_DEVOLUCION -> Comparator.comparing(PrestamoDTOResponse::getFechaDevolucion).thenComparing(porId);
+        };
+    }
+
+    record Grupo(long posicion, int filas, int[] longitudes, long minId, long maxId,
+                 int minPrestamo, int maxPrestamo, int minDevolucion, int maxDevolucion) {
+
+        long minimo(int columna) {
+            return switch (columna) {
+                case ID -> minId;
+                case FECHA_PRESTAMO -> minPrestamo;
+                default -> minDevolucion;
+            };
+        }
+
+        long maximo(int columna) {
+            return switch (columna) {
+                case ID -> maxId;
+                case FECHA_PRESTAMO -> maxPrestamo;
+                default -> maxDevolucion;
+            };
+        }
+    }
+
+    /**
+     * Los {@code limite} primeros préstamos según el orden de una búsqueda, de todos los segmentos. Un préstamo
+     * repetido en dos segmentos (compactación interrumpida) se cuenta una vez.
+     */
+    static final class Recolector {
+
+        private final Comparator<PrestamoDTOResponse> comparador;
+        private final TreeSet<PrestamoDTOResponse> mejores;
+        private final int limite;
+
+        Recolector(Orden orden, int limite) {
+            this.comparador = comparador(orden);
+            this.mejores = new TreeSet<>(comparador);
+            this.limite = limite;
+        }
+
+        void agregar(PrestamoDTOResponse prestamo) {
+            if (mejores.size() < limite) {
+                mejores.add(prestamo);
+            } else if (comparador.compare(prestamo, mejores.last()) < 0 && mejores.add(prestamo)) {
+                mejores.pollLast();
+            }
+        }
+
+        // Con el cupo lleno, un grupo cuyo mínimo ya va detrás del peor recogido no puede aportar nada
+        boolean descarta(long minimoGrupo, Orden orden) {
+            if (mejores.size() < limite) {
+                return false;
+            }
+            PrestamoDTOResponse peor = mejores.last();
+            long clavePeor = switch (orden) {
+                case ID -> peor.getId();
+                case FECHA_PRESTAMO -> peor.getFechaPrestamo().toEpochDay();
+                case FECHA_DEVOLUCION -> peor.getFechaDevolucion().toEpochDay();
+            };
+            return minimoGrupo > clavePeor;
+        }
+
+        List<PrestamoDTOResponse> resultado() {
+            return List.copyOf(mejores);
+        }
+    }
+
+    /**
+     * Escribe un segmento nuevo. Los préstamos deben llegar por ID estrictamente creciente y con fecha de devolución.
+     * Hasta {@link #close()} el fichero está incompleto y {@link #abrir(Path)} lo rechaza.
+     */
+    static final class Escritor implements Closeable {
+
+        private final FileChannel canal;
+        private final int filasPorGrupo;
+        private final long[][] columnas;
+        private final List<Grupo> grupos = new ArrayList<>();
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private int filas;
+        private long posicion;
+        private long ultimoId = Long.MIN_VALUE;
+        private long total;
+
+        Escritor(Path ruta, int filasPorGrupo) throws IOException {
+            this.canal = FileChannel.open(ruta, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            this.filasPorGrupo = filasPorGrupo;
+            this.columnas = new long[COLUMNAS][filasPorGrupo];
+            ByteBuffer cabecera = ByteBuffer.allocate(Long.BYTES).putLong(MAGIA).flip();
+            escribir(cabecera);
+        }
+
+        void agregar(PrestamoDTOResponse prestamo) throws IOException {
+            if (prestamo.getId() <= ultimoId) {
+                throw new IllegalArgumentException("Los préstamos de un segmento deben ir por ID creciente: " + prestamo.getId() + " después de " + ultimoId);
+            }
+            if (prestamo.getFechaDevolucion() == null) {
+                throw new IllegalArgumentException("Solo se archivan préstamos devueltos: " + prestamo.getId());
+            }
+            ultimoId = prestamo.getId();
+            columnas[ID][filas] = prestamo.getId();
+            columnas[LIBRO][filas] = prestamo.getLibroId();
+            columnas[USUARIO][filas] = prestamo.getUsuarioId();
+            columnas[FECHA_PRESTAMO][filas] = prestamo.getFechaPrestamo().toEpochDay();
+            columnas[FECHA_DEVOLUCION][filas] = prestamo.getFechaDevolucion().toEpochDay();
+            columnas[VERSION][filas] = prestamo.getVersion() != null ? prestamo.getVersion() : 0L;
+            total++;
+            if (++filas == filasPorGrupo) {
+                volcarGrupo();
+            }
+        }
+
+        long filas() {
+            return total;
+        }
+
+        private void volcarGrupo() throws IOException {
+            long inicio = posicion;
+            int[] longitudes = new int[COLUMNAS];
+            for (int c = 0; c < COLUMNAS; c++) {
+                byte[] comprimida = comprimir(codificar(columnas[c], filas, c));
+                longitudes[c] = comprimida.length;
+                escribir(ByteBuffer.wrap(comprimida));
+            }
+            grupos.add(new Grupo(inicio, filas, longitudes, columnas[ID][0], columnas[ID][filas - 1],
+                    (int) minimo(columnas[FECHA_PRESTAMO]), (int) maximo(columnas[FECHA_PRESTAMO]),
+                    (int) minimo(columnas[FECHA_DEVOLUCION]), (int) maximo(columnas[FECHA_DEVOLUCION])));
+            filas = 0;
+        }
+
+        private long minimo(long[] valores) {
+            long minimo = Long.MAX_VALUE;
+            for (int fila = 0; fila < filas; fila++) {
+                minimo = Math.min(minimo, valores[fila]);
+            }
+            return minimo;
+        }
+
+        private long maximo(long[] valores) {
+            long maximo = Long.MIN_VALUE;
+            for (int fila = 0; fila < filas; fila++) {
+                maximo = Math.max(maximo, valores[fila]);
+            }
+            return maximo;
+        }
+
+        private static byte[] codificar(long[] valores, int filas, int columna) {
+            ByteArrayOutputStream salida = new ByteArrayOutputStream(filas * 2);
+            long anterior = 0;
+            for (int fila = 0; fila < filas; fila++) {
+                long valor = valores[fila];
+                long codificado = switch (columna) {
+                    case ID -> valor - anterior;
+                    case FECHA_PRESTAMO, FECHA_DEVOLUCION -> ((valor - anterior) << 1) ^ ((valor - anterior) >> 63); // zigzag
+                    default -> valor;
+                };
+                anterior = valor;
+                while ((codificado & ~0x7FL) != 0) {
+                    salida.write((int) ((codificado & 0x7F) | 0x80));
+                    codificado >>>= 7;
+                }
+                salida.write((int) codificado);
+            }
+            return salida.toByteArray();
+        }
+
+        private byte[] comprimir(byte[] datos) {
+            deflater.reset();
+            deflater.setInput(datos);
+            deflater.finish();
+            ByteArrayOutputStream salida = new ByteArrayOutputStream(Math.max(64, datos.length / 2));
+            byte[] bloque = new byte[8192];
+            while (!deflater.finished()) {
+                salida.write(bloque, 0, deflater.deflate(bloque));
+            }
+            return salida.toByteArray();
+        }
+
+        private void escribir(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                posicion += canal.write(bytes);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (filas > 0) {
+                    volcarGrupo();
+                }
+                ByteBuffer pie = ByteBuffer.allocate(grupos.size() * BYTES_GRUPO + BYTES_COLA);
+                long posicionPie = posicion;
+                for (Grupo grupo : grupos) {
+                    pie.putLong(grupo.posicion()).putInt(grupo.filas());
+                    for (int longitud : grupo.longitudes()) {
+                        pie.putInt(longitud);
+                    }
+                    pie.putLong(grupo.minId()).putLong(grupo.maxId())
+                            .putInt(grupo.minPrestamo()).putInt(grupo.maxPrestamo())
+                            .putInt(grupo.minDevolucion()).putInt(grupo.maxDevolucion());
+                }
+                pie.putInt(grupos.size()).putLong(posicionPie).putLong(MAGIA).flip();
+                escribir(pie);
+                canal.force(true);
+            } finally {
+                deflater.end();
+                canal.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.biblioteca.application.service.busqueda;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.KeywordTokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+
+/**
+ * El texto completo como un único término, en minúsculas y sin tildes: el prefijo "garcia m" encuentra
+ * "García Márquez" igual que "garc".
+ */
+final class AnalizadorAutocompletado extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String campo) {
+        Tokenizer tokenizador = new KeywordTokenizer();
+        return new TokenStreamComponents(tokenizador, new ASCIIFoldingFilter(new LowerCaseFilter(tokenizador)));
+    }
+
+    @Override
+    protected TokenStream normalize(String campo, TokenStream entrada) {
+        return new ASCIIFoldingFilter(new LowerCaseFilter(entrada));
+    }
+}
@@ -0,0 +1,33 @@
+package com.biblioteca.application.service.busqueda;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.StopFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.analysis.es.SpanishLightStemFilter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+
+/**
+ * Análisis en español sin tildes: "García" y "garcia" producen el mismo término.
+ * Las palabras vacías se quitan antes de plegar los acentos porque la lista de Lucene los incluye ("más", "él").
+ */
+final class AnalizadorEspanol extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String campo) {
+        Tokenizer tokenizador = new StandardTokenizer();
+        TokenStream flujo = new LowerCaseFilter(tokenizador);
+        flujo = new StopFilter(flujo, SpanishAnalyzer.getDefaultStopSet());
+        flujo = new ASCIIFoldingFilter(flujo);
+        flujo = new SpanishLightStemFilter(flujo); // "novelas" y "novela" coinciden
+        return new TokenStreamComponents(tokenizador, flujo);
+    }
+
+    @Override
+    protected TokenStream normalize(String campo, TokenStream entrada) {
+        return new ASCIIFoldingFilter(new LowerCaseFilter(entrada));
+    }
+}
@@ -0,0 +1,292 @@
+package com.biblioteca.application.service.busqueda;
+
+import com.biblioteca.infrastructure.controllers.libro.dto.SugerenciaDTOResponse;
+import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingSuggester;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Autocompletado por prefijo de títulos y autores, ordenado por número de préstamos.
+ *
+ * <p>La base es un FST de Lucene ({@link AnalyzingSuggester}) con todos los títulos y autores distintos del
+ * catálogo: un autómata de solo lectura que comparte prefijos y cuyo tamaño depende del catálogo, no del tráfico.
+ * Un FST no admite cambios, así que las escrituras posteriores (altas, bajas y préstamos nuevos) se acumulan en una
+ * capa incremental pequeña que se combina con él en cada consulta. Cuando esa capa supera
+ * {@code biblioteca.autocompletado.cambios-para-reconstruir}, el FST se reconstruye en segundo plano desde la base
+ * de datos y la capa vuelve a empezar.</p>
+ *
+ * <p>Los pesos de la capa incremental son aproximados hasta la siguiente reconstrucción: un préstamo confirmado
+ * mientras se reconstruye puede contarse dos veces.</p>
+ */
+@Component
+public class AutocompletadoLibros {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutocompletadoLibros.class);
+
+    // Candidatos pedidos al FST por sugerencia devuelta: margen para las bajas y los préstamos de la capa incremental
+    private static final int FACTOR_CANDIDATOS = 4;
+    private static final char SEPARADOR = '\u0000';
+
+    private static final Comparator<SugerenciaDTOResponse> ORDEN = Comparator
+            .comparing(SugerenciaDTOResponse::getPrestamos, Comparator.reverseOrder())
+            .thenComparing(SugerenciaDTOResponse::getTexto);
+
+    private final LibroRepositorio libroRepositorio;
+    private final TransactionTemplate lectura;
+    private final Analyzer analizador = new AnalizadorAutocompletado();
+    private final int cambiosParaReconstruir;
+    private final AtomicBoolean reconstruyendo = new AtomicBoolean();
+
+    private volatile Generacion actual = new Generacion(null, new Cambios());
+    // Mientras se construye la próxima generación, los cambios se aplican también a la capa que la acompañará
+    private volatile Cambios siguiente;
+
+    @Autowired
+    public AutocompletadoLibros(LibroRepositorio libroRepositorio, PlatformTransactionManager transactionManager,
+                                @Value("${biblioteca.autocompletado.cambios-para-reconstruir:10000}") int cambiosParaReconstruir) {
+        this.libroRepositorio = libroRepositorio;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.cambiosParaReconstruir = cambiosParaReconstruir;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        if (!reconstruyendo.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long inicio = System.nanoTime();
+            Cambios cambios = new Cambios();
+            siguiente = cambios;
+            AnalyzingSuggester fst = construir();
+            actual = new Generacion(fst, cambios);
+            siguiente = null;
+            logger.info("Autocompletado de libros construido: {} sugerencias, {} KB de heap en {} ms",
+                    fst.getCount(), fst.ramBytesUsed() / 1024, (System.nanoTime() - inicio) / 1_000_000);
+        } catch (IOException e) {
+            siguiente = null;
+            throw new UncheckedIOException("Error construyendo el autocompletado de libros", e);
+        } finally {
+            reconstruyendo.set(false);
+        }
+    }
+
+    private AnalyzingSuggester construir() throws IOException {
+        // La construcción ordena las entradas en ficheros temporales; solo el FST resultante queda en memoria
+        Path temporal = Files.createTempDirectory("biblioteca-autocompletado");
+        try (Directory directorio = FSDirectory.open(temporal)) {
+            AnalyzingSuggester fst = new AnalyzingSuggester(directorio, "autocompletado", analizador);
+            lectura.executeWithoutResult(estado -> {
+                try (Stream<SugerenciaDTOResponse> titulos = libroRepositorio.streamTitulosConPrestamos();
+                     Stream<SugerenciaDTOResponse> autores = libroRepositorio.streamAutoresConPrestamos()) {
+                    fst.build(new Entradas(Stream.concat(titulos, autores).iterator()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            return fst;
+        } finally {
+            FileSystemUtils.deleteRecursively(temporal);
+        }
+    }
+
+    public List<SugerenciaDTOResponse> sugerir(String prefijo, int limite) {
+        Generacion generacion = actual;
+        Cambios cambios = generacion.cambios();
+        Map<String, SugerenciaDTOResponse> candidatos = new HashMap<>();
+        if (generacion.fst() != null) {
+            try {
+                for (Lookup.LookupResult resultado : generacion.fst().lookup(prefijo, false, limite * FACTOR_CANDIDATOS)) {
+                    String texto = resultado.key.toString();
+                    String tipo = resultado.payload.utf8ToString();
+                    String clave = clave(tipo, texto);
+                    if (!cambios.retirados.contains(clave)) {
+                        candidatos.put(clave, new SugerenciaDTOResponse(texto, tipo, resultado.value + cambios.prestamos(clave)));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error consultando el autocompletado de libros", e);
+            }
+        }
+        String normalizado = normalizar(prefijo);
+        for (Map.Entry<String, SugerenciaDTOResponse> agregado : cambios.agregados.subMap(normalizado, normalizado + Character.MAX_VALUE).entrySet()) {
+            SugerenciaDTOResponse sugerencia = agregado.getValue();
+            candidatos.putIfAbsent(agregado.getKey(), new SugerenciaDTOResponse(sugerencia.getTexto(), sugerencia.getTipo(), cambios.prestamos(agregado.getKey())));
+        }
+        return candidatos.values().stream().sorted(ORDEN).limit(limite).toList();
+    }
+
+    // Los métodos siguientes deben llamarse después del commit (TrasConfirmacion)
+
+    public void libroCreado(String titulo, String autor) {
+        agregar(SugerenciaDTOResponse.TITULO, titulo);
+        agregar(SugerenciaDTOResponse.AUTOR, autor);
+    }
+
+    public void libroModificado(String tituloAnterior, String autorAnterior, String titulo, String autor) {
+        if (!tituloAnterior.equals(titulo)) {
+            retirar(SugerenciaDTOResponse.TITULO, tituloAnterior);
+            agregar(SugerenciaDTOResponse.TITULO, titulo);
+        }
+        if (!autorAnterior.equals(autor)) {
+            retirar(SugerenciaDTOResponse.AUTOR, autorAnterior);
+            agregar(SugerenciaDTOResponse.AUTOR, autor);
+        }
+    }
+
+    public void libroEliminado(String titulo, String autor) {
+        retirar(SugerenciaDTOResponse.TITULO, titulo);
+        retirar(SugerenciaDTOResponse.AUTOR, autor);
+    }
+
+    public void libroPrestado(String titulo, String autor) {
+        String claveTitulo = clave(SugerenciaDTOResponse.TITULO, titulo);
+        String claveAutor = clave(SugerenciaDTOResponse.AUTOR, autor);
+        aplicar(cambios -> {
+            cambios.sumarPrestamo(claveTitulo);
+            cambios.sumarPrestamo(claveAutor);
+        });
+    }
+
+    private void agregar(String tipo, String texto) {
+        String clave = clave(tipo, texto);
+        SugerenciaDTOResponse sugerencia = new SugerenciaDTOResponse(texto, tipo, 0L);
+        aplicar(cambios -> {
+            cambios.retirados.remove(clave);
+            cambios.agregados.putIfAbsent(clave, sugerencia);
+        });
+    }
+
+    private void retirar(String tipo, String texto) {
+        // Otro libro puede tener el mismo título o autor; solo se retira cuando ya no queda ninguno
+        boolean sigue = SugerenciaDTOResponse.TITULO.equals(tipo) ? libroRepositorio.existsByTitulo(texto) : libroRepositorio.existsByAutor(texto);
+        if (sigue) {
+            return;
+        }
+        String clave = clave(tipo, texto);
+        aplicar(cambios -> {
+            cambios.agregados.remove(clave);
+            cambios.retirados.add(clave);
+        });
+    }
+
+    private void aplicar(Consumer<Cambios> cambio) {
+        // Primero la capa siguiente: si ya es null, la reconstrucción terminó y actual es la generación nueva
+        Cambios proximos = siguiente;
+        Cambios vigentes = actual.cambios();
+        cambio.accept(vigentes);
+        if (proximos != null && proximos != vigentes) {
+            cambio.accept(proximos);
+        }
+        if (vigentes.numero.incrementAndGet() >= cambiosParaReconstruir && !reconstruyendo.get()) {
+            Thread.ofVirtual().name("autocompletado-reconstruccion").start(this::reconstruir);
+        }
+    }
+
+    // Empieza por el texto normalizado para poder recorrer la capa incremental por prefijo
+    private String clave(String tipo, String texto) {
+        return normalizar(texto) + SEPARADOR + tipo + SEPARADOR + texto;
+    }
+
+    private String normalizar(String texto) {
+        return analizador.normalize("", texto).utf8ToString();
+    }
+
+    private record Generacion(AnalyzingSuggester fst, Cambios cambios) {
+    }
+
+    private static final class Cambios {
+        private final ConcurrentNavigableMap<String, SugerenciaDTOResponse> agregados = new ConcurrentSkipListMap<>();
+        private final Set<String> retirados = ConcurrentHashMap.newKeySet();
+        private final Map<String, LongAdder> prestamos = new ConcurrentHashMap<>();
+        private final AtomicInteger numero = new AtomicInteger();
+
+        long prestamos(String clave) {
+            LongAdder contador = prestamos.get(clave);
+            return contador != null ? contador.sum() : 0L;
+        }
+
+        void sumarPrestamo(String clave) {
+            prestamos.computeIfAbsent(clave, k -> new LongAdder()).increment();
+        }
+    }
+
+    private static final class Entradas implements InputIterator {
+
+        private final Iterator<SugerenciaDTOResponse> sugerencias;
+        private SugerenciaDTOResponse sugerencia;
+
+        Entradas(Iterator<SugerenciaDTOResponse> sugerencias) {
+            this.sugerencias = sugerencias;
+        }
+
+        @Override
+        public BytesRef next() {
+            if (!sugerencias.hasNext()) {
+                return null;
+            }
+            sugerencia = sugerencias.next();
+            return new BytesRef(sugerencia.getTexto());
+        }
+
+        @Override
+        public long weight() {
+            return sugerencia.getPrestamos();
+        }
+
+        @Override
+        public BytesRef payload() {
+            return new BytesRef(sugerencia.getTipo());
+        }
+
+        @Override
+        public boolean hasPayloads() {
+            return true;
+        }
+
+        @Override
+        public Set<BytesRef> contexts() {
+            return null;
+        }
+
+        @Override
+        public boolean hasContexts() {
+            return false;
+        }
+    }
+}
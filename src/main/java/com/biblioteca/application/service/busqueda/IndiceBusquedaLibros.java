@@ -0,0 +1,274 @@
+package com.biblioteca.application.service.busqueda;
+
+import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
+import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Índice invertido de Lucene sobre el título y el autor de los libros, en un directorio local.
+ *
+ * <p>La base de datos es la fuente de verdad: el índice solo guarda el ID de cada libro y se reconstruye entero al
+ * arrancar (H2 vive en memoria, así que un índice de una ejecución anterior no serviría). Después, el servicio de
+ * libros y la importación lo actualizan tras cada commit. Las búsquedas ven las escrituras en cuanto terminan
+ * gracias a la reapertura casi en tiempo real del {@link SearcherManager}.</p>
+ *
+ * <p>El directorio va en disco y no en el heap: con {@link FSDirectory} el sistema operativo mapea los ficheros en
+ * memoria y un catálogo de millones de libros no compite con la aplicación por la memoria de la JVM.</p>
+ */
+@Component
+public class IndiceBusquedaLibros {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceBusquedaLibros.class);
+
+    // Paginar más allá obliga a Lucene a ordenar demasiados resultados por petición
+    public static final int MAXIMO_RESULTADOS = 10_000;
+
+    static final String CAMPO_ID = "id";
+    static final String CAMPO_ORDEN = "orden";
+    static final String CAMPO_TITULO = "titulo";
+    static final String CAMPO_AUTOR = "autor";
+
+    private static final float PESO_TITULO = 2f;
+    // A igual relevancia, por ID: el orden no cambia entre páginas
+    private static final Sort ORDEN = new Sort(SortField.FIELD_SCORE, new SortField(CAMPO_ORDEN, SortField.Type.LONG));
+
+    private final LibroRepositorio libroRepositorio;
+    private final TransactionTemplate lectura;
+    private final Analyzer analizador = new AnalizadorEspanol();
+    private final Path directorioTemporal; // null si el directorio se configuró con biblioteca.busqueda.directorio
+    private final Directory directorio;
+    private final IndexWriter escritor;
+    private final SearcherManager buscadores;
+    // Libros modificados mientras se reconstruye: se releen de la base de datos al terminar
+    private final Queue<Long> pendientes = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean reconstruyendo;
+
+    @Autowired
+    public IndiceBusquedaLibros(LibroRepositorio libroRepositorio, PlatformTransactionManager transactionManager,
+                                @Value("${biblioteca.busqueda.directorio:}") String ruta) throws IOException {
+        this.libroRepositorio = libroRepositorio;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        // Sin ruta configurada, un directorio propio por contexto: dos contextos no pueden compartir el IndexWriter
+        this.directorioTemporal = ruta.isBlank() ? Files.createTempDirectory("biblioteca-busqueda") : null;
+        this.directorio = FSDirectory.open(directorioTemporal != null ? directorioTemporal : Files.createDirectories(Path.of(ruta)));
+        this.escritor = new IndexWriter(directorio, new IndexWriterConfig(analizador).setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+        this.buscadores = new SearcherManager(escritor, null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        reconstruyendo = true;
+        try {
+            long inicio = System.nanoTime();
+            escritor.deleteAll();
+            long[] indexados = {0};
+            lectura.executeWithoutResult(estado -> {
+                try (Stream<LibroDTOResponse> libros = libroRepositorio.streamAllAsDTO()) {
+                    libros.forEach(libro -> {
+                        escribir(libro);
+                        indexados[0]++;
+                    });
+                }
+            });
+            escritor.commit();
+            buscadores.maybeRefreshBlocking();
+            logger.info("Índice de búsqueda de libros construido: {} libros en {} ms", indexados[0], (System.nanoTime() - inicio) / 1_000_000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reconstruyendo el índice de búsqueda de libros", e);
+        } finally {
+            reconstruyendo = false;
+        }
+        reindexarPendientes();
+    }
+
+    // Debe llamarse después del commit (TrasConfirmacion): el índice no participa en la transacción
+    public void indexar(Collection<LibroDTOResponse> libros) {
+        if (libros.isEmpty()) {
+            return;
+        }
+        if (reconstruyendo) {
+            libros.forEach(libro -> pendientes.add(libro.getId()));
+            return;
+        }
+        libros.forEach(this::escribir);
+        refrescar();
+    }
+
+    public void indexar(LibroDTOResponse libro) {
+        indexar(List.of(libro));
+    }
+
+    public void eliminar(Long id) {
+        if (reconstruyendo) {
+            pendientes.add(id);
+            return;
+        }
+        try {
+            escritor.deleteDocuments(new Term(CAMPO_ID, id.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error eliminando el libro " + id + " del índice de búsqueda", e);
+        }
+        refrescar();
+    }
+
+    /**
+     * IDs de los libros que contienen todos los términos de {@code texto} en el título o el autor, del más
+     * relevante al menos relevante. Un término en el título pesa el doble que en el autor.
+     */
+    public List<Long> buscar(String texto, int desplazamiento, int cantidad) {
+        Query consulta = construirConsulta(texto);
+        if (consulta == null) {
+            return List.of(); // Solo palabras vacías ("el", "de"...)
+        }
+        try {
+            IndexSearcher buscador = buscadores.acquire();
+            try {
+                TopDocs resultados = buscador.search(consulta, desplazamiento + cantidad, ORDEN);
+                StoredFields campos = buscador.storedFields();
+                List<Long> ids = new ArrayList<>(cantidad);
+                for (int i = desplazamiento; i < resultados.scoreDocs.length; i++) {
+                    ScoreDoc resultado = resultados.scoreDocs[i];
+                    ids.add(Long.valueOf(campos.document(resultado.doc).get(CAMPO_ID)));
+                }
+                return ids;
+            } finally {
+                buscadores.release(buscador);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error buscando en el índice de libros", e);
+        }
+    }
+
+    private Query construirConsulta(String texto) {
+        Set<String> terminos = new LinkedHashSet<>();
+        try (TokenStream flujo = analizador.tokenStream(CAMPO_TITULO, texto)) {
+            CharTermAttribute termino = flujo.addAttribute(CharTermAttribute.class);
+            flujo.reset();
+            while (flujo.incrementToken()) {
+                terminos.add(termino.toString());
+            }
+            flujo.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error analizando el texto de búsqueda", e);
+        }
+        if (terminos.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder consulta = new BooleanQuery.Builder();
+        for (String termino : terminos) {
+            Query enTitulo = new BoostQuery(new TermQuery(new Term(CAMPO_TITULO, termino)), PESO_TITULO);
+            Query enAutor = new TermQuery(new Term(CAMPO_AUTOR, termino));
+            consulta.add(new BooleanQuery.Builder()
+                    .add(enTitulo, BooleanClause.Occur.SHOULD)
+                    .add(enAutor, BooleanClause.Occur.SHOULD)
+                    .build(), BooleanClause.Occur.MUST);
+        }
+        return consulta.build();
+    }
+
+    private void escribir(LibroDTOResponse libro) {
+        Document documento = new Document();
+        documento.add(new StringField(CAMPO_ID, libro.getId().toString(), Field.Store.YES));
+        documento.add(new NumericDocValuesField(CAMPO_ORDEN, libro.getId()));
+        documento.add(new TextField(CAMPO_TITULO, libro.getTitulo(), Field.Store.NO));
+        documento.add(new TextField(CAMPO_AUTOR, libro.getAutor(), Field.Store.NO));
+        try {
+            // Sustituye la versión anterior del libro si ya estaba indexado
+            escritor.updateDocument(new Term(CAMPO_ID, libro.getId().toString()), documento);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error indexando el libro " + libro.getId(), e);
+        }
+    }
+
+    private void refrescar() {
+        try {
+            buscadores.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error refrescando el índice de búsqueda de libros", e);
+        }
+    }
+
+    private void reindexarPendientes() {
+        Set<Long> ids = new LinkedHashSet<>();
+        Long id;
+        while ((id = pendientes.poll()) != null) {
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Map<Long, LibroDTOResponse> libros = libroRepositorio.findDTOByIdIn(ids).stream()
+                .collect(Collectors.toMap(LibroDTOResponse::getId, Function.identity()));
+        for (Long pendiente : ids) {
+            LibroDTOResponse libro = libros.get(pendiente);
+            if (libro != null) {
+                indexar(libro);
+            } else {
+                eliminar(pendiente);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        buscadores.close();
+        escritor.close();
+        directorio.close();
+        if (directorioTemporal != null) {
+            FileSystemUtils.deleteRecursively(directorioTemporal);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.biblioteca.application.service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Caché acotada por ID de un tipo de DTO. Caffeine aplica W-TinyLFU al superar el tamaño máximo.
+ * <p>
+ * Es asíncrona aunque se use de forma síncrona: la carga se ejecuta fuera del {@code compute} del mapa
+ * interno, que es un bloque {@code synchronized}. Con hilos virtuales, hacer JDBC dentro de ese bloque
+ * dejaría el hilo portador bloqueado durante toda la consulta.
+ */
+public class CacheDTO<T> {
+
+    private final String nombre;
+    private final ObjectWriter escritor;
+    private final AsyncCache<Long, RespuestaCacheada<T>> cache;
+    private final LongAdder invalidaciones = new LongAdder(); // Caffeine no las cuenta en CacheStats
+
+    CacheDTO(String nombre, ObjectWriter escritor, long tamanoMaximo, Duration expiracion) {
+        this.nombre = nombre;
+        this.escritor = escritor;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(expiracion)
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Devuelve la respuesta cacheada o la construye con el cargador. Si el cargador devuelve null no se
+     * cachea nada y se devuelve null. Las cargas concurrentes del mismo ID esperan a la primera.
+     */
+    public RespuestaCacheada<T> obtener(Long id, Function<Long, T> cargador) {
+        CompletableFuture<RespuestaCacheada<T>> propia = new CompletableFuture<>();
+        CompletableFuture<RespuestaCacheada<T>> futura = cache.get(id, (clave, ejecutor) -> propia);
+        if (futura == propia) {
+            // Este hilo es el que carga; un null o una excepción hacen que Caffeine retire la entrada
+            try {
+                T dto = cargador.apply(id);
+                propia.complete(dto == null ? null : new RespuestaCacheada<>(dto, serializar(dto)));
+            } catch (RuntimeException | Error e) {
+                propia.completeExceptionally(e);
+            }
+        }
+        try {
+            return futura.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    // Solo consulta: no carga, no espera a cargas en curso ni cuenta como acierto o fallo
+    public T obtenerSiPresente(Long id) {
+        CompletableFuture<RespuestaCacheada<T>> futura = cache.asMap().get(id);
+        if (futura == null || !futura.isDone() || futura.isCompletedExceptionally()) {
+            return null;
+        }
+        RespuestaCacheada<T> respuesta = futura.join();
+        return respuesta == null ? null : respuesta.dto();
+    }
+
+    // Si hay una carga en curso para el ID se retira de la caché: quien la espera recibe su resultado, pero no se guarda
+    public void invalidar(Long id) {
+        invalidaciones.increment();
+        cache.synchronous().invalidate(id);
+    }
+
+    public void invalidarTodo() {
+        invalidaciones.increment();
+        cache.synchronous().invalidateAll();
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public CacheStats estadisticas() {
+        return cache.synchronous().stats();
+    }
+
+    public long invalidaciones() {
+        return invalidaciones.sum();
+    }
+
+    private byte[] serializar(T dto) {
+        try {
+            return escritor.writeValueAsBytes(dto);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("No se pudo serializar la respuesta de " + nombre, e);
+        }
+    }
+}
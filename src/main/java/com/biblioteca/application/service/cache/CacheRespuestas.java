@@ -0,0 +1,49 @@
+package com.biblioteca.application.service.cache;
+
+import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTOResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Respuestas de lectura por ID ya mapeadas y serializadas. Los servicios invalidan las entradas
+ * después de cada escritura confirmada; la expiración solo acota el tiempo de vida en memoria.
+ */
+@Component
+public class CacheRespuestas {
+
+    private final CacheDTO<LibroDTOResponse> libros;
+    private final CacheDTO<UsuarioDTOResponse> usuarios;
+    private final CacheDTO<PrestamoDTOResponse> prestamos;
+
+    @Autowired
+    public CacheRespuestas(ObjectMapper objectMapper,
+                           @Value("${biblioteca.cache.respuestas.tamano-maximo:10000}") long tamanoMaximo,
+                           @Value("${biblioteca.cache.respuestas.expiracion:30m}") Duration expiracion) {
+        this.libros = new CacheDTO<>("respuestas.libros", objectMapper.writerFor(LibroDTOResponse.class), tamanoMaximo, expiracion);
+        this.usuarios = new CacheDTO<>("respuestas.usuarios", objectMapper.writerFor(UsuarioDTOResponse.class), tamanoMaximo, expiracion);
+        this.prestamos = new CacheDTO<>("respuestas.prestamos", objectMapper.writerFor(PrestamoDTOResponse.class), tamanoMaximo, expiracion);
+    }
+
+    public CacheDTO<LibroDTOResponse> libros() {
+        return libros;
+    }
+
+    public CacheDTO<UsuarioDTOResponse> usuarios() {
+        return usuarios;
+    }
+
+    public CacheDTO<PrestamoDTOResponse> prestamos() {
+        return prestamos;
+    }
+
+    public List<CacheDTO<?>> todas() {
+        return List.of(libros, usuarios, prestamos);
+    }
+}
@@ -0,0 +1,10 @@
+package com.biblioteca.application.service.cache;
+
+import com.biblioteca.infrastructure.controllers.cache.dto.EstadisticasCacheDTOResponse;
+
+import java.util.List;
+
+public interface EstadisticasCacheServicio {
+
+    List<EstadisticasCacheDTOResponse> obtenerEstadisticas();
+}
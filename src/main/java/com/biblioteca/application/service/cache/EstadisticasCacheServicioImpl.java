@@ -0,0 +1,71 @@
+package com.biblioteca.application.service.cache;
+
+import com.biblioteca.infrastructure.controllers.cache.dto.EstadisticasCacheDTOResponse;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reúne las estadísticas de la caché de segundo nivel, leídas de los MBeans estándar de JCache (JSR-107)
+ * que Caffeine publica con {@code monitoring.statistics = true}, y las de la caché de respuestas.
+ */
+@Service
+@Timed("biblioteca.servicio")
+public class EstadisticasCacheServicioImpl implements EstadisticasCacheServicio {
+
+    private static final Logger logger = LoggerFactory.getLogger(EstadisticasCacheServicioImpl.class);
+
+    private static final String PATRON_ESTADISTICAS = "javax.cache:type=CacheStatistics,*";
+
+    private final MBeanServer servidorMBeans = ManagementFactory.getPlatformMBeanServer();
+    private final CacheRespuestas cacheRespuestas;
+
+    @Autowired
+    public EstadisticasCacheServicioImpl(CacheRespuestas cacheRespuestas) {
+        this.cacheRespuestas = cacheRespuestas;
+    }
+
+    @Override
+    public List<EstadisticasCacheDTOResponse> obtenerEstadisticas() {
+        logger.debug("Obteniendo estadísticas de la caché de segundo nivel");
+        List<EstadisticasCacheDTOResponse> estadisticas = new ArrayList<>();
+        try {
+            for (ObjectName nombre : servidorMBeans.queryNames(new ObjectName(PATRON_ESTADISTICAS), null)) {
+                estadisticas.add(new EstadisticasCacheDTOResponse(
+                        nombre.getKeyProperty("Cache"),
+                        leer(nombre, "CacheHits"),
+                        leer(nombre, "CacheMisses"),
+                        (Float) servidorMBeans.getAttribute(nombre, "CacheHitPercentage"),
+                        leer(nombre, "CachePuts"),
+                        leer(nombre, "CacheRemovals"),
+                        leer(nombre, "CacheEvictions")));
+            }
+        } catch (JMException e) {
+            logger.error("No se pudieron leer las estadísticas de caché", e);
+            throw new IllegalStateException("No se pudieron leer las estadísticas de caché", e);
+        }
+        for (CacheDTO<?> cache : cacheRespuestas.todas()) {
+            CacheStats stats = cache.estadisticas();
+            // Cada carga correcta es una escritura; las invalidaciones las cuentan los servicios
+            estadisticas.add(new EstadisticasCacheDTOResponse(cache.getNombre(), stats.hitCount(), stats.missCount(),
+                    (float) (stats.hitRate() * 100), stats.loadSuccessCount(), cache.invalidaciones(), stats.evictionCount()));
+        }
+        estadisticas.sort(Comparator.comparing(EstadisticasCacheDTOResponse::getRegion));
+        return estadisticas;
+    }
+
+    private long leer(ObjectName nombre, String atributo) throws JMException {
+        return (Long) servidorMBeans.getAttribute(nombre, atributo);
+    }
+}
@@ -0,0 +1,7 @@
+package com.biblioteca.application.service.cache;
+
+/**
+ * DTO ya construido junto con su JSON serializado. El array no se copia: quien lo recibe solo debe escribirlo.
+ */
+public record RespuestaCacheada<T>(T dto, byte[] json) {
+}
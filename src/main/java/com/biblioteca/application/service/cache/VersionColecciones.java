@@ -0,0 +1,43 @@
+package com.biblioteca.application.service.cache;
+
+import com.biblioteca.application.service.transaccion.TrasConfirmacion;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versión de cada colección para los ETag de los listados. Cada escritura confirmada la incrementa.
+ * La época aleatoria evita que tras un reinicio se repitan ETag ya entregados con otro contenido.
+ * Es estado de la instancia: solo vale mientras todas las escrituras pasen por ella.
+ */
+@Component
+public class VersionColecciones {
+
+    public enum Coleccion {
+        LIBROS, USUARIOS, PRESTAMOS
+    }
+
+    private final String epoca = Long.toHexString(new SecureRandom().nextLong());
+    private final Map<Coleccion, AtomicLong> versiones = new EnumMap<>(Coleccion.class);
+
+    public VersionColecciones() {
+        for (Coleccion coleccion : Coleccion.values()) {
+            versiones.put(coleccion, new AtomicLong());
+        }
+    }
+
+    public String version(Coleccion coleccion) {
+        return epoca + "-" + versiones.get(coleccion).get();
+    }
+
+    public void modificada(Coleccion... colecciones) {
+        TrasConfirmacion.ejecutar(() -> {
+            for (Coleccion coleccion : colecciones) {
+                versiones.get(coleccion).incrementAndGet();
+            }
+        });
+    }
+}
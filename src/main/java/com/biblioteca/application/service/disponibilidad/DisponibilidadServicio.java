@@ -0,0 +1,11 @@
+package com.biblioteca.application.service.disponibilidad;
+
+import com.biblioteca.infrastructure.controllers.libro.dto.DisponibilidadLibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.dto.DisponibilidadLibrosDTOResponse;
+
+import java.util.List;
+
+public interface DisponibilidadServicio {
+    DisponibilidadLibroDTOResponse obtenerDisponibilidad(Long libroId);
+    DisponibilidadLibrosDTOResponse obtenerDisponibilidades(List<Long> libroIds);
+}
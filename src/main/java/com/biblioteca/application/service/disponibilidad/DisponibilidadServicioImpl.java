@@ -0,0 +1,71 @@
+package com.biblioteca.application.service.disponibilidad;
+
+import com.biblioteca.application.service.libro.LibroServicio;
+import com.biblioteca.infrastructure.controllers.libro.dto.DisponibilidadLibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.dto.DisponibilidadLibrosDTOResponse;
+import com.biblioteca.infrastructure.exceptions.PeticionInvalidaExcepcion;
+import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Service
+@Timed("biblioteca.servicio")
+public class DisponibilidadServicioImpl implements DisponibilidadServicio {
+
+    private static final Logger logger = LoggerFactory.getLogger(DisponibilidadServicioImpl.class);
+
+    static final int TAMANO_MAXIMO_CONSULTA = 1000;
+
+    private final IndiceDisponibilidad indiceDisponibilidad;
+    private final LibroServicio libroServicio;
+    private final LibroRepositorio libroRepositorio;
+
+    @Autowired
+    public DisponibilidadServicioImpl(IndiceDisponibilidad indiceDisponibilidad, LibroServicio libroServicio, LibroRepositorio libroRepositorio) {
+        this.indiceDisponibilidad = indiceDisponibilidad;
+        this.libroServicio = libroServicio;
+        this.libroRepositorio = libroRepositorio;
+    }
+
+    @Override
+    public DisponibilidadLibroDTOResponse obtenerDisponibilidad(Long libroId) {
+        logger.debug("Obteniendo disponibilidad del libro con ID: {}", libroId);
+        // La existencia se comprueba con la versión (caché de respuestas o consulta por clave primaria); lanza 404
+        libroServicio.obtenerVersionLibro(libroId);
+        return new DisponibilidadLibroDTOResponse(libroId, !indiceDisponibilidad.estaPrestado(libroId));
+    }
+
+    @Override
+    public DisponibilidadLibrosDTOResponse obtenerDisponibilidades(List<Long> libroIds) {
+        if (libroIds == null || libroIds.isEmpty()) {
+            throw new PeticionInvalidaExcepcion("La lista de IDs de libros no puede estar vacía");
+        }
+        Set<Long> ids = new LinkedHashSet<>(libroIds);
+        ids.remove(null);
+        if (ids.size() > TAMANO_MAXIMO_CONSULTA) {
+            throw new PeticionInvalidaExcepcion("No se puede consultar la disponibilidad de más de " + TAMANO_MAXIMO_CONSULTA + " libros a la vez");
+        }
+        logger.debug("Obteniendo disponibilidad de {} libros", ids.size());
+
+        // Una sola consulta para la existencia; la disponibilidad sale del índice en memoria
+        Set<Long> existentes = ids.isEmpty() ? Set.of() : libroRepositorio.findIdsExistentes(ids);
+        List<DisponibilidadLibroDTOResponse> libros = new ArrayList<>(existentes.size());
+        List<Long> noEncontrados = new ArrayList<>();
+        for (Long id : ids) {
+            if (existentes.contains(id)) {
+                libros.add(new DisponibilidadLibroDTOResponse(id, !indiceDisponibilidad.estaPrestado(id)));
+            } else {
+                noEncontrados.add(id);
+            }
+        }
+        return new DisponibilidadLibrosDTOResponse(libros, noEncontrados);
+    }
+}
@@ -0,0 +1,141 @@
+package com.biblioteca.application.service.disponibilidad;
+
+import com.biblioteca.infrastructure.repository.PrestamoRepositorio;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Bitmap en memoria con los IDs de los libros que tienen algún préstamo abierto (sin fecha de devolución).
+ * Consultar un libro es una búsqueda en el bitmap, sin conexión a la base de datos.
+ *
+ * <p>Se construye al arrancar, después de los runners (generador de datos sintéticos), y los servicios lo
+ * mantienen al día llamando a {@link #recalcular(Collection)} tras confirmar cada escritura que abre, cierra o
+ * borra préstamos. Recalcular lee el estado confirmado en la base de datos en lugar de aplicar el cambio de la
+ * transacción, así que dos transacciones concurrentes sobre el mismo libro no pueden dejarlo desfasado: la que
+ * recalcula la última ve las dos confirmadas.</p>
+ */
+@Component
+public class IndiceDisponibilidad {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceDisponibilidad.class);
+
+    private static final int FRANJAS = 64;
+
+    private final PrestamoRepositorio prestamoRepositorio;
+    private final TransactionTemplate lectura;
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    // Serializa los recálculos de un mismo libro: consulta y escritura en el bitmap deben ir juntas
+    private final ReentrantLock[] franjas = new ReentrantLock[FRANJAS];
+    // Libros recalculados mientras se reconstruye: se vuelven a recalcular sobre el bitmap nuevo
+    private final Queue<Long> pendientes = new ConcurrentLinkedQueue<>();
+
+    private Roaring64Bitmap prestados = new Roaring64Bitmap();
+    private volatile boolean construido;
+    private volatile boolean reconstruyendo;
+
+    @Autowired
+    public IndiceDisponibilidad(PrestamoRepositorio prestamoRepositorio, PlatformTransactionManager transactionManager) {
+        this.prestamoRepositorio = prestamoRepositorio;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        reconstruyendo = true;
+        try {
+            long inicio = System.nanoTime();
+            Roaring64Bitmap nuevo = new Roaring64Bitmap();
+            lectura.executeWithoutResult(estado -> {
+                try (Stream<Long> ids = prestamoRepositorio.streamIdsLibrosPrestados()) {
+                    ids.forEach(nuevo::addLong);
+                }
+            });
+            nuevo.runOptimize();
+            cerrojo.writeLock().lock();
+            try {
+                prestados = nuevo;
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+            construido = true;
+            logger.info("Índice de disponibilidad construido: {} libros prestados en {} ms",
+                    nuevo.getLongCardinality(), (System.nanoTime() - inicio) / 1_000_000);
+        } finally {
+            reconstruyendo = false;
+        }
+        Long libroId;
+        while ((libroId = pendientes.poll()) != null) {
+            recalcular(libroId);
+        }
+    }
+
+    public boolean estaPrestado(long libroId) {
+        if (!construido) {
+            // Peticiones que llegan antes de terminar el arranque
+            return prestamoRepositorio.existsByLibroIdAndFechaDevolucionIsNull(libroId);
+        }
+        cerrojo.readLock().lock();
+        try {
+            return prestados.contains(libroId);
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    // Antes de un borrado en cascada: después ya no se sabe qué libros liberó
+    public Collection<Long> librosPrestadosA(Long usuarioId) {
+        return prestamoRepositorio.findIdsLibrosPrestadosAUsuario(usuarioId);
+    }
+
+    // Debe llamarse después del commit (TrasConfirmacion) para leer el estado confirmado
+    public void recalcular(Collection<Long> libroIds) {
+        for (Long libroId : libroIds) {
+            recalcular(libroId);
+        }
+    }
+
+    public void recalcular(Long libroId) {
+        if (libroId == null) {
+            return;
+        }
+        if (reconstruyendo) {
+            pendientes.add(libroId);
+        }
+        ReentrantLock franja = franjas[Long.hashCode(libroId) & (FRANJAS - 1)];
+        franja.lock();
+        try {
+            boolean prestado = prestamoRepositorio.existsByLibroIdAndFechaDevolucionIsNull(libroId);
+            cerrojo.writeLock().lock();
+            try {
+                if (prestado) {
+                    prestados.addLong(libroId);
+                } else {
+                    prestados.removeLong(libroId);
+                }
+            } finally {
+                cerrojo.writeLock().unlock();
+            }
+        } finally {
+            franja.unlock();
+        }
+    }
+}
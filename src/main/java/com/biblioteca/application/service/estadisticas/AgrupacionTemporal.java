@@ -0,0 +1,44 @@
+package com.biblioteca.application.service.estadisticas;
+
+import com.biblioteca.infrastructure.exceptions.PeticionInvalidaExcepcion;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+// Periodos de GET /estadisticas/prestamos
+public enum AgrupacionTemporal {
+    DIA,
+    SEMANA, // De lunes a domingo (ISO 8601)
+    MES;    // Mes natural
+
+    public static AgrupacionTemporal desdeParametro(String agrupacion) {
+        if (agrupacion == null || agrupacion.isBlank()) {
+            return DIA;
+        }
+        try {
+            return valueOf(agrupacion.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new PeticionInvalidaExcepcion("Agrupación no soportada: " + agrupacion + " (dia, semana o mes)");
+        }
+    }
+
+    // Primer día del periodo que contiene la fecha
+    public LocalDate inicio(LocalDate fecha) {
+        return switch (this) {
+            case DIA -> fecha;
+            case SEMANA -> fecha.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MES -> fecha.withDayOfMonth(1);
+        };
+    }
+
+    // Último día del periodo que empieza en inicio
+    public LocalDate fin(LocalDate inicio) {
+        return switch (this) {
+            case DIA -> inicio;
+            case SEMANA -> inicio.plusDays(6);
+            case MES -> inicio.with(TemporalAdjusters.lastDayOfMonth());
+        };
+    }
+}
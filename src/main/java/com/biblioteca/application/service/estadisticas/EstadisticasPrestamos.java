@@ -0,0 +1,222 @@
+package com.biblioteca.application.service.estadisticas;
+
+import com.biblioteca.application.service.transaccion.TrasConfirmacion;
+import com.biblioteca.domain.entity.Prestamo;
+import com.biblioteca.infrastructure.repository.EstadisticaLibroRepositorio;
+import com.biblioteca.infrastructure.repository.EstadisticaUsuarioRepositorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Número de préstamos por libro y por usuario, y los rankings de los más prestados y los más activos.
+ *
+ * <p>Los contadores viven en {@code estadisticas_libros} y {@code estadisticas_usuarios} y se actualizan en la misma
+ * transacción que los préstamos, con un UPDATE incremental por libro y por usuario afectados: si la transacción
+ * falla, el cambio se deshace con ella. Los rankings ({@link RankingPrestamos}) se recolocan tras el commit con el
+ * valor confirmado de cada contador.</p>
+ *
+ * <p>Contadores y rankings se recalculan al arrancar, después de los runners (generador de datos sintéticos). Los
+ * préstamos archivados (ArchivoPrestamos) ya no están en prestamos: la columna {@code archivados}, que se suma en la
+ * misma transacción que los borra de la tabla, los conserva en el recuento. Como en ResumenesPrestamos, son historia
+ * cerrada y el borrado posterior de su libro no los descuenta de su usuario ni al revés.</p>
+ */
+@Component
+public class EstadisticasPrestamos {
+
+    private static final Logger logger = LoggerFactory.getLogger(EstadisticasPrestamos.class);
+
+    private static final String SQL_INSERTAR_LIBRO = "INSERT INTO estadisticas_libros (libro_id, prestamos) VALUES (?, ?)";
+    private static final String SQL_INSERTAR_USUARIO = "INSERT INTO estadisticas_usuarios (usuario_id, prestamos) VALUES (?, ?)";
+    // Con los préstamos aún en prestamos: la cuenta total no cambia, solo pasan a contar también como archivados
+    private static final String SQL_ARCHIVAR_LIBROS = """
+            UPDATE estadisticas_libros e
+            SET archivados = archivados + (SELECT COUNT(*) FROM prestamos p WHERE p.id = ANY(?) AND p.libro_id = e.libro_id)
+            WHERE libro_id IN (SELECT libro_id FROM prestamos WHERE id = ANY(?))
+            """;
+    private static final String SQL_ARCHIVAR_USUARIOS = """
+            UPDATE estadisticas_usuarios e
+            SET archivados = archivados + (SELECT COUNT(*) FROM prestamos p WHERE p.id = ANY(?) AND p.usuario_id = e.usuario_id)
+            WHERE usuario_id IN (SELECT usuario_id FROM prestamos WHERE id = ANY(?))
+            """;
+
+    private final EstadisticaLibroRepositorio estadisticaLibroRepositorio;
+    private final EstadisticaUsuarioRepositorio estadisticaUsuarioRepositorio;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int maximoRanking;
+    private final RankingPrestamos librosMasPrestados;
+    private final RankingPrestamos usuariosMasActivos;
+
+    @Autowired
+    public EstadisticasPrestamos(EstadisticaLibroRepositorio estadisticaLibroRepositorio, EstadisticaUsuarioRepositorio estadisticaUsuarioRepositorio,
+                                 JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 @Value("${biblioteca.estadisticas.maximo-ranking:100}") int maximoRanking) {
+        if (maximoRanking < 1) {
+            throw new IllegalArgumentException("biblioteca.estadisticas.maximo-ranking debe ser al menos 1");
+        }
+        this.estadisticaLibroRepositorio = estadisticaLibroRepositorio;
+        this.estadisticaUsuarioRepositorio = estadisticaUsuarioRepositorio;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maximoRanking = maximoRanking;
+        // El doble de lo que se sirve: margen para que las bajas de los primeros no obliguen a recargar enseguida
+        this.librosMasPrestados = new RankingPrestamos(2 * maximoRanking,
+                libroId -> estadisticaLibroRepositorio.findPrestamosByLibroId(libroId).orElse(0L),
+                n -> estadisticaLibroRepositorio.findByPrestamosGreaterThanOrderByPrestamosDescLibroIdAsc(0, Limit.of(n)).stream()
+                        .map(estadistica -> new RankingPrestamos.Entrada(estadistica.getLibroId(), estadistica.getPrestamos()))
+                        .toList());
+        this.usuariosMasActivos = new RankingPrestamos(2 * maximoRanking,
+                usuarioId -> estadisticaUsuarioRepositorio.findPrestamosByUsuarioId(usuarioId).orElse(0L),
+                n -> estadisticaUsuarioRepositorio.findByPrestamosGreaterThanOrderByPrestamosDescUsuarioIdAsc(0, Limit.of(n)).stream()
+                        .map(estadistica -> new RankingPrestamos.Entrada(estadistica.getUsuarioId(), estadistica.getPrestamos()))
+                        .toList());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recalcular() {
+        long inicio = System.nanoTime();
+        int[] filas = transactionTemplate.execute(estado -> {
+            estadisticaLibroRepositorio.reiniciarTodos();
+            estadisticaUsuarioRepositorio.reiniciarTodos();
+            return new int[]{estadisticaLibroRepositorio.recalcularTodos(), estadisticaUsuarioRepositorio.recalcularTodos()};
+        });
+        librosMasPrestados.recargar();
+        usuariosMasActivos.recargar();
+        logger.info("Estadísticas de préstamos recalculadas: {} libros y {} usuarios en {} ms",
+                filas[0], filas[1], (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    public int maximoRanking() {
+        return maximoRanking;
+    }
+
+    public List<RankingPrestamos.Entrada> librosMasPrestados(int limite) {
+        return librosMasPrestados.primeros(limite);
+    }
+
+    public List<RankingPrestamos.Entrada> usuariosMasActivos(int limite) {
+        return usuariosMasActivos.primeros(limite);
+    }
+
+    // Los métodos siguientes deben llamarse dentro de la transacción que crea, reasigna o borra los préstamos
+
+    public void prestamoCreado(Long libroId, Long usuarioId) {
+        sumarLibro(libroId, 1);
+        sumarUsuario(usuarioId, 1);
+        TrasConfirmacion.ejecutar(() -> {
+            librosMasPrestados.recalcular(libroId);
+            usuariosMasActivos.recalcular(usuarioId);
+        });
+    }
+
+    // Un UPDATE por libro y por usuario distintos del lote, no por préstamo, y en orden de ID: dos lotes que comparten
+    // libros bloquean sus filas en el mismo orden y no pueden quedar esperándose el uno al otro
+    public void prestamosCreados(Collection<Prestamo> prestamos) {
+        Map<Long, Long> porLibro = prestamos.stream()
+                .collect(Collectors.groupingBy(prestamo -> prestamo.getLibro().getId(), TreeMap::new, Collectors.counting()));
+        Map<Long, Long> porUsuario = prestamos.stream()
+                .collect(Collectors.groupingBy(prestamo -> prestamo.getUsuario().getId(), TreeMap::new, Collectors.counting()));
+        porLibro.forEach(this::sumarLibro);
+        porUsuario.forEach(this::sumarUsuario);
+        Set<Long> libroIds = porLibro.keySet();
+        Set<Long> usuarioIds = porUsuario.keySet();
+        TrasConfirmacion.ejecutar(() -> {
+            librosMasPrestados.recalcular(libroIds);
+            usuariosMasActivos.recalcular(usuarioIds);
+        });
+    }
+
+    public void prestamoReasignado(Long libroAnteriorId, Long usuarioAnteriorId, Long libroId, Long usuarioId) {
+        if (!Objects.equals(libroAnteriorId, libroId)) {
+            new TreeMap<>(Map.of(libroAnteriorId, -1L, libroId, 1L)).forEach(this::sumarLibro);
+            TrasConfirmacion.ejecutar(() -> librosMasPrestados.recalcular(List.of(libroAnteriorId, libroId)));
+        }
+        if (!Objects.equals(usuarioAnteriorId, usuarioId)) {
+            new TreeMap<>(Map.of(usuarioAnteriorId, -1L, usuarioId, 1L)).forEach(this::sumarUsuario);
+            TrasConfirmacion.ejecutar(() -> usuariosMasActivos.recalcular(List.of(usuarioAnteriorId, usuarioId)));
+        }
+    }
+
+    public void prestamoEliminado(Long libroId, Long usuarioId) {
+        sumarLibro(libroId, -1);
+        sumarUsuario(usuarioId, -1);
+        TrasConfirmacion.ejecutar(() -> {
+            librosMasPrestados.recalcular(libroId);
+            usuariosMasActivos.recalcular(usuarioId);
+        });
+    }
+
+    // Antes de borrar el libro, mientras sus préstamos siguen en la tabla
+    public void libroEliminado(Long libroId) {
+        // Como en el resto de métodos, primero las filas de libros y después las de usuarios
+        estadisticaLibroRepositorio.eliminar(libroId);
+        estadisticaUsuarioRepositorio.descontarPrestamosDeLibro(libroId);
+        TrasConfirmacion.ejecutar(() -> {
+            librosMasPrestados.recalcular(libroId);
+            usuariosMasActivos.invalidar();
+        });
+    }
+
+    // Antes de borrar el usuario, mientras sus préstamos siguen en la tabla
+    public void usuarioEliminado(Long usuarioId) {
+        estadisticaLibroRepositorio.descontarPrestamosDeUsuario(usuarioId);
+        estadisticaUsuarioRepositorio.eliminar(usuarioId);
+        TrasConfirmacion.ejecutar(() -> {
+            usuariosMasActivos.recalcular(usuarioId);
+            librosMasPrestados.invalidar();
+        });
+    }
+
+    // En la transacción del archivo, antes de borrar los préstamos de prestamos. Primero libros y después usuarios;
+    // los contadores y los rankings no cambian
+    public void prestamosArchivados(Long[] ids) {
+        jdbcTemplate.update(SQL_ARCHIVAR_LIBROS, ids, ids);
+        jdbcTemplate.update(SQL_ARCHIVAR_USUARIOS, ids, ids);
+    }
+
+    // Solo tienen fila los que se han prestado alguna vez: el primer préstamo la crea. Dos primeros préstamos
+    // simultáneos (por ejemplo, préstamos ya devueltos, que no pasan por el índice único ni por el cupo) insertan la
+    // misma fila: la segunda inserción espera a que la primera se confirme, falla por clave duplicada y el contador se
+    // suma con un segundo UPDATE. Un MERGE no sirve: en H2 dos MERGE a la vez pierden incrementos o también chocan.
+    private void sumarLibro(Long libroId, long cantidad) {
+        if (estadisticaLibroRepositorio.sumar(libroId, cantidad) == 0 && cantidad > 0 && !insertar(SQL_INSERTAR_LIBRO, libroId, cantidad)) {
+            estadisticaLibroRepositorio.sumar(libroId, cantidad);
+        }
+    }
+
+    private void sumarUsuario(Long usuarioId, long cantidad) {
+        if (estadisticaUsuarioRepositorio.sumar(usuarioId, cantidad) == 0 && cantidad > 0 && !insertar(SQL_INSERTAR_USUARIO, usuarioId, cantidad)) {
+            estadisticaUsuarioRepositorio.sumar(usuarioId, cantidad);
+        }
+    }
+
+    // Por JDBC y no con el repositorio: un error de JPA marcaría toda la transacción del préstamo para deshacerse.
+    // En H2 una sentencia fallida solo deshace esa sentencia, así que la transacción sigue siendo válida.
+    private boolean insertar(String sql, Long id, long cantidad) {
+        try {
+            jdbcTemplate.update(sql, id, cantidad);
+            return true;
+        } catch (DuplicateKeyException e) {
+            logger.debug("Fila de estadísticas {} creada a la vez por otra transacción", id);
+            return false;
+        }
+    }
+}
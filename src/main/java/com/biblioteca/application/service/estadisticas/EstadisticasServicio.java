@@ -0,0 +1,14 @@
+package com.biblioteca.application.service.estadisticas;
+
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.LibroMasPrestadoDTOResponse;
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.PrestamosPorPeriodoDTOResponse;
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.UsuarioMasActivoDTOResponse;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface EstadisticasServicio {
+    List<LibroMasPrestadoDTOResponse> obtenerLibrosMasPrestados(Integer limite);
+    List<UsuarioMasActivoDTOResponse> obtenerUsuariosMasActivos(Integer limite);
+    List<PrestamosPorPeriodoDTOResponse> obtenerPrestamosPorPeriodo(LocalDate desde, LocalDate hasta, String agrupacion, String autor);
+}
@@ -0,0 +1,136 @@
+package com.biblioteca.application.service.estadisticas;
+
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.LibroMasPrestadoDTOResponse;
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.PrestamosPorPeriodoDTOResponse;
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.UsuarioMasActivoDTOResponse;
+import com.biblioteca.infrastructure.exceptions.PeticionInvalidaExcepcion;
+import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import com.biblioteca.infrastructure.repository.ResumenPrestamosDiarioRepositorio;
+import com.biblioteca.infrastructure.repository.ResumenPrestamosMensualRepositorio;
+import com.biblioteca.infrastructure.repository.UsuarioRepositorio;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+@Service
+@Timed("biblioteca.servicio")
+public class EstadisticasServicioImpl implements EstadisticasServicio {
+
+    private static final Logger logger = LoggerFactory.getLogger(EstadisticasServicioImpl.class);
+
+    static final int RANKING_POR_DEFECTO = 10;
+
+    private final EstadisticasPrestamos estadisticasPrestamos;
+    private final LibroRepositorio libroRepositorio;
+    private final UsuarioRepositorio usuarioRepositorio;
+    private final ResumenPrestamosDiarioRepositorio resumenDiarioRepositorio;
+    private final ResumenPrestamosMensualRepositorio resumenMensualRepositorio;
+    private final int maximoPeriodos;
+
+    @Autowired
+    public EstadisticasServicioImpl(EstadisticasPrestamos estadisticasPrestamos, LibroRepositorio libroRepositorio, UsuarioRepositorio usuarioRepositorio,
+                                    ResumenPrestamosDiarioRepositorio resumenDiarioRepositorio, ResumenPrestamosMensualRepositorio resumenMensualRepositorio,
+                                    @Value("${biblioteca.resumenes.maximo-periodos:1000}") int maximoPeriodos) {
+        this.estadisticasPrestamos = estadisticasPrestamos;
+        this.libroRepositorio = libroRepositorio;
+        this.usuarioRepositorio = usuarioRepositorio;
+        this.resumenDiarioRepositorio = resumenDiarioRepositorio;
+        this.resumenMensualRepositorio = resumenMensualRepositorio;
+        this.maximoPeriodos = maximoPeriodos;
+    }
+
+    // Sin transacción: el ranking está en memoria y findById pasa por la caché de segundo nivel, así que K aciertos
+    // no necesitan conexión. Un libro o usuario borrado después de leer el ranking se omite.
+
+    @Override
+    public List<LibroMasPrestadoDTOResponse> obtenerLibrosMasPrestados(Integer limite) {
+        logger.debug("Obteniendo los libros más prestados con límite: {}", limite);
+        return estadisticasPrestamos.librosMasPrestados(normalizarLimite(limite)).stream()
+                .flatMap(entrada -> libroRepositorio.findById(entrada.id())
+                        .map(libro -> new LibroMasPrestadoDTOResponse(libro.getId(), libro.getTitulo(), libro.getAutor(), entrada.prestamos()))
+                        .stream())
+                .toList();
+    }
+
+    @Override
+    public List<UsuarioMasActivoDTOResponse> obtenerUsuariosMasActivos(Integer limite) {
+        logger.debug("Obteniendo los usuarios más activos con límite: {}", limite);
+        return estadisticasPrestamos.usuariosMasActivos(normalizarLimite(limite)).stream()
+                .flatMap(entrada -> usuarioRepositorio.findById(entrada.id())
+                        .map(usuario -> new UsuarioMasActivoDTOResponse(usuario.getId(), usuario.getNombre(), entrada.prestamos()))
+                        .stream())
+                .toList();
+    }
+
+    // Lee los resúmenes agregados por ResumenesPrestamos, nunca la tabla prestamos: el coste depende del rango pedido
+    // y no del historial. Por meses, los meses completos del rango salen de la tabla mensual (una fila por mes y autor)
+    // y solo los días sueltos de los extremos de la diaria
+    @Override
+    @Transactional(readOnly = true)
+    public List<PrestamosPorPeriodoDTOResponse> obtenerPrestamosPorPeriodo(LocalDate desde, LocalDate hasta, String agrupacion, String autor) {
+        logger.debug("Obteniendo préstamos por periodo entre {} y {}, agrupación: {} y autor: {}", desde, hasta, agrupacion, autor);
+        if (desde == null || hasta == null || desde.isAfter(hasta)) {
+            throw new PeticionInvalidaExcepcion("Las fechas desde y hasta son obligatorias y desde no puede ser posterior a hasta");
+        }
+        AgrupacionTemporal agrupacionTemporal = AgrupacionTemporal.desdeParametro(agrupacion);
+        String filtroAutor = autor == null || autor.isBlank() ? null : autor;
+
+        // Todos los periodos del rango, también los que no tienen préstamos, recortados a [desde, hasta]
+        NavigableMap<LocalDate, PrestamosPorPeriodoDTOResponse> periodos = new TreeMap<>();
+        for (LocalDate inicio = agrupacionTemporal.inicio(desde); !inicio.isAfter(hasta); inicio = agrupacionTemporal.fin(inicio).plusDays(1)) {
+            if (periodos.size() == maximoPeriodos) {
+                throw new PeticionInvalidaExcepcion("El rango no puede tener más de " + maximoPeriodos + " periodos; use una agrupación mayor");
+            }
+            LocalDate fin = agrupacionTemporal.fin(inicio);
+            periodos.put(inicio, new PrestamosPorPeriodoDTOResponse(inicio.isBefore(desde) ? desde : inicio, fin.isAfter(hasta) ? hasta : fin, 0L));
+        }
+
+        List<PrestamosPorPeriodoDTOResponse> sumas = new ArrayList<>();
+        LocalDate primerMes = desde.getDayOfMonth() == 1 ? desde : desde.with(TemporalAdjusters.firstDayOfNextMonth());
+        LocalDate finUltimoMes = hasta.equals(hasta.with(TemporalAdjusters.lastDayOfMonth())) ? hasta : hasta.withDayOfMonth(1).minusDays(1);
+        if (agrupacionTemporal == AgrupacionTemporal.MES && primerMes.isBefore(finUltimoMes)) {
+            LocalDate ultimoMes = finUltimoMes.withDayOfMonth(1);
+            sumas.addAll(filtroAutor == null ? resumenMensualRepositorio.sumarPorMes(primerMes, ultimoMes)
+                    : resumenMensualRepositorio.sumarPorMesDeAutor(primerMes, ultimoMes, filtroAutor));
+            if (desde.isBefore(primerMes)) {
+                sumas.addAll(sumarPorDia(desde, primerMes.minusDays(1), filtroAutor));
+            }
+            if (hasta.isAfter(finUltimoMes)) {
+                sumas.addAll(sumarPorDia(finUltimoMes.plusDays(1), hasta, filtroAutor));
+            }
+        } else {
+            sumas.addAll(sumarPorDia(desde, hasta, filtroAutor));
+        }
+        for (PrestamosPorPeriodoDTOResponse suma : sumas) {
+            PrestamosPorPeriodoDTOResponse periodo = periodos.get(agrupacionTemporal.inicio(suma.getInicio()));
+            periodo.setPrestamos(periodo.getPrestamos() + suma.getPrestamos());
+        }
+        return List.copyOf(periodos.values());
+    }
+
+    private List<PrestamosPorPeriodoDTOResponse> sumarPorDia(LocalDate desde, LocalDate hasta, String autor) {
+        return autor == null ? resumenDiarioRepositorio.sumarPorDia(desde, hasta) : resumenDiarioRepositorio.sumarPorDiaDeAutor(desde, hasta, autor);
+    }
+
+    private int normalizarLimite(Integer limite) {
+        int maximo = estadisticasPrestamos.maximoRanking();
+        if (limite == null) {
+            return Math.min(RANKING_POR_DEFECTO, maximo);
+        }
+        if (limite < 1 || limite > maximo) {
+            throw new PeticionInvalidaExcepcion("El límite debe estar entre 1 y " + maximo);
+        }
+        return limite;
+    }
+}
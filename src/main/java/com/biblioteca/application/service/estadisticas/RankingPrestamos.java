@@ -0,0 +1,159 @@
+package com.biblioteca.application.service.estadisticas;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Los IDs con más préstamos, en memoria: consultar los K primeros cuesta O(K), no un recorrido de la tabla.
+ *
+ * <p>Guarda un número fijo de entradas ordenadas y una cota superior de los préstamos de cualquier ID que no esté
+ * entre ellas. Tras cada escritura confirmada se lee el contador del ID afectado y se recoloca: sube al ranking si
+ * supera al último, y si sale de él la cota sube con él. Una consulta solo es fiable si el K-ésimo no queda por
+ * debajo de la cota; si no (p. ej. tras borrar préstamos de los primeros), el ranking se recarga desde el índice de
+ * la tabla de estadísticas, lo que también cuesta O(K). A igualdad de préstamos en el último puesto, el desempate
+ * por ID puede no ser exacto hasta la siguiente recarga.</p>
+ */
+class RankingPrestamos {
+
+    record Entrada(long id, long prestamos) {
+    }
+
+    private static final Comparator<Entrada> ORDEN = Comparator.comparingLong(Entrada::prestamos).reversed()
+            .thenComparingLong(Entrada::id);
+    private static final int FRANJAS = 64;
+
+    private final int capacidad;
+    private final LongUnaryOperator contador; // Préstamos confirmados de un ID (0 si no tiene)
+    private final IntFunction<List<Entrada>> primeros; // Los n primeros según la base de datos
+
+    private final TreeSet<Entrada> entradas = new TreeSet<>(ORDEN);
+    private final Map<Long, Entrada> porId = new HashMap<>();
+    // Ningún ID fuera del ranking tiene más préstamos que esto
+    private long cotaFuera;
+    private boolean cargado;
+
+    // Serializa los recálculos de un mismo ID: lectura del contador y recolocación deben ir juntas
+    private final ReentrantLock[] franjas = new ReentrantLock[FRANJAS];
+    // IDs recalculados mientras se recarga: se vuelven a recalcular sobre el ranking nuevo
+    private final Queue<Long> pendientes = new ConcurrentLinkedQueue<>();
+    private volatile boolean recargando;
+
+    RankingPrestamos(int capacidad, LongUnaryOperator contador, IntFunction<List<Entrada>> primeros) {
+        this.capacidad = capacidad;
+        this.contador = contador;
+        this.primeros = primeros;
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+    }
+
+    void recargar() {
+        recargando = true;
+        try {
+            // Uno más de los que caben: sus préstamos son la cota de los que quedan fuera
+            List<Entrada> leidas = primeros.apply(capacidad + 1);
+            synchronized (this) {
+                entradas.clear();
+                porId.clear();
+                for (Entrada entrada : leidas.subList(0, Math.min(capacidad, leidas.size()))) {
+                    entradas.add(entrada);
+                    porId.put(entrada.id(), entrada);
+                }
+                cotaFuera = leidas.size() > capacidad ? leidas.get(capacidad).prestamos() : 0;
+                cargado = true;
+            }
+        } finally {
+            recargando = false;
+        }
+        Long id;
+        while ((id = pendientes.poll()) != null) {
+            recalcular(id);
+        }
+    }
+
+    // Debe llamarse después del commit (TrasConfirmacion) para leer el contador confirmado
+    void recalcular(Collection<Long> ids) {
+        for (Long id : ids) {
+            recalcular(id);
+        }
+    }
+
+    void recalcular(Long id) {
+        if (recargando) {
+            pendientes.add(id);
+        }
+        ReentrantLock franja = franjas[Long.hashCode(id) & (FRANJAS - 1)];
+        franja.lock();
+        try {
+            colocar(id, contador.applyAsLong(id));
+        } finally {
+            franja.unlock();
+        }
+    }
+
+    synchronized void colocar(long id, long prestamos) {
+        Entrada anterior = porId.remove(id);
+        if (anterior != null) {
+            entradas.remove(anterior);
+        }
+        if (prestamos <= 0) {
+            return;
+        }
+        Entrada entrada = new Entrada(id, prestamos);
+        if (entradas.size() < capacidad || ORDEN.compare(entrada, entradas.last()) < 0) {
+            entradas.add(entrada);
+            porId.put(id, entrada);
+            if (entradas.size() > capacidad) {
+                Entrada expulsada = entradas.pollLast();
+                porId.remove(expulsada.id());
+                cotaFuera = Math.max(cotaFuera, expulsada.prestamos());
+            }
+        } else {
+            cotaFuera = Math.max(cotaFuera, prestamos);
+        }
+    }
+
+    // Tras borrados que afectan a muchos IDs a la vez: la siguiente consulta recarga
+    synchronized void invalidar() {
+        cargado = false;
+    }
+
+    List<Entrada> primeros(int limite) {
+        List<Entrada> resultado = fiables(limite);
+        if (resultado != null) {
+            return resultado;
+        }
+        recargar();
+        return recortar(limite);
+    }
+
+    private synchronized List<Entrada> fiables(int limite) {
+        if (!cargado) {
+            return null;
+        }
+        List<Entrada> resultado = recortar(limite);
+        boolean fiable = resultado.size() == limite ? resultado.get(limite - 1).prestamos() >= cotaFuera : cotaFuera == 0;
+        return fiable ? resultado : null;
+    }
+
+    private synchronized List<Entrada> recortar(int limite) {
+        List<Entrada> resultado = new ArrayList<>(Math.min(limite, entradas.size()));
+        for (Entrada entrada : entradas) {
+            if (resultado.size() == limite) {
+                break;
+            }
+            resultado.add(entrada);
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,210 @@
+package com.biblioteca.application.service.estadisticas;
+
+import com.biblioteca.application.service.transaccion.TrasConfirmacion;
+import com.biblioteca.domain.entity.PuntoControl;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorio;
+import com.biblioteca.infrastructure.repository.PuntoControlRepositorio;
+import com.biblioteca.infrastructure.repository.ResumenPrestamosDiarioRepositorio;
+import com.biblioteca.infrastructure.repository.ResumenPrestamosMensualRepositorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Agregación periódica de los préstamos por día y autor (resumenes_prestamos_diarios) y por mes y autor
+ * (resumenes_prestamos_mensuales), las tablas que sirven GET /estadisticas/prestamos.
+ *
+ * <p>La primera ejecución agrega el historial entero. Las siguientes solo vuelven a agregar los días que han
+ * cambiado: los de los préstamos registrados desde la anterior, recorriendo la clave primaria desde el mayor ID que
+ * vio (punto de control en puntos_control), y los que los servicios anotan al confirmar una modificación o un borrado,
+ * que no dejan rastro en la tabla prestamos. Cada día se recalcula entero, desde los préstamos archivados que ya
+ * contaba más los que siguen en prestamos; no se suma ni se resta sobre la cuenta anterior, así que repetirlo
+ * (reintento, anotación duplicada) no descuadra nada. Después se recalculan sus meses.</p>
+ *
+ * <p>Los préstamos archivados (ArchivoPrestamos) se suman a la columna {@code archivados} en la misma transacción que
+ * los borra de prestamos. Son historia cerrada: un cambio de autor o el borrado posterior de su libro o su usuario ya
+ * no los mueve ni los descuenta.</p>
+ *
+ * <p>Los resúmenes van por detrás de los préstamos como mucho {@code biblioteca.resumenes.intervalo}.</p>
+ */
+@Component
+@EnableScheduling
+public class ResumenesPrestamos {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumenesPrestamos.class);
+
+    static final String PUNTO_CONTROL = "resumenes-prestamos";
+    // Con el préstamo aún en prestamos: la cuenta total del día no cambia, solo pasa a contar también como archivado
+    private static final String SQL_ARCHIVAR = """
+            MERGE INTO resumenes_prestamos_diarios d
+            USING (SELECT p.fecha_prestamo AS fecha, l.autor AS autor, COUNT(*) AS prestamos
+                   FROM prestamos p JOIN libros l ON l.id = p.libro_id
+                   WHERE p.id = ANY(?)
+                   GROUP BY p.fecha_prestamo, l.autor) r
+            ON d.fecha = r.fecha AND d.autor = r.autor
+            WHEN MATCHED THEN UPDATE SET archivados = d.archivados + r.prestamos
+            WHEN NOT MATCHED THEN INSERT (fecha, autor, prestamos, archivados) VALUES (r.fecha, r.autor, 0, r.prestamos)
+            """;
+
+    private final PrestamoRepositorio prestamoRepositorio;
+    private final ResumenPrestamosDiarioRepositorio resumenDiarioRepositorio;
+    private final ResumenPrestamosMensualRepositorio resumenMensualRepositorio;
+    private final PuntoControlRepositorio puntoControlRepositorio;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final int diasPorLote;
+    private final AtomicBoolean ejecutando = new AtomicBoolean();
+    // Días con préstamos modificados o borrados (ya confirmados) pendientes de volver a agregar
+    private final Set<LocalDate> pendientes = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ResumenesPrestamos(PrestamoRepositorio prestamoRepositorio, ResumenPrestamosDiarioRepositorio resumenDiarioRepositorio,
+                              ResumenPrestamosMensualRepositorio resumenMensualRepositorio, PuntoControlRepositorio puntoControlRepositorio,
+                              JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              @Value("${biblioteca.resumenes.dias-por-lote:100}") int diasPorLote) {
+        if (diasPorLote < 1) {
+            throw new IllegalArgumentException("biblioteca.resumenes.dias-por-lote debe ser al menos 1");
+        }
+        this.prestamoRepositorio = prestamoRepositorio;
+        this.resumenDiarioRepositorio = resumenDiarioRepositorio;
+        this.resumenMensualRepositorio = resumenMensualRepositorio;
+        this.puntoControlRepositorio = puntoControlRepositorio;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.diasPorLote = diasPorLote;
+    }
+
+    // Al arrancar (después de los runners, como los índices en memoria) y después cada intervalo
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${biblioteca.resumenes.intervalo:PT5M}", initialDelayString = "${biblioteca.resumenes.intervalo:PT5M}")
+    public void actualizar() {
+        if (!ejecutando.compareAndSet(false, true)) {
+            logger.warn("Agregación de resúmenes de préstamos ya en curso; se omite esta ejecución");
+            return;
+        }
+        SortedSet<LocalDate> dias = new TreeSet<>();
+        try {
+            long inicio = System.nanoTime();
+            // Se toman antes de leer nada: lo que se confirme a partir de aquí queda anotado para la siguiente ejecución
+            for (LocalDate dia : List.copyOf(pendientes)) {
+                pendientes.remove(dia);
+                dias.add(dia);
+            }
+            long ultimoId = prestamoRepositorio.findUltimoId().orElse(0L);
+            PuntoControl punto = puntoControlRepositorio.findById(PUNTO_CONTROL).orElse(null);
+            if (punto == null) {
+                int filas = agregarTodo();
+                dias.clear();
+                logger.info("Resúmenes de préstamos agregados desde cero: {} filas diarias en {} ms", filas, (System.nanoTime() - inicio) / 1_000_000);
+            } else if (punto.getUltimoId() < ultimoId || !dias.isEmpty()) {
+                if (punto.getUltimoId() < ultimoId) {
+                    dias.addAll(prestamoRepositorio.findFechasPrestamoPosteriores(punto.getUltimoId()));
+                }
+                int meses = agregar(dias);
+                logger.info("Resúmenes de préstamos actualizados: {} días y {} meses en {} ms", dias.size(), meses, (System.nanoTime() - inicio) / 1_000_000);
+                dias.clear();
+            }
+            // Sin fecha: este trabajo no avanza por días, solo por ID
+            puntoControlRepositorio.save(new PuntoControl(PUNTO_CONTROL, null, ultimoId));
+        } catch (RuntimeException e) {
+            // Se reintentan todos en la siguiente ejecución: volver a agregar un día ya agregado no cambia nada
+            pendientes.addAll(dias);
+            throw e;
+        } finally {
+            ejecutando.set(false);
+        }
+    }
+
+    private int agregarTodo() {
+        Integer filas = transaccion.execute(estado -> {
+            resumenDiarioRepositorio.reiniciarTodos();
+            int diarias = resumenDiarioRepositorio.sumarTodos();
+            resumenDiarioRepositorio.eliminarVacios();
+            resumenMensualRepositorio.eliminarTodos();
+            resumenMensualRepositorio.insertarTodos();
+            return diarias;
+        });
+        return filas != null ? filas : 0;
+    }
+
+    // Devuelve el número de meses recalculados
+    private int agregar(SortedSet<LocalDate> dias) {
+        Set<YearMonth> meses = new TreeSet<>();
+        dias.forEach(dia -> meses.add(YearMonth.from(dia)));
+        List<LocalDate> lote = new ArrayList<>(diasPorLote);
+        for (LocalDate dia : dias) {
+            lote.add(dia);
+            if (lote.size() == diasPorLote) {
+                agregarLote(lote);
+            }
+        }
+        if (!lote.isEmpty()) {
+            agregarLote(lote);
+        }
+        // Los meses, cuando todos sus días ya están al día
+        for (YearMonth mes : meses) {
+            transaccion.executeWithoutResult(estado -> {
+                resumenMensualRepositorio.eliminarMes(mes.atDay(1));
+                resumenMensualRepositorio.insertarMes(mes.atDay(1), mes.atEndOfMonth());
+            });
+        }
+        return meses.size();
+    }
+
+    private void agregarLote(List<LocalDate> lote) {
+        List<LocalDate> diasLote = List.copyOf(lote);
+        transaccion.executeWithoutResult(estado -> {
+            resumenDiarioRepositorio.reiniciarDias(diasLote);
+            resumenDiarioRepositorio.sumarDias(diasLote);
+            resumenDiarioRepositorio.eliminarDiasVacios(diasLote);
+        });
+        lote.clear();
+    }
+
+    // Los métodos siguientes se llaman dentro de la transacción que modifica los préstamos; los días se anotan al
+    // confirmarla (TrasConfirmacion) para que la agregación no lea todavía los datos anteriores
+
+    public void prestamosModificados(Collection<LocalDate> fechas) {
+        List<LocalDate> dias = fechas.stream().filter(Objects::nonNull).distinct().toList();
+        if (!dias.isEmpty()) {
+            TrasConfirmacion.ejecutar(() -> pendientes.addAll(dias));
+        }
+    }
+
+    // Cambio de autor o borrado del libro; en un borrado, antes de deleteById, cuando sus préstamos aún existen
+    public void libroModificado(Long libroId) {
+        prestamosModificados(prestamoRepositorio.findFechasPrestamoByLibroId(libroId));
+    }
+
+    // Antes de deleteById: sus préstamos se borran en cascada
+    public void usuarioEliminado(Long usuarioId) {
+        prestamosModificados(prestamoRepositorio.findFechasPrestamoByUsuarioId(usuarioId));
+    }
+
+    // En la transacción del archivo, antes de borrar los préstamos de prestamos; sus días se reagregan al confirmarla
+    public void prestamosArchivados(Long[] ids, Collection<LocalDate> fechas) {
+        jdbcTemplate.update(SQL_ARCHIVAR, (Object) ids);
+        prestamosModificados(fechas);
+    }
+}
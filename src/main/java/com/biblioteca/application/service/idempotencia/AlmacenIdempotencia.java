@@ -0,0 +1,164 @@
+package com.biblioteca.application.service.idempotencia;
+
+import com.biblioteca.domain.entity.ClaveIdempotencia;
+import com.biblioteca.infrastructure.repository.ClaveIdempotenciaRepositorio;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Claves de idempotencia y respuestas guardadas.
+ *
+ * <p>La tabla {@code claves_idempotencia} es la fuente de verdad y sobrevive a los reinicios (si la base de datos
+ * lo hace); delante hay una caché en memoria acotada por bytes y por tiempo, de modo que un reintento reciente se
+ * responde sin conexión a la base de datos. La inserción de la fila "en curso" hace de cerrojo entre instancias:
+ * la clave primaria impide que dos peticiones con la misma clave se ejecuten a la vez.</p>
+ *
+ * <p>Solo se guardan las respuestas 2xx. Un error no ha creado nada, así que el reintento puede ejecutarse de nuevo.
+ * Una respuesta 2xx que no se puede guardar completa la clave sin cuerpo ({@link RespuestaIdempotente#sinCuerpo}).</p>
+ */
+@Component
+@EnableScheduling
+@EnableConfigurationProperties(IdempotenciaPropiedades.class)
+public class AlmacenIdempotencia {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlmacenIdempotencia.class);
+
+    // Cabeceras, clave y objetos de la entrada en la caché, además del cuerpo
+    private static final int BYTES_POR_ENTRADA = 256;
+
+    public enum Estado {
+        NUEVA, REPETIDA, EN_CURSO
+    }
+
+    public record Reserva(Estado estado, RespuestaIdempotente respuesta) {
+    }
+
+    private final ClaveIdempotenciaRepositorio claveIdempotenciaRepositorio;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotenciaPropiedades propiedades;
+    private final Cache<String, RespuestaIdempotente> respuestas;
+    // Claves en curso en esta instancia: un segundo intento simultáneo se rechaza sin ir a la base de datos
+    private final Set<String> enCurso = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public AlmacenIdempotencia(ClaveIdempotenciaRepositorio claveIdempotenciaRepositorio, PlatformTransactionManager transactionManager,
+                               IdempotenciaPropiedades propiedades) {
+        this.claveIdempotenciaRepositorio = claveIdempotenciaRepositorio;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.propiedades = propiedades;
+        this.respuestas = Caffeine.newBuilder()
+                .maximumWeight(propiedades.memoriaMaxima().toBytes())
+                .<String, RespuestaIdempotente>weigher((clave, respuesta) -> BYTES_POR_ENTRADA + clave.length()
+                        + (respuesta.conCuerpo() ? respuesta.cuerpo().length : 0))
+                .expireAfterWrite(propiedades.expiracion())
+                .build();
+    }
+
+    public boolean habilitado() {
+        return propiedades.habilitado();
+    }
+
+    public long tamanoMaximoRespuesta() {
+        return propiedades.tamanoMaximoRespuesta().toBytes();
+    }
+
+    /**
+     * Reserva la clave para ejecutar la petición (NUEVA), devuelve la respuesta guardada (REPETIDA) o indica que otra
+     * petición con la misma clave sigue ejecutándose (EN_CURSO). Tras una NUEVA hay que llamar a
+     * {@link #completar} o a {@link #liberar}.
+     */
+    public Reserva reservar(String clave) {
+        RespuestaIdempotente guardada = respuestas.getIfPresent(clave);
+        if (guardada != null) {
+            return new Reserva(Estado.REPETIDA, guardada);
+        }
+        if (!enCurso.add(clave)) {
+            return new Reserva(Estado.EN_CURSO, null);
+        }
+        try {
+            Reserva reserva = transactionTemplate.execute(estado -> reservarEnBaseDeDatos(clave));
+            if (reserva.estado() != Estado.NUEVA) {
+                enCurso.remove(clave);
+            }
+            return reserva;
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia insertó la misma clave a la vez; cualquier otro error de la base de datos se propaga
+            enCurso.remove(clave);
+            logger.debug("Clave de idempotencia {} reservada a la vez por otra petición", clave, e);
+            return new Reserva(Estado.EN_CURSO, null);
+        } catch (RuntimeException | Error e) {
+            enCurso.remove(clave);
+            throw e;
+        }
+    }
+
+    private Reserva reservarEnBaseDeDatos(String clave) {
+        Instant ahora = Instant.now();
+        Optional<ClaveIdempotencia> existente = claveIdempotenciaRepositorio.findById(clave);
+        if (existente.isPresent()) {
+            ClaveIdempotencia fila = existente.get();
+            if (fila.getExpira().isAfter(ahora)) {
+                if (fila.getEstado() == null) {
+                    return new Reserva(Estado.EN_CURSO, null);
+                }
+                RespuestaIdempotente respuesta = new RespuestaIdempotente(fila.getHuella(), fila.getEstado(), fila.getTipoContenido(),
+                        fila.getUbicacion(), fila.getCuerpo());
+                respuestas.put(clave, respuesta);
+                return new Reserva(Estado.REPETIDA, respuesta);
+            }
+            // Caducada, o abandonada a medias por una instancia que se detuvo
+            claveIdempotenciaRepositorio.delete(fila);
+            claveIdempotenciaRepositorio.flush();
+        }
+        // La huella se conoce al terminar: el cuerpo de la petición se lee mientras se ejecuta
+        claveIdempotenciaRepositorio.saveAndFlush(new ClaveIdempotencia(clave, "", null, null, null, null, ahora.plus(propiedades.plazoEnCurso()), null));
+        return new Reserva(Estado.NUEVA, null);
+    }
+
+    public void completar(String clave, RespuestaIdempotente respuesta) {
+        try {
+            transactionTemplate.executeWithoutResult(estado -> claveIdempotenciaRepositorio.findById(clave).ifPresent(fila -> {
+                fila.setHuella(respuesta.huella());
+                fila.setEstado(respuesta.estado());
+                fila.setTipoContenido(respuesta.tipoContenido());
+                fila.setUbicacion(respuesta.ubicacion());
+                fila.setCuerpo(respuesta.cuerpo());
+                fila.setExpira(Instant.now().plus(propiedades.expiracion()));
+            }));
+            respuestas.put(clave, respuesta);
+        } finally {
+            enCurso.remove(clave);
+        }
+    }
+
+    public void liberar(String clave) {
+        try {
+            transactionTemplate.executeWithoutResult(estado -> claveIdempotenciaRepositorio.deleteById(clave));
+        } finally {
+            enCurso.remove(clave);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${biblioteca.idempotencia.limpieza:PT10M}")
+    public void eliminarExpiradas() {
+        int eliminadas = transactionTemplate.execute(estado -> claveIdempotenciaRepositorio.eliminarExpiradas(Instant.now()));
+        if (eliminadas > 0) {
+            logger.info("Eliminadas {} claves de idempotencia caducadas", eliminadas);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.biblioteca.application.service.idempotencia;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Configuración de las claves de idempotencia (biblioteca.idempotencia.*).
+ *
+ * @param habilitado            si se atiende la cabecera {@code Idempotency-Key}
+ * @param expiracion            tiempo durante el que un reintento recibe la respuesta guardada
+ * @param plazoEnCurso          tiempo tras el que una petición original que no terminó (caída de la instancia)
+ *                              deja de bloquear su clave
+ * @param memoriaMaxima         tamaño máximo de las respuestas guardadas en memoria; el resto se lee de la base de datos
+ * @param tamanoMaximoRespuesta las respuestas mayores no se guardan; sus reintentos se rechazan con 409
+ */
+@ConfigurationProperties("biblioteca.idempotencia")
+public record IdempotenciaPropiedades(@DefaultValue("true") boolean habilitado,
+                                      @DefaultValue("24h") Duration expiracion,
+                                      @DefaultValue("10m") Duration plazoEnCurso,
+                                      @DefaultValue("16MB") DataSize memoriaMaxima,
+                                      @DefaultValue("1MB") DataSize tamanoMaximoRespuesta) {
+
+    public IdempotenciaPropiedades {
+        if (expiracion.isNegative() || expiracion.isZero() || plazoEnCurso.isNegative() || plazoEnCurso.isZero()) {
+            throw new IllegalArgumentException("biblioteca.idempotencia.expiracion y plazo-en-curso deben ser positivos");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.biblioteca.application.service.idempotencia;
+
+/**
+ * Respuesta de una petición idempotente tal como se devuelve a sus reintentos.
+ *
+ * <p>Con {@code cuerpo} null la petición se ejecutó pero su respuesta no se guardó (demasiado grande o asíncrona):
+ * la clave sigue usada y los reintentos se rechazan en lugar de volver a ejecutarse.</p>
+ */
+public record RespuestaIdempotente(String huella, int estado, String tipoContenido, String ubicacion, byte[] cuerpo) {
+
+    public static RespuestaIdempotente sinCuerpo(String huella, int estado, String ubicacion) {
+        return new RespuestaIdempotente(huella, estado, null, ubicacion, null);
+    }
+
+    public boolean conCuerpo() {
+        return cuerpo != null;
+    }
+}
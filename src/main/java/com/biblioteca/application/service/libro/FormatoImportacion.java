@@ -0,0 +1,35 @@
+package com.biblioteca.application.service.libro;
+
+import com.biblioteca.infrastructure.exceptions.PeticionInvalidaExcepcion;
+
+import java.util.Locale;
+
+public enum FormatoImportacion {
+    CSV,    // Cabecera opcional: titulo,autor,isbn,fechaPublicacion
+    NDJSON; // Un LibroDTORequest en JSON por línea
+
+    public static final String TIPO_CSV = "text/csv";
+    public static final String TIPO_NDJSON = "application/x-ndjson";
+
+    public static FormatoImportacion desdeTipoContenido(String tipoContenido) {
+        String tipo = tipoContenido == null ? "" : tipoContenido.toLowerCase(Locale.ROOT);
+        if (tipo.startsWith(TIPO_CSV)) {
+            return CSV;
+        }
+        if (tipo.startsWith(TIPO_NDJSON)) {
+            return NDJSON;
+        }
+        throw new PeticionInvalidaExcepcion("Tipo de contenido no soportado para la importación: " + tipoContenido);
+    }
+
+    public static FormatoImportacion desdeNombreFichero(String nombreFichero) {
+        String nombre = nombreFichero.toLowerCase(Locale.ROOT);
+        if (nombre.endsWith(".csv")) {
+            return CSV;
+        }
+        if (nombre.endsWith(".ndjson") || nombre.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        throw new PeticionInvalidaExcepcion("Extensión de fichero no soportada para la importación: " + nombreFichero);
+    }
+}
@@ -0,0 +1,9 @@
+package com.biblioteca.application.service.libro;
+
+import com.biblioteca.infrastructure.controllers.libro.dto.ResultadoImportacionDTOResponse;
+
+import java.io.InputStream;
+
+public interface ImportacionLibrosServicio {
+    ResultadoImportacionDTOResponse importarLibros(InputStream entrada, FormatoImportacion formato);
+}
@@ -0,0 +1,259 @@
+package com.biblioteca.application.service.libro;
+
+import com.biblioteca.application.service.busqueda.AutocompletadoLibros;
+import com.biblioteca.application.service.busqueda.IndiceBusquedaLibros;
+import com.biblioteca.application.service.cache.VersionColecciones;
+import com.biblioteca.application.service.cache.VersionColecciones.Coleccion;
+import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTORequest;
+import com.biblioteca.infrastructure.controllers.libro.dto.RechazoImportacionDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.dto.ResultadoImportacionDTOResponse;
+import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Importación masiva del catálogo. La entrada se lee línea a línea y se escribe en lotes JDBC,
+ * cada uno en su propia transacción, de modo que la memoria depende del tamaño del lote y no del fichero.
+ */
+@Service
+@Timed("biblioteca.servicio")
+public class ImportacionLibrosServicioImpl implements ImportacionLibrosServicio {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacionLibrosServicioImpl.class);
+
+    private static final String SQL_INSERTAR_LIBRO = "INSERT INTO libros (titulo, autor, isbn, fecha_publicacion, version) VALUES (?, ?, ?, ?, 0)";
+
+    private final LibroRepositorio libroRepositorio;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final VersionColecciones versionColecciones;
+    private final IndiceBusquedaLibros indiceBusqueda;
+    private final AutocompletadoLibros autocompletado;
+    private final ObjectReader lectorJson;
+    private final int tamanoLote;
+    private final int maximoRechazosDetallados;
+
+    @Autowired
+    public ImportacionLibrosServicioImpl(LibroRepositorio libroRepositorio,
+                                         JdbcTemplate jdbcTemplate,
+                                         PlatformTransactionManager transactionManager,
+                                         ObjectMapper objectMapper,
+                                         VersionColecciones versionColecciones,
+                                         IndiceBusquedaLibros indiceBusqueda,
+                                         AutocompletadoLibros autocompletado,
+                                         @Value("${biblioteca.importacion.libros.tamano-lote:1000}") int tamanoLote,
+                                         @Value("${biblioteca.importacion.libros.maximo-rechazos-detallados:1000}") int maximoRechazosDetallados) {
+        this.libroRepositorio = libroRepositorio;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.lectorJson = objectMapper.readerFor(LibroDTORequest.class);
+        this.versionColecciones = versionColecciones;
+        this.indiceBusqueda = indiceBusqueda;
+        this.autocompletado = autocompletado;
+        this.tamanoLote = tamanoLote;
+        this.maximoRechazosDetallados = maximoRechazosDetallados;
+    }
+
+    @Override
+    public ResultadoImportacionDTOResponse importarLibros(InputStream entrada, FormatoImportacion formato) {
+        logger.info("Iniciando importación de libros en formato {} con lotes de {}", formato, tamanoLote);
+        Importacion importacion = new Importacion();
+        // Clave ISBN: los duplicados dentro del mismo lote se rechazan antes de llegar a la base de datos
+        Map<String, FilaImportacion> lote = new LinkedHashMap<>();
+
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            String linea;
+            long numeroLinea = 0;
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                if (linea.isBlank() || (numeroLinea == 1 && formato == FormatoImportacion.CSV && esCabeceraCsv(linea))) {
+                    continue;
+                }
+                importacion.filasLeidas++;
+                FilaImportacion fila;
+                try {
+                    fila = new FilaImportacion(numeroLinea, parsear(linea, formato));
+                } catch (IllegalArgumentException e) {
+                    importacion.rechazar(numeroLinea, e.getMessage());
+                    continue;
+                }
+                if (lote.putIfAbsent(fila.libro().getIsbn(), fila) != null) {
+                    importacion.rechazar(numeroLinea, "ISBN duplicado en el fichero: " + fila.libro().getIsbn());
+                    continue;
+                }
+                if (lote.size() >= tamanoLote) {
+                    escribirLote(lote, importacion);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo el fichero de importación", e);
+        }
+        escribirLote(lote, importacion);
+
+        logger.info("Importación de libros finalizada: {} filas leídas, {} insertadas, {} rechazadas",
+                importacion.filasLeidas, importacion.librosInsertados, importacion.filasRechazadas);
+        return new ResultadoImportacionDTOResponse(importacion.filasLeidas, importacion.librosInsertados,
+                importacion.filasRechazadas, importacion.rechazos);
+    }
+
+    private void escribirLote(Map<String, FilaImportacion> lote, Importacion importacion) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        // Los lotes anteriores ya están confirmados, así que esta consulta también detecta duplicados entre lotes
+        Set<String> isbnsExistentes = libroRepositorio.findIsbnsExistentes(lote.keySet());
+        List<FilaImportacion> filas = new ArrayList<>(lote.size());
+        for (FilaImportacion fila : lote.values()) {
+            if (isbnsExistentes.contains(fila.libro().getIsbn())) {
+                importacion.rechazar(fila.linea(), "El ISBN ya existe en el catálogo: " + fila.libro().getIsbn());
+            } else {
+                filas.add(fila);
+            }
+        }
+        lote.clear();
+        if (!filas.isEmpty()) {
+            insertarFilas(filas, importacion);
+        }
+        logger.info("Importación de libros en curso: {} filas leídas, {} insertadas, {} rechazadas",
+                importacion.filasLeidas, importacion.librosInsertados, importacion.filasRechazadas);
+    }
+
+    private void insertarFilas(List<FilaImportacion> filas, Importacion importacion) {
+        List<Object[]> parametros = new ArrayList<>(filas.size());
+        for (FilaImportacion fila : filas) {
+            LibroDTORequest libro = fila.libro();
+            parametros.add(new Object[]{libro.getTitulo(), libro.getAutor(), libro.getIsbn(), libro.getFechaPublicacion()});
+        }
+        try {
+            transactionTemplate.executeWithoutResult(estado -> jdbcTemplate.batchUpdate(SQL_INSERTAR_LIBRO, parametros));
+            importacion.librosInsertados += filas.size();
+            versionColecciones.modificada(Coleccion.LIBROS);
+        } catch (DataAccessException e) {
+            // Solo ocurre si otra escritura concurrente inserta el mismo ISBN entre la comprobación y el INSERT
+            String causa = e.getMostSpecificCause().getMessage();
+            logger.error("Lote de importación rechazado completo: {}", causa);
+            filas.forEach(fila -> importacion.rechazar(fila.linea(), "Lote rechazado por conflicto al escribir: " + causa));
+            return;
+        }
+        // El INSERT por JDBC no devuelve los IDs: los libros ya confirmados se leen por ISBN para indexarlos
+        List<String> isbns = filas.stream().map(fila -> fila.libro().getIsbn()).toList();
+        indiceBusqueda.indexar(libroRepositorio.findDTOByIsbnIn(isbns));
+        filas.forEach(fila -> autocompletado.libroCreado(fila.libro().getTitulo(), fila.libro().getAutor()));
+    }
+
+    private LibroDTORequest parsear(String linea, FormatoImportacion formato) {
+        LibroDTORequest libro = formato == FormatoImportacion.CSV ? parsearCsv(linea) : parsearNdjson(linea);
+        if (esVacio(libro.getTitulo()) || esVacio(libro.getAutor()) || esVacio(libro.getIsbn())) {
+            throw new IllegalArgumentException("Faltan campos obligatorios (titulo, autor, isbn)");
+        }
+        libro.setIsbn(libro.getIsbn().trim());
+        return libro;
+    }
+
+    private LibroDTORequest parsearNdjson(String linea) {
+        try {
+            return lectorJson.readValue(linea);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON inválido: " + e.getOriginalMessage());
+        }
+    }
+
+    private static LibroDTORequest parsearCsv(String linea) {
+        List<String> campos = separarCamposCsv(linea);
+        if (campos.size() < 3 || campos.size() > 4) {
+            throw new IllegalArgumentException("Se esperaban 3 o 4 columnas y hay " + campos.size());
+        }
+        LocalDate fechaPublicacion = null;
+        if (campos.size() == 4 && !campos.get(3).isBlank()) {
+            try {
+                fechaPublicacion = LocalDate.parse(campos.get(3).trim());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Fecha de publicación inválida: " + campos.get(3));
+            }
+        }
+        return new LibroDTORequest(campos.get(0), campos.get(1), campos.get(2), fechaPublicacion);
+    }
+
+    // CSV de una línea por registro: admite campos entre comillas con comas y comillas dobladas ("")
+    private static List<String> separarCamposCsv(String linea) {
+        List<String> campos = new ArrayList<>(4);
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new IllegalArgumentException("Comillas sin cerrar");
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    private static boolean esCabeceraCsv(String linea) {
+        return linea.trim().toLowerCase(Locale.ROOT).startsWith("titulo,");
+    }
+
+    private static boolean esVacio(String valor) {
+        return valor == null || valor.isBlank();
+    }
+
+    private record FilaImportacion(long linea, LibroDTORequest libro) {
+    }
+
+    private class Importacion {
+        private long filasLeidas;
+        private long librosInsertados;
+        private long filasRechazadas;
+        private final List<RechazoImportacionDTOResponse> rechazos = new ArrayList<>();
+
+        private void rechazar(long linea, String motivo) {
+            filasRechazadas++;
+            if (rechazos.size() < maximoRechazosDetallados) {
+                rechazos.add(new RechazoImportacionDTOResponse(linea, motivo));
+            }
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package com.biblioteca.application.service.libro;
 
-import com.biblioteca.domain.entity.Libro;
+import com.biblioteca.application.service.cache.RespuestaCacheada;
 import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTORequest;
 import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.dto.SugerenciaDTOResponse;
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface LibroServicio {
     List<LibroDTOResponse> obtenerTodosLosLibros();
+    PaginaDTOResponse<LibroDTOResponse> obtenerPaginaDeLibros(String cursor, Integer limite);
+    PaginaDTOResponse<LibroDTOResponse> buscarLibros(String texto, String cursor, Integer limite);
+    List<SugerenciaDTOResponse> autocompletar(String prefijo, Integer limite);
     Optional<LibroDTOResponse> obtenerLibroPorId(Long id);
+    RespuestaCacheada<LibroDTOResponse> obtenerLibroSerializadoPorId(Long id);
+    Long obtenerVersionLibro(Long id);
+    String obtenerVersionColeccion();
     LibroDTOResponse guardarLibro(LibroDTORequest libro);
     LibroDTOResponse actualizarLibro(Long id, LibroDTORequest libro);
+    LibroDTOResponse actualizarLibro(Long id, LibroDTORequest libro, Set<Long> versionesEsperadas);
     void eliminarLibro(Long id);
 }
@@ -1,72 +1,245 @@
 package com.biblioteca.application.service.libro;
 
+import com.biblioteca.application.service.cache.CacheRespuestas;
+import com.biblioteca.application.service.cache.RespuestaCacheada;
+import com.biblioteca.application.service.cache.VersionColecciones;
+import com.biblioteca.application.service.cache.VersionColecciones.Coleccion;
+import com.biblioteca.application.service.busqueda.AutocompletadoLibros;
+import com.biblioteca.application.service.busqueda.IndiceBusquedaLibros;
+import com.biblioteca.application.service.disponibilidad.IndiceDisponibilidad;
+import com.biblioteca.application.service.estadisticas.EstadisticasPrestamos;
+import com.biblioteca.application.service.estadisticas.ResumenesPrestamos;
+import com.biblioteca.application.service.paginacion.CursorPaginacion;
+import com.biblioteca.application.service.prestamo.CupoPrestamos;
+import com.biblioteca.application.service.transaccion.TrasConfirmacion;
 import com.biblioteca.domain.entity.Libro;
 import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTORequest;
 import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.dto.SugerenciaDTOResponse;
 import com.biblioteca.infrastructure.controllers.libro.mapper.LibroMapper;
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
+import com.biblioteca.infrastructure.exceptions.PeticionInvalidaExcepcion;
+import com.biblioteca.infrastructure.exceptions.PrecondicionFallidaExcepcion;
 import com.biblioteca.infrastructure.exceptions.RecursoNoEncontradoExcepcion;
 import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 
 @Service
+@Timed("biblioteca.servicio") // Un timer por método público, etiquetado con class y method
 public class LibroServicioImpl implements LibroServicio {
 
     private static final Logger logger = LoggerFactory.getLogger(LibroServicioImpl.class);
 
+    static final int LONGITUD_MAXIMA_BUSQUEDA = 200;
+    static final int LONGITUD_MAXIMA_PREFIJO = 100;
+    static final int SUGERENCIAS_POR_DEFECTO = 10;
+    static final int SUGERENCIAS_MAXIMAS = 20;
+
     private final LibroRepositorio libroRepositorio;
     private final LibroMapper libroMapper;
+    private final CacheRespuestas cacheRespuestas;
+    private final VersionColecciones versionColecciones;
+    private final IndiceDisponibilidad indiceDisponibilidad;
+    private final IndiceBusquedaLibros indiceBusqueda;
+    private final AutocompletadoLibros autocompletado;
+    private final EstadisticasPrestamos estadisticasPrestamos;
+    private final ResumenesPrestamos resumenesPrestamos;
+    private final CupoPrestamos cupoPrestamos;
 
     @Autowired
-    public LibroServicioImpl(LibroRepositorio libroRepositorio, LibroMapper libroMapper) {
+    public LibroServicioImpl(LibroRepositorio libroRepositorio, LibroMapper libroMapper, CacheRespuestas cacheRespuestas, VersionColecciones versionColecciones, IndiceDisponibilidad indiceDisponibilidad, IndiceBusquedaLibros indiceBusqueda, AutocompletadoLibros autocompletado, EstadisticasPrestamos estadisticasPrestamos, ResumenesPrestamos resumenesPrestamos, CupoPrestamos cupoPrestamos) {
         this.libroRepositorio = libroRepositorio;
         this.libroMapper = libroMapper;
+        this.cacheRespuestas = cacheRespuestas;
+        this.versionColecciones = versionColecciones;
+        this.indiceDisponibilidad = indiceDisponibilidad;
+        this.indiceBusqueda = indiceBusqueda;
+        this.autocompletado = autocompletado;
+        this.estadisticasPrestamos = estadisticasPrestamos;
+        this.resumenesPrestamos = resumenesPrestamos;
+        this.cupoPrestamos = cupoPrestamos;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<LibroDTOResponse> obtenerTodosLosLibros() {
-        logger.info("Obteniendo todos los libros");
-        List<Libro> libros = libroRepositorio.findAll();
-        return libros.stream()
-                .map(libroMapper::toDTOResponse)
-                .collect(Collectors.toList());
+        logger.debug("Obteniendo todos los libros");
+        return libroRepositorio.findAllAsDTO();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaDTOResponse<LibroDTOResponse> obtenerPaginaDeLibros(String cursor, Integer limite) {
+        logger.debug("Obteniendo página de libros con cursor: {} y límite: {}", cursor, limite);
+        long ultimoId = CursorPaginacion.decodificar(cursor);
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        // Se pide una fila de más para saber si existe página siguiente sin hacer un COUNT
+        List<LibroDTOResponse> libros = libroRepositorio.findDTOByIdGreaterThan(ultimoId, PageRequest.of(0, tamano + 1));
+        return CursorPaginacion.construirPagina(libros, tamano, LibroDTOResponse::getId);
+    }
+
+    @Override
+    public PaginaDTOResponse<LibroDTOResponse> buscarLibros(String texto, String cursor, Integer limite) {
+        logger.debug("Buscando libros con texto: {}, cursor: {} y límite: {}", texto, cursor, limite);
+        if (texto == null || texto.isBlank()) {
+            throw new PeticionInvalidaExcepcion("El texto de búsqueda no puede estar vacío");
+        }
+        if (texto.length() > LONGITUD_MAXIMA_BUSQUEDA) {
+            throw new PeticionInvalidaExcepcion("El texto de búsqueda no puede superar " + LONGITUD_MAXIMA_BUSQUEDA + " caracteres");
+        }
+        int desplazamiento = CursorPaginacion.decodificarDesplazamiento(cursor);
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        if ((long) desplazamiento + tamano > IndiceBusquedaLibros.MAXIMO_RESULTADOS) {
+            throw new PeticionInvalidaExcepcion("La búsqueda solo permite recorrer los primeros " + IndiceBusquedaLibros.MAXIMO_RESULTADOS + " resultados; afine el texto");
+        }
+
+        // Igual que en la paginación por ID, un resultado de más indica si hay página siguiente
+        List<Long> ids = indiceBusqueda.buscar(texto, desplazamiento, tamano + 1);
+        boolean hayMas = ids.size() > tamano;
+        List<Long> idsPagina = hayMas ? ids.subList(0, tamano) : ids;
+        if (idsPagina.isEmpty()) {
+            return new PaginaDTOResponse<>(List.of(), null);
+        }
+        Map<Long, LibroDTOResponse> libros = libroRepositorio.findDTOByIdIn(idsPagina).stream()
+                .collect(Collectors.toMap(LibroDTOResponse::getId, Function.identity()));
+        // Se conserva el orden de relevancia; un libro borrado después de la búsqueda simplemente no aparece
+        List<LibroDTOResponse> contenido = idsPagina.stream().map(libros::get).filter(Objects::nonNull).toList();
+        return new PaginaDTOResponse<>(contenido, hayMas ? CursorPaginacion.codificarDesplazamiento(desplazamiento + tamano) : null);
+    }
+
+    @Override
+    public List<SugerenciaDTOResponse> autocompletar(String prefijo, Integer limite) {
+        logger.debug("Autocompletando con prefijo: {} y límite: {}", prefijo, limite);
+        if (prefijo == null || prefijo.isBlank()) {
+            throw new PeticionInvalidaExcepcion("El prefijo no puede estar vacío");
+        }
+        if (prefijo.length() > LONGITUD_MAXIMA_PREFIJO) {
+            throw new PeticionInvalidaExcepcion("El prefijo no puede superar " + LONGITUD_MAXIMA_PREFIJO + " caracteres");
+        }
+        if (limite != null && (limite < 1 || limite > SUGERENCIAS_MAXIMAS)) {
+            throw new PeticionInvalidaExcepcion("El límite debe estar entre 1 y " + SUGERENCIAS_MAXIMAS);
+        }
+        // Sin transacción ni base de datos: todo sale del FST en memoria
+        return autocompletado.sugerir(prefijo, limite != null ? limite : SUGERENCIAS_POR_DEFECTO);
     }
 
     @Override
     public Optional<LibroDTOResponse> obtenerLibroPorId(Long id) {
-        logger.info("Obteniendo libro por ID: {}", id);
-        return libroRepositorio.findById(id)
-                .map(libroMapper::toDTOResponse)
-                .or(() -> {
+        logger.debug("Obteniendo libro por ID: {}", id);
+        return Optional.of(obtenerRespuestaPorId(id).dto());
+    }
+
+    @Override
+    public RespuestaCacheada<LibroDTOResponse> obtenerLibroSerializadoPorId(Long id) {
+        logger.debug("Obteniendo libro serializado por ID: {}", id);
+        return obtenerRespuestaPorId(id);
+    }
+
+    @Override
+    public Long obtenerVersionLibro(Long id) {
+        // Si la respuesta está cacheada no hace falta ir a la base de datos; si no, solo se lee la columna version
+        LibroDTOResponse cacheado = cacheRespuestas.libros().obtenerSiPresente(id);
+        if (cacheado != null) {
+            return cacheado.getVersion();
+        }
+        return libroRepositorio.findVersionById(id)
+                .orElseThrow(() -> {
                     logger.error("Libro no encontrado con ID: {}", id);
-                    throw new RecursoNoEncontradoExcepcion("Libro no encontrado con ID: " + id);
+                    return new RecursoNoEncontradoExcepcion("Libro no encontrado con ID: " + id);
                 });
     }
 
     @Override
+    public String obtenerVersionColeccion() {
+        return versionColecciones.version(Coleccion.LIBROS);
+    }
+
+    // Sin transacción: un acierto en la caché de respuestas no necesita conexión
+    private RespuestaCacheada<LibroDTOResponse> obtenerRespuestaPorId(Long id) {
+        // findById pasa por la caché de segundo nivel; la proyección DTO iría siempre a la base de datos
+        RespuestaCacheada<LibroDTOResponse> respuesta = cacheRespuestas.libros()
+                .obtener(id, clave -> libroRepositorio.findById(clave).map(libroMapper::toDTOResponse).orElse(null));
+        if (respuesta == null) {
+            logger.error("Libro no encontrado con ID: {}", id);
+            throw new RecursoNoEncontradoExcepcion("Libro no encontrado con ID: " + id);
+        }
+        return respuesta;
+    }
+
+    @Override
+    @Transactional
     public LibroDTOResponse guardarLibro(LibroDTORequest libroDTORequest) {
-        logger.info("Guardando libro: {}", libroDTORequest);
+        logger.debug("Guardando libro: {}", libroDTORequest);
         Libro libro = libroMapper.toEntity(libroDTORequest);
         Libro libroGuardado = libroRepositorio.save(libro);
-        return libroMapper.toDTOResponse(libroGuardado);
+        versionColecciones.modificada(Coleccion.LIBROS);
+        LibroDTOResponse libroDTOResponse = libroMapper.toDTOResponse(libroGuardado);
+        TrasConfirmacion.ejecutar(() -> {
+            indiceBusqueda.indexar(libroDTOResponse);
+            autocompletado.libroCreado(libroDTOResponse.getTitulo(), libroDTOResponse.getAutor());
+        });
+        return libroDTOResponse;
     }
 
     @Override
+    @Transactional
     public LibroDTOResponse actualizarLibro(Long id, LibroDTORequest libroDTORequest) {
-        logger.info("Actualizando libro con ID: {} y datos: {}", id, libroDTORequest);
+        return actualizarLibro(id, libroDTORequest, null);
+    }
+
+    @Override
+    @Transactional
+    public LibroDTOResponse actualizarLibro(Long id, LibroDTORequest libroDTORequest, Set<Long> versionesEsperadas) {
+        logger.debug("Actualizando libro con ID: {}, versiones esperadas: {} y datos: {}", id, versionesEsperadas, libroDTORequest);
         return libroRepositorio.findById(id)
                 .map(libroExistente -> {
+                    if (versionesEsperadas != null && !versionesEsperadas.contains(libroExistente.getVersion())) {
+                        logger.error("Versión del libro con ID: {} no coincide (esperadas {}, actual {})", id, versionesEsperadas, libroExistente.getVersion());
+                        throw new PrecondicionFallidaExcepcion("El libro con ID: " + id + " ha sido modificado; versión actual: " + libroExistente.getVersion());
+                    }
+                    // Antes del merge: libroExistente es la misma instancia gestionada y pasará a tener los datos nuevos
+                    String tituloAnterior = libroExistente.getTitulo();
+                    String autorAnterior = libroExistente.getAutor();
                     Libro libroActualizado = libroMapper.toEntity(libroDTORequest);
                     libroActualizado.setId(id);
-                    Libro libroGuardado = libroRepositorio.save(libroActualizado);
-                    return libroMapper.toDTOResponse(libroGuardado);
+                    libroActualizado.setVersion(libroExistente.getVersion());
+                    libroActualizado.setPrestamos(libroExistente.getPrestamos()); // La petición no trae préstamos: se conservan
+                    Libro libroGuardado;
+                    try {
+                        // flush inmediato: un UPDATE concurrente se detecta aquí por la versión y no en el commit
+                        libroGuardado = libroRepositorio.saveAndFlush(libroActualizado);
+                    } catch (ObjectOptimisticLockingFailureException e) {
+                        logger.error("Actualización concurrente del libro con ID: {}", id);
+                        throw new PrecondicionFallidaExcepcion("El libro con ID: " + id + " ha sido modificado por otra petición");
+                    }
+                    LibroDTOResponse libroDTOResponse = libroMapper.toDTOResponse(libroGuardado);
+                    // Los resúmenes de préstamos van por autor: sus préstamos pasan al autor nuevo
+                    if (!autorAnterior.equals(libroGuardado.getAutor())) {
+                        resumenesPrestamos.libroModificado(id);
+                    }
+                    TrasConfirmacion.ejecutar(() -> {
+                        cacheRespuestas.libros().invalidar(id);
+                        indiceBusqueda.indexar(libroDTOResponse);
+                        autocompletado.libroModificado(tituloAnterior, autorAnterior, libroDTOResponse.getTitulo(), libroDTOResponse.getAutor());
+                    });
+                    versionColecciones.modificada(Coleccion.LIBROS);
+                    return libroDTOResponse;
                 })
                 .orElseThrow(() -> {
                     logger.error("Libro no encontrado para actualizar con ID: {}", id);
@@ -75,12 +248,27 @@ public class LibroServicioImpl implements LibroServicio {
     }
 
     @Override
+    @Transactional
     public void eliminarLibro(Long id) {
-        logger.info("Eliminando libro con ID: {}", id);
-        if (!libroRepositorio.existsById(id)) {
-            logger.error("Intento de eliminar libro no existente con ID: {}", id);
-            throw new RecursoNoEncontradoExcepcion("Libro no encontrado para eliminar con ID: " + id);
-        }
+        logger.debug("Eliminando libro con ID: {}", id);
+        // El título y el autor hacen falta para retirarlos del autocompletado
+        Libro libro = libroRepositorio.findById(id)
+                .orElseThrow(() -> {
+                    logger.error("Intento de eliminar libro no existente con ID: {}", id);
+                    return new RecursoNoEncontradoExcepcion("Libro no encontrado para eliminar con ID: " + id);
+                });
+        estadisticasPrestamos.libroEliminado(id);
+        resumenesPrestamos.libroModificado(id);
+        cupoPrestamos.libroEliminado(id);
         libroRepositorio.deleteById(id);
+        versionColecciones.modificada(Coleccion.LIBROS, Coleccion.PRESTAMOS);
+        TrasConfirmacion.ejecutar(() -> {
+            cacheRespuestas.libros().invalidar(id);
+            // El borrado arrastra sus préstamos en cascada y no sabemos cuáles estaban cacheados
+            cacheRespuestas.prestamos().invalidarTodo();
+            indiceDisponibilidad.recalcular(id);
+            indiceBusqueda.eliminar(id);
+            autocompletado.libroEliminado(libro.getTitulo(), libro.getAutor());
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.biblioteca.application.service.paginacion;
+
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
+import com.biblioteca.infrastructure.exceptions.PeticionInvalidaExcepcion;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Utilidades para la paginación por cursor (keyset) sobre el ID.
+ * El cursor es un token opaco para el cliente: solo debe reenviarlo tal cual.
+ * Los resultados ordenados por relevancia no tienen una clave por la que continuar y usan en su lugar
+ * un cursor de desplazamiento, con su propio prefijo para que no se confundan. Los listados ordenados por una
+ * fecha continúan por el par (fecha, ID), que también lleva prefijo propio.
+ */
+public final class CursorPaginacion {
+
+    public static final int LIMITE_POR_DEFECTO = 50;
+    public static final int LIMITE_MAXIMO = 500;
+
+    private static final String PREFIJO = "k1:";
+    private static final String PREFIJO_DESPLAZAMIENTO = "o1:";
+    private static final String PREFIJO_FECHA = "f1:";
+
+    /**
+     * Última fila entregada en un listado ordenado por fecha. Sin cursor, {@code fecha} es null y {@code ultimoId} 0.
+     */
+    public record Posicion(LocalDate fecha, long ultimoId) {
+    }
+
+    private CursorPaginacion() {
+    }
+
+    public static String codificar(long ultimoId) {
+        byte[] contenido = (PREFIJO + ultimoId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(contenido);
+    }
+
+    /**
+     * Devuelve el último ID entregado al cliente, o 0 si no hay cursor (primera página).
+     */
+    public static long decodificar(String cursor) {
+        return decodificar(cursor, PREFIJO);
+    }
+
+    public static String codificarDesplazamiento(int desplazamiento) {
+        byte[] contenido = (PREFIJO_DESPLAZAMIENTO + desplazamiento).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(contenido);
+    }
+
+    /**
+     * Devuelve cuántos resultados se han entregado ya al cliente, o 0 si no hay cursor (primera página).
+     */
+    public static int decodificarDesplazamiento(String cursor) {
+        long desplazamiento = decodificar(cursor, PREFIJO_DESPLAZAMIENTO);
+        if (desplazamiento > Integer.MAX_VALUE) {
+            throw new PeticionInvalidaExcepcion("Cursor de paginación inválido: " + cursor);
+        }
+        return (int) desplazamiento;
+    }
+
+    public static String codificar(LocalDate fecha, long ultimoId) {
+        byte[] contenido = (PREFIJO_FECHA + fecha.toEpochDay() + ":" + ultimoId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(contenido);
+    }
+
+    public static Posicion decodificarPosicion(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new Posicion(null, 0L);
+        }
+        try {
+            String[] partes = contenido(cursor, PREFIJO_FECHA).split(":", -1);
+            if (partes.length != 2) {
+                throw new PeticionInvalidaExcepcion("Cursor de paginación inválido: " + cursor);
+            }
+            long ultimoId = Long.parseLong(partes[1]);
+            if (ultimoId <= 0) {
+                throw new PeticionInvalidaExcepcion("Cursor de paginación inválido: " + cursor);
+            }
+            return new Posicion(LocalDate.ofEpochDay(Long.parseLong(partes[0])), ultimoId);
+        } catch (IllegalArgumentException | DateTimeException e) { // Incluye NumberFormatException
+            throw new PeticionInvalidaExcepcion("Cursor de paginación inválido: " + cursor);
+        }
+    }
+
+    private static long decodificar(String cursor, String prefijo) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            long valor = Long.parseLong(contenido(cursor, prefijo));
+            if (valor < 0) {
+                throw new PeticionInvalidaExcepcion("Cursor de paginación inválido: " + cursor);
+            }
+            return valor;
+        } catch (IllegalArgumentException e) { // Incluye NumberFormatException
+            throw new PeticionInvalidaExcepcion("Cursor de paginación inválido: " + cursor);
+        }
+    }
+
+    // Lanza IllegalArgumentException si el cursor no es Base64 válido
+    private static String contenido(String cursor, String prefijo) {
+        String contenido = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!contenido.startsWith(prefijo)) {
+            throw new PeticionInvalidaExcepcion("Cursor de paginación inválido: " + cursor);
+        }
+        return contenido.substring(prefijo.length());
+    }
+
+    public static int normalizarLimite(Integer limite) {
+        if (limite == null) {
+            return LIMITE_POR_DEFECTO;
+        }
+        if (limite < 1 || limite > LIMITE_MAXIMO) {
+            throw new PeticionInvalidaExcepcion("El límite debe estar entre 1 y " + LIMITE_MAXIMO);
+        }
+        return limite;
+    }
+
+    /**
+     * Construye la página a partir de una consulta que pidió {@code limite + 1} filas:
+     * la fila sobrante solo indica que existe una página siguiente.
+     */
+    public static <T> PaginaDTOResponse<T> construirPagina(List<T> filas, int limite, Function<T, Long> id) {
+        if (filas.size() <= limite) {
+            return new PaginaDTOResponse<>(filas, null);
+        }
+        List<T> contenido = filas.subList(0, limite);
+        return new PaginaDTOResponse<>(contenido, codificar(id.apply(contenido.get(limite - 1))));
+    }
+
+    /**
+     * Como {@link #construirPagina(List, int, Function)} para listados ordenados por (fecha, ID).
+     */
+    public static <T> PaginaDTOResponse<T> construirPagina(List<T> filas, int limite, Function<T, LocalDate> fecha, Function<T, Long> id) {
+        if (filas.size() <= limite) {
+            return new PaginaDTOResponse<>(filas, null);
+        }
+        List<T> contenido = filas.subList(0, limite);
+        T ultima = contenido.get(limite - 1);
+        return new PaginaDTOResponse<>(contenido, codificar(fecha.apply(ultima), id.apply(ultima)));
+    }
+}
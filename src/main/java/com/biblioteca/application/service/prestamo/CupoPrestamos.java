@@ -0,0 +1,106 @@
+package com.biblioteca.application.service.prestamo;
+
+import com.biblioteca.domain.entity.CupoUsuario;
+import com.biblioteca.infrastructure.exceptions.ConflictoExcepcion;
+import com.biblioteca.infrastructure.repository.CupoUsuarioRepositorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Límite de préstamos abiertos (sin fecha de devolución) por usuario.
+ *
+ * <p>Cada usuario tiene un contador en {@code cupos_usuarios} que se actualiza en la misma transacción que el
+ * préstamo: abrir uno lo incrementa solo si no supera el máximo, con un único UPDATE condicional, y cerrarlo o
+ * borrarlo lo decrementa. Comprobar el cupo cuesta lo mismo tenga el usuario diez préstamos o diez mil, y dos altas
+ * simultáneas del mismo usuario se ordenan por el bloqueo de su fila sin frenar las de otros usuarios. Si la
+ * transacción del préstamo falla, la reserva se deshace con ella.</p>
+ *
+ * <p>Los contadores se recalculan al arrancar, después de los runners (generador de datos sintéticos).</p>
+ */
+@Component
+public class CupoPrestamos {
+
+    private static final Logger logger = LoggerFactory.getLogger(CupoPrestamos.class);
+
+    private final CupoUsuarioRepositorio cupoUsuarioRepositorio;
+    private final TransactionTemplate transactionTemplate;
+    private final int maximo;
+
+    @Autowired
+    public CupoPrestamos(CupoUsuarioRepositorio cupoUsuarioRepositorio, PlatformTransactionManager transactionManager,
+                         @Value("${biblioteca.prestamos.maximo-abiertos-por-usuario:10}") int maximo) {
+        if (maximo < 1) {
+            throw new IllegalArgumentException("biblioteca.prestamos.maximo-abiertos-por-usuario debe ser al menos 1");
+        }
+        this.cupoUsuarioRepositorio = cupoUsuarioRepositorio;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maximo = maximo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recalcular() {
+        long inicio = System.nanoTime();
+        int usuarios = transactionTemplate.execute(estado -> {
+            cupoUsuarioRepositorio.deleteAllInBatch();
+            return cupoUsuarioRepositorio.recalcularTodos();
+        });
+        logger.info("Cupos de préstamos recalculados: {} usuarios en {} ms", usuarios, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    // Los métodos siguientes deben llamarse dentro de la transacción que abre, cierra o borra el préstamo
+
+    public void reservar(Long usuarioId) {
+        if (cupoUsuarioRepositorio.reservar(usuarioId, 1, maximo) == 0) {
+            logger.error("El usuario con ID: {} ha alcanzado el máximo de préstamos abiertos", usuarioId);
+            throw new ConflictoExcepcion(mensajeCupoAgotado(usuarioId));
+        }
+    }
+
+    /**
+     * Reserva hasta {@code cantidad} préstamos de una vez y devuelve cuántos caben. Si no caben todos, reintenta
+     * con los que quedan libres según la última lectura, que puede haber cambiado entretanto.
+     */
+    public int reservar(Long usuarioId, int cantidad) {
+        int pedidos = cantidad;
+        while (pedidos > 0) {
+            if (cupoUsuarioRepositorio.reservar(usuarioId, pedidos, maximo) == 1) {
+                return pedidos;
+            }
+            int libres = maximo - cupoUsuarioRepositorio.findAbiertosByUsuarioId(usuarioId).orElse(maximo);
+            pedidos = Math.min(pedidos - 1, libres);
+        }
+        return 0;
+    }
+
+    public void liberar(Long usuarioId) {
+        cupoUsuarioRepositorio.liberar(usuarioId);
+    }
+
+    public void liberarPrestamo(Long prestamoId) {
+        cupoUsuarioRepositorio.liberarPorPrestamo(prestamoId);
+    }
+
+    // Antes de borrar el libro, mientras sus préstamos siguen en la tabla
+    public void libroEliminado(Long libroId) {
+        cupoUsuarioRepositorio.liberarPorLibro(libroId);
+    }
+
+    public void usuarioCreado(Long usuarioId) {
+        cupoUsuarioRepositorio.save(new CupoUsuario(usuarioId, 0));
+    }
+
+    public void usuarioEliminado(Long usuarioId) {
+        cupoUsuarioRepositorio.deleteById(usuarioId);
+    }
+
+    public String mensajeCupoAgotado(Long usuarioId) {
+        return "El usuario con ID: " + usuarioId + " ya tiene el máximo de " + maximo + " préstamos abiertos";
+    }
+}
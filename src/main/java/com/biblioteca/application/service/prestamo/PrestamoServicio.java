@@ -1,19 +1,36 @@
 package com.biblioteca.application.service.prestamo;
 
+import com.biblioteca.application.service.cache.RespuestaCacheada;
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.FiltroPrestamosDTORequest;
 import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTORequest;
 import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.ResultadoLotePrestamoDTOResponse;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface PrestamoServicio {
     List<PrestamoDTOResponse> obtenerTodosLosPrestamos();
 
+    void exportarPrestamos(Consumer<PrestamoDTOResponse> consumidor);
+
+    PaginaDTOResponse<PrestamoDTOResponse> buscarPrestamos(FiltroPrestamosDTORequest filtro, String cursor, Integer limite);
+
     Optional<PrestamoDTOResponse> obtenerPrestamoPorId(Long id);
+    RespuestaCacheada<PrestamoDTOResponse> obtenerPrestamoSerializadoPorId(Long id);
+    Long obtenerVersionPrestamo(Long id);
+    String obtenerVersionColeccion();
 
     PrestamoDTOResponse guardarPrestamo(PrestamoDTORequest prestamoDTORequest);
 
+    List<ResultadoLotePrestamoDTOResponse> guardarPrestamosEnLote(List<PrestamoDTORequest> prestamosDTORequest);
+
     PrestamoDTOResponse actualizarPrestamo(Long id, PrestamoDTORequest prestamoDTORequest);
 
+    PrestamoDTOResponse actualizarPrestamo(Long id, PrestamoDTORequest prestamoDTORequest, Set<Long> versionesEsperadas);
+
     void eliminarPrestamo(Long id);
 }
@@ -1,65 +1,203 @@
 package com.biblioteca.application.service.prestamo;
 
+import com.biblioteca.application.service.archivo.ArchivoPrestamos;
+import com.biblioteca.application.service.busqueda.AutocompletadoLibros;
+import com.biblioteca.application.service.cache.CacheRespuestas;
+import com.biblioteca.application.service.cache.RespuestaCacheada;
+import com.biblioteca.application.service.cache.VersionColecciones;
+import com.biblioteca.application.service.cache.VersionColecciones.Coleccion;
+import com.biblioteca.application.service.disponibilidad.IndiceDisponibilidad;
+import com.biblioteca.application.service.estadisticas.EstadisticasPrestamos;
+import com.biblioteca.application.service.estadisticas.ResumenesPrestamos;
+import com.biblioteca.application.service.paginacion.CursorPaginacion;
+import com.biblioteca.application.service.transaccion.TrasConfirmacion;
+import com.biblioteca.application.service.vencidos.DeteccionVencidos;
 import com.biblioteca.domain.entity.Libro;
 import com.biblioteca.domain.entity.Prestamo;
 import com.biblioteca.domain.entity.Usuario;
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.FiltroPrestamosDTORequest;
 import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTORequest;
 import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.ResultadoLotePrestamoDTOResponse;
 import com.biblioteca.infrastructure.controllers.prestamo.mapper.PrestamoMapper;
+import com.biblioteca.infrastructure.exceptions.ConflictoExcepcion;
+import com.biblioteca.infrastructure.exceptions.PeticionInvalidaExcepcion;
+import com.biblioteca.infrastructure.exceptions.PrecondicionFallidaExcepcion;
 import com.biblioteca.infrastructure.exceptions.RecursoNoEncontradoExcepcion;
 import com.biblioteca.infrastructure.repository.LibroRepositorio;
 import com.biblioteca.infrastructure.repository.PrestamoRepositorio;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorioBusqueda.Orden;
+import com.biblioteca.infrastructure.repository.ReferenciasPrestamo;
 import com.biblioteca.infrastructure.repository.UsuarioRepositorio;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed("biblioteca.servicio")
 public class PrestamoServicioImpl implements PrestamoServicio {
 
     private static final Logger logger = LoggerFactory.getLogger(PrestamoServicioImpl.class);
 
+    static final int TAMANO_MAXIMO_LOTE = 1000;
+    // Índice único de schema.sql: un solo préstamo abierto por libro
+    private static final String INDICE_PRESTAMO_ABIERTO = "uk_prestamos_libro_abierto";
+
     private final PrestamoRepositorio prestamoRepositorio;
     private final LibroRepositorio libroRepositorio;
     private final UsuarioRepositorio usuarioRepositorio;
     private final PrestamoMapper prestamoMapper;
+    private final CacheRespuestas cacheRespuestas;
+    private final VersionColecciones versionColecciones;
+    private final IndiceDisponibilidad indiceDisponibilidad;
+    private final AutocompletadoLibros autocompletado;
+    private final CupoPrestamos cupoPrestamos;
+    private final EstadisticasPrestamos estadisticasPrestamos;
+    private final ResumenesPrestamos resumenesPrestamos;
+    private final ArchivoPrestamos archivoPrestamos;
+    private final DeteccionVencidos deteccionVencidos;
 
     @Autowired
-    public PrestamoServicioImpl(PrestamoRepositorio prestamoRepositorio, LibroRepositorio libroRepositorio, UsuarioRepositorio usuarioRepositorio, PrestamoMapper prestamoMapper) {
+    public PrestamoServicioImpl(PrestamoRepositorio prestamoRepositorio, LibroRepositorio libroRepositorio, UsuarioRepositorio usuarioRepositorio, PrestamoMapper prestamoMapper, CacheRespuestas cacheRespuestas, VersionColecciones versionColecciones, IndiceDisponibilidad indiceDisponibilidad, AutocompletadoLibros autocompletado, CupoPrestamos cupoPrestamos, EstadisticasPrestamos estadisticasPrestamos, ResumenesPrestamos resumenesPrestamos, ArchivoPrestamos archivoPrestamos, DeteccionVencidos deteccionVencidos) {
         this.prestamoRepositorio = prestamoRepositorio;
         this.libroRepositorio = libroRepositorio;
         this.usuarioRepositorio = usuarioRepositorio;
         this.prestamoMapper = prestamoMapper;
+        this.cacheRespuestas = cacheRespuestas;
+        this.versionColecciones = versionColecciones;
+        this.indiceDisponibilidad = indiceDisponibilidad;
+        this.autocompletado = autocompletado;
+        this.cupoPrestamos = cupoPrestamos;
+        this.estadisticasPrestamos = estadisticasPrestamos;
+        this.resumenesPrestamos = resumenesPrestamos;
+        this.archivoPrestamos = archivoPrestamos;
+        this.deteccionVencidos = deteccionVencidos;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<PrestamoDTOResponse> obtenerTodosLosPrestamos() {
-        logger.info("Obteniendo todos los prestamos");
-        List<Prestamo> prestamos = prestamoRepositorio.findAll();
-        return prestamos.stream()
-                .map(prestamoMapper::toDTOResponse)
-                .collect(Collectors.toList());
+        logger.debug("Obteniendo todos los prestamos");
+        try (Stream<PrestamoDTOResponse> prestamos = ArchivoPrestamos.combinarPorId(prestamoRepositorio.findAllAsDTO().stream(), archivoPrestamos.recorrer())) {
+            return prestamos.toList();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportarPrestamos(Consumer<PrestamoDTOResponse> consumidor) {
+        logger.debug("Exportando todos los prestamos");
+        // Las proyecciones no entran en el contexto de persistencia, así que la memoria no crece con las filas leídas.
+        // El archivo se lee después de lanzar la consulta: un lote archivado entre medias sale de uno de los dos sitios
+        try (Stream<PrestamoDTOResponse> prestamos = ArchivoPrestamos.combinarPorId(prestamoRepositorio.streamAllAsDTO(), archivoPrestamos.recorrer())) {
+            prestamos.forEach(consumidor);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaDTOResponse<PrestamoDTOResponse> buscarPrestamos(FiltroPrestamosDTORequest filtro, String cursor, Integer limite) {
+        logger.debug("Buscando prestamos con filtro: {}, cursor: {} y límite: {}", filtro, cursor, limite);
+        validarRango(filtro.getPrestamoDesde(), filtro.getPrestamoHasta(), "préstamo");
+        validarRango(filtro.getDevolucionDesde(), filtro.getDevolucionHasta(), "devolución");
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+
+        if (filtro.filtraPorFechaPrestamo() || filtro.filtraPorFechaDevolucion()) {
+            // Con un rango de fechas se ordena por esa fecha: la consulta recorre el tramo del índice (fecha, id) ya ordenado
+            boolean porPrestamo = filtro.filtraPorFechaPrestamo();
+            Orden orden = porPrestamo ? Orden.FECHA_PRESTAMO : Orden.FECHA_DEVOLUCION;
+            Function<PrestamoDTOResponse, LocalDate> fecha = porPrestamo ? PrestamoDTOResponse::getFechaPrestamo : PrestamoDTOResponse::getFechaDevolucion;
+            CursorPaginacion.Posicion posicion = CursorPaginacion.decodificarPosicion(cursor);
+            List<PrestamoDTOResponse> prestamos = buscarEnTablaYArchivo(filtro, orden, posicion.fecha(), posicion.ultimoId(), tamano + 1);
+            return CursorPaginacion.construirPagina(prestamos, tamano, fecha, PrestamoDTOResponse::getId);
+        }
+        long ultimoId = CursorPaginacion.decodificar(cursor);
+        List<PrestamoDTOResponse> prestamos = buscarEnTablaYArchivo(filtro, Orden.ID, null, ultimoId, tamano + 1);
+        return CursorPaginacion.construirPagina(prestamos, tamano, PrestamoDTOResponse::getId);
+    }
+
+    // La misma página en la tabla y en el archivo; se quedan los primeros de ambas según el orden
+    private List<PrestamoDTOResponse> buscarEnTablaYArchivo(FiltroPrestamosDTORequest filtro, Orden orden, LocalDate fechaAnterior, long ultimoId, int limite) {
+        List<PrestamoDTOResponse> calientes = prestamoRepositorio.buscar(filtro, orden, fechaAnterior, ultimoId, limite);
+        List<PrestamoDTOResponse> archivados = archivoPrestamos.buscar(filtro, orden, fechaAnterior, ultimoId, limite);
+        return ArchivoPrestamos.combinar(calientes, archivados, orden, limite);
+    }
+
+    private static void validarRango(LocalDate desde, LocalDate hasta, String fecha) {
+        if (desde != null && hasta != null && desde.isAfter(hasta)) {
+            throw new PeticionInvalidaExcepcion("El rango de fechas de " + fecha + " es inválido: " + desde + " es posterior a " + hasta);
+        }
     }
 
     @Override
     public Optional<PrestamoDTOResponse> obtenerPrestamoPorId(Long id) {
-        logger.info("Obteniendo prestamo por ID: {}", id);
-        return Optional.ofNullable(prestamoRepositorio.findById(id)
-                .map(prestamoMapper::toDTOResponse)
+        logger.debug("Obteniendo prestamo por ID: {}", id);
+        return Optional.of(obtenerRespuestaPorId(id).dto());
+    }
+
+    @Override
+    public RespuestaCacheada<PrestamoDTOResponse> obtenerPrestamoSerializadoPorId(Long id) {
+        logger.debug("Obteniendo prestamo serializado por ID: {}", id);
+        return obtenerRespuestaPorId(id);
+    }
+
+    @Override
+    public Long obtenerVersionPrestamo(Long id) {
+        PrestamoDTOResponse cacheado = cacheRespuestas.prestamos().obtenerSiPresente(id);
+        if (cacheado != null) {
+            return cacheado.getVersion();
+        }
+        return prestamoRepositorio.findVersionById(id)
+                .or(() -> archivoPrestamos.buscarPorId(id).map(PrestamoDTOResponse::getVersion))
                 .orElseThrow(() -> {
                     logger.error("Prestamo no encontrado con ID: {}", id);
-                    throw new RecursoNoEncontradoExcepcion("Prestamo no encontrado con ID: " + id);
-                }));
+                    return new RecursoNoEncontradoExcepcion("Prestamo no encontrado con ID: " + id);
+                });
     }
 
     @Override
+    public String obtenerVersionColeccion() {
+        return versionColecciones.version(Coleccion.PRESTAMOS);
+    }
+
+    // Sin transacción: un acierto en la caché de respuestas no necesita conexión
+    private RespuestaCacheada<PrestamoDTOResponse> obtenerRespuestaPorId(Long id) {
+        RespuestaCacheada<PrestamoDTOResponse> respuesta = cacheRespuestas.prestamos()
+                .obtener(id, clave -> prestamoRepositorio.findDTOById(clave).or(() -> archivoPrestamos.buscarPorId(clave)).orElse(null));
+        if (respuesta == null) {
+            logger.error("Prestamo no encontrado con ID: {}", id);
+            throw new RecursoNoEncontradoExcepcion("Prestamo no encontrado con ID: " + id);
+        }
+        return respuesta;
+    }
+
+    @Override
+    @Transactional
     public PrestamoDTOResponse guardarPrestamo(PrestamoDTORequest prestamoDTORequest) {
-        logger.info("Guardando prestamo: {}", prestamoDTORequest);
+        logger.debug("Guardando prestamo: {}", prestamoDTORequest);
         //Validaciones adicionales antes de guardar (ej: libro y usuario existen)
         Optional<Libro> libroOptional = libroRepositorio.findById(prestamoDTORequest.getLibroId());
         Optional<Usuario> usuarioOptional = usuarioRepositorio.findById(prestamoDTORequest.getUsuarioId());
@@ -73,23 +211,176 @@ public class PrestamoServicioImpl implements PrestamoServicio {
             throw new RecursoNoEncontradoExcepcion("Usuario no encontrado con ID: " + prestamoDTORequest.getUsuarioId() + " para préstamo");
         }
 
+        if (prestamoDTORequest.getFechaDevolucion() == null) {
+            comprobarLibroSinPrestamoAbierto(prestamoDTORequest.getLibroId());
+            cupoPrestamos.reservar(prestamoDTORequest.getUsuarioId());
+        }
+
         Prestamo prestamo = prestamoMapper.toEntity(prestamoDTORequest);
         //Asignar entidades Libro y Usuario al préstamo (en lugar de solo IDs)
         prestamo.setLibro(libroOptional.get());
         prestamo.setUsuario(usuarioOptional.get());
 
         Prestamo prestamoGuardado = prestamoRepositorio.save(prestamo);
+        volcar("El libro con ID: " + prestamoDTORequest.getLibroId() + " ya tiene un préstamo abierto");
+        estadisticasPrestamos.prestamoCreado(prestamoDTORequest.getLibroId(), prestamoDTORequest.getUsuarioId());
+        resumenesPrestamos.prestamosModificados(List.of(prestamoGuardado.getFechaPrestamo()));
+        versionColecciones.modificada(Coleccion.PRESTAMOS);
+        Long libroId = prestamoDTORequest.getLibroId();
+        Libro libro = libroOptional.get();
+        TrasConfirmacion.ejecutar(() -> {
+            indiceDisponibilidad.recalcular(libroId);
+            // Solo las altas suben el peso en el autocompletado; el resto de cambios se recogen al reconstruirlo
+            autocompletado.libroPrestado(libro.getTitulo(), libro.getAutor());
+        });
         return prestamoMapper.toDTOResponse(prestamoGuardado);
     }
 
     @Override
+    @Transactional
+    public List<ResultadoLotePrestamoDTOResponse> guardarPrestamosEnLote(List<PrestamoDTORequest> prestamosDTORequest) {
+        if (prestamosDTORequest == null || prestamosDTORequest.isEmpty()) {
+            throw new PeticionInvalidaExcepcion("El lote de préstamos no puede estar vacío");
+        }
+        if (prestamosDTORequest.size() > TAMANO_MAXIMO_LOTE) {
+            throw new PeticionInvalidaExcepcion("El lote de préstamos no puede superar " + TAMANO_MAXIMO_LOTE + " elementos");
+        }
+        logger.debug("Guardando lote de {} prestamos", prestamosDTORequest.size());
+
+        // Una sola consulta por tipo de entidad para validar todas las referencias del lote
+        Map<Long, Libro> libros = libroRepositorio.findAllById(idsReferenciados(prestamosDTORequest, PrestamoDTORequest::getLibroId)).stream()
+                .collect(Collectors.toMap(Libro::getId, Function.identity()));
+        Map<Long, Usuario> usuarios = usuarioRepositorio.findAllById(idsReferenciados(prestamosDTORequest, PrestamoDTORequest::getUsuarioId)).stream()
+                .collect(Collectors.toMap(Usuario::getId, Function.identity()));
+
+        List<String> errores = new ArrayList<>(prestamosDTORequest.size());
+        Set<Long> librosQueSeAbren = new HashSet<>();
+        for (PrestamoDTORequest prestamoDTORequest : prestamosDTORequest) {
+            String error = validarPrestamoDeLote(prestamoDTORequest, libros, usuarios);
+            errores.add(error);
+            if (error == null && prestamoDTORequest.getFechaDevolucion() == null) {
+                librosQueSeAbren.add(prestamoDTORequest.getLibroId());
+            }
+        }
+        // Como en el alta individual: comprobación de préstamos abiertos y después cupo
+        Set<Long> librosOcupados = new HashSet<>();
+        if (!librosQueSeAbren.isEmpty()) {
+            librosOcupados.addAll(prestamoRepositorio.findIdsLibrosPrestadosEntre(librosQueSeAbren));
+        }
+        // En orden de ID: dos lotes que comparten usuarios bloquean sus filas de cupo en el mismo orden y no pueden quedar
+        // esperándose el uno al otro
+        Map<Long, Integer> abiertosPorUsuario = new TreeMap<>();
+        for (int indice = 0; indice < prestamosDTORequest.size(); indice++) {
+            PrestamoDTORequest prestamoDTORequest = prestamosDTORequest.get(indice);
+            if (errores.get(indice) != null || prestamoDTORequest.getFechaDevolucion() != null) {
+                continue;
+            }
+            // También rechaza el segundo préstamo abierto del mismo libro dentro del lote
+            if (!librosOcupados.add(prestamoDTORequest.getLibroId())) {
+                errores.set(indice, "El libro con ID: " + prestamoDTORequest.getLibroId() + " ya tiene un préstamo abierto");
+                continue;
+            }
+            abiertosPorUsuario.merge(prestamoDTORequest.getUsuarioId(), 1, Integer::sum);
+        }
+        // Una reserva por usuario para todos sus préstamos abiertos del lote; los que no caben se rechazan en orden
+        Map<Long, Integer> cupoConcedido = new HashMap<>();
+        abiertosPorUsuario.forEach((usuarioId, cantidad) -> cupoConcedido.put(usuarioId, cupoPrestamos.reservar(usuarioId, cantidad)));
+
+        List<ResultadoLotePrestamoDTOResponse> resultados = new ArrayList<>(prestamosDTORequest.size());
+        List<Integer> indicesValidos = new ArrayList<>();
+        for (int indice = 0; indice < prestamosDTORequest.size(); indice++) {
+            PrestamoDTORequest prestamoDTORequest = prestamosDTORequest.get(indice);
+            String error = errores.get(indice);
+            if (error == null && prestamoDTORequest.getFechaDevolucion() == null
+                    && cupoConcedido.merge(prestamoDTORequest.getUsuarioId(), -1, Integer::sum) < 0) {
+                error = cupoPrestamos.mensajeCupoAgotado(prestamoDTORequest.getUsuarioId());
+            }
+            if (error != null) {
+                logger.error("Prestamo {} del lote rechazado: {}", indice, error);
+                resultados.add(new ResultadoLotePrestamoDTOResponse(indice, null, error));
+                continue;
+            }
+            indicesValidos.add(indice);
+            resultados.add(null); // Se completa tras guardar
+        }
+        // Los INSERT van en orden de libro: dos lotes con libros en común llegan al índice único de préstamos
+        // abiertos en el mismo orden, y el segundo espera al primero y recibe el rechazo en lugar de un interbloqueo
+        indicesValidos.sort(Comparator.comparing(indice -> prestamosDTORequest.get(indice).getLibroId()));
+        List<Prestamo> prestamosValidos = new ArrayList<>(indicesValidos.size());
+        for (int indice : indicesValidos) {
+            PrestamoDTORequest prestamoDTORequest = prestamosDTORequest.get(indice);
+            Prestamo prestamo = prestamoMapper.toEntity(prestamoDTORequest);
+            prestamo.setLibro(libros.get(prestamoDTORequest.getLibroId()));
+            prestamo.setUsuario(usuarios.get(prestamoDTORequest.getUsuarioId()));
+            prestamosValidos.add(prestamo);
+        }
+
+        // Los INSERT se envían en lotes JDBC (hibernate.jdbc.batch_size) al hacer flush
+        List<Prestamo> prestamosGuardados = prestamoRepositorio.saveAll(prestamosValidos);
+        volcar("Otra petición ha abierto a la vez un préstamo de alguno de los libros del lote");
+        if (!prestamosGuardados.isEmpty()) {
+            estadisticasPrestamos.prestamosCreados(prestamosGuardados);
+            resumenesPrestamos.prestamosModificados(prestamosGuardados.stream().map(Prestamo::getFechaPrestamo).toList());
+            versionColecciones.modificada(Coleccion.PRESTAMOS);
+            Set<Long> libroIds = prestamosGuardados.stream().map(prestamo -> prestamo.getLibro().getId()).collect(Collectors.toSet());
+            List<Libro> librosPrestados = prestamosGuardados.stream().map(Prestamo::getLibro).toList();
+            TrasConfirmacion.ejecutar(() -> {
+                indiceDisponibilidad.recalcular(libroIds);
+                librosPrestados.forEach(libro -> autocompletado.libroPrestado(libro.getTitulo(), libro.getAutor()));
+            });
+        }
+        for (int i = 0; i < prestamosGuardados.size(); i++) {
+            int indice = indicesValidos.get(i);
+            resultados.set(indice, new ResultadoLotePrestamoDTOResponse(indice, prestamoMapper.toDTOResponse(prestamosGuardados.get(i)), null));
+        }
+        return resultados;
+    }
+
+    private static Set<Long> idsReferenciados(List<PrestamoDTORequest> prestamosDTORequest, Function<PrestamoDTORequest, Long> id) {
+        Set<Long> ids = new HashSet<>();
+        for (PrestamoDTORequest prestamoDTORequest : prestamosDTORequest) {
+            if (prestamoDTORequest != null && id.apply(prestamoDTORequest) != null) {
+                ids.add(id.apply(prestamoDTORequest));
+            }
+        }
+        return ids;
+    }
+
+    private static String validarPrestamoDeLote(PrestamoDTORequest prestamoDTORequest, Map<Long, Libro> libros, Map<Long, Usuario> usuarios) {
+        if (prestamoDTORequest == null) {
+            return "El préstamo no puede ser nulo";
+        }
+        if (!libros.containsKey(prestamoDTORequest.getLibroId())) {
+            return "Libro no encontrado con ID: " + prestamoDTORequest.getLibroId() + " para préstamo";
+        }
+        if (!usuarios.containsKey(prestamoDTORequest.getUsuarioId())) {
+            return "Usuario no encontrado con ID: " + prestamoDTORequest.getUsuarioId() + " para préstamo";
+        }
+        if (prestamoDTORequest.getFechaPrestamo() == null) {
+            return "La fecha de préstamo es obligatoria";
+        }
+        return null;
+    }
+
+    @Override
+    @Transactional
     public PrestamoDTOResponse actualizarPrestamo(Long id, PrestamoDTORequest prestamoDTORequest) {
-        logger.info("Actualizando prestamo con ID: {} y datos: {}", id, prestamoDTORequest);
+        return actualizarPrestamo(id, prestamoDTORequest, null);
+    }
+
+    @Override
+    @Transactional
+    public PrestamoDTOResponse actualizarPrestamo(Long id, PrestamoDTORequest prestamoDTORequest, Set<Long> versionesEsperadas) {
+        logger.debug("Actualizando prestamo con ID: {}, versiones esperadas: {} y datos: {}", id, versionesEsperadas, prestamoDTORequest);
         if (prestamoDTORequest == null) {
             throw new NullPointerException("PrestamoDTORequest no puede ser nulo para actualizar");
         }
         return prestamoRepositorio.findById(id)
                 .map(prestamoExistente -> {
+                    if (versionesEsperadas != null && !versionesEsperadas.contains(prestamoExistente.getVersion())) {
+                        logger.error("Versión del prestamo con ID: {} no coincide (esperadas {}, actual {})", id, versionesEsperadas, prestamoExistente.getVersion());
+                        throw new PrecondicionFallidaExcepcion("El préstamo con ID: " + id + " ha sido modificado; versión actual: " + prestamoExistente.getVersion());
+                    }
                     //Validaciones adicionales antes de actualizar (ej: libro y usuario existen)
                     Optional<Libro> libroOptional = libroRepositorio.findById(prestamoDTORequest.getLibroId());
                     Optional<Usuario> usuarioOptional = usuarioRepositorio.findById(prestamoDTORequest.getUsuarioId());
@@ -103,28 +394,132 @@ public class PrestamoServicioImpl implements PrestamoServicio {
                         throw new RecursoNoEncontradoExcepcion("Usuario no encontrado con ID: " + prestamoDTORequest.getUsuarioId() + " para préstamo");
                     }
 
+                    // Se guarda antes del merge, que sobrescribe la entidad gestionada con el libro nuevo
+                    Long libroAnteriorId = prestamoExistente.getLibro().getId();
+                    Long usuarioAnteriorId = prestamoExistente.getUsuario().getId();
+                    LocalDate fechaPrestamoAnterior = prestamoExistente.getFechaPrestamo();
+                    LocalDate fechaDevolucionAnterior = prestamoExistente.getFechaDevolucion();
+                    comprobarReapertura(prestamoExistente, prestamoDTORequest);
+                    actualizarCupo(prestamoExistente, prestamoDTORequest);
                     Prestamo prestamoActualizado = prestamoMapper.toEntity(prestamoDTORequest);
                     prestamoActualizado.setId(id);
+                    prestamoActualizado.setVersion(prestamoExistente.getVersion());
                     //Asignar entidades Libro y Usuario al préstamo (en lugar de solo IDs)
                     prestamoActualizado.setLibro(libroOptional.get());
                     prestamoActualizado.setUsuario(usuarioOptional.get());
 
-                    Prestamo prestamoGuardado = prestamoRepositorio.save(prestamoActualizado);
+                    Prestamo prestamoGuardado;
+                    try {
+                        prestamoGuardado = prestamoRepositorio.saveAndFlush(prestamoActualizado);
+                    } catch (ObjectOptimisticLockingFailureException e) {
+                        logger.error("Actualización concurrente del prestamo con ID: {}", id);
+                        throw new PrecondicionFallidaExcepcion("El préstamo con ID: " + id + " ha sido modificado por otra petición");
+                    } catch (DataIntegrityViolationException e) {
+                        throw traducirPrestamoAbiertoDuplicado(e, "El libro con ID: " + prestamoDTORequest.getLibroId() + " ya tiene un préstamo abierto");
+                    }
+                    estadisticasPrestamos.prestamoReasignado(libroAnteriorId, usuarioAnteriorId, prestamoDTORequest.getLibroId(), prestamoDTORequest.getUsuarioId());
+                    // Otro libro puede ser de otro autor: el día anterior y el nuevo cambian en los resúmenes
+                    if (!libroAnteriorId.equals(prestamoDTORequest.getLibroId()) || !fechaPrestamoAnterior.equals(prestamoGuardado.getFechaPrestamo())) {
+                        resumenesPrestamos.prestamosModificados(List.of(fechaPrestamoAnterior, prestamoGuardado.getFechaPrestamo()));
+                    }
+                    // Reabierto o con la fecha movida a días que la detección ya recorrió: no lo volvería a ver
+                    if (!fechaPrestamoAnterior.equals(prestamoGuardado.getFechaPrestamo())
+                            || !Objects.equals(fechaDevolucionAnterior, prestamoGuardado.getFechaDevolucion())) {
+                        deteccionVencidos.prestamoModificado(id);
+                    }
+                    TrasConfirmacion.ejecutar(() -> {
+                        cacheRespuestas.prestamos().invalidar(id);
+                        indiceDisponibilidad.recalcular(libroAnteriorId);
+                        if (!libroAnteriorId.equals(prestamoDTORequest.getLibroId())) {
+                            indiceDisponibilidad.recalcular(prestamoDTORequest.getLibroId());
+                        }
+                    });
+                    versionColecciones.modificada(Coleccion.PRESTAMOS);
                     return prestamoMapper.toDTOResponse(prestamoGuardado);
                 })
                 .orElseThrow(() -> {
+                    comprobarNoArchivado(id);
                     logger.error("Prestamo no encontrado para actualizar con ID: {}", id);
                     return new RecursoNoEncontradoExcepcion("Prestamo no encontrado para actualizar con ID: " + id);
                 });
     }
 
+    // Los préstamos archivados son historia cerrada: existen, pero no se modifican ni se borran
+    private void comprobarNoArchivado(Long id) {
+        if (archivoPrestamos.buscarPorId(id).isPresent()) {
+            logger.error("El prestamo con ID: {} está archivado y no se puede modificar", id);
+            throw new ConflictoExcepcion("El préstamo con ID: " + id + " está archivado y no se puede modificar ni eliminar");
+        }
+    }
+
+    // Reabrir un préstamo o pasar uno abierto a otro libro lo ocupa: mismas comprobaciones que un alta
+    private void comprobarReapertura(Prestamo prestamoExistente, PrestamoDTORequest prestamoDTORequest) {
+        boolean abiertoAntes = prestamoExistente.getFechaDevolucion() == null;
+        boolean mismoLibro = prestamoExistente.getLibro().getId().equals(prestamoDTORequest.getLibroId());
+        if (prestamoDTORequest.getFechaDevolucion() == null && !(abiertoAntes && mismoLibro)) {
+            comprobarLibroSinPrestamoAbierto(prestamoDTORequest.getLibroId());
+        }
+    }
+
+    private void comprobarLibroSinPrestamoAbierto(Long libroId) {
+        if (prestamoRepositorio.existsByLibroIdAndFechaDevolucionIsNull(libroId)) {
+            logger.error("El libro con ID: {} ya tiene un préstamo abierto", libroId);
+            throw new ConflictoExcepcion("El libro con ID: " + libroId + " ya tiene un préstamo abierto");
+        }
+    }
+
+    // Envía los INSERT ya y no en el commit, para convertir en 409 el rechazo del índice único de préstamos abiertos
+    private void volcar(String mensajeConflicto) {
+        try {
+            prestamoRepositorio.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw traducirPrestamoAbiertoDuplicado(e, mensajeConflicto);
+        }
+    }
+
+    private static RuntimeException traducirPrestamoAbiertoDuplicado(DataIntegrityViolationException e, String mensajeConflicto) {
+        String causa = e.getMostSpecificCause().getMessage();
+        if (causa != null && causa.toLowerCase(Locale.ROOT).contains(INDICE_PRESTAMO_ABIERTO)) {
+            logger.error(mensajeConflicto);
+            return new ConflictoExcepcion(mensajeConflicto);
+        }
+        return e;
+    }
+
+    // Reabrir un préstamo o pasar uno abierto a otro usuario consume cupo de ese usuario; cerrarlo lo libera
+    private void actualizarCupo(Prestamo prestamoExistente, PrestamoDTORequest prestamoDTORequest) {
+        Long usuarioAnteriorId = prestamoExistente.getUsuario().getId();
+        boolean abiertoAntes = prestamoExistente.getFechaDevolucion() == null;
+        boolean abiertoDespues = prestamoDTORequest.getFechaDevolucion() == null;
+        boolean mismoUsuario = usuarioAnteriorId.equals(prestamoDTORequest.getUsuarioId());
+        if (abiertoDespues && !(abiertoAntes && mismoUsuario)) {
+            cupoPrestamos.reservar(prestamoDTORequest.getUsuarioId());
+        }
+        if (abiertoAntes && !(abiertoDespues && mismoUsuario)) {
+            cupoPrestamos.liberar(usuarioAnteriorId);
+        }
+    }
+
     @Override
+    @Transactional
     public void eliminarPrestamo(Long id) {
-        logger.info("Eliminando prestamo con ID: {}", id);
-        if (!prestamoRepositorio.existsById(id)) {
-            logger.error("Intento de eliminar prestamo no existente con ID: {}", id);
-            throw new RecursoNoEncontradoExcepcion("Prestamo no encontrado para eliminar con ID: " + id);
-        }
-        prestamoRepositorio.deleteById(id);
+        logger.debug("Eliminando prestamo con ID: {}", id);
+        // Comprueba la existencia y a la vez obtiene el libro cuya disponibilidad puede cambiar, el usuario y la fecha
+        ReferenciasPrestamo referencias = prestamoRepositorio.findReferenciasById(id)
+                .orElseThrow(() -> {
+                    comprobarNoArchivado(id);
+                    logger.error("Intento de eliminar prestamo no existente con ID: {}", id);
+                    return new RecursoNoEncontradoExcepcion("Prestamo no encontrado para eliminar con ID: " + id);
+                });
+        Long libroId = referencias.libroId();
+        cupoPrestamos.liberarPrestamo(id);
+        estadisticasPrestamos.prestamoEliminado(libroId, referencias.usuarioId());
+        resumenesPrestamos.prestamosModificados(List.of(referencias.fechaPrestamo()));
+        prestamoRepositorio.eliminarPorId(id);
+        versionColecciones.modificada(Coleccion.PRESTAMOS);
+        TrasConfirmacion.ejecutar(() -> {
+            cacheRespuestas.prestamos().invalidar(id);
+            indiceDisponibilidad.recalcular(libroId);
+        });
     }
 }
\ No newline at end of file
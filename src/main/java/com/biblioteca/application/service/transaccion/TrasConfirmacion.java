@@ -0,0 +1,28 @@
+package com.biblioteca.application.service.transaccion;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Aplaza acciones sobre estado en memoria (cachés, versiones) hasta que la transacción en curso se confirma.
+ * Si se ejecutaran antes, una lectura concurrente podría volver a cachear los datos anteriores al commit.
+ */
+public final class TrasConfirmacion {
+
+    private TrasConfirmacion() {
+    }
+
+    // Sin transacción activa la escritura ya está confirmada y la acción se ejecuta en el acto
+    public static void ejecutar(Runnable accion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accion.run();
+            }
+        });
+    }
+}
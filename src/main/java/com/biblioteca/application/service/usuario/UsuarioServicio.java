@@ -1,19 +1,25 @@
 package com.biblioteca.application.service.usuario;
 
+import com.biblioteca.application.service.cache.RespuestaCacheada;
 import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTORequest;
 import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTOResponse;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface UsuarioServicio {
     List<UsuarioDTOResponse> obtenerTodosLosUsuarios();
 
     Optional<UsuarioDTOResponse> obtenerUsuarioPorId(Long id);
+    RespuestaCacheada<UsuarioDTOResponse> obtenerUsuarioSerializadoPorId(Long id);
+    Long obtenerVersionUsuario(Long id);
+    String obtenerVersionColeccion();
 
     UsuarioDTOResponse guardarUsuario(UsuarioDTORequest usuarioDTORequest);
 
     UsuarioDTOResponse actualizarUsuario(Long id, UsuarioDTORequest usuarioDTORequest);
+    UsuarioDTOResponse actualizarUsuario(Long id, UsuarioDTORequest usuarioDTORequest, Set<Long> versionesEsperadas);
 
     void eliminarUsuario(Long id);
 }
@@ -1,70 +1,150 @@
 package com.biblioteca.application.service.usuario;
 
+import com.biblioteca.application.service.cache.CacheRespuestas;
+import com.biblioteca.application.service.cache.RespuestaCacheada;
+import com.biblioteca.application.service.cache.VersionColecciones;
+import com.biblioteca.application.service.cache.VersionColecciones.Coleccion;
+import com.biblioteca.application.service.disponibilidad.IndiceDisponibilidad;
+import com.biblioteca.application.service.estadisticas.EstadisticasPrestamos;
+import com.biblioteca.application.service.estadisticas.ResumenesPrestamos;
+import com.biblioteca.application.service.prestamo.CupoPrestamos;
+import com.biblioteca.application.service.transaccion.TrasConfirmacion;
 import com.biblioteca.domain.entity.Usuario;
 import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTORequest;
 import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTOResponse;
 import com.biblioteca.infrastructure.controllers.usuario.mapper.UsuarioMapper;
+import com.biblioteca.infrastructure.exceptions.PrecondicionFallidaExcepcion;
 import com.biblioteca.infrastructure.exceptions.RecursoNoEncontradoExcepcion;
 import com.biblioteca.infrastructure.repository.UsuarioRepositorio;
+import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
+@Timed("biblioteca.servicio")
 public class UsuarioServicioImpl implements UsuarioServicio {
 
     private static final Logger logger = LoggerFactory.getLogger(UsuarioServicioImpl.class);
 
     private final UsuarioRepositorio usuarioRepositorio;
     private final UsuarioMapper usuarioMapper;
+    private final CacheRespuestas cacheRespuestas;
+    private final VersionColecciones versionColecciones;
+    private final IndiceDisponibilidad indiceDisponibilidad;
+    private final CupoPrestamos cupoPrestamos;
+    private final EstadisticasPrestamos estadisticasPrestamos;
+    private final ResumenesPrestamos resumenesPrestamos;
 
     @Autowired
-    public UsuarioServicioImpl(UsuarioRepositorio usuarioRepositorio, UsuarioMapper usuarioMapper) {
+    public UsuarioServicioImpl(UsuarioRepositorio usuarioRepositorio, UsuarioMapper usuarioMapper, CacheRespuestas cacheRespuestas, VersionColecciones versionColecciones, IndiceDisponibilidad indiceDisponibilidad, CupoPrestamos cupoPrestamos, EstadisticasPrestamos estadisticasPrestamos, ResumenesPrestamos resumenesPrestamos) {
         this.usuarioRepositorio = usuarioRepositorio;
         this.usuarioMapper = usuarioMapper;
+        this.cacheRespuestas = cacheRespuestas;
+        this.versionColecciones = versionColecciones;
+        this.indiceDisponibilidad = indiceDisponibilidad;
+        this.cupoPrestamos = cupoPrestamos;
+        this.estadisticasPrestamos = estadisticasPrestamos;
+        this.resumenesPrestamos = resumenesPrestamos;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<UsuarioDTOResponse> obtenerTodosLosUsuarios() {
-        logger.info("Obteniendo todos los usuarios");
-        List<Usuario> usuarios = usuarioRepositorio.findAll();
-        return usuarios.stream()
-                .map(usuarioMapper::toDTOResponse)
-                .collect(Collectors.toList());
+        logger.debug("Obteniendo todos los usuarios");
+        return usuarioRepositorio.findAllAsDTO();
     }
 
     @Override
     public Optional<UsuarioDTOResponse> obtenerUsuarioPorId(Long id) {
-        logger.info("Obteniendo usuario por ID: {}", id);
-        return usuarioRepositorio.findById(id)
-                .map(usuarioMapper::toDTOResponse)
-                .or(() -> {
+        logger.debug("Obteniendo usuario por ID: {}", id);
+        return Optional.of(obtenerRespuestaPorId(id).dto());
+    }
+
+    @Override
+    public RespuestaCacheada<UsuarioDTOResponse> obtenerUsuarioSerializadoPorId(Long id) {
+        logger.debug("Obteniendo usuario serializado por ID: {}", id);
+        return obtenerRespuestaPorId(id);
+    }
+
+    @Override
+    public Long obtenerVersionUsuario(Long id) {
+        UsuarioDTOResponse cacheado = cacheRespuestas.usuarios().obtenerSiPresente(id);
+        if (cacheado != null) {
+            return cacheado.getVersion();
+        }
+        return usuarioRepositorio.findVersionById(id)
+                .orElseThrow(() -> {
                     logger.error("Usuario no encontrado con ID: {}", id);
-                    throw new RecursoNoEncontradoExcepcion("Usuario no encontrado con ID: " + id);
+                    return new RecursoNoEncontradoExcepcion("Usuario no encontrado con ID: " + id);
                 });
     }
 
     @Override
+    public String obtenerVersionColeccion() {
+        return versionColecciones.version(Coleccion.USUARIOS);
+    }
+
+    // Sin transacción: un acierto en la caché de respuestas no necesita conexión
+    private RespuestaCacheada<UsuarioDTOResponse> obtenerRespuestaPorId(Long id) {
+        // findById pasa por la caché de segundo nivel; la proyección DTO iría siempre a la base de datos
+        RespuestaCacheada<UsuarioDTOResponse> respuesta = cacheRespuestas.usuarios()
+                .obtener(id, clave -> usuarioRepositorio.findById(clave).map(usuarioMapper::toDTOResponse).orElse(null));
+        if (respuesta == null) {
+            logger.error("Usuario no encontrado con ID: {}", id);
+            throw new RecursoNoEncontradoExcepcion("Usuario no encontrado con ID: " + id);
+        }
+        return respuesta;
+    }
+
+    @Override
+    @Transactional
     public UsuarioDTOResponse guardarUsuario(UsuarioDTORequest usuarioDTORequest) {
-        logger.info("Guardando usuario: {}", usuarioDTORequest);
+        logger.debug("Guardando usuario: {}", usuarioDTORequest);
         Usuario usuario = usuarioMapper.toEntity(usuarioDTORequest);
         Usuario usuarioGuardado = usuarioRepositorio.save(usuario);
+        cupoPrestamos.usuarioCreado(usuarioGuardado.getId());
+        versionColecciones.modificada(Coleccion.USUARIOS);
         return usuarioMapper.toDTOResponse(usuarioGuardado);
     }
 
     @Override
+    @Transactional
     public UsuarioDTOResponse actualizarUsuario(Long id, UsuarioDTORequest usuarioDTORequest) {
-        logger.info("Actualizando usuario con ID: {} y datos: {}", id, usuarioDTORequest);
+        return actualizarUsuario(id, usuarioDTORequest, null);
+    }
+
+    @Override
+    @Transactional
+    public UsuarioDTOResponse actualizarUsuario(Long id, UsuarioDTORequest usuarioDTORequest, Set<Long> versionesEsperadas) {
+        logger.debug("Actualizando usuario con ID: {}, versiones esperadas: {} y datos: {}", id, versionesEsperadas, usuarioDTORequest);
         return usuarioRepositorio.findById(id)
                 .map(usuarioExistente -> {
+                    if (versionesEsperadas != null && !versionesEsperadas.contains(usuarioExistente.getVersion())) {
+                        logger.error("Versión del usuario con ID: {} no coincide (esperadas {}, actual {})", id, versionesEsperadas, usuarioExistente.getVersion());
+                        throw new PrecondicionFallidaExcepcion("El usuario con ID: " + id + " ha sido modificado; versión actual: " + usuarioExistente.getVersion());
+                    }
                     Usuario usuarioActualizado = usuarioMapper.toEntity(usuarioDTORequest);
                     usuarioActualizado.setId(id);
-                    Usuario usuarioGuardado = usuarioRepositorio.save(usuarioActualizado);
+                    usuarioActualizado.setVersion(usuarioExistente.getVersion());
+                    usuarioActualizado.setPrestamos(usuarioExistente.getPrestamos());
+                    Usuario usuarioGuardado;
+                    try {
+                        usuarioGuardado = usuarioRepositorio.saveAndFlush(usuarioActualizado);
+                    } catch (ObjectOptimisticLockingFailureException e) {
+                        logger.error("Actualización concurrente del usuario con ID: {}", id);
+                        throw new PrecondicionFallidaExcepcion("El usuario con ID: " + id + " ha sido modificado por otra petición");
+                    }
+                    TrasConfirmacion.ejecutar(() -> cacheRespuestas.usuarios().invalidar(id));
+                    versionColecciones.modificada(Coleccion.USUARIOS);
                     return usuarioMapper.toDTOResponse(usuarioGuardado);
                 })
                 .orElseThrow(() -> {
@@ -74,12 +154,24 @@ public class UsuarioServicioImpl implements UsuarioServicio {
     }
 
     @Override
+    @Transactional
     public void eliminarUsuario(Long id) {
-        logger.info("Eliminando usuario con ID: {}", id);
+        logger.debug("Eliminando usuario con ID: {}", id);
         if (!usuarioRepositorio.existsById(id)) {
             logger.error("Intento de eliminar usuario no existente con ID: {}", id);
             throw new RecursoNoEncontradoExcepcion("Usuario no encontrado para eliminar con ID: " + id);
         }
+        Collection<Long> librosLiberados = indiceDisponibilidad.librosPrestadosA(id);
+        estadisticasPrestamos.usuarioEliminado(id);
+        resumenesPrestamos.usuarioEliminado(id);
         usuarioRepositorio.deleteById(id);
+        cupoPrestamos.usuarioEliminado(id);
+        versionColecciones.modificada(Coleccion.USUARIOS, Coleccion.PRESTAMOS);
+        TrasConfirmacion.ejecutar(() -> {
+            cacheRespuestas.usuarios().invalidar(id);
+            // El borrado arrastra sus préstamos en cascada y no sabemos cuáles estaban cacheados
+            cacheRespuestas.prestamos().invalidarTodo();
+            indiceDisponibilidad.recalcular(librosLiberados);
+        });
     }
 }
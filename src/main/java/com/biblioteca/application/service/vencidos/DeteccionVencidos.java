@@ -0,0 +1,175 @@
+package com.biblioteca.application.service.vencidos;
+
+import com.biblioteca.domain.entity.PuntoControl;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorio;
+import com.biblioteca.infrastructure.repository.PrestamoVencidoRepositorio;
+import com.biblioteca.infrastructure.repository.PuntoControlRepositorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntSupplier;
+
+/**
+ * Detección periódica de préstamos vencidos: abiertos (sin fecha de devolución) más de
+ * {@code biblioteca.vencidos.dias-prestamo} días. Los encontrados se anotan en la tabla prestamos_vencidos, que es
+ * la que sirve GET /prestamos/vencidos.
+ *
+ * <p>Cada día vence un único día de fechas de préstamo, así que la ejecución no recorre el histórico: continúa desde
+ * el punto de control guardado en puntos_control y recorre solo los días que han vencido desde entonces, por tramos
+ * del índice de fecha_prestamo en paralelo y cada tramo en su propia transacción. El punto de control avanza cuando
+ * termina cada grupo de tramos, así que un reinicio a mitad repite como mucho un grupo (sin duplicar filas).</p>
+ *
+ * <p>Los préstamos registrados con una fecha que el punto de control ya había dejado atrás se recogen aparte,
+ * recorriendo la clave primaria desde el mayor ID visto en la ejecución anterior. Los modificados (reabiertos, o con
+ * la fecha de préstamo movida a días ya recorridos) no aparecen en ninguno de los dos recorridos: los revisa
+ * {@link #prestamoModificado} en la misma transacción que los modifica.</p>
+ */
+@Component
+@EnableScheduling
+@EnableConfigurationProperties(VencidosPropiedades.class)
+public class DeteccionVencidos {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeteccionVencidos.class);
+
+    static final String PUNTO_CONTROL = "prestamos-vencidos";
+
+    private final PrestamoRepositorio prestamoRepositorio;
+    private final PrestamoVencidoRepositorio prestamoVencidoRepositorio;
+    private final PuntoControlRepositorio puntoControlRepositorio;
+    private final TransactionTemplate transaccion;
+    private final VencidosPropiedades propiedades;
+    private final AtomicBoolean ejecutando = new AtomicBoolean();
+
+    @Autowired
+    public DeteccionVencidos(PrestamoRepositorio prestamoRepositorio, PrestamoVencidoRepositorio prestamoVencidoRepositorio,
+                             PuntoControlRepositorio puntoControlRepositorio, PlatformTransactionManager transactionManager,
+                             VencidosPropiedades propiedades) {
+        this.prestamoRepositorio = prestamoRepositorio;
+        this.prestamoVencidoRepositorio = prestamoVencidoRepositorio;
+        this.puntoControlRepositorio = puntoControlRepositorio;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.propiedades = propiedades;
+    }
+
+    // Al arrancar (después de los runners, como los índices en memoria) y cada noche
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${biblioteca.vencidos.cron:0 15 3 * * *}")
+    public void detectar() {
+        detectar(LocalDate.now());
+    }
+
+    public void detectar(LocalDate hoy) {
+        if (!ejecutando.compareAndSet(false, true)) {
+            logger.warn("Detección de préstamos vencidos ya en curso; se omite esta ejecución");
+            return;
+        }
+        try {
+            long inicio = System.nanoTime();
+            LocalDate limite = limite(hoy);
+            // Se lee antes de recorrer nada: lo que se registre durante la ejecución se revisa en la siguiente
+            long ultimoId = prestamoRepositorio.findUltimoId().orElse(0L);
+            PuntoControl punto = puntoControlRepositorio.findById(PUNTO_CONTROL).orElse(null);
+
+            int detectados = 0;
+            LocalDate desde;
+            if (punto == null) {
+                desde = prestamoRepositorio.findFechaPrimerPrestamoAbierto().orElse(limite.plusDays(1));
+                punto = new PuntoControl(PUNTO_CONTROL, desde.minusDays(1), ultimoId);
+            } else {
+                desde = punto.getFecha().plusDays(1);
+                if (punto.getUltimoId() < ultimoId) {
+                    long ultimoIdAnterior = punto.getUltimoId();
+                    LocalDate hasta = punto.getFecha().isBefore(limite) ? punto.getFecha() : limite;
+                    detectados += ejecutarEnTransaccion(() -> prestamoVencidoRepositorio.insertarVencidosPosteriores(ultimoIdAnterior, hasta, hoy));
+                }
+            }
+            detectados += recorrerTramos(desde, limite, hoy, punto);
+
+            punto.setUltimoId(ultimoId);
+            puntoControlRepositorio.save(punto);
+            int resueltos = ejecutarEnTransaccion(prestamoVencidoRepositorio::eliminarResueltos);
+            logger.info("Detección de préstamos vencidos: {} nuevos y {} resueltos hasta la fecha de préstamo {} en {} ms",
+                    detectados, resueltos, limite, (System.nanoTime() - inicio) / 1_000_000);
+        } finally {
+            ejecutando.set(false);
+        }
+    }
+
+    /**
+     * Vuelve a anotar un préstamo cuya fecha de préstamo o de devolución ha cambiado: se retira su anotación, que puede
+     * haber dejado de valer o llevar la fecha anterior, y se anota de nuevo si está abierto y vencido. Debe llamarse
+     * dentro de la transacción que lo modifica, después de volcar el cambio.
+     */
+    public void prestamoModificado(Long prestamoId) {
+        LocalDate hoy = LocalDate.now();
+        prestamoVencidoRepositorio.eliminarPorPrestamo(prestamoId);
+        prestamoVencidoRepositorio.insertarSiVencido(prestamoId, limite(hoy), hoy);
+    }
+
+    // Último día de préstamo cuyo plazo ya ha terminado
+    private LocalDate limite(LocalDate hoy) {
+        return hoy.minusDays(propiedades.diasPrestamo() + 1L);
+    }
+
+    private int recorrerTramos(LocalDate desde, LocalDate limite, LocalDate hoy, PuntoControl punto) {
+        List<Tramo> tramos = new ArrayList<>();
+        for (LocalDate inicio = desde; !inicio.isAfter(limite); inicio = inicio.plusDays(propiedades.diasPorTramo())) {
+            LocalDate fin = inicio.plusDays(propiedades.diasPorTramo() - 1L);
+            tramos.add(new Tramo(inicio, fin.isAfter(limite) ? limite : fin));
+        }
+        int detectados = 0;
+        // Hilos virtuales: el paralelismo lo limitan los tramos por grupo (y el pool de conexiones), no el ejecutor
+        try (ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < tramos.size(); i += propiedades.tramosEnParalelo()) {
+                List<Tramo> grupo = tramos.subList(i, Math.min(i + propiedades.tramosEnParalelo(), tramos.size()));
+                List<Future<Integer>> resultados = new ArrayList<>(grupo.size());
+                for (Tramo tramo : grupo) {
+                    resultados.add(ejecutor.submit(() -> ejecutarEnTransaccion(() -> prestamoVencidoRepositorio.insertarVencidos(tramo.desde(), tramo.hasta(), hoy))));
+                }
+                for (Future<Integer> resultado : resultados) {
+                    detectados += esperar(resultado);
+                }
+                // Todo el grupo está confirmado: un reinicio continuará desde aquí
+                punto.setFecha(grupo.get(grupo.size() - 1).hasta());
+                puntoControlRepositorio.save(punto);
+            }
+        }
+        return detectados;
+    }
+
+    private int ejecutarEnTransaccion(IntSupplier operacion) {
+        Integer filas = transaccion.execute(estado -> operacion.getAsInt());
+        return filas != null ? filas : 0;
+    }
+
+    private static int esperar(Future<Integer> resultado) {
+        try {
+            return resultado.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Detección de préstamos vencidos interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error detectando préstamos vencidos", e.getCause());
+        }
+    }
+
+    private record Tramo(LocalDate desde, LocalDate hasta) {
+    }
+}
@@ -0,0 +1,23 @@
+package com.biblioteca.application.service.vencidos;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuración de la detección de préstamos vencidos (biblioteca.vencidos.*).
+ *
+ * @param diasPrestamo     días de plazo de un préstamo; si sigue abierto al día siguiente del último, está vencido
+ * @param diasPorTramo     días de fecha de préstamo que recorre cada tramo (una transacción)
+ * @param tramosEnParalelo tramos procesados a la vez; cada uno ocupa una conexión del pool
+ */
+@ConfigurationProperties("biblioteca.vencidos")
+public record VencidosPropiedades(@DefaultValue("30") int diasPrestamo,
+                                  @DefaultValue("7") int diasPorTramo,
+                                  @DefaultValue("4") int tramosEnParalelo) {
+
+    public VencidosPropiedades {
+        if (diasPrestamo < 0 || diasPorTramo < 1 || tramosEnParalelo < 1) {
+            throw new IllegalArgumentException("Configuración de biblioteca.vencidos inválida");
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.biblioteca.application.service.vencidos;
+
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoVencidoDTOResponse;
+
+public interface VencidosServicio {
+    PaginaDTOResponse<PrestamoVencidoDTOResponse> obtenerPrestamosVencidos(String cursor, Integer limite);
+}
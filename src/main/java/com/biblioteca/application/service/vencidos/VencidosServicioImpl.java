@@ -0,0 +1,57 @@
+package com.biblioteca.application.service.vencidos;
+
+import com.biblioteca.application.service.paginacion.CursorPaginacion;
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoVencidoDTOResponse;
+import com.biblioteca.infrastructure.repository.PrestamoVencidoRepositorio;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@Service
+@Timed("biblioteca.servicio")
+public class VencidosServicioImpl implements VencidosServicio {
+
+    private static final Logger logger = LoggerFactory.getLogger(VencidosServicioImpl.class);
+
+    private final PrestamoVencidoRepositorio prestamoVencidoRepositorio;
+    private final VencidosPropiedades propiedades;
+
+    @Autowired
+    public VencidosServicioImpl(PrestamoVencidoRepositorio prestamoVencidoRepositorio, VencidosPropiedades propiedades) {
+        this.prestamoVencidoRepositorio = prestamoVencidoRepositorio;
+        this.propiedades = propiedades;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaDTOResponse<PrestamoVencidoDTOResponse> obtenerPrestamosVencidos(String cursor, Integer limite) {
+        logger.debug("Obteniendo préstamos vencidos con cursor: {} y límite: {}", cursor, limite);
+        CursorPaginacion.Posicion posicion = CursorPaginacion.decodificarPosicion(cursor);
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        PageRequest pagina = PageRequest.of(0, tamano + 1);
+        List<PrestamoDTOResponse> prestamos = posicion.fecha() == null
+                ? prestamoVencidoRepositorio.findPrimeros(pagina)
+                : prestamoVencidoRepositorio.findSiguientes(posicion.fecha(), posicion.ultimoId(), pagina);
+        PaginaDTOResponse<PrestamoDTOResponse> resultado = CursorPaginacion.construirPagina(prestamos, tamano, PrestamoDTOResponse::getFechaPrestamo, PrestamoDTOResponse::getId);
+
+        LocalDate hoy = LocalDate.now();
+        List<PrestamoVencidoDTOResponse> vencidos = resultado.getContenido().stream()
+                .map(prestamo -> {
+                    LocalDate vencimiento = prestamo.getFechaPrestamo().plusDays(propiedades.diasPrestamo());
+                    return new PrestamoVencidoDTOResponse(prestamo.getId(), prestamo.getLibroId(), prestamo.getUsuarioId(),
+                            prestamo.getFechaPrestamo(), vencimiento, ChronoUnit.DAYS.between(vencimiento, hoy));
+                })
+                .toList();
+        return new PaginaDTOResponse<>(vencidos, resultado.getSiguienteCursor());
+    }
+}
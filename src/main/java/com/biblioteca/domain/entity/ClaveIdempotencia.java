@@ -0,0 +1,47 @@
+package com.biblioteca.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Respuesta guardada de una petición POST con cabecera {@code Idempotency-Key}, para devolverla tal cual a los
+ * reintentos. Mientras la petición original está en curso, {@code estado} es null.
+ */
+@Entity
+@Table(name = "claves_idempotencia", indexes = @Index(name = "idx_claves_idempotencia_expira", columnList = "expira"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClaveIdempotencia {
+
+    @Id
+    private String clave;
+
+    @Column(nullable = false, length = 64)
+    private String huella; // SHA-256 del método, la ruta y el cuerpo de la petición original
+
+    private Integer estado; // Código HTTP de la respuesta guardada
+
+    private String tipoContenido;
+
+    private String ubicacion; // Cabecera Location de la respuesta
+
+    @Lob
+    private byte[] cuerpo;
+
+    @Column(nullable = false)
+    private Instant expira;
+
+    @Version
+    private Long version; // Con la clave asignada a mano, una versión null es lo que hace que save() inserte sin SELECT previo
+}
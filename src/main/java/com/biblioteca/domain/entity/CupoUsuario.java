@@ -0,0 +1,29 @@
+package com.biblioteca.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Préstamos abiertos de cada usuario, mantenidos en la misma transacción que los préstamos para comprobar el cupo
+ * sin contarlos. Va en una tabla propia y no en {@link Usuario}: una actualización masiva sobre una entidad
+ * cacheada vacía su región de la caché de segundo nivel entera.
+ */
+@Entity
+@Table(name = "cupos_usuarios")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CupoUsuario {
+
+    @Id
+    @Column(name = "usuario_id")
+    private Long usuarioId;
+
+    @Column(nullable = false)
+    private int abiertos;
+}
@@ -0,0 +1,40 @@
+package com.biblioteca.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+/**
+ * Número de préstamos de cada libro, mantenido en la misma transacción que los préstamos para no tener que
+ * contarlos. Como {@link CupoUsuario}, va en una tabla propia para no vaciar la región de {@link Libro} de la caché
+ * de segundo nivel con cada actualización. Solo tienen fila los libros que se han prestado alguna vez.
+ *
+ * <p>{@code prestamos} cuenta todos sus préstamos; {@code archivados}, los que ya se movieron al archivo
+ * (ArchivoPrestamos) y no están en la tabla prestamos. El recuento al arrancar parte de {@code archivados} y suma lo
+ * que queda en prestamos.</p>
+ */
+@Entity
+@Table(name = "estadisticas_libros", indexes = // Ranking de los más prestados: se lee el principio del índice, ya ordenado
+        @Index(name = "idx_estadisticas_libros_prestamos", columnList = "prestamos DESC, libro_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticaLibro {
+
+    @Id
+    @Column(name = "libro_id")
+    private Long libroId;
+
+    @Column(nullable = false)
+    private long prestamos;
+
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private long archivados;
+}
@@ -0,0 +1,34 @@
+package com.biblioteca.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+
+/**
+ * Número de préstamos de cada usuario; ver {@link EstadisticaLibro}.
+ */
+@Entity
+@Table(name = "estadisticas_usuarios", indexes =
+        @Index(name = "idx_estadisticas_usuarios_prestamos", columnList = "prestamos DESC, usuario_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticaUsuario {
+
+    @Id
+    @Column(name = "usuario_id")
+    private Long usuarioId;
+
+    @Column(nullable = false)
+    private long prestamos;
+
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private long archivados;
+}
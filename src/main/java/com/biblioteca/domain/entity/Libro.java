@@ -1,16 +1,21 @@
 package com.biblioteca.domain.entity;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -18,7 +23,12 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(name = "libros") // Opcional, si quieres especificar otro nombre para la tabla
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "libros") // Caché de segundo nivel; región configurada en application.conf
+@Table(name = "libros", indexes = { // Comprobar si un título o autor sigue en el catálogo al retirarlo del autocompletado
+        @Index(name = "idx_libros_titulo", columnList = "titulo"),
+        @Index(name = "idx_libros_autor", columnList = "autor")
+})
 @Data // Lombok: genera getters, setters, equals, hashCode y toString
 @NoArgsConstructor // Lombok: genera constructor sin argumentos
 @AllArgsConstructor // Lombok: genera constructor con todos los argumentos
@@ -39,6 +49,9 @@ public class Libro {
 
     private LocalDate fechaPublicacion;
 
+    @Version // Control de concurrencia optimista; también sirve de ETag
+    private Long version;
+
     @OneToMany(mappedBy = "libro", cascade = CascadeType.ALL, orphanRemoval = true) // Añadida relación OneToMany con cascade y orphanRemoval
     @OnDelete(action = OnDeleteAction.CASCADE) // Añadida anotación OnDelete para cascade en base de datos
     private List<Prestamo> prestamos;
@@ -2,39 +2,62 @@ package com.biblioteca.domain.entity;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "prestamos")
+// Un índice por cada forma de GET /prestamos/search, terminado en las columnas del orden para paginar sin ordenar en memoria.
+// "¿Está prestado este libro?" se responde solo con idx_prestamos_libro_devolucion: fecha_devolucion NULL marca el préstamo abierto
+// El índice único de un solo préstamo abierto por libro va sobre una columna generada y se crea en schema.sql
+@Table(name = "prestamos", indexes = {
+        @Index(name = "idx_prestamos_libro_devolucion", columnList = "libro_id, fecha_devolucion"),
+        @Index(name = "idx_prestamos_libro", columnList = "libro_id, id"),
+        @Index(name = "idx_prestamos_usuario", columnList = "usuario_id, id"),
+        @Index(name = "idx_prestamos_fecha_prestamo", columnList = "fecha_prestamo, id"),
+        @Index(name = "idx_prestamos_fecha_devolucion", columnList = "fecha_devolucion, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Prestamo {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "prestamos_seq")
+    @SequenceGenerator(name = "prestamos_seq", sequenceName = "prestamos_seq", allocationSize = 50) // Secuencia con pool: permite agrupar los INSERT en lotes JDBC
     private Long id;
 
-    @ManyToOne // Relación muchos a uno: Muchos préstamos pueden corresponder a un Libro
+    @ManyToOne(fetch = FetchType.LAZY) // Relación muchos a uno: Muchos préstamos pueden corresponder a un Libro
     @JoinColumn(name = "libro_id", nullable = false) // Clave foránea en la tabla prestamos
+    @ToString.Exclude // Evita inicializar el proxy perezoso al registrar el préstamo en los logs
+    @EqualsAndHashCode.Exclude
     private Libro libro;
 
-    @ManyToOne // Relación muchos a uno: Muchos préstamos pueden corresponder a un Usuario
+    @ManyToOne(fetch = FetchType.LAZY) // Relación muchos a uno: Muchos préstamos pueden corresponder a un Usuario
     @JoinColumn(name = "usuario_id", nullable = false) // Clave foránea en la tabla prestamos
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Usuario usuario;
 
     @Column(nullable = false)
     private LocalDate fechaPrestamo;
 
     private LocalDate fechaDevolucion;
+
+    @Version
+    private Long version;
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package com.biblioteca.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Préstamo abierto cuyo plazo venció, anotado por la detección periódica (DeteccionVencidos).
+ * Sin clave foránea a prestamos: las devoluciones y los borrados no tienen que tocar esta tabla; las consultas la
+ * cruzan con prestamos y la detección retira las filas que ya no corresponden.
+ */
+@Entity
+@Table(name = "prestamos_vencidos", indexes = @Index(name = "idx_prestamos_vencidos_fecha", columnList = "fecha_prestamo, prestamo_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrestamoVencido {
+
+    @Id
+    @Column(name = "prestamo_id")
+    private Long prestamoId;
+
+    // Copia de la del préstamo: ordena y pagina el listado sin leer la tabla prestamos
+    @Column(nullable = false)
+    private LocalDate fechaPrestamo;
+
+    @Column(nullable = false)
+    private LocalDate fechaDeteccion;
+}
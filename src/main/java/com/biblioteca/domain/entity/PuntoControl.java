@@ -0,0 +1,29 @@
+package com.biblioteca.domain.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Hasta dónde llegó un trabajo periódico, para que la siguiente ejecución (o la primera tras un reinicio)
+ * continúe desde ahí en lugar de empezar de cero.
+ */
+@Entity
+@Table(name = "puntos_control")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PuntoControl {
+
+    @Id
+    private String nombre;
+
+    private LocalDate fecha; // Último día procesado entero
+
+    private Long ultimoId; // Mayor ID existente al empezar la última ejecución completa
+}
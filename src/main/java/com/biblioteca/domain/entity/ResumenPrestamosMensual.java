@@ -0,0 +1,45 @@
+package com.biblioteca.domain.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Suma de {@link ResumenPrestamosDiario} por mes natural y autor. Un informe por meses lee una fila por mes completo
+ * del rango en lugar de una por día; los días sueltos de los extremos salen de la tabla diaria.
+ */
+@Entity
+@IdClass(ResumenPrestamosMensual.Clave.class)
+@Table(name = "resumenes_prestamos_mensuales", indexes =
+        @Index(name = "idx_resumenes_mensuales_autor", columnList = "autor, mes"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumenPrestamosMensual {
+
+    @Id
+    private LocalDate mes; // Primer día del mes
+
+    @Id
+    private String autor;
+
+    @Column(nullable = false)
+    private long prestamos;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private LocalDate mes;
+        private String autor;
+    }
+}
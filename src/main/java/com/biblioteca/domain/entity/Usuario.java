@@ -1,6 +1,7 @@
 package com.biblioteca.domain.entity;
 
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -9,9 +10,12 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -19,6 +23,8 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "usuarios") // Caché de segundo nivel; región configurada en application.conf
 @Table(name = "usuarios")
 @Data
 @NoArgsConstructor
@@ -39,6 +45,9 @@ public class Usuario {
 
     private LocalDate fechaRegistro;
 
+    @Version
+    private Long version;
+
     @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, orphanRemoval = true) // Añadida relación OneToMany con cascade y orphanRemoval
     @OnDelete(action = OnDeleteAction.CASCADE) // Añadida anotación OnDelete para cascade en base de datos
     private List<Prestamo> prestamos;
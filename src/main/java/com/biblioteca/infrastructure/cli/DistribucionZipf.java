@@ -0,0 +1,66 @@
+package com.biblioteca.infrastructure.cli;
+
+import java.util.SplittableRandom;
+
+/**
+ * Muestreo de una distribución de Zipf sobre los rangos 1..n por rechazo-inversión (Hörmann y Derflinger),
+ * en tiempo constante y sin tablas: sirve igual para mil elementos que para diez millones.
+ */
+public class DistribucionZipf {
+
+    private final long elementos;
+    private final double exponente;
+    private final double hIntegralX1;
+    private final double hIntegralElementos;
+    private final double s;
+
+    public DistribucionZipf(long elementos, double exponente) {
+        if (elementos < 1) {
+            throw new IllegalArgumentException("La distribución de Zipf necesita al menos un elemento");
+        }
+        if (exponente <= 0) {
+            throw new IllegalArgumentException("El exponente de Zipf debe ser positivo: " + exponente);
+        }
+        this.elementos = elementos;
+        this.exponente = exponente;
+        this.hIntegralX1 = hIntegral(1.5) - 1;
+        this.hIntegralElementos = hIntegral(elementos + 0.5);
+        this.s = 2 - hIntegralInversa(hIntegral(2.5) - h(2));
+    }
+
+    // Rango entre 1 (el más frecuente) y el número de elementos
+    public long muestra(SplittableRandom aleatorio) {
+        while (true) {
+            double u = hIntegralElementos + aleatorio.nextDouble() * (hIntegralX1 - hIntegralElementos);
+            double x = hIntegralInversa(u);
+            long k = Math.max(1, Math.min(elementos, (long) (x + 0.5)));
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponente * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return auxiliar2((1 - exponente) * logX) * logX;
+    }
+
+    private double hIntegralInversa(double x) {
+        double t = Math.max(-1, x * (1 - exponente));
+        return Math.exp(auxiliar1(t) * x);
+    }
+
+    // log1p(x) / x, estable cerca de 0
+    private static double auxiliar1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+    }
+
+    // expm1(x) / x, estable cerca de 0
+    private static double auxiliar2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x * (1.0 / 3) * (1 + 0.25 * x));
+    }
+}
@@ -0,0 +1,186 @@
+package com.biblioteca.infrastructure.cli;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Genera libros, usuarios y préstamos verosímiles directamente por JDBC, en lotes de una transacción cada uno.
+ * Con la misma semilla y los mismos tamaños produce exactamente los mismos datos.
+ * <p>
+ * La popularidad sigue una ley de Zipf: unos pocos libros y usuarios acumulan la mayoría de los préstamos.
+ * Los rangos de popularidad se reparten por los IDs con un salto coprimo, para que los libros más prestados
+ * no sean simplemente los primeros insertados.
+ */
+class GeneradorDatosSinteticos {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneradorDatosSinteticos.class);
+
+    private static final int TAMANO_LOTE = 10_000;
+    private static final long[] SALTOS_PRIMOS = {1_000_003L, 999_983L, 104_729L};
+
+    private static final String SQL_INSERTAR_LIBRO = "INSERT INTO libros (titulo, autor, isbn, fecha_publicacion, version) VALUES (?, ?, ?, ?, 0)";
+    private static final String SQL_INSERTAR_USUARIO = "INSERT INTO usuarios (nombre, email, telefono, fecha_registro, version) VALUES (?, ?, ?, ?, 0)";
+    private static final String SQL_INSERTAR_PRESTAMO = "INSERT INTO prestamos (id, libro_id, usuario_id, fecha_prestamo, fecha_devolucion, version) VALUES (NEXT VALUE FOR prestamos_seq, ?, ?, ?, ?, 0)";
+
+    private static final String[] SUSTANTIVOS = {"sombra", "jardín", "memoria", "río", "ciudad", "silencio", "viaje", "noche",
+            "espejo", "laberinto", "mar", "invierno", "casa", "isla", "tiempo", "fuego", "camino", "reino", "voz", "carta"};
+    private static final String[] ADJETIVOS = {"perdido", "último", "secreto", "eterno", "olvidado", "invisible", "dorado",
+            "lejano", "breve", "oscuro", "infinito", "extraño", "antiguo", "quieto", "roto"};
+    private static final String[] NOMBRES = {"Lucía", "Hugo", "Martina", "Mateo", "Sofía", "Martín", "María", "Pablo", "Julia",
+            "Daniel", "Paula", "Alejandro", "Valeria", "Leo", "Carmen", "Manuel", "Elena", "Javier", "Irene", "Diego"};
+    private static final String[] APELLIDOS = {"García", "Rodríguez", "González", "Fernández", "López", "Martínez", "Sánchez",
+            "Pérez", "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz", "Álvarez", "Romero"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final long semilla;
+    private final double exponenteZipf;
+
+    GeneradorDatosSinteticos(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, long semilla, double exponenteZipf) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.semilla = semilla;
+        this.exponenteZipf = exponenteZipf;
+    }
+
+    void generar(long libros, long usuarios, long prestamos, LocalDate hoy) {
+        long primerLibro = siguienteId("libros");
+        long primerUsuario = siguienteId("usuarios");
+        generarLibros(primerLibro, libros, new SplittableRandom(semilla));
+        generarUsuarios(primerUsuario, usuarios, hoy, new SplittableRandom(semilla + 1));
+        if (prestamos > 0) {
+            generarPrestamos(prestamos, primerLibro, libros, primerUsuario, usuarios, hoy, new SplittableRandom(semilla + 2));
+        }
+    }
+
+    // ISBN y email se derivan del ID que tendrá la fila, así una segunda generación no choca con la primera
+    private void generarLibros(long primerLibro, long libros, SplittableRandom aleatorio) {
+        // Los autores también siguen Zipf: hay autores con cientos de títulos y muchos con uno solo
+        DistribucionZipf autores = new DistribucionZipf(Math.max(1, libros / 8), exponenteZipf);
+        insertarEnLotes("libros", SQL_INSERTAR_LIBRO, libros, i -> new Object[]{
+                titulo(aleatorio),
+                nombreCompleto(autores.muestra(aleatorio)),
+                isbn(primerLibro + i),
+                LocalDate.of(1900, 1, 1).plusDays(aleatorio.nextInt(45_000))
+        });
+    }
+
+    private void generarUsuarios(long primerUsuario, long usuarios, LocalDate hoy, SplittableRandom aleatorio) {
+        insertarEnLotes("usuarios", SQL_INSERTAR_USUARIO, usuarios, i -> {
+            String nombre = NOMBRES[aleatorio.nextInt(NOMBRES.length)];
+            String apellido = APELLIDOS[aleatorio.nextInt(APELLIDOS.length)];
+            return new Object[]{
+                    nombre + " " + apellido,
+                    normalizar(nombre) + "." + normalizar(apellido) + "." + (primerUsuario + i) + "@correo.example",
+                    String.format("6%02d-%03d-%03d", aleatorio.nextInt(100), aleatorio.nextInt(1_000), aleatorio.nextInt(1_000)),
+                    hoy.minusDays(aleatorio.nextInt(3_650))
+            };
+        });
+    }
+
+    /**
+     * Préstamos de los últimos dos años. Los de las últimas cuatro semanas pueden seguir abiertos
+     * (sin fecha de devolución), pero nunca dos a la vez del mismo libro.
+     */
+    private void generarPrestamos(long prestamos, long primerLibro, long libros, long primerUsuario, long usuarios,
+                                  LocalDate hoy, SplittableRandom aleatorio) {
+        if (libros < 1 || usuarios < 1) {
+            throw new IllegalArgumentException("Para generar préstamos hacen falta libros y usuarios generados");
+        }
+        DistribucionZipf popularidadLibros = new DistribucionZipf(libros, exponenteZipf);
+        DistribucionZipf actividadUsuarios = new DistribucionZipf(usuarios, exponenteZipf * 0.8);
+        long saltoLibros = saltoCoprimo(libros);
+        long saltoUsuarios = saltoCoprimo(usuarios);
+        BitSet librosConPrestamoAbierto = new BitSet((int) Math.min(libros, Integer.MAX_VALUE));
+        insertarEnLotes("prestamos", SQL_INSERTAR_PRESTAMO, prestamos, i -> {
+            long indiceLibro = (popularidadLibros.muestra(aleatorio) - 1) * saltoLibros % libros;
+            long indiceUsuario = (actividadUsuarios.muestra(aleatorio) - 1) * saltoUsuarios % usuarios;
+            int diasAtras = aleatorio.nextInt(730);
+            LocalDate fechaPrestamo = hoy.minusDays(diasAtras);
+            LocalDate fechaDevolucion = fechaPrestamo.plusDays(aleatorio.nextInt(1, 31));
+            if (diasAtras < 28 && aleatorio.nextBoolean() && !librosConPrestamoAbierto.get((int) indiceLibro)) {
+                librosConPrestamoAbierto.set((int) indiceLibro);
+                fechaDevolucion = null;
+            } else if (fechaDevolucion.isAfter(hoy)) {
+                fechaDevolucion = hoy;
+            }
+            return new Object[]{primerLibro + indiceLibro, primerUsuario + indiceUsuario, fechaPrestamo, fechaDevolucion};
+        });
+    }
+
+    private void insertarEnLotes(String tabla, String sql, long filas, Fila fila) {
+        long inicio = System.nanoTime();
+        List<Object[]> lote = new ArrayList<>((int) Math.min(filas, TAMANO_LOTE));
+        for (long i = 0; i < filas; i++) {
+            lote.add(fila.parametros(i));
+            if (lote.size() == TAMANO_LOTE || i == filas - 1) {
+                transactionTemplate.executeWithoutResult(estado -> jdbcTemplate.batchUpdate(sql, lote));
+                lote.clear();
+                if ((i + 1) % (TAMANO_LOTE * 50L) == 0) {
+                    logger.info("Generación de {} en curso: {} de {} filas", tabla, i + 1, filas);
+                }
+            }
+        }
+        logger.info("Generadas {} filas en {} en {} ms", filas, tabla, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    // Los IDs de libros y usuarios son IDENTITY y consecutivos: las filas nuevas empiezan tras el máximo actual
+    private long siguienteId(String tabla) {
+        Long maximo = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + tabla, Long.class);
+        return maximo == null ? 1 : maximo + 1;
+    }
+
+    private static String titulo(SplittableRandom aleatorio) {
+        String sustantivo = SUSTANTIVOS[aleatorio.nextInt(SUSTANTIVOS.length)];
+        String adjetivo = ADJETIVOS[aleatorio.nextInt(ADJETIVOS.length)];
+        String complemento = SUSTANTIVOS[aleatorio.nextInt(SUSTANTIVOS.length)];
+        return "El " + sustantivo + " " + adjetivo + " del " + complemento;
+    }
+
+    // El autor de rango n siempre tiene el mismo nombre, así sus libros se agrupan
+    private static String nombreCompleto(long rango) {
+        return NOMBRES[(int) (rango % NOMBRES.length)] + " " + APELLIDOS[(int) ((rango / NOMBRES.length) % APELLIDOS.length)]
+                + (rango >= (long) NOMBRES.length * APELLIDOS.length ? " " + rango : "");
+    }
+
+    // ISBN-13 con prefijo 979 (no coincide con los 978 de data.sql) y dígito de control válido
+    private static String isbn(long indice) {
+        String base = "979" + String.format("%09d", indice % 1_000_000_000L);
+        int suma = 0;
+        for (int i = 0; i < base.length(); i++) {
+            suma += (base.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+        }
+        return base + (10 - suma % 10) % 10;
+    }
+
+    private static String normalizar(String texto) {
+        return Normalizer.normalize(texto, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static long saltoCoprimo(long elementos) {
+        for (long primo : SALTOS_PRIMOS) {
+            if (elementos % primo != 0) {
+                return primo;
+            }
+        }
+        return 1;
+    }
+
+    @FunctionalInterface
+    private interface Fila {
+        Object[] parametros(long i);
+    }
+}
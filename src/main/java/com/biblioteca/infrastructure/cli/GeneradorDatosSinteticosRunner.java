@@ -0,0 +1,59 @@
+package com.biblioteca.infrastructure.cli;
+
+import com.biblioteca.application.service.cache.VersionColecciones;
+import com.biblioteca.application.service.cache.VersionColecciones.Coleccion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+
+/**
+ * Rellena la base de datos con datos sintéticos al arrancar, p. ej.
+ * {@code java -jar biblioteca.jar --biblioteca.datos-sinteticos.libros=1000000}.
+ * Si no se indican, se generan diez veces menos usuarios que libros y cinco préstamos por libro.
+ */
+@Component
+@ConditionalOnProperty(name = "biblioteca.datos-sinteticos.libros")
+public class GeneradorDatosSinteticosRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneradorDatosSinteticosRunner.class);
+
+    private final GeneradorDatosSinteticos generador;
+    private final VersionColecciones versionColecciones;
+    private final long libros;
+    private final long usuarios;
+    private final long prestamos;
+
+    @Autowired
+    public GeneradorDatosSinteticosRunner(JdbcTemplate jdbcTemplate,
+                                          PlatformTransactionManager transactionManager,
+                                          VersionColecciones versionColecciones,
+                                          @Value("${biblioteca.datos-sinteticos.libros}") long libros,
+                                          @Value("${biblioteca.datos-sinteticos.usuarios:-1}") long usuarios,
+                                          @Value("${biblioteca.datos-sinteticos.prestamos:-1}") long prestamos,
+                                          @Value("${biblioteca.datos-sinteticos.semilla:42}") long semilla,
+                                          @Value("${biblioteca.datos-sinteticos.exponente-zipf:1.0}") double exponenteZipf) {
+        this.generador = new GeneradorDatosSinteticos(jdbcTemplate, transactionManager, semilla, exponenteZipf);
+        this.versionColecciones = versionColecciones;
+        this.libros = libros;
+        this.usuarios = usuarios < 0 ? Math.max(1, libros / 10) : usuarios;
+        this.prestamos = prestamos < 0 ? libros * 5 : prestamos;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        logger.info("Generando datos sintéticos: {} libros, {} usuarios y {} préstamos", libros, usuarios, prestamos);
+        long inicio = System.nanoTime();
+        generador.generar(libros, usuarios, prestamos, LocalDate.now());
+        versionColecciones.modificada(Coleccion.LIBROS, Coleccion.USUARIOS, Coleccion.PRESTAMOS);
+        logger.info("Datos sintéticos generados en {} s", (System.nanoTime() - inicio) / 1_000_000_000);
+    }
+}
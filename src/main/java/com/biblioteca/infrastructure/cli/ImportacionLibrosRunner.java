@@ -0,0 +1,51 @@
+package com.biblioteca.infrastructure.cli;
+
+import com.biblioteca.application.service.libro.FormatoImportacion;
+import com.biblioteca.application.service.libro.ImportacionLibrosServicio;
+import com.biblioteca.infrastructure.controllers.libro.dto.ResultadoImportacionDTOResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Importa un fichero de libros al arrancar, p. ej.
+ * {@code java -jar biblioteca.jar --biblioteca.importacion.libros.fichero=catalogo.csv}.
+ * El formato se deduce de la extensión (.csv, .ndjson o .jsonl).
+ */
+@Component
+@ConditionalOnProperty(name = "biblioteca.importacion.libros.fichero")
+public class ImportacionLibrosRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacionLibrosRunner.class);
+
+    private final ImportacionLibrosServicio importacionLibrosServicio;
+    private final Path fichero;
+
+    @Autowired
+    public ImportacionLibrosRunner(ImportacionLibrosServicio importacionLibrosServicio,
+                                   @Value("${biblioteca.importacion.libros.fichero}") Path fichero) {
+        this.importacionLibrosServicio = importacionLibrosServicio;
+        this.fichero = fichero;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        logger.info("Importando libros desde el fichero {}", fichero);
+        FormatoImportacion formato = FormatoImportacion.desdeNombreFichero(fichero.getFileName().toString());
+        try (InputStream entrada = Files.newInputStream(fichero)) {
+            ResultadoImportacionDTOResponse resultado = importacionLibrosServicio.importarLibros(entrada, formato);
+            resultado.getRechazos().forEach(rechazo ->
+                    logger.warn("Línea {} rechazada: {}", rechazo.getLinea(), rechazo.getMotivo()));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.biblioteca.infrastructure.controllers.cache;
+
+import com.biblioteca.application.service.cache.EstadisticasCacheServicio;
+import com.biblioteca.infrastructure.controllers.cache.dto.EstadisticasCacheDTOResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/cache")
+@Tag(name = "Caché", description = "Estado de la caché de segundo nivel y de la caché de respuestas")
+public class CacheControlador {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheControlador.class);
+
+    private final EstadisticasCacheServicio estadisticasCacheServicio;
+
+    @Autowired
+    public CacheControlador(EstadisticasCacheServicio estadisticasCacheServicio) {
+        this.estadisticasCacheServicio = estadisticasCacheServicio;
+    }
+
+    @GetMapping("/estadisticas")
+    @Operation(summary = "Obtener estadísticas de caché", description = "Retorna aciertos, fallos, escrituras, eliminaciones y expulsiones acumulados por cada región de la caché de segundo nivel y de la caché de respuestas.")
+    @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(schema = @Schema(implementation = EstadisticasCacheDTOResponse.class)))
+    public ResponseEntity<List<EstadisticasCacheDTOResponse>> obtenerEstadisticas() {
+        logger.debug("Petición GET a /cache/estadisticas");
+        List<EstadisticasCacheDTOResponse> estadisticas = estadisticasCacheServicio.obtenerEstadisticas();
+        return new ResponseEntity<>(estadisticas, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,19 @@
+package com.biblioteca.infrastructure.controllers.cache.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EstadisticasCacheDTOResponse {
+
+    private String region;
+    private long aciertos;
+    private long fallos;
+    private float porcentajeAciertos;
+    private long escrituras;
+    private long eliminaciones;
+    private long expulsiones; // Entradas desalojadas por tamaño máximo o caducidad
+}
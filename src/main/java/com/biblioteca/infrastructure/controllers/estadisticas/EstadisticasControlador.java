@@ -0,0 +1,72 @@
+package com.biblioteca.infrastructure.controllers.estadisticas;
+
+import com.biblioteca.application.service.estadisticas.EstadisticasServicio;
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.LibroMasPrestadoDTOResponse;
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.PrestamosPorPeriodoDTOResponse;
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.UsuarioMasActivoDTOResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/estadisticas")
+@Tag(name = "Estadísticas", description = "Rankings e informes de préstamos para los paneles de gestión")
+public class EstadisticasControlador {
+
+    private static final Logger logger = LoggerFactory.getLogger(EstadisticasControlador.class);
+
+    private final EstadisticasServicio estadisticasServicio;
+
+    @Autowired
+    public EstadisticasControlador(EstadisticasServicio estadisticasServicio) {
+        this.estadisticasServicio = estadisticasServicio;
+    }
+
+    @GetMapping("/libros-mas-prestados")
+    @Operation(summary = "Obtener los libros más prestados", description = "Retorna los libros con más préstamos registrados, de más a menos. El ranking se mantiene en memoria con cada préstamo: la consulta no recorre el historial de préstamos.")
+    @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(array = @ArraySchema(schema = @Schema(implementation = LibroMasPrestadoDTOResponse.class))))
+    @ApiResponse(responseCode = "400", description = "Límite inválido")
+    public ResponseEntity<List<LibroMasPrestadoDTOResponse>> obtenerLibrosMasPrestados(@Parameter(in = ParameterIn.QUERY, name = "limite", description = "Número de libros (1-100, por defecto 10)", schema = @Schema(type = "integer", format = "int32")) @RequestParam(required = false) Integer limite) {
+        logger.debug("Petición GET a /estadisticas/libros-mas-prestados con límite: {}", limite);
+        return new ResponseEntity<>(estadisticasServicio.obtenerLibrosMasPrestados(limite), HttpStatus.OK);
+    }
+
+    @GetMapping("/usuarios-mas-activos")
+    @Operation(summary = "Obtener los usuarios más activos", description = "Retorna los usuarios con más préstamos registrados, de más a menos. El ranking se mantiene en memoria con cada préstamo: la consulta no recorre el historial de préstamos.")
+    @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(array = @ArraySchema(schema = @Schema(implementation = UsuarioMasActivoDTOResponse.class))))
+    @ApiResponse(responseCode = "400", description = "Límite inválido")
+    public ResponseEntity<List<UsuarioMasActivoDTOResponse>> obtenerUsuariosMasActivos(@Parameter(in = ParameterIn.QUERY, name = "limite", description = "Número de usuarios (1-100, por defecto 10)", schema = @Schema(type = "integer", format = "int32")) @RequestParam(required = false) Integer limite) {
+        logger.debug("Petición GET a /estadisticas/usuarios-mas-activos con límite: {}", limite);
+        return new ResponseEntity<>(estadisticasServicio.obtenerUsuariosMasActivos(limite), HttpStatus.OK);
+    }
+
+    @GetMapping("/prestamos")
+    @Operation(summary = "Obtener los préstamos por periodo", description = "Retorna el número de préstamos registrados por día, semana (de lunes a domingo) o mes natural entre dos fechas, incluidos los periodos sin préstamos, opcionalmente de un solo autor. Se calcula con resúmenes por día y mes agregados periódicamente, sin recorrer el historial de préstamos: los cambios de los últimos minutos pueden no aparecer todavía.")
+    @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(array = @ArraySchema(schema = @Schema(implementation = PrestamosPorPeriodoDTOResponse.class))))
+    @ApiResponse(responseCode = "400", description = "Rango de fechas, agrupación o número de periodos inválidos")
+    public ResponseEntity<List<PrestamosPorPeriodoDTOResponse>> obtenerPrestamosPorPeriodo(@Parameter(in = ParameterIn.QUERY, name = "desde", description = "Primera fecha de préstamo (inclusive, yyyy-MM-dd)", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                                                                         @Parameter(in = ParameterIn.QUERY, name = "hasta", description = "Última fecha de préstamo (inclusive, yyyy-MM-dd)", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                                                                         @Parameter(in = ParameterIn.QUERY, name = "agrupacion", description = "dia, semana o mes (por defecto dia)") @RequestParam(required = false) String agrupacion,
+                                                                                         @Parameter(in = ParameterIn.QUERY, name = "autor", description = "Solo préstamos de libros de este autor (coincidencia exacta)") @RequestParam(required = false) String autor) {
+        logger.debug("Petición GET a /estadisticas/prestamos entre {} y {}, agrupación: {} y autor: {}", desde, hasta, agrupacion, autor);
+        return new ResponseEntity<>(estadisticasServicio.obtenerPrestamosPorPeriodo(desde, hasta, agrupacion, autor), HttpStatus.OK);
+    }
+}
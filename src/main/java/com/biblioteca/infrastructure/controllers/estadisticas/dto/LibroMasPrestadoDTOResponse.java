@@ -0,0 +1,16 @@
+package com.biblioteca.infrastructure.controllers.estadisticas.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LibroMasPrestadoDTOResponse {
+
+    private Long libroId;
+    private String titulo;
+    private String autor;
+    private Long prestamos;
+}
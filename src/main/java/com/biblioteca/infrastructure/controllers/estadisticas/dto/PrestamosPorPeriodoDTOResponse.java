@@ -0,0 +1,17 @@
+package com.biblioteca.infrastructure.controllers.estadisticas.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDate;
+
+// Un periodo (día, semana o mes) de GET /estadisticas/prestamos; los del principio y el final se recortan al rango pedido
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrestamosPorPeriodoDTOResponse {
+
+    private LocalDate inicio;
+    private LocalDate fin;
+    private Long prestamos;
+}
@@ -0,0 +1,15 @@
+package com.biblioteca.infrastructure.controllers.estadisticas.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UsuarioMasActivoDTOResponse {
+
+    private Long usuarioId;
+    private String nombre;
+    private Long prestamos;
+}
@@ -0,0 +1,61 @@
+package com.biblioteca.infrastructure.controllers.etag;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Conversión entre versiones y ETag fuertes. Un recurso usa su versión JPA ({@code "3"});
+ * un listado usa la versión de su colección ({@code "c-<época>-<n>"}).
+ */
+public final class ETags {
+
+    private ETags() {
+    }
+
+    public static String deVersion(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    public static String deColeccion(String versionColeccion) {
+        return "\"c-" + versionColeccion + "\"";
+    }
+
+    /**
+     * Versiones aceptadas por una cabecera If-Match, o null si no la hay o es {@code *}. Admite una lista separada por
+     * comas ({@code "3", "4"}), como permite RFC 9110: la petición sigue si la versión actual es cualquiera de ellas.
+     * Los ETag débiles ({@code W/"3"}) y los que no corresponden a ninguna versión se descartan; si no queda ninguno,
+     * el conjunto vacío nunca coincide y acaba en 412.
+     */
+    public static Set<Long> versionesDeIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Set<Long> versiones = new HashSet<>();
+        int i = 0;
+        while (i < ifMatch.length()) {
+            char c = ifMatch.charAt(i);
+            if (c == ',' || c == ' ' || c == '\t') {
+                i++;
+                continue;
+            }
+            boolean debil = ifMatch.startsWith("W/", i);
+            int apertura = debil ? i + 2 : i;
+            if (apertura >= ifMatch.length() || ifMatch.charAt(apertura) != '"') {
+                return Set.of(); // Lista mal formada: no se puede saber qué versiones pedía
+            }
+            int cierre = ifMatch.indexOf('"', apertura + 1);
+            if (cierre < 0) {
+                return Set.of();
+            }
+            if (!debil) { // If-Match usa la comparación fuerte: un ETag débil nunca coincide
+                try {
+                    versiones.add(Long.parseLong(ifMatch.substring(apertura + 1, cierre)));
+                } catch (NumberFormatException e) {
+                    // Un ETag de otro tipo (de colección, por ejemplo) no es ninguna versión del recurso
+                }
+            }
+            i = cierre + 1;
+        }
+        return versiones;
+    }
+}
@@ -1,8 +1,18 @@
 package com.biblioteca.infrastructure.controllers.libro;
 
+import com.biblioteca.application.service.cache.RespuestaCacheada;
+import com.biblioteca.application.service.disponibilidad.DisponibilidadServicio;
+import com.biblioteca.application.service.libro.FormatoImportacion;
+import com.biblioteca.application.service.libro.ImportacionLibrosServicio;
 import com.biblioteca.application.service.libro.LibroServicio;
+import com.biblioteca.infrastructure.controllers.etag.ETags;
+import com.biblioteca.infrastructure.controllers.libro.dto.DisponibilidadLibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.dto.DisponibilidadLibrosDTOResponse;
 import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTORequest;
 import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.dto.ResultadoImportacionDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.dto.SugerenciaDTOResponse;
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
@@ -14,7 +24,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,11 +34,14 @@ import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.InputStream;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/libros")
@@ -36,53 +51,128 @@ public class LibroController {
     private static final Logger logger = LoggerFactory.getLogger(LibroController.class);
 
     private final LibroServicio libroServicio;
+    private final ImportacionLibrosServicio importacionLibrosServicio;
+    private final DisponibilidadServicio disponibilidadServicio;
 
     @Autowired
-    public LibroController(LibroServicio libroServicio) {
+    public LibroController(LibroServicio libroServicio, ImportacionLibrosServicio importacionLibrosServicio, DisponibilidadServicio disponibilidadServicio) {
         this.libroServicio = libroServicio;
+        this.importacionLibrosServicio = importacionLibrosServicio;
+        this.disponibilidadServicio = disponibilidadServicio;
     }
 
     @GetMapping
-    @Operation(summary = "Obtener todos los libros", description = "Retorna una lista de todos los libros disponibles en la biblioteca.")
-    @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(schema = @Schema(implementation = LibroDTOResponse.class)))
-    public ResponseEntity<List<LibroDTOResponse>> obtenerTodosLosLibros() {
-        logger.info("Petición GET a /libros");
-        List<LibroDTOResponse> libros = libroServicio.obtenerTodosLosLibros();
-        return new ResponseEntity<>(libros, HttpStatus.OK);
+    @Operation(summary = "Obtener los libros paginados", description = "Retorna una página de libros ordenados por ID. Para obtener la página siguiente se envía el cursor devuelto en la respuesta anterior.")
+    @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(schema = @Schema(implementation = PaginaDTOResponse.class)))
+    @ApiResponse(responseCode = "304", description = "El catálogo no ha cambiado desde el ETag enviado en If-None-Match")
+    @ApiResponse(responseCode = "400", description = "Cursor o límite inválido")
+    public ResponseEntity<PaginaDTOResponse<LibroDTOResponse>> obtenerLibros(@Parameter(in = ParameterIn.QUERY, name = "cursor", description = "Token opaco de continuación devuelto por la página anterior") @RequestParam(required = false) String cursor,
+                                                                           @Parameter(in = ParameterIn.QUERY, name = "limite", description = "Número máximo de libros por página (1-500, por defecto 50)", schema = @Schema(type = "integer", format = "int32")) @RequestParam(required = false) Integer limite,
+                                                                           WebRequest webRequest) {
+        logger.debug("Petición GET a /libros con cursor: {} y límite: {}", cursor, limite);
+        // La versión se lee antes que los datos: si cambian entremedias, el ETag queda antiguo y el cliente solo pierde un 304
+        String etag = ETags.deColeccion(libroServicio.obtenerVersionColeccion());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        PaginaDTOResponse<LibroDTOResponse> pagina = libroServicio.obtenerPaginaDeLibros(cursor, limite);
+        return ResponseEntity.ok().eTag(etag).body(pagina);
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Buscar libros por título o autor", description = "Búsqueda de texto completo sin distinguir tildes ni mayúsculas. Devuelve los libros que contienen todas las palabras, ordenados por relevancia; las coincidencias en el título pesan más que en el autor.")
+    @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(schema = @Schema(implementation = PaginaDTOResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Texto vacío o demasiado largo, cursor o límite inválido")
+    public ResponseEntity<PaginaDTOResponse<LibroDTOResponse>> buscarLibros(@Parameter(in = ParameterIn.QUERY, name = "q", description = "Palabras a buscar en el título y el autor", required = true) @RequestParam String q,
+                                                                          @Parameter(in = ParameterIn.QUERY, name = "cursor", description = "Token opaco de continuación devuelto por la página anterior") @RequestParam(required = false) String cursor,
+                                                                          @Parameter(in = ParameterIn.QUERY, name = "limite", description = "Número máximo de libros por página (1-500, por defecto 50)", schema = @Schema(type = "integer", format = "int32")) @RequestParam(required = false) Integer limite) {
+        logger.debug("Petición GET a /libros/search con texto: {}, cursor: {} y límite: {}", q, cursor, limite);
+        return new ResponseEntity<>(libroServicio.buscarLibros(q, cursor, limite), HttpStatus.OK);
+    }
+
+    @GetMapping("/autocomplete")
+    @Operation(summary = "Autocompletar títulos y autores", description = "Títulos y autores que empiezan por el prefijo, sin distinguir tildes ni mayúsculas, de los más prestados a los menos. Se responde desde memoria, sin consultar la base de datos.")
+    @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(schema = @Schema(implementation = SugerenciaDTOResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Prefijo vacío o demasiado largo, o límite inválido")
+    public ResponseEntity<List<SugerenciaDTOResponse>> autocompletar(@Parameter(in = ParameterIn.QUERY, name = "prefix", description = "Comienzo del título o del autor", required = true) @RequestParam String prefix,
+                                                                     @Parameter(in = ParameterIn.QUERY, name = "limite", description = "Número máximo de sugerencias (1-20, por defecto 10)", schema = @Schema(type = "integer", format = "int32")) @RequestParam(required = false) Integer limite) {
+        logger.debug("Petición GET a /libros/autocomplete con prefijo: {} y límite: {}", prefix, limite);
+        return new ResponseEntity<>(libroServicio.autocompletar(prefix, limite), HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Obtener un libro por ID", description = "Retorna los detalles de un libro específico buscado por su ID.")
     @ApiResponse(responseCode = "200", description = "Libro encontrado", content = @Content(schema = @Schema(implementation = LibroDTOResponse.class)))
     @ApiResponse(responseCode = "404", description = "Libro no encontrado")
-    public ResponseEntity<LibroDTOResponse> obtenerLibroPorId(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del libro a obtener", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id) {
-        logger.info("Petición GET a /libros/{}", id);
-        Optional<LibroDTOResponse> libro = libroServicio.obtenerLibroPorId(id);
-        return libro.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
-                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    @ApiResponse(responseCode = "304", description = "Sin cambios respecto al ETag enviado en If-None-Match")
+    public ResponseEntity<byte[]> obtenerLibroPorId(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del libro a obtener", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id,
+                                                    WebRequest webRequest) {
+        logger.debug("Petición GET a /libros/{}", id);
+        // Con If-None-Match el 304 se decide solo con la versión, sin cargar ni serializar el recurso
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(ETags.deVersion(libroServicio.obtenerVersionLibro(id)))) {
+            return null;
+        }
+        // Sin If-None-Match, o si no coincide: una sola lectura, de la caché de respuestas o con un findById que la rellena
+        RespuestaCacheada<LibroDTOResponse> libro = libroServicio.obtenerLibroSerializadoPorId(id);
+        return ResponseEntity.ok()
+                .eTag(ETags.deVersion(libro.dto().getVersion()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(libro.json());
+    }
+
+    @GetMapping("/{id}/disponibilidad")
+    @Operation(summary = "Consultar si un libro está disponible", description = "Indica si el libro tiene ahora mismo un préstamo sin fecha de devolución. Se responde desde un índice en memoria.")
+    @ApiResponse(responseCode = "200", description = "Disponibilidad del libro", content = @Content(schema = @Schema(implementation = DisponibilidadLibroDTOResponse.class)))
+    @ApiResponse(responseCode = "404", description = "Libro no encontrado")
+    public ResponseEntity<DisponibilidadLibroDTOResponse> obtenerDisponibilidadLibro(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del libro a consultar", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id) {
+        logger.debug("Petición GET a /libros/{}/disponibilidad", id);
+        return new ResponseEntity<>(disponibilidadServicio.obtenerDisponibilidad(id), HttpStatus.OK);
+    }
+
+    @GetMapping("/disponibilidad")
+    @Operation(summary = "Consultar la disponibilidad de varios libros", description = "Indica para cada ID si el libro tiene ahora mismo un préstamo sin fecha de devolución. Los IDs que no corresponden a ningún libro se devuelven aparte.")
+    @ApiResponse(responseCode = "200", description = "Disponibilidad de los libros", content = @Content(schema = @Schema(implementation = DisponibilidadLibrosDTOResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Lista de IDs vacía o demasiado larga")
+    public ResponseEntity<DisponibilidadLibrosDTOResponse> obtenerDisponibilidadLibros(@Parameter(in = ParameterIn.QUERY, name = "ids", description = "IDs de los libros separados por comas (máximo 1000)", required = true) @RequestParam List<Long> ids) {
+        logger.debug("Petición GET a /libros/disponibilidad con {} IDs", ids.size());
+        return new ResponseEntity<>(disponibilidadServicio.obtenerDisponibilidades(ids), HttpStatus.OK);
     }
 
     @PostMapping
     @Operation(summary = "Crear un nuevo libro", description = "Crea un nuevo libro en la biblioteca.")
     @ApiResponse(responseCode = "201", description = "Libro creado exitosamente", content = @Content(schema = @Schema(implementation = LibroDTOResponse.class)))
     @ApiResponse(responseCode = "400", description = "Petición inválida")
-    public ResponseEntity<LibroDTOResponse> crearLibro(@RequestBody(description = "Datos del libro a crear", required = true, content = @Content(schema = @Schema(implementation = LibroDTORequest.class))) LibroDTORequest libroDTORequest) {
-        logger.info("Petición POST a /libros con datos: {}", libroDTORequest);
+    public ResponseEntity<LibroDTOResponse> crearLibro(@RequestBody(description = "Datos del libro a crear", required = true, content = @Content(schema = @Schema(implementation = LibroDTORequest.class))) @org.springframework.web.bind.annotation.RequestBody LibroDTORequest libroDTORequest) {
+        logger.debug("Petición POST a /libros con datos: {}", libroDTORequest);
         LibroDTOResponse nuevoLibro = libroServicio.guardarLibro(libroDTORequest);
         return new ResponseEntity<>(nuevoLibro, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/importacion", consumes = {FormatoImportacion.TIPO_CSV, FormatoImportacion.TIPO_NDJSON})
+    @Operation(summary = "Importar libros en bloque", description = "Importa libros desde un cuerpo CSV (titulo,autor,isbn,fechaPublicacion) o NDJSON. El cuerpo se procesa en streaming y se escribe por lotes; las filas inválidas o con ISBN repetido se rechazan sin detener la importación.")
+    @ApiResponse(responseCode = "200", description = "Importación completada", content = @Content(schema = @Schema(implementation = ResultadoImportacionDTOResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Formato no soportado")
+    public ResponseEntity<ResultadoImportacionDTOResponse> importarLibros(@RequestHeader(HttpHeaders.CONTENT_TYPE) String tipoContenido,
+                                                                          InputStream cuerpo) {
+        logger.debug("Petición POST a /libros/importacion con tipo de contenido: {}", tipoContenido);
+        ResultadoImportacionDTOResponse resultado = importacionLibrosServicio.importarLibros(cuerpo, FormatoImportacion.desdeTipoContenido(tipoContenido));
+        return new ResponseEntity<>(resultado, HttpStatus.OK);
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Actualizar un libro existente", description = "Actualiza los detalles de un libro existente buscado por su ID.")
     @ApiResponse(responseCode = "200", description = "Libro actualizado exitosamente", content = @Content(schema = @Schema(implementation = LibroDTOResponse.class)))
     @ApiResponse(responseCode = "404", description = "Libro no encontrado")
     @ApiResponse(responseCode = "400", description = "Petición inválida")
+    @ApiResponse(responseCode = "412", description = "If-Match no coincide con la versión actual")
     public ResponseEntity<LibroDTOResponse> actualizarLibro(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del libro a actualizar", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id,
-                                                            @RequestBody(description = "Datos actualizados del libro", required = true, content = @Content(schema = @Schema(implementation = LibroDTORequest.class))) LibroDTORequest libroDTORequest) {
-        logger.info("Petición PUT a /libros/{} con datos: {}", id, libroDTORequest);
-        LibroDTOResponse libro = libroServicio.actualizarLibro(id, libroDTORequest);
+                                                            @RequestBody(description = "Datos actualizados del libro", required = true, content = @Content(schema = @Schema(implementation = LibroDTORequest.class))) @org.springframework.web.bind.annotation.RequestBody LibroDTORequest libroDTORequest,
+                                                            @Parameter(in = ParameterIn.HEADER, name = "If-Match", description = "ETag de la versión que se modifica") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        logger.debug("Petición PUT a /libros/{} con datos: {}", id, libroDTORequest);
+        LibroDTOResponse libro = libroServicio.actualizarLibro(id, libroDTORequest, ETags.versionesDeIfMatch(ifMatch));
         if (libro != null) {
-            return new ResponseEntity<>(libro, HttpStatus.OK);
+            return ResponseEntity.ok().eTag(ETags.deVersion(libro.getVersion())).body(libro);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -93,12 +183,14 @@ public class LibroController {
     @ApiResponse(responseCode = "200", description = "Libro actualizado parcialmente exitosamente", content = @Content(schema = @Schema(implementation = LibroDTOResponse.class)))
     @ApiResponse(responseCode = "404", description = "Libro no encontrado")
     @ApiResponse(responseCode = "400", description = "Petición inválida")
+    @ApiResponse(responseCode = "412", description = "If-Match no coincide con la versión actual")
     public ResponseEntity<LibroDTOResponse> actualizarParcialmenteLibro(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del libro a actualizar parcialmente", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id,
-                                                                        @RequestBody(description = "Datos actualizados del libro", required = true, content = @Content(schema = @Schema(implementation = LibroDTORequest.class))) LibroDTORequest libroDTORequest) {
-        logger.info("Petición PATCH a /libros/{} con datos: {}", id, libroDTORequest);
-        LibroDTOResponse libro = libroServicio.actualizarLibro(id, libroDTORequest);
+                                                                        @RequestBody(description = "Datos actualizados del libro", required = true, content = @Content(schema = @Schema(implementation = LibroDTORequest.class))) @org.springframework.web.bind.annotation.RequestBody LibroDTORequest libroDTORequest,
+                                                                        @Parameter(in = ParameterIn.HEADER, name = "If-Match", description = "ETag de la versión que se modifica") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        logger.debug("Petición PATCH a /libros/{} con datos: {}", id, libroDTORequest);
+        LibroDTOResponse libro = libroServicio.actualizarLibro(id, libroDTORequest, ETags.versionesDeIfMatch(ifMatch));
         if (libro != null) {
-            return new ResponseEntity<>(libro, HttpStatus.OK);
+            return ResponseEntity.ok().eTag(ETags.deVersion(libro.getVersion())).body(libro);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -109,7 +201,7 @@ public class LibroController {
     @ApiResponse(responseCode = "204", description = "Libro eliminado exitosamente")
     @ApiResponse(responseCode = "404", description = "Libro no encontrado")
     public ResponseEntity<Void> eliminarLibro(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del libro a eliminar", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id) {
-        logger.info("Petición DELETE a /libros/{}", id);
+        logger.debug("Petición DELETE a /libros/{}", id);
         libroServicio.eliminarLibro(id);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
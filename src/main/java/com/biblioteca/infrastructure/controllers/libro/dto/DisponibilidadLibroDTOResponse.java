@@ -0,0 +1,14 @@
+package com.biblioteca.infrastructure.controllers.libro.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisponibilidadLibroDTOResponse {
+
+    private Long libroId;
+    private boolean disponible; // false mientras tenga un préstamo sin fecha de devolución
+}
@@ -0,0 +1,16 @@
+package com.biblioteca.infrastructure.controllers.libro.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisponibilidadLibrosDTOResponse {
+
+    private List<DisponibilidadLibroDTOResponse> libros; // En el orden de la petición, sin repetidos
+    private List<Long> noEncontrados;
+}
@@ -15,4 +15,5 @@ public class LibroDTOResponse {
     private String autor;
     private String isbn;
     private LocalDate fechaPublicacion;
+    private Long version;
 }
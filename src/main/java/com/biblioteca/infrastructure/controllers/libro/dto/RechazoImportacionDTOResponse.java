@@ -0,0 +1,14 @@
+package com.biblioteca.infrastructure.controllers.libro.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RechazoImportacionDTOResponse {
+
+    private long linea;
+    private String motivo;
+}
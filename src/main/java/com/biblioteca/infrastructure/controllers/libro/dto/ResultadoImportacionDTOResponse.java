@@ -0,0 +1,18 @@
+package com.biblioteca.infrastructure.controllers.libro.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoImportacionDTOResponse {
+
+    private long filasLeidas;
+    private long librosInsertados;
+    private long filasRechazadas;
+    private List<RechazoImportacionDTOResponse> rechazos; // Limitado: solo los primeros rechazos se detallan
+}
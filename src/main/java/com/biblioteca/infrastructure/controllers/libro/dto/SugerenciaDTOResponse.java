@@ -0,0 +1,18 @@
+package com.biblioteca.infrastructure.controllers.libro.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SugerenciaDTOResponse {
+
+    public static final String TITULO = "titulo";
+    public static final String AUTOR = "autor";
+
+    private String texto;
+    private String tipo; // TITULO o AUTOR
+    private Long prestamos; // Peso de la sugerencia: préstamos de los libros con ese título o autor
+}
@@ -4,12 +4,14 @@ import com.biblioteca.domain.entity.Libro;
 import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTORequest;
 import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface LibroMapper {
 
     LibroDTORequest toDTORequest(Libro libro);
     LibroDTOResponse toDTOResponse(Libro libro);
+    @Mapping(target = "version", ignore = true) // La versión la gestiona JPA, el cliente no la envía en el cuerpo
     Libro toEntity(LibroDTORequest libroDTORequest);
     Libro toEntity(LibroDTOResponse libroDTOResponse);
 }
@@ -0,0 +1,16 @@
+package com.biblioteca.infrastructure.controllers.paginacion;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaDTOResponse<T> {
+
+    private List<T> contenido;
+    private String siguienteCursor; // null cuando no quedan más resultados
+}
@@ -1,16 +1,33 @@
 package com.biblioteca.infrastructure.controllers.prestamo;
 
+import com.biblioteca.application.service.cache.RespuestaCacheada;
 import com.biblioteca.application.service.prestamo.PrestamoServicio;
+import com.biblioteca.application.service.vencidos.VencidosServicio;
+import com.biblioteca.infrastructure.controllers.etag.ETags;
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.FiltroPrestamosDTORequest;
 import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTORequest;
 import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoVencidoDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.ResultadoLotePrestamoDTOResponse;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
@@ -18,8 +35,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/prestamos")
@@ -28,54 +47,151 @@ public class PrestamoControlador {
 
     private static final Logger logger = LoggerFactory.getLogger(PrestamoControlador.class);
 
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     private final PrestamoServicio prestamoServicio;
+    private final VencidosServicio vencidosServicio;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public PrestamoControlador(PrestamoServicio prestamoServicio) {
+    public PrestamoControlador(PrestamoServicio prestamoServicio, VencidosServicio vencidosServicio, ObjectMapper objectMapper) {
         this.prestamoServicio = prestamoServicio;
+        this.vencidosServicio = vencidosServicio;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
     @Operation(summary = "Obtener todos los préstamos", description = "Retorna una lista de todos los préstamos registrados.")
     @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(schema = @Schema(implementation = PrestamoDTOResponse.class)))
-    public ResponseEntity<List<PrestamoDTOResponse>> obtenerTodosLosPrestamos() {
-        logger.info("Petición GET a /prestamos");
+    @ApiResponse(responseCode = "304", description = "Sin cambios respecto al ETag enviado en If-None-Match")
+    public ResponseEntity<List<PrestamoDTOResponse>> obtenerTodosLosPrestamos(WebRequest webRequest) {
+        logger.debug("Petición GET a /prestamos");
+        String etag = ETags.deColeccion(prestamoServicio.obtenerVersionColeccion());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         List<PrestamoDTOResponse> prestamos = prestamoServicio.obtenerTodosLosPrestamos();
-        return new ResponseEntity<>(prestamos, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(etag).body(prestamos);
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Buscar préstamos por usuario, libro y fechas", description = "Retorna una página de los préstamos que cumplen todos los filtros indicados. Con un rango de fechas se ordenan por esa fecha (la de préstamo si hay ambos); sin él, por ID. Para obtener la página siguiente se envía el cursor devuelto en la respuesta anterior con los mismos filtros.")
+    @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(schema = @Schema(implementation = PaginaDTOResponse.class)))
+    @ApiResponse(responseCode = "304", description = "Los préstamos no han cambiado desde el ETag enviado en If-None-Match")
+    @ApiResponse(responseCode = "400", description = "Rango de fechas, cursor o límite inválido")
+    public ResponseEntity<PaginaDTOResponse<PrestamoDTOResponse>> buscarPrestamos(@Parameter(in = ParameterIn.QUERY, name = "usuarioId", description = "Solo préstamos de este usuario", schema = @Schema(type = "integer", format = "int64")) @RequestParam(required = false) Long usuarioId,
+                                                                                  @Parameter(in = ParameterIn.QUERY, name = "libroId", description = "Solo préstamos de este libro", schema = @Schema(type = "integer", format = "int64")) @RequestParam(required = false) Long libroId,
+                                                                                  @Parameter(in = ParameterIn.QUERY, name = "prestamoDesde", description = "Fecha de préstamo mínima (inclusive, yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate prestamoDesde,
+                                                                                  @Parameter(in = ParameterIn.QUERY, name = "prestamoHasta", description = "Fecha de préstamo máxima (inclusive, yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate prestamoHasta,
+                                                                                  @Parameter(in = ParameterIn.QUERY, name = "devolucionDesde", description = "Fecha de devolución mínima (inclusive, yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate devolucionDesde,
+                                                                                  @Parameter(in = ParameterIn.QUERY, name = "devolucionHasta", description = "Fecha de devolución máxima (inclusive, yyyy-MM-dd)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate devolucionHasta,
+                                                                                  @Parameter(in = ParameterIn.QUERY, name = "abierto", description = "true: sin devolver; false: devueltos") @RequestParam(required = false) Boolean abierto,
+                                                                                  @Parameter(in = ParameterIn.QUERY, name = "cursor", description = "Token opaco de continuación devuelto por la página anterior") @RequestParam(required = false) String cursor,
+                                                                                  @Parameter(in = ParameterIn.QUERY, name = "limite", description = "Número máximo de préstamos por página (1-500, por defecto 50)", schema = @Schema(type = "integer", format = "int32")) @RequestParam(required = false) Integer limite,
+                                                                                  WebRequest webRequest) {
+        FiltroPrestamosDTORequest filtro = new FiltroPrestamosDTORequest(usuarioId, libroId, prestamoDesde, prestamoHasta, devolucionDesde, devolucionHasta, abierto);
+        logger.debug("Petición GET a /prestamos/search con filtro: {}, cursor: {} y límite: {}", filtro, cursor, limite);
+        String etag = ETags.deColeccion(prestamoServicio.obtenerVersionColeccion());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        PaginaDTOResponse<PrestamoDTOResponse> pagina = prestamoServicio.buscarPrestamos(filtro, cursor, limite);
+        return ResponseEntity.ok().eTag(etag).body(pagina);
+    }
+
+    @GetMapping("/vencidos")
+    @Operation(summary = "Obtener los préstamos vencidos", description = "Retorna una página de los préstamos sin devolver cuyo plazo ha terminado, de los más antiguos a los más recientes. La lista la actualiza una detección periódica (al arrancar y cada noche): un préstamo que ha vencido hoy puede no aparecer hasta la siguiente, pero uno devuelto deja de aparecer en el acto.")
+    @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(schema = @Schema(implementation = PaginaDTOResponse.class)))
+    @ApiResponse(responseCode = "400", description = "Cursor o límite inválido")
+    public ResponseEntity<PaginaDTOResponse<PrestamoVencidoDTOResponse>> obtenerPrestamosVencidos(@Parameter(in = ParameterIn.QUERY, name = "cursor", description = "Token opaco de continuación devuelto por la página anterior") @RequestParam(required = false) String cursor,
+                                                                                                  @Parameter(in = ParameterIn.QUERY, name = "limite", description = "Número máximo de préstamos por página (1-500, por defecto 50)", schema = @Schema(type = "integer", format = "int32")) @RequestParam(required = false) Integer limite) {
+        logger.debug("Petición GET a /prestamos/vencidos con cursor: {} y límite: {}", cursor, limite);
+        return new ResponseEntity<>(vencidosServicio.obtenerPrestamosVencidos(cursor, limite), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON)
+    @Operation(summary = "Exportar todos los préstamos", description = "Transmite todos los préstamos en formato NDJSON (un objeto JSON por línea) a medida que se leen de la base de datos, sin cargarlos en memoria.")
+    @ApiResponse(responseCode = "200", description = "Exportación en curso", content = @Content(mediaType = APPLICATION_NDJSON, schema = @Schema(implementation = PrestamoDTOResponse.class)))
+    public ResponseEntity<StreamingResponseBody> exportarPrestamos() {
+        logger.debug("Petición GET a /prestamos/export");
+        ObjectWriter escritor = objectMapper.writerFor(PrestamoDTOResponse.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE); // El búfer de la respuesta decide cuándo enviar
+        StreamingResponseBody cuerpo = salida -> {
+            try (JsonGenerator generador = objectMapper.createGenerator(salida)) {
+                generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generador.setRootValueSeparator(null);
+                prestamoServicio.exportarPrestamos(prestamo -> {
+                    try {
+                        escritor.writeValue(generador, prestamo);
+                        generador.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON))
+                .body(cuerpo);
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Obtener un préstamo por ID", description = "Retorna los detalles de un préstamo específico buscado por su ID.")
     @ApiResponse(responseCode = "200", description = "Préstamo encontrado", content = @Content(schema = @Schema(implementation = PrestamoDTOResponse.class)))
     @ApiResponse(responseCode = "404", description = "Préstamo no encontrado")
-    public ResponseEntity<PrestamoDTOResponse> obtenerPrestamoPorId(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del préstamo a obtener", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id) {
-        logger.info("Petición GET a /prestamos/{}", id);
-        Optional<PrestamoDTOResponse> prestamo = prestamoServicio.obtenerPrestamoPorId(id);
-        return prestamo.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
-                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    @ApiResponse(responseCode = "304", description = "Sin cambios respecto al ETag enviado en If-None-Match")
+    public ResponseEntity<byte[]> obtenerPrestamoPorId(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del préstamo a obtener", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id,
+                                                       WebRequest webRequest) {
+        logger.debug("Petición GET a /prestamos/{}", id);
+        // Con If-None-Match el 304 se decide solo con la versión, sin cargar ni serializar el recurso
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(ETags.deVersion(prestamoServicio.obtenerVersionPrestamo(id)))) {
+            return null;
+        }
+        // Sin If-None-Match, o si no coincide: una sola lectura, de la caché de respuestas o con un findById que la rellena
+        RespuestaCacheada<PrestamoDTOResponse> prestamo = prestamoServicio.obtenerPrestamoSerializadoPorId(id);
+        return ResponseEntity.ok()
+                .eTag(ETags.deVersion(prestamo.dto().getVersion()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(prestamo.json());
     }
 
     @PostMapping
     @Operation(summary = "Crear un nuevo préstamo", description = "Registra un nuevo préstamo de un libro a un usuario.")
     @ApiResponse(responseCode = "201", description = "Préstamo creado exitosamente", content = @Content(schema = @Schema(implementation = PrestamoDTOResponse.class)))
     @ApiResponse(responseCode = "400", description = "Petición inválida")
-    public ResponseEntity<PrestamoDTOResponse> crearPrestamo(@RequestBody(description = "Datos del préstamo a crear (incluye IDs de libro y usuario)", required = true, content = @Content(schema = @Schema(implementation = PrestamoDTORequest.class))) PrestamoDTORequest prestamoDTORequest) {
-        logger.info("Petición POST a /prestamos con datos: {}", prestamoDTORequest);
+    @ApiResponse(responseCode = "409", description = "El libro ya tiene un préstamo abierto o el usuario ha alcanzado su máximo de préstamos abiertos")
+    public ResponseEntity<PrestamoDTOResponse> crearPrestamo(@RequestBody(description = "Datos del préstamo a crear (incluye IDs de libro y usuario)", required = true, content = @Content(schema = @Schema(implementation = PrestamoDTORequest.class))) @org.springframework.web.bind.annotation.RequestBody PrestamoDTORequest prestamoDTORequest) {
+        logger.debug("Petición POST a /prestamos con datos: {}", prestamoDTORequest);
         PrestamoDTOResponse nuevoPrestamo = prestamoServicio.guardarPrestamo(prestamoDTORequest);
         return new ResponseEntity<>(nuevoPrestamo, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Crear préstamos en lote", description = "Registra varios préstamos en una única transacción. Los préstamos con referencias inválidas se rechazan individualmente sin afectar al resto.")
+    @ApiResponse(responseCode = "200", description = "Lote procesado; cada elemento indica si el préstamo se creó o el motivo del rechazo", content = @Content(array = @ArraySchema(schema = @Schema(implementation = ResultadoLotePrestamoDTOResponse.class))))
+    @ApiResponse(responseCode = "400", description = "Lote vacío o demasiado grande")
+    @ApiResponse(responseCode = "409", description = "Otra petición abrió a la vez un préstamo de alguno de los libros; no se ha guardado nada")
+    public ResponseEntity<List<ResultadoLotePrestamoDTOResponse>> crearPrestamosEnLote(@RequestBody(description = "Lista de préstamos a crear (máximo 1000)", required = true, content = @Content(array = @ArraySchema(schema = @Schema(implementation = PrestamoDTORequest.class)))) @org.springframework.web.bind.annotation.RequestBody List<PrestamoDTORequest> prestamosDTORequest) {
+        logger.debug("Petición POST a /prestamos/batch con {} préstamos", prestamosDTORequest.size());
+        List<ResultadoLotePrestamoDTOResponse> resultados = prestamoServicio.guardarPrestamosEnLote(prestamosDTORequest);
+        return new ResponseEntity<>(resultados, HttpStatus.OK);
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Actualizar un préstamo existente", description = "Actualiza los detalles de un préstamo existente buscado por su ID.")
     @ApiResponse(responseCode = "200", description = "Préstamo actualizado exitosamente", content = @Content(schema = @Schema(implementation = PrestamoDTOResponse.class)))
     @ApiResponse(responseCode = "404", description = "Préstamo no encontrado")
     @ApiResponse(responseCode = "400", description = "Petición inválida")
+    @ApiResponse(responseCode = "409", description = "El préstamo reabierto ocuparía un libro ya prestado o superaría el máximo de préstamos abiertos del usuario")
+    @ApiResponse(responseCode = "412", description = "If-Match no coincide con la versión actual")
     public ResponseEntity<PrestamoDTOResponse> actualizarPrestamo(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del préstamo a actualizar", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id,
-                                                                  @RequestBody(description = "Datos actualizados del préstamo", required = true, content = @Content(schema = @Schema(implementation = PrestamoDTORequest.class))) PrestamoDTORequest prestamoDTORequest) {
-        logger.info("Petición PUT a /prestamos/{} con datos: {}", id, prestamoDTORequest);
-        PrestamoDTOResponse prestamo = prestamoServicio.actualizarPrestamo(id, prestamoDTORequest);
+                                                                  @RequestBody(description = "Datos actualizados del préstamo", required = true, content = @Content(schema = @Schema(implementation = PrestamoDTORequest.class))) @org.springframework.web.bind.annotation.RequestBody PrestamoDTORequest prestamoDTORequest,
+                                                                  @Parameter(in = ParameterIn.HEADER, name = "If-Match", description = "ETag de la versión que se modifica") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        logger.debug("Petición PUT a /prestamos/{} con datos: {}", id, prestamoDTORequest);
+        PrestamoDTOResponse prestamo = prestamoServicio.actualizarPrestamo(id, prestamoDTORequest, ETags.versionesDeIfMatch(ifMatch));
         if (prestamo != null) {
-            return new ResponseEntity<>(prestamo, HttpStatus.OK);
+            return ResponseEntity.ok().eTag(ETags.deVersion(prestamo.getVersion())).body(prestamo);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -86,12 +202,15 @@ public class PrestamoControlador {
     @ApiResponse(responseCode = "200", description = "Préstamo actualizado parcialmente exitosamente", content = @Content(schema = @Schema(implementation = PrestamoDTOResponse.class)))
     @ApiResponse(responseCode = "404", description = "Préstamo no encontrado")
     @ApiResponse(responseCode = "400", description = "Petición inválida")
+    @ApiResponse(responseCode = "409", description = "El préstamo reabierto ocuparía un libro ya prestado o superaría el máximo de préstamos abiertos del usuario")
+    @ApiResponse(responseCode = "412", description = "If-Match no coincide con la versión actual")
     public ResponseEntity<PrestamoDTOResponse> actualizarParcialmentePrestamo(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del préstamo a actualizar parcialmente", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id,
-                                                                              @RequestBody(description = "Datos actualizados del préstamo", required = true, content = @Content(schema = @Schema(implementation = PrestamoDTORequest.class))) PrestamoDTORequest prestamoDTORequest) {
-        logger.info("Petición PATCH a /prestamos/{} con datos: {}", id, prestamoDTORequest);
-        PrestamoDTOResponse prestamo = prestamoServicio.actualizarPrestamo(id, prestamoDTORequest); // Reutilizamos el método PUT
+                                                                              @RequestBody(description = "Datos actualizados del préstamo", required = true, content = @Content(schema = @Schema(implementation = PrestamoDTORequest.class))) @org.springframework.web.bind.annotation.RequestBody PrestamoDTORequest prestamoDTORequest,
+                                                                              @Parameter(in = ParameterIn.HEADER, name = "If-Match", description = "ETag de la versión que se modifica") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        logger.debug("Petición PATCH a /prestamos/{} con datos: {}", id, prestamoDTORequest);
+        PrestamoDTOResponse prestamo = prestamoServicio.actualizarPrestamo(id, prestamoDTORequest, ETags.versionesDeIfMatch(ifMatch)); // Reutilizamos el método PUT
         if (prestamo != null) {
-            return new ResponseEntity<>(prestamo, HttpStatus.OK);
+            return ResponseEntity.ok().eTag(ETags.deVersion(prestamo.getVersion())).body(prestamo);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -102,7 +221,7 @@ public class PrestamoControlador {
     @ApiResponse(responseCode = "204", description = "Préstamo eliminado exitosamente")
     @ApiResponse(responseCode = "404", description = "Préstamo no encontrado")
     public ResponseEntity<Void> eliminarPrestamo(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del préstamo a eliminar", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id) {
-        logger.info("Petición DELETE a /prestamos/{}", id);
+        logger.debug("Petición DELETE a /prestamos/{}", id);
         prestamoServicio.eliminarPrestamo(id);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
@@ -0,0 +1,29 @@
+package com.biblioteca.infrastructure.controllers.prestamo.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDate;
+
+// Criterios de GET /prestamos/search: todos opcionales y combinables (AND); los rangos de fechas son inclusivos
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroPrestamosDTORequest {
+
+    private Long usuarioId;
+    private Long libroId;
+    private LocalDate prestamoDesde;
+    private LocalDate prestamoHasta;
+    private LocalDate devolucionDesde;
+    private LocalDate devolucionHasta;
+    private Boolean abierto; // true: sin fecha de devolución; false: devueltos; null: todos
+
+    public boolean filtraPorFechaPrestamo() {
+        return prestamoDesde != null || prestamoHasta != null;
+    }
+
+    public boolean filtraPorFechaDevolucion() {
+        return devolucionDesde != null || devolucionHasta != null;
+    }
+}
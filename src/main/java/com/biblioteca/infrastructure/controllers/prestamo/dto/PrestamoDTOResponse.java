@@ -15,4 +15,5 @@ public class PrestamoDTOResponse {
     private Long usuarioId;
     private LocalDate fechaPrestamo;
     private LocalDate fechaDevolucion;
+    private Long version;
 }
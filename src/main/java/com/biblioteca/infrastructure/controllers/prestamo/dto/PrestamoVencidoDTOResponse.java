@@ -0,0 +1,19 @@
+package com.biblioteca.infrastructure.controllers.prestamo.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrestamoVencidoDTOResponse {
+
+    private Long prestamoId;
+    private Long libroId;
+    private Long usuarioId;
+    private LocalDate fechaPrestamo;
+    private LocalDate fechaVencimiento; // Último día del plazo
+    private Long diasRetraso;
+}
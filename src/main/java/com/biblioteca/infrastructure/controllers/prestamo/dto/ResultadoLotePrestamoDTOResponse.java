@@ -0,0 +1,15 @@
+package com.biblioteca.infrastructure.controllers.prestamo.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoLotePrestamoDTOResponse {
+
+    private int indice; // Posición del préstamo en la petición
+    private PrestamoDTOResponse prestamo; // null si el préstamo fue rechazado
+    private String error; // null si el préstamo se creó correctamente
+}
@@ -15,6 +15,7 @@ public interface PrestamoMapper {
     @Mapping(source = "usuario.id", target = "usuarioId") // **Añade esta línea: Mapea usuario.id a usuarioId**
     PrestamoDTOResponse toDTOResponse(Prestamo prestamo);
 
+    @Mapping(target = "version", ignore = true) // La versión la gestiona JPA, el cliente no la envía en el cuerpo
     Prestamo toEntity(PrestamoDTORequest prestamoDTORequest);
     Prestamo toEntity(PrestamoDTOResponse prestamoDTOResponse);
 }
@@ -1,6 +1,8 @@
 package com.biblioteca.infrastructure.controllers.usuario;
 
+import com.biblioteca.application.service.cache.RespuestaCacheada;
 import com.biblioteca.application.service.usuario.UsuarioServicio;
+import com.biblioteca.infrastructure.controllers.etag.ETags;
 import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTORequest;
 import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTOResponse;
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,7 +16,9 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -22,11 +26,12 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/usuarios")
@@ -45,29 +50,44 @@ public class UsuarioControlador {
     @GetMapping
     @Operation(summary = "Obtener todos los usuarios", description = "Retorna una lista de todos los usuarios registrados en la biblioteca.")
     @ApiResponse(responseCode = "200", description = "Operación exitosa", content = @Content(schema = @Schema(implementation = UsuarioDTOResponse.class)))
-    public ResponseEntity<List<UsuarioDTOResponse>> obtenerTodosLosUsuarios() {
-        logger.info("Petición GET a /usuarios");
+    @ApiResponse(responseCode = "304", description = "Sin cambios respecto al ETag enviado en If-None-Match")
+    public ResponseEntity<List<UsuarioDTOResponse>> obtenerTodosLosUsuarios(WebRequest webRequest) {
+        logger.debug("Petición GET a /usuarios");
+        String etag = ETags.deColeccion(usuarioServicio.obtenerVersionColeccion());
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         List<UsuarioDTOResponse> usuarios = usuarioServicio.obtenerTodosLosUsuarios();
-        return new ResponseEntity<>(usuarios, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(etag).body(usuarios);
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Obtener un usuario por ID", description = "Retorna los detalles de un usuario específico buscado por su ID.")
     @ApiResponse(responseCode = "200", description = "Usuario encontrado", content = @Content(schema = @Schema(implementation = UsuarioDTOResponse.class)))
     @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
-    public ResponseEntity<UsuarioDTOResponse> obtenerUsuarioPorId(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del usuario a obtener", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id) {
-        logger.info("Petición GET a /usuarios/{}", id);
-        Optional<UsuarioDTOResponse> usuario = usuarioServicio.obtenerUsuarioPorId(id);
-        return usuario.map(value -> new ResponseEntity<>(value, HttpStatus.OK))
-                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    @ApiResponse(responseCode = "304", description = "Sin cambios respecto al ETag enviado en If-None-Match")
+    public ResponseEntity<byte[]> obtenerUsuarioPorId(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del usuario a obtener", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id,
+                                                      WebRequest webRequest) {
+        logger.debug("Petición GET a /usuarios/{}", id);
+        // Con If-None-Match el 304 se decide solo con la versión, sin cargar ni serializar el recurso
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(ETags.deVersion(usuarioServicio.obtenerVersionUsuario(id)))) {
+            return null;
+        }
+        // Sin If-None-Match, o si no coincide: una sola lectura, de la caché de respuestas o con un findById que la rellena
+        RespuestaCacheada<UsuarioDTOResponse> usuario = usuarioServicio.obtenerUsuarioSerializadoPorId(id);
+        return ResponseEntity.ok()
+                .eTag(ETags.deVersion(usuario.dto().getVersion()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(usuario.json());
     }
 
     @PostMapping
     @Operation(summary = "Crear un nuevo usuario", description = "Registra un nuevo usuario en la biblioteca.")
     @ApiResponse(responseCode = "201", description = "Usuario creado exitosamente", content = @Content(schema = @Schema(implementation = UsuarioDTOResponse.class)))
     @ApiResponse(responseCode = "400", description = "Petición inválida")
-    public ResponseEntity<UsuarioDTOResponse> crearUsuario(@RequestBody(description = "Datos del usuario a crear", required = true, content = @Content(schema = @Schema(implementation = UsuarioDTORequest.class))) UsuarioDTORequest usuarioDTORequest) {
-        logger.info("Petición POST a /usuarios con datos: {}", usuarioDTORequest);
+    public ResponseEntity<UsuarioDTOResponse> crearUsuario(@RequestBody(description = "Datos del usuario a crear", required = true, content = @Content(schema = @Schema(implementation = UsuarioDTORequest.class))) @org.springframework.web.bind.annotation.RequestBody UsuarioDTORequest usuarioDTORequest) {
+        logger.debug("Petición POST a /usuarios con datos: {}", usuarioDTORequest);
         UsuarioDTOResponse nuevoUsuario = usuarioServicio.guardarUsuario(usuarioDTORequest);
         return new ResponseEntity<>(nuevoUsuario, HttpStatus.CREATED);
     }
@@ -77,12 +97,14 @@ public class UsuarioControlador {
     @ApiResponse(responseCode = "200", description = "Usuario actualizado exitosamente", content = @Content(schema = @Schema(implementation = UsuarioDTOResponse.class)))
     @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
     @ApiResponse(responseCode = "400", description = "Petición inválida")
+    @ApiResponse(responseCode = "412", description = "If-Match no coincide con la versión actual")
     public ResponseEntity<UsuarioDTOResponse> actualizarUsuario(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del usuario a actualizar", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id,
-                                                                @RequestBody(description = "Datos actualizados del usuario", required = true, content = @Content(schema = @Schema(implementation = UsuarioDTORequest.class))) UsuarioDTORequest usuarioDTORequest) {
-        logger.info("Petición PUT a /usuarios/{} con datos: {}", id, usuarioDTORequest);
-        UsuarioDTOResponse usuario = usuarioServicio.actualizarUsuario(id, usuarioDTORequest);
+                                                                @RequestBody(description = "Datos actualizados del usuario", required = true, content = @Content(schema = @Schema(implementation = UsuarioDTORequest.class))) @org.springframework.web.bind.annotation.RequestBody UsuarioDTORequest usuarioDTORequest,
+                                                                @Parameter(in = ParameterIn.HEADER, name = "If-Match", description = "ETag de la versión que se modifica") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        logger.debug("Petición PUT a /usuarios/{} con datos: {}", id, usuarioDTORequest);
+        UsuarioDTOResponse usuario = usuarioServicio.actualizarUsuario(id, usuarioDTORequest, ETags.versionesDeIfMatch(ifMatch));
         if (usuario != null) {
-            return new ResponseEntity<>(usuario, HttpStatus.OK);
+            return ResponseEntity.ok().eTag(ETags.deVersion(usuario.getVersion())).body(usuario);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -93,12 +115,14 @@ public class UsuarioControlador {
     @ApiResponse(responseCode = "200", description = "Usuario actualizado parcialmente exitosamente", content = @Content(schema = @Schema(implementation = UsuarioDTOResponse.class)))
     @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
     @ApiResponse(responseCode = "400", description = "Petición inválida")
+    @ApiResponse(responseCode = "412", description = "If-Match no coincide con la versión actual")
     public ResponseEntity<UsuarioDTOResponse> actualizarParcialmenteUsuario(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del usuario a actualizar parcialmente", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id,
-                                                                            @RequestBody(description = "Datos actualizados del usuario", required = true, content = @Content(schema = @Schema(implementation = UsuarioDTORequest.class))) UsuarioDTORequest usuarioDTORequest) {
-        logger.info("Petición PATCH a /usuarios/{} con datos: {}", id, usuarioDTORequest);
-        UsuarioDTOResponse usuario = usuarioServicio.actualizarUsuario(id, usuarioDTORequest); // Reutilizamos el método PUT
+                                                                            @RequestBody(description = "Datos actualizados del usuario", required = true, content = @Content(schema = @Schema(implementation = UsuarioDTORequest.class))) @org.springframework.web.bind.annotation.RequestBody UsuarioDTORequest usuarioDTORequest,
+                                                                            @Parameter(in = ParameterIn.HEADER, name = "If-Match", description = "ETag de la versión que se modifica") @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        logger.debug("Petición PATCH a /usuarios/{} con datos: {}", id, usuarioDTORequest);
+        UsuarioDTOResponse usuario = usuarioServicio.actualizarUsuario(id, usuarioDTORequest, ETags.versionesDeIfMatch(ifMatch)); // Reutilizamos el método PUT
         if (usuario != null) {
-            return new ResponseEntity<>(usuario, HttpStatus.OK);
+            return ResponseEntity.ok().eTag(ETags.deVersion(usuario.getVersion())).body(usuario);
         } else {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
@@ -110,7 +134,7 @@ public class UsuarioControlador {
     @ApiResponse(responseCode = "204", description = "Usuario eliminado exitosamente")
     @ApiResponse(responseCode = "404", description = "Usuario no encontrado")
     public ResponseEntity<Void> eliminarUsuario(@Parameter(in = ParameterIn.PATH, name = "id", description = "ID del usuario a eliminar", required = true, schema = @Schema(type = "integer", format = "int64")) @PathVariable Long id) {
-        logger.info("Petición DELETE a /usuarios/{}", id);
+        logger.debug("Petición DELETE a /usuarios/{}", id);
         usuarioServicio.eliminarUsuario(id);
         return new ResponseEntity<>(HttpStatus.NO_CONTENT);
     }
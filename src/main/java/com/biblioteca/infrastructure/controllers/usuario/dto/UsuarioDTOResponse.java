@@ -15,4 +15,5 @@ public class UsuarioDTOResponse {
     private String email;
     private String telefono;
     private LocalDate fechaRegistro;
+    private Long version;
 }
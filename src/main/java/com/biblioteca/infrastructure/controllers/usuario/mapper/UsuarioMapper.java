@@ -4,12 +4,14 @@ import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTORequest;
 import com.biblioteca.domain.entity.Usuario;
 import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTOResponse;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface UsuarioMapper {
 
     UsuarioDTORequest toDTORequest(Usuario usuario);
     UsuarioDTOResponse toDTOResponse(Usuario usuario);
+    @Mapping(target = "version", ignore = true) // La versión la gestiona JPA, el cliente no la envía en el cuerpo
     Usuario toEntity(UsuarioDTORequest usuarioDTORequest);
     Usuario toEntity(UsuarioDTOResponse usuarioDTOResponse);
 }
@@ -0,0 +1,11 @@
+package com.biblioteca.infrastructure.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConflictoExcepcion extends RuntimeException {
+    public ConflictoExcepcion(String mensaje) {
+        super(mensaje);
+    }
+}
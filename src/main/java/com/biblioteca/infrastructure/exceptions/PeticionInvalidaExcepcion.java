@@ -0,0 +1,11 @@
+package com.biblioteca.infrastructure.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class PeticionInvalidaExcepcion extends RuntimeException {
+    public PeticionInvalidaExcepcion(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,11 @@
+package com.biblioteca.infrastructure.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+public class PrecondicionFallidaExcepcion extends RuntimeException {
+    public PrecondicionFallidaExcepcion(String mensaje) {
+        super(mensaje);
+    }
+}
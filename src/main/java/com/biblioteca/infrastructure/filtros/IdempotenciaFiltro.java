@@ -0,0 +1,141 @@
+package com.biblioteca.infrastructure.filtros;
+
+import com.biblioteca.application.service.idempotencia.AlmacenIdempotencia;
+import com.biblioteca.application.service.idempotencia.RespuestaIdempotente;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Cabecera {@code Idempotency-Key} en los POST de libros, usuarios y préstamos: un cliente que reintenta una
+ * petición con la misma clave recibe la respuesta de la primera ejecución, con la cabecera
+ * {@code Idempotent-Replayed: true}, sin volver a tocar las tablas de libros, usuarios ni préstamos.
+ *
+ * <p>Solo se guardan las respuestas 2xx; tras un error la clave se libera y el reintento se ejecuta de nuevo.
+ * Reutilizar una clave con otra ruta u otro cuerpo responde 422, y un reintento que llega mientras la primera
+ * ejecución sigue en curso responde 409. Si la respuesta 2xx supera {@code tamano-maximo-respuesta}, o la petición
+ * pasó a asíncrona, la clave queda completada sin cuerpo y sus reintentos también responden 409: la petición ya
+ * se ejecutó y no se vuelve a ejecutar.</p>
+ */
+@Component
+public class IdempotenciaFiltro extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotenciaFiltro.class);
+
+    public static final String CABECERA = "Idempotency-Key";
+    public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+
+    private static final int LONGITUD_MAXIMA_CLAVE = 255;
+    private static final List<String> RUTAS = List.of("/libros", "/usuarios", "/prestamos");
+
+    private final AlmacenIdempotencia almacen;
+
+    @Autowired
+    public IdempotenciaFiltro(AlmacenIdempotencia almacen) {
+        this.almacen = almacen;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!almacen.habilitado() || !HttpMethod.POST.matches(request.getMethod()) || request.getHeader(CABECERA) == null) {
+            return true;
+        }
+        String ruta = request.getRequestURI().substring(request.getContextPath().length());
+        return RUTAS.stream().noneMatch(raiz -> ruta.equals(raiz) || ruta.startsWith(raiz + "/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clave = request.getHeader(CABECERA);
+        if (clave.isBlank() || clave.length() > LONGITUD_MAXIMA_CLAVE) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                    "La cabecera " + CABECERA + " debe tener entre 1 y " + LONGITUD_MAXIMA_CLAVE + " caracteres");
+            return;
+        }
+        PeticionConHuella peticion = new PeticionConHuella(request);
+        AlmacenIdempotencia.Reserva reserva = almacen.reservar(clave);
+        switch (reserva.estado()) {
+            case REPETIDA -> repetir(peticion, response, clave, reserva.respuesta());
+            case EN_CURSO -> response.sendError(HttpServletResponse.SC_CONFLICT,
+                    "Otra petición con la " + CABECERA + " " + clave + " sigue en curso");
+            case NUEVA -> ejecutar(peticion, response, filterChain, clave);
+        }
+    }
+
+    private void repetir(PeticionConHuella peticion, HttpServletResponse response, String clave, RespuestaIdempotente respuesta)
+            throws IOException {
+        if (!respuesta.huella().equals(peticion.huella())) {
+            response.sendError(422, "La " + CABECERA + " " + clave + " ya se usó con otra petición");
+            return;
+        }
+        if (!respuesta.conCuerpo()) {
+            if (respuesta.ubicacion() != null) {
+                response.setHeader(HttpHeaders.LOCATION, respuesta.ubicacion());
+            }
+            response.sendError(HttpServletResponse.SC_CONFLICT, "La petición con la " + CABECERA + " " + clave
+                    + " ya se ejecutó (estado " + respuesta.estado() + "), pero su respuesta no se guardó");
+            return;
+        }
+        logger.debug("Respuesta repetida para la {} {}", CABECERA, clave);
+        response.setStatus(respuesta.estado());
+        if (respuesta.tipoContenido() != null) {
+            response.setContentType(respuesta.tipoContenido());
+        }
+        if (respuesta.ubicacion() != null) {
+            response.setHeader(HttpHeaders.LOCATION, respuesta.ubicacion());
+        }
+        response.setHeader(CABECERA_REPETIDA, "true");
+        response.setContentLength(respuesta.cuerpo().length);
+        response.getOutputStream().write(respuesta.cuerpo());
+    }
+
+    private void ejecutar(PeticionConHuella peticion, HttpServletResponse response, FilterChain filterChain, String clave)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper respuesta = new ContentCachingResponseWrapper(response);
+        // Solo se libera la clave si la petición falló o respondió fuera de 2xx: ejecutada, liberarla la repetiría
+        boolean ejecutada = false;
+        try {
+            filterChain.doFilter(peticion, respuesta);
+            int estado = respuesta.getStatus();
+            String ubicacion = respuesta.getHeader(HttpHeaders.LOCATION);
+            if (peticion.isAsyncStarted()) {
+                // El estado final aún no se conoce, pero la petición ya se está ejecutando
+                ejecutada = true;
+                completar(clave, RespuestaIdempotente.sinCuerpo(peticion.huella(), estado, ubicacion));
+            } else if (estado >= 200 && estado < 300) {
+                ejecutada = true;
+                completar(clave, respuesta.getContentSize() <= almacen.tamanoMaximoRespuesta()
+                        ? new RespuestaIdempotente(peticion.huella(), estado, respuesta.getContentType(), ubicacion, respuesta.getContentAsByteArray())
+                        : RespuestaIdempotente.sinCuerpo(peticion.huella(), estado, ubicacion));
+            }
+        } finally {
+            if (!ejecutada) {
+                almacen.liberar(clave);
+            }
+            respuesta.copyBodyToResponse();
+        }
+    }
+
+    // Si no se puede guardar la respuesta, la fila sigue "en curso": los reintentos responden 409 hasta que caduca
+    // (plazo-en-curso), en lugar de ejecutar otra vez una petición que ya se ejecutó. El cliente recibe su respuesta.
+    private void completar(String clave, RespuestaIdempotente respuestaIdempotente) {
+        try {
+            almacen.completar(clave, respuestaIdempotente);
+        } catch (RuntimeException e) {
+            logger.error("No se pudo guardar la respuesta de la {} {}", CABECERA, clave, e);
+        }
+    }
+}
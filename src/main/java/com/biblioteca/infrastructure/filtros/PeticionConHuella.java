@@ -0,0 +1,110 @@
+package com.biblioteca.infrastructure.filtros;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Petición que calcula el SHA-256 de su método, ruta y cuerpo a medida que el controlador lee el cuerpo, sin
+ * guardarlo en memoria: una importación de libros puede ocupar cientos de megas.
+ */
+class PeticionConHuella extends HttpServletRequestWrapper {
+
+    private final MessageDigest resumen;
+    private ServletInputStream entrada;
+    private BufferedReader lector;
+
+    PeticionConHuella(HttpServletRequest request) {
+        super(request);
+        try {
+            this.resumen = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+        String consulta = request.getQueryString();
+        resumen.update((request.getMethod() + " " + request.getRequestURI() + (consulta != null ? "?" + consulta : "") + "\n")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (entrada == null) {
+            entrada = new EntradaConResumen(super.getInputStream());
+        }
+        return entrada;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (lector == null) {
+            String codificacion = getCharacterEncoding();
+            Charset juego = codificacion != null ? Charset.forName(codificacion) : StandardCharsets.ISO_8859_1;
+            lector = new BufferedReader(new InputStreamReader(getInputStream(), juego));
+        }
+        return lector;
+    }
+
+    /**
+     * Huella en hexadecimal. Lee lo que quede del cuerpo, así que después ya no puede leerse.
+     */
+    String huella() throws IOException {
+        ServletInputStream cuerpo = getInputStream();
+        byte[] bufer = new byte[8192];
+        while (cuerpo.read(bufer) != -1) {
+            // Solo para completar el resumen
+        }
+        return HexFormat.of().formatHex(resumen.digest());
+    }
+
+    private final class EntradaConResumen extends ServletInputStream {
+
+        private final ServletInputStream original;
+
+        EntradaConResumen(ServletInputStream original) {
+            this.original = original;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = original.read();
+            if (b != -1) {
+                resumen.update((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int leidos = original.read(b, off, len);
+            if (leidos > 0) {
+                resumen.update(b, off, leidos);
+            }
+            return leidos;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return original.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return original.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            original.setReadListener(readListener);
+        }
+    }
+}
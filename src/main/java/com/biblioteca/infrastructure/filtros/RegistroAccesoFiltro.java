@@ -0,0 +1,108 @@
+package com.biblioteca.infrastructure.filtros;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Registro de accesos muestreado: una línea estructurada por petición registrada, en el logger
+ * {@code biblioteca.acceso} (asíncrono y acotado, ver logback-spring.xml). Los errores 5xx y las peticiones
+ * lentas se registran siempre; el resto según la fracción de muestreo de su endpoint.
+ */
+@Component
+@EnableConfigurationProperties(RegistroAccesoPropiedades.class)
+public class RegistroAccesoFiltro extends OncePerRequestFilter {
+
+    private static final Logger registroAcceso = LoggerFactory.getLogger("biblioteca.acceso");
+
+    private final RegistroAccesoPropiedades propiedades;
+    private final long umbralLentoNanos;
+
+    @Autowired
+    public RegistroAccesoFiltro(RegistroAccesoPropiedades propiedades) {
+        this.propiedades = propiedades;
+        this.umbralLentoNanos = propiedades.umbralLento().toNanos();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !propiedades.habilitado();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long inicio = System.nanoTime();
+        boolean fallo = false;
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            fallo = true;
+            throw e;
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Exportaciones en streaming: la petición termina después, en otro hilo
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        registrar(request, response, inicio, false);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                registrar(request, response, inicio, fallo);
+            }
+        }
+    }
+
+    private void registrar(HttpServletRequest request, HttpServletResponse response, long inicio, boolean fallo) {
+        long duracionNanos = System.nanoTime() - inicio;
+        int estado = fallo ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+        // El patrón (/libros/{id}) y no la URI, para que el número de endpoints distintos esté acotado
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + ":" + (patron != null ? patron : "sin-controlador");
+        if (!debeRegistrar(endpoint, estado, duracionNanos)) {
+            return;
+        }
+        long duracionMs = duracionNanos / 1_000_000;
+        registroAcceso.atInfo()
+                .addKeyValue("endpoint", endpoint)
+                .addKeyValue("ruta", request.getRequestURI())
+                .addKeyValue("estado", estado)
+                .addKeyValue("duracion_ms", duracionMs)
+                .addKeyValue("muestreo", propiedades.muestreoDe(endpoint))
+                .log("{} {} {} {} ms", request.getMethod(), request.getRequestURI(), estado, duracionMs);
+    }
+
+    boolean debeRegistrar(String endpoint, int estado, long duracionNanos) {
+        if (estado >= 500 || duracionNanos >= umbralLentoNanos) {
+            return true;
+        }
+        double muestreo = propiedades.muestreoDe(endpoint);
+        return muestreo >= 1 || (muestreo > 0 && ThreadLocalRandom.current().nextDouble() < muestreo);
+    }
+}
@@ -0,0 +1,32 @@
+package com.biblioteca.infrastructure.filtros;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Configuración del registro de accesos (biblioteca.acceso.*).
+ *
+ * @param habilitado          si se registra algún acceso
+ * @param muestreo            fracción de peticiones registradas, entre 0 y 1
+ * @param umbralLento         las peticiones que tardan al menos esto se registran siempre
+ * @param muestreoPorEndpoint fracción por endpoint, con clave {@code METODO:patrón}, p. ej.
+ *                            {@code biblioteca.acceso.muestreo-por-endpoint.[GET\:/libros/{id}]=0.001} (en
+ *                            application.properties el ":" de la clave va escapado)
+ */
+@ConfigurationProperties("biblioteca.acceso")
+public record RegistroAccesoPropiedades(@DefaultValue("true") boolean habilitado,
+                                        @DefaultValue("0.01") double muestreo,
+                                        @DefaultValue("1s") Duration umbralLento,
+                                        Map<String, Double> muestreoPorEndpoint) {
+
+    public RegistroAccesoPropiedades {
+        muestreoPorEndpoint = muestreoPorEndpoint == null ? Map.of() : Map.copyOf(muestreoPorEndpoint);
+    }
+
+    double muestreoDe(String endpoint) {
+        return muestreoPorEndpoint.getOrDefault(endpoint, muestreo);
+    }
+}
@@ -0,0 +1,18 @@
+package com.biblioteca.infrastructure.repository;
+
+import com.biblioteca.domain.entity.ClaveIdempotencia;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface ClaveIdempotenciaRepositorio extends JpaRepository<ClaveIdempotencia, String> {
+
+    @Modifying
+    @Query("delete from ClaveIdempotencia c where c.expira < :ahora")
+    int eliminarExpiradas(@Param("ahora") Instant ahora);
+}
@@ -0,0 +1,49 @@
+package com.biblioteca.infrastructure.repository;
+
+import com.biblioteca.domain.entity.CupoUsuario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CupoUsuarioRepositorio extends JpaRepository<CupoUsuario, Long> {
+
+    // Comprobación y reserva en una sola sentencia: el bloqueo de la fila ordena las reservas del mismo usuario
+    // y la condición se evalúa sobre el valor confirmado por la anterior
+    @Modifying
+    @Query("update CupoUsuario c set c.abiertos = c.abiertos + :cantidad where c.usuarioId = :usuarioId and c.abiertos + :cantidad <= :maximo")
+    int reservar(@Param("usuarioId") Long usuarioId, @Param("cantidad") int cantidad, @Param("maximo") int maximo);
+
+    @Modifying
+    @Query("update CupoUsuario c set c.abiertos = c.abiertos - 1 where c.usuarioId = :usuarioId and c.abiertos > 0")
+    int liberar(@Param("usuarioId") Long usuarioId);
+
+    // Antes de borrar el préstamo: solo libera cupo si seguía abierto
+    @Modifying
+    @Query("update CupoUsuario c set c.abiertos = c.abiertos - 1 where c.abiertos > 0 and c.usuarioId = " +
+            "(select p.usuario.id from Prestamo p where p.id = :prestamoId and p.fechaDevolucion is null)")
+    int liberarPorPrestamo(@Param("prestamoId") Long prestamoId);
+
+    // Antes de borrar un libro: sus préstamos abiertos se borran en cascada y liberan el cupo de quien los tenía
+    @Modifying
+    @Query("update CupoUsuario c set c.abiertos = c.abiertos - 1 where c.abiertos > 0 and c.usuarioId in " +
+            "(select p.usuario.id from Prestamo p where p.libro.id = :libroId and p.fechaDevolucion is null)")
+    int liberarPorLibro(@Param("libroId") Long libroId);
+
+    @Query("select c.abiertos from CupoUsuario c where c.usuarioId = :usuarioId")
+    Optional<Integer> findAbiertosByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+    // Recuento completo, solo al arrancar: los préstamos del generador de datos sintéticos entran por JDBC
+    @Modifying
+    @Query(value = """
+            INSERT INTO cupos_usuarios (usuario_id, abiertos)
+            SELECT u.id, COUNT(p.id) FROM usuarios u
+            LEFT JOIN prestamos p ON p.usuario_id = u.id AND p.fecha_devolucion IS NULL
+            GROUP BY u.id
+            """, nativeQuery = true)
+    int recalcularTodos();
+}
@@ -0,0 +1,57 @@
+package com.biblioteca.infrastructure.repository;
+
+import com.biblioteca.domain.entity.EstadisticaLibro;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EstadisticaLibroRepositorio extends JpaRepository<EstadisticaLibro, Long> {
+
+    @Modifying
+    @Query("update EstadisticaLibro e set e.prestamos = e.prestamos + :cantidad where e.libroId = :libroId")
+    int sumar(@Param("libroId") Long libroId, @Param("cantidad") long cantidad);
+
+    @Query("select e.prestamos from EstadisticaLibro e where e.libroId = :libroId")
+    Optional<Long> findPrestamosByLibroId(@Param("libroId") Long libroId);
+
+    List<EstadisticaLibro> findByPrestamosGreaterThanOrderByPrestamosDescLibroIdAsc(long prestamos, Limit limite);
+
+    // Antes de borrar un usuario: sus préstamos se borran en cascada y dejan de contar para sus libros
+    @Modifying
+    @Query("update EstadisticaLibro e set e.prestamos = e.prestamos - " +
+            "(select count(p) from Prestamo p where p.libro.id = e.libroId and p.usuario.id = :usuarioId) " +
+            "where e.libroId in (select p.libro.id from Prestamo p where p.usuario.id = :usuarioId)")
+    int descontarPrestamosDeUsuario(@Param("usuarioId") Long usuarioId);
+
+    @Modifying
+    @Query("delete from EstadisticaLibro e where e.libroId = :libroId")
+    int eliminar(@Param("libroId") Long libroId);
+
+    // Recuento completo, solo al arrancar: los préstamos del generador de datos sintéticos entran por JDBC. La cuenta
+    // vuelve a la de los préstamos archivados, que ya no están en prestamos, y se le suman los que siguen en la tabla
+
+    @Modifying
+    @Query("update EstadisticaLibro e set e.prestamos = e.archivados")
+    int reiniciarTodos();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "estadisticas_libros"))
+    @Query(value = """
+            MERGE INTO estadisticas_libros e
+            USING (SELECT libro_id, COUNT(*) AS prestamos FROM prestamos GROUP BY libro_id) p
+            ON e.libro_id = p.libro_id
+            WHEN MATCHED THEN UPDATE SET prestamos = e.prestamos + p.prestamos
+            WHEN NOT MATCHED THEN INSERT (libro_id, prestamos, archivados) VALUES (p.libro_id, p.prestamos, 0)
+            """, nativeQuery = true)
+    int recalcularTodos();
+}
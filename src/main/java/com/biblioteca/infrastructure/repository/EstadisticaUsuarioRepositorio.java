@@ -0,0 +1,57 @@
+package com.biblioteca.infrastructure.repository;
+
+import com.biblioteca.domain.entity.EstadisticaUsuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EstadisticaUsuarioRepositorio extends JpaRepository<EstadisticaUsuario, Long> {
+
+    @Modifying
+    @Query("update EstadisticaUsuario e set e.prestamos = e.prestamos + :cantidad where e.usuarioId = :usuarioId")
+    int sumar(@Param("usuarioId") Long usuarioId, @Param("cantidad") long cantidad);
+
+    @Query("select e.prestamos from EstadisticaUsuario e where e.usuarioId = :usuarioId")
+    Optional<Long> findPrestamosByUsuarioId(@Param("usuarioId") Long usuarioId);
+
+    List<EstadisticaUsuario> findByPrestamosGreaterThanOrderByPrestamosDescUsuarioIdAsc(long prestamos, Limit limite);
+
+    // Antes de borrar un libro: sus préstamos se borran en cascada y dejan de contar para sus usuarios
+    @Modifying
+    @Query("update EstadisticaUsuario e set e.prestamos = e.prestamos - " +
+            "(select count(p) from Prestamo p where p.usuario.id = e.usuarioId and p.libro.id = :libroId) " +
+            "where e.usuarioId in (select p.usuario.id from Prestamo p where p.libro.id = :libroId)")
+    int descontarPrestamosDeLibro(@Param("libroId") Long libroId);
+
+    @Modifying
+    @Query("delete from EstadisticaUsuario e where e.usuarioId = :usuarioId")
+    int eliminar(@Param("usuarioId") Long usuarioId);
+
+    // Recuento completo, solo al arrancar: los préstamos del generador de datos sintéticos entran por JDBC. La cuenta
+    // vuelve a la de los préstamos archivados, que ya no están en prestamos, y se le suman los que siguen en la tabla
+
+    @Modifying
+    @Query("update EstadisticaUsuario e set e.prestamos = e.archivados")
+    int reiniciarTodos();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "estadisticas_usuarios"))
+    @Query(value = """
+            MERGE INTO estadisticas_usuarios e
+            USING (SELECT usuario_id, COUNT(*) AS prestamos FROM prestamos GROUP BY usuario_id) p
+            ON e.usuario_id = p.usuario_id
+            WHEN MATCHED THEN UPDATE SET prestamos = e.prestamos + p.prestamos
+            WHEN NOT MATCHED THEN INSERT (usuario_id, prestamos, archivados) VALUES (p.usuario_id, p.prestamos, 0)
+            """, nativeQuery = true)
+    int recalcularTodos();
+}
@@ -1,10 +1,68 @@
 package com.biblioteca.infrastructure.repository;
 
 import com.biblioteca.domain.entity.Libro;
+import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.dto.SugerenciaDTOResponse;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
 @Repository // Opcional, pero buena práctica indicar que es un repositorio
 public interface LibroRepositorio extends JpaRepository<Libro, Long> {
-    // Aquí podemos añadir métodos personalizados para consultas específicas si fueran necesarias
+
+    // Las consultas de lectura construyen el DTO directamente desde el SELECT, sin hidratar entidades gestionadas.
+    // La lectura por ID usa findById para aprovechar la caché de segundo nivel.
+
+    @Query("select new com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse(l.id, l.titulo, l.autor, l.isbn, l.fechaPublicacion, l.version) from Libro l order by l.id")
+    List<LibroDTOResponse> findAllAsDTO();
+
+    // Paginación keyset: recorre la clave primaria desde el último ID entregado, sin OFFSET
+    @Query("select new com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse(l.id, l.titulo, l.autor, l.isbn, l.fechaPublicacion, l.version) from Libro l where l.id > :ultimoId order by l.id")
+    List<LibroDTOResponse> findDTOByIdGreaterThan(@Param("ultimoId") Long ultimoId, Pageable pageable);
+
+    // Resultados de búsqueda: el índice de texto completo devuelve IDs y los datos se leen aquí, en una sola consulta
+    @Query("select new com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse(l.id, l.titulo, l.autor, l.isbn, l.fechaPublicacion, l.version) from Libro l where l.id in :ids")
+    List<LibroDTOResponse> findDTOByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select new com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse(l.id, l.titulo, l.autor, l.isbn, l.fechaPublicacion, l.version) from Libro l where l.isbn in :isbns")
+    List<LibroDTOResponse> findDTOByIsbnIn(@Param("isbns") Collection<String> isbns);
+
+    // Cursor JDBC para reconstruir el índice de búsqueda; debe consumirse dentro de una transacción y cerrarse
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse(l.id, l.titulo, l.autor, l.isbn, l.fechaPublicacion, l.version) from Libro l order by l.id")
+    Stream<LibroDTOResponse> streamAllAsDTO();
+
+    // Autocompletado: títulos y autores distintos con el número total de préstamos de sus libros
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.biblioteca.infrastructure.controllers.libro.dto.SugerenciaDTOResponse(l.titulo, 'titulo', count(p)) from Libro l left join l.prestamos p group by l.titulo")
+    Stream<SugerenciaDTOResponse> streamTitulosConPrestamos();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new com.biblioteca.infrastructure.controllers.libro.dto.SugerenciaDTOResponse(l.autor, 'autor', count(p)) from Libro l left join l.prestamos p group by l.autor")
+    Stream<SugerenciaDTOResponse> streamAutoresConPrestamos();
+
+    boolean existsByTitulo(String titulo);
+
+    boolean existsByAutor(String autor);
+
+    // Solo la versión, para responder If-None-Match sin cargar el libro
+    @Query("select l.version from Libro l where l.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("select l.isbn from Libro l where l.isbn in :isbns")
+    Set<String> findIsbnsExistentes(@Param("isbns") Collection<String> isbns);
+
+    @Query("select l.id from Libro l where l.id in :ids")
+    Set<Long> findIdsExistentes(@Param("ids") Collection<Long> ids);
 }
@@ -1,9 +1,87 @@
 package com.biblioteca.infrastructure.repository;
 
 import com.biblioteca.domain.entity.Prestamo;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface PrestamoRepositorio extends JpaRepository<Prestamo, Long> {
-}
\ No newline at end of file
+public interface PrestamoRepositorio extends JpaRepository<Prestamo, Long>, PrestamoRepositorioBusqueda {
+
+    // libro y usuario son LAZY: cuando se necesitan las entidades completas se cargan con un único JOIN en vez de N+1 consultas
+    @Override
+    @EntityGraph(attributePaths = {"libro", "usuario"})
+    List<Prestamo> findAll();
+
+    // p.libro.id y p.usuario.id se leen de las claves foráneas, sin JOIN ni carga de Libro/Usuario
+
+    @Query("select new com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse(p.id, p.libro.id, p.usuario.id, p.fechaPrestamo, p.fechaDevolucion, p.version) from Prestamo p order by p.id")
+    List<PrestamoDTOResponse> findAllAsDTO();
+
+    @Query("select new com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse(p.id, p.libro.id, p.usuario.id, p.fechaPrestamo, p.fechaDevolucion, p.version) from Prestamo p where p.id = :id")
+    Optional<PrestamoDTOResponse> findDTOById(@Param("id") Long id);
+
+    @Query("select p.version from Prestamo p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    // Cursor JDBC de solo avance: las filas se leen por bloques de fetch size en lugar de cargarse todas en memoria.
+    // Debe consumirse dentro de una transacción y cerrarse al terminar.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse(p.id, p.libro.id, p.usuario.id, p.fechaPrestamo, p.fechaDevolucion, p.version) from Prestamo p order by p.id")
+    Stream<PrestamoDTOResponse> streamAllAsDTO();
+
+    // Disponibilidad de libros: un préstamo sin fecha de devolución está abierto. Las tres consultas se resuelven
+    // con el índice (libro_id, fecha_devolucion) de la tabla prestamos.
+
+    boolean existsByLibroIdAndFechaDevolucionIsNull(Long libroId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("select distinct p.libro.id from Prestamo p where p.fechaDevolucion is null")
+    Stream<Long> streamIdsLibrosPrestados();
+
+    @Query("select distinct p.libro.id from Prestamo p where p.usuario.id = :usuarioId and p.fechaDevolucion is null")
+    List<Long> findIdsLibrosPrestadosAUsuario(@Param("usuarioId") Long usuarioId);
+
+    @Query("select distinct p.libro.id from Prestamo p where p.libro.id in :libroIds and p.fechaDevolucion is null")
+    List<Long> findIdsLibrosPrestadosEntre(@Param("libroIds") Collection<Long> libroIds);
+
+    @Query("select new com.biblioteca.infrastructure.repository.ReferenciasPrestamo(p.libro.id, p.usuario.id, p.fechaPrestamo) from Prestamo p where p.id = :id")
+    Optional<ReferenciasPrestamo> findReferenciasById(@Param("id") Long id);
+
+    // Borrado en bloque: deleteById cargaría antes la entidad para pasarla a remove()
+    @Modifying
+    @Query("delete from Prestamo p where p.id = :id")
+    int eliminarPorId(@Param("id") Long id);
+
+    // Detección de vencidos (DeteccionVencidos)
+
+    @Query("select min(p.fechaPrestamo) from Prestamo p where p.fechaDevolucion is null")
+    Optional<LocalDate> findFechaPrimerPrestamoAbierto();
+
+    @Query("select max(p.id) from Prestamo p")
+    Optional<Long> findUltimoId();
+
+    // Resúmenes por día y autor (ResumenesPrestamos): días cuyos resúmenes hay que volver a agregar
+
+    @Query("select distinct p.fechaPrestamo from Prestamo p where p.id > :ultimoId")
+    List<LocalDate> findFechasPrestamoPosteriores(@Param("ultimoId") long ultimoId);
+
+    @Query("select distinct p.fechaPrestamo from Prestamo p where p.libro.id = :libroId")
+    List<LocalDate> findFechasPrestamoByLibroId(@Param("libroId") Long libroId);
+
+    @Query("select distinct p.fechaPrestamo from Prestamo p where p.usuario.id = :usuarioId")
+    List<LocalDate> findFechasPrestamoByUsuarioId(@Param("usuarioId") Long usuarioId);
+}
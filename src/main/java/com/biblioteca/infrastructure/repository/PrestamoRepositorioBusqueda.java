@@ -0,0 +1,30 @@
+package com.biblioteca.infrastructure.repository;
+
+import com.biblioteca.infrastructure.controllers.prestamo.dto.FiltroPrestamosDTORequest;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Consultas de préstamos con filtros opcionales. Las combinaciones posibles no caben en métodos derivados,
+ * así que se construyen con Criteria en {@link PrestamoRepositorioBusquedaImpl}.
+ */
+public interface PrestamoRepositorioBusqueda {
+
+    /**
+     * Criterio de orden de la página; la paginación continúa por él, desempatando por ID.
+     */
+    enum Orden {
+        ID,
+        FECHA_PRESTAMO,
+        FECHA_DEVOLUCION
+    }
+
+    /**
+     * Hasta {@code limite} préstamos que cumplen el filtro y van detrás de la posición ({@code fechaAnterior},
+     * {@code ultimoId}) según {@code orden}. Sin posición ({@code ultimoId} 0) se empieza por el principio;
+     * con {@link Orden#ID} {@code fechaAnterior} se ignora.
+     */
+    List<PrestamoDTOResponse> buscar(FiltroPrestamosDTORequest filtro, Orden orden, LocalDate fechaAnterior, long ultimoId, int limite);
+}
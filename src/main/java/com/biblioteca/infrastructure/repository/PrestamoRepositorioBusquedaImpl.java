@@ -0,0 +1,87 @@
+package com.biblioteca.infrastructure.repository;
+
+import com.biblioteca.domain.entity.Prestamo;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.FiltroPrestamosDTORequest;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Spring Data la combina con PrestamoRepositorio por el sufijo Impl
+class PrestamoRepositorioBusquedaImpl implements PrestamoRepositorioBusqueda {
+
+    private final EntityManager entityManager;
+
+    PrestamoRepositorioBusquedaImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<PrestamoDTOResponse> buscar(FiltroPrestamosDTORequest filtro, Orden orden, LocalDate fechaAnterior, long ultimoId, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<PrestamoDTOResponse> consulta = cb.createQuery(PrestamoDTOResponse.class);
+        Root<Prestamo> p = consulta.from(Prestamo.class);
+        // libro.id y usuario.id se leen de las claves foráneas, sin JOIN (igual que en findAllAsDTO)
+        Path<Long> id = p.get("id");
+        Path<Long> libroId = p.get("libro").get("id");
+        Path<Long> usuarioId = p.get("usuario").get("id");
+        Path<LocalDate> fechaPrestamo = p.get("fechaPrestamo");
+        Path<LocalDate> fechaDevolucion = p.get("fechaDevolucion");
+
+        List<Predicate> condiciones = new ArrayList<>();
+        if (filtro.getUsuarioId() != null) {
+            condiciones.add(cb.equal(usuarioId, filtro.getUsuarioId()));
+        }
+        if (filtro.getLibroId() != null) {
+            condiciones.add(cb.equal(libroId, filtro.getLibroId()));
+        }
+        entre(cb, condiciones, fechaPrestamo, filtro.getPrestamoDesde(), filtro.getPrestamoHasta());
+        entre(cb, condiciones, fechaDevolucion, filtro.getDevolucionDesde(), filtro.getDevolucionHasta());
+        if (filtro.getAbierto() != null) {
+            condiciones.add(filtro.getAbierto() ? cb.isNull(fechaDevolucion) : cb.isNotNull(fechaDevolucion));
+        }
+
+        Path<LocalDate> fechaOrden = switch (orden) {
+            case ID -> null;
+            case FECHA_PRESTAMO -> fechaPrestamo;
+            case FECHA_DEVOLUCION -> fechaDevolucion;
+        };
+        if (fechaOrden == null) {
+            if (ultimoId > 0) {
+                condiciones.add(cb.greaterThan(id, ultimoId));
+            }
+            consulta.orderBy(cb.asc(id));
+        } else {
+            if (ultimoId > 0) {
+                // (fecha, id) > (fechaAnterior, ultimoId) escrito de forma que el índice (fecha, id) pueda usarlo
+                condiciones.add(cb.greaterThanOrEqualTo(fechaOrden, fechaAnterior));
+                condiciones.add(cb.or(
+                        cb.greaterThan(fechaOrden, fechaAnterior),
+                        cb.greaterThan(id, ultimoId)));
+            }
+            consulta.orderBy(cb.asc(fechaOrden), cb.asc(id));
+        }
+
+        consulta.select(cb.construct(PrestamoDTOResponse.class, id, libroId, usuarioId, fechaPrestamo, fechaDevolucion, p.get("version")))
+                .where(condiciones.toArray(Predicate[]::new));
+        return entityManager.createQuery(consulta)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+
+    private static void entre(CriteriaBuilder cb, List<Predicate> condiciones, Path<LocalDate> fecha, LocalDate desde, LocalDate hasta) {
+        if (desde != null) {
+            condiciones.add(cb.greaterThanOrEqualTo(fecha, desde));
+        }
+        if (hasta != null) {
+            condiciones.add(cb.lessThanOrEqualTo(fecha, hasta));
+        }
+    }
+}
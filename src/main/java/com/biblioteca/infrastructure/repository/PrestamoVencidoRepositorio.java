@@ -0,0 +1,71 @@
+package com.biblioteca.infrastructure.repository;
+
+import com.biblioteca.domain.entity.PrestamoVencido;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface PrestamoVencidoRepositorio extends JpaRepository<PrestamoVencido, Long> {
+
+    // Préstamos abiertos con fecha de préstamo en [desde, hasta]: un tramo del índice (fecha_prestamo, id) de prestamos.
+    // NOT EXISTS hace que repetir un tramo (reintento, reinicio antes del punto de control) no duplique filas
+    @Modifying
+    @Query(value = """
+            INSERT INTO prestamos_vencidos (prestamo_id, fecha_prestamo, fecha_deteccion)
+            SELECT p.id, p.fecha_prestamo, :hoy FROM prestamos p
+            WHERE p.fecha_prestamo BETWEEN :desde AND :hasta AND p.fecha_devolucion IS NULL
+              AND NOT EXISTS (SELECT 1 FROM prestamos_vencidos v WHERE v.prestamo_id = p.id)
+            """, nativeQuery = true)
+    int insertarVencidos(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta, @Param("hoy") LocalDate hoy);
+
+    // Préstamos registrados después de la última ejecución con una fecha que el punto de control ya había dejado atrás.
+    // Recorre la clave primaria desde ultimoId: solo lee los préstamos nuevos
+    @Modifying
+    @Query(value = """
+            INSERT INTO prestamos_vencidos (prestamo_id, fecha_prestamo, fecha_deteccion)
+            SELECT p.id, p.fecha_prestamo, :hoy FROM prestamos p
+            WHERE p.id > :ultimoId AND p.fecha_prestamo <= :hasta AND p.fecha_devolucion IS NULL
+              AND NOT EXISTS (SELECT 1 FROM prestamos_vencidos v WHERE v.prestamo_id = p.id)
+            """, nativeQuery = true)
+    int insertarVencidosPosteriores(@Param("ultimoId") long ultimoId, @Param("hasta") LocalDate hasta, @Param("hoy") LocalDate hoy);
+
+    // Un préstamo concreto cuyas fechas acaban de cambiar: se anota ya si está abierto y vencido
+    @Modifying
+    @Query(value = """
+            INSERT INTO prestamos_vencidos (prestamo_id, fecha_prestamo, fecha_deteccion)
+            SELECT p.id, p.fecha_prestamo, :hoy FROM prestamos p
+            WHERE p.id = :prestamoId AND p.fecha_prestamo <= :hasta AND p.fecha_devolucion IS NULL
+            """, nativeQuery = true)
+    int insertarSiVencido(@Param("prestamoId") Long prestamoId, @Param("hasta") LocalDate hasta, @Param("hoy") LocalDate hoy);
+
+    @Modifying
+    @Query("delete from PrestamoVencido v where v.prestamoId = :prestamoId")
+    int eliminarPorPrestamo(@Param("prestamoId") Long prestamoId);
+
+    // Devueltos o borrados desde que se detectaron
+    @Modifying
+    @Query("delete from PrestamoVencido v where not exists (select 1 from Prestamo p where p.id = v.prestamoId and p.fechaDevolucion is null)")
+    int eliminarResueltos();
+
+    // Listado paginado por (fecha_prestamo, prestamo_id); el JOIN descarta los devueltos después de la última detección.
+    // La fecha es la copiada al detectarlo, la misma que usa el cursor
+
+    @Query("select new com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse(p.id, p.libro.id, p.usuario.id, v.fechaPrestamo, p.fechaDevolucion, p.version) " +
+            "from PrestamoVencido v join Prestamo p on p.id = v.prestamoId where p.fechaDevolucion is null " +
+            "order by v.fechaPrestamo, v.prestamoId")
+    List<PrestamoDTOResponse> findPrimeros(Pageable pageable);
+
+    @Query("select new com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse(p.id, p.libro.id, p.usuario.id, v.fechaPrestamo, p.fechaDevolucion, p.version) " +
+            "from PrestamoVencido v join Prestamo p on p.id = v.prestamoId where p.fechaDevolucion is null " +
+            "and v.fechaPrestamo >= :fecha and (v.fechaPrestamo > :fecha or v.prestamoId > :ultimoId) " +
+            "order by v.fechaPrestamo, v.prestamoId")
+    List<PrestamoDTOResponse> findSiguientes(@Param("fecha") LocalDate fecha, @Param("ultimoId") long ultimoId, Pageable pageable);
+}
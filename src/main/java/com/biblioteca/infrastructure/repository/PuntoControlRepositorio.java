@@ -0,0 +1,9 @@
+package com.biblioteca.infrastructure.repository;
+
+import com.biblioteca.domain.entity.PuntoControl;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PuntoControlRepositorio extends JpaRepository<PuntoControl, String> {
+}
@@ -0,0 +1,10 @@
+package com.biblioteca.infrastructure.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Libro, usuario y fecha de un préstamo: lo que hay que actualizar en contadores, resúmenes y disponibilidad al
+ * eliminarlo, leído con una sola consulta y sin cargar la entidad.
+ */
+public record ReferenciasPrestamo(Long libroId, Long usuarioId, LocalDate fechaPrestamo) {
+}
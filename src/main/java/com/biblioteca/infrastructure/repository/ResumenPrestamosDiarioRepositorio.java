@@ -0,0 +1,80 @@
+package com.biblioteca.infrastructure.repository;
+
+import com.biblioteca.domain.entity.ResumenPrestamosDiario;
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.PrestamosPorPeriodoDTOResponse;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ResumenPrestamosDiarioRepositorio extends JpaRepository<ResumenPrestamosDiario, ResumenPrestamosDiario.Clave> {
+
+    // Reagregar un día: su cuenta vuelve a la de los préstamos archivados, se le suman los que siguen en prestamos y
+    // se borran las filas que se quedan a cero. Los MERGE nativos declaran la tabla que modifican: sin ello Hibernate
+    // vaciaría todas las regiones de la caché de segundo nivel (Libro y Usuario incluidas) en cada ejecución
+
+    @Modifying
+    @Query("update ResumenPrestamosDiario r set r.prestamos = r.archivados where r.fecha in :dias")
+    int reiniciarDias(@Param("dias") Collection<LocalDate> dias);
+
+    // Recorre el índice (fecha_prestamo, id) de prestamos solo en los días pedidos
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "resumenes_prestamos_diarios"))
+    @Query(value = """
+            MERGE INTO resumenes_prestamos_diarios d
+            USING (SELECT p.fecha_prestamo AS fecha, l.autor AS autor, COUNT(*) AS prestamos
+                   FROM prestamos p JOIN libros l ON l.id = p.libro_id
+                   WHERE p.fecha_prestamo IN (:dias)
+                   GROUP BY p.fecha_prestamo, l.autor) r
+            ON d.fecha = r.fecha AND d.autor = r.autor
+            WHEN MATCHED THEN UPDATE SET prestamos = d.prestamos + r.prestamos
+            WHEN NOT MATCHED THEN INSERT (fecha, autor, prestamos, archivados) VALUES (r.fecha, r.autor, r.prestamos, 0)
+            """, nativeQuery = true)
+    int sumarDias(@Param("dias") Collection<LocalDate> dias);
+
+    @Modifying
+    @Query("delete from ResumenPrestamosDiario r where r.fecha in :dias and r.prestamos = 0")
+    int eliminarDiasVacios(@Param("dias") Collection<LocalDate> dias);
+
+    // Agregación completa, solo en la primera ejecución: los préstamos del generador de datos sintéticos entran por JDBC
+
+    @Modifying
+    @Query("update ResumenPrestamosDiario r set r.prestamos = r.archivados")
+    int reiniciarTodos();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "resumenes_prestamos_diarios"))
+    @Query(value = """
+            MERGE INTO resumenes_prestamos_diarios d
+            USING (SELECT p.fecha_prestamo AS fecha, l.autor AS autor, COUNT(*) AS prestamos
+                   FROM prestamos p JOIN libros l ON l.id = p.libro_id
+                   GROUP BY p.fecha_prestamo, l.autor) r
+            ON d.fecha = r.fecha AND d.autor = r.autor
+            WHEN MATCHED THEN UPDATE SET prestamos = d.prestamos + r.prestamos
+            WHEN NOT MATCHED THEN INSERT (fecha, autor, prestamos, archivados) VALUES (r.fecha, r.autor, r.prestamos, 0)
+            """, nativeQuery = true)
+    int sumarTodos();
+
+    @Modifying
+    @Query("delete from ResumenPrestamosDiario r where r.prestamos = 0")
+    int eliminarVacios();
+
+    // Un periodo de un día por fecha con préstamos; el servicio los reparte en semanas o meses
+
+    @Query("select new com.biblioteca.infrastructure.controllers.estadisticas.dto.PrestamosPorPeriodoDTOResponse(r.fecha, r.fecha, sum(r.prestamos)) " +
+            "from ResumenPrestamosDiario r where r.fecha between :desde and :hasta group by r.fecha order by r.fecha")
+    List<PrestamosPorPeriodoDTOResponse> sumarPorDia(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Query("select new com.biblioteca.infrastructure.controllers.estadisticas.dto.PrestamosPorPeriodoDTOResponse(r.fecha, r.fecha, sum(r.prestamos)) " +
+            "from ResumenPrestamosDiario r where r.autor = :autor and r.fecha between :desde and :hasta group by r.fecha order by r.fecha")
+    List<PrestamosPorPeriodoDTOResponse> sumarPorDiaDeAutor(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta, @Param("autor") String autor);
+}
@@ -0,0 +1,58 @@
+package com.biblioteca.infrastructure.repository;
+
+import com.biblioteca.domain.entity.ResumenPrestamosMensual;
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.PrestamosPorPeriodoDTOResponse;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ResumenPrestamosMensualRepositorio extends JpaRepository<ResumenPrestamosMensual, ResumenPrestamosMensual.Clave> {
+
+    // Se calculan desde resumenes_prestamos_diarios, nunca desde prestamos: hay que reagregar antes los días
+
+    @Modifying
+    @Query("delete from ResumenPrestamosMensual r where r.mes = :mes")
+    int eliminarMes(@Param("mes") LocalDate mes);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "resumenes_prestamos_mensuales"))
+    @Query(value = """
+            INSERT INTO resumenes_prestamos_mensuales (mes, autor, prestamos)
+            SELECT :mes, autor, SUM(prestamos) FROM resumenes_prestamos_diarios
+            WHERE fecha BETWEEN :mes AND :fin
+            GROUP BY autor
+            """, nativeQuery = true)
+    int insertarMes(@Param("mes") LocalDate mes, @Param("fin") LocalDate fin);
+
+    @Modifying
+    @Query("delete from ResumenPrestamosMensual r")
+    int eliminarTodos();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "resumenes_prestamos_mensuales"))
+    @Query(value = """
+            INSERT INTO resumenes_prestamos_mensuales (mes, autor, prestamos)
+            SELECT CAST(DATE_TRUNC('MONTH', fecha) AS DATE), autor, SUM(prestamos) FROM resumenes_prestamos_diarios
+            GROUP BY CAST(DATE_TRUNC('MONTH', fecha) AS DATE), autor
+            """, nativeQuery = true)
+    int insertarTodos();
+
+    // Un periodo por mes con préstamos; inicio y fin son el primer día del mes y el servicio completa el resto
+
+    @Query("select new com.biblioteca.infrastructure.controllers.estadisticas.dto.PrestamosPorPeriodoDTOResponse(r.mes, r.mes, sum(r.prestamos)) " +
+            "from ResumenPrestamosMensual r where r.mes between :desde and :hasta group by r.mes order by r.mes")
+    List<PrestamosPorPeriodoDTOResponse> sumarPorMes(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Query("select new com.biblioteca.infrastructure.controllers.estadisticas.dto.PrestamosPorPeriodoDTOResponse(r.mes, r.mes, sum(r.prestamos)) " +
+            "from ResumenPrestamosMensual r where r.autor = :autor and r.mes between :desde and :hasta group by r.mes order by r.mes")
+    List<PrestamosPorPeriodoDTOResponse> sumarPorMesDeAutor(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta, @Param("autor") String autor);
+}
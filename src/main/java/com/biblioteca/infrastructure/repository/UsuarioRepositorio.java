@@ -1,9 +1,21 @@
 package com.biblioteca.infrastructure.repository;
 
 import com.biblioteca.domain.entity.Usuario;
+import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTOResponse;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface UsuarioRepositorio extends JpaRepository<Usuario, Long> {
-}
\ No newline at end of file
+
+    @Query("select new com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTOResponse(u.id, u.nombre, u.email, u.telefono, u.fechaRegistro, u.version) from Usuario u order by u.id")
+    List<UsuarioDTOResponse> findAllAsDTO();
+
+    @Query("select u.version from Usuario u where u.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+}
@@ -0,0 +1,9 @@
+-- Se ejecuta después de que Hibernate cree o actualice las tablas (spring.jpa.defer-datasource-initialization)
+-- y antes de data.sql. Solo lo que las anotaciones JPA no saben declarar.
+
+-- A lo sumo un préstamo abierto por libro: libro_abierto vale libro_id mientras el préstamo no tiene fecha de
+-- devolución y NULL después, y el índice único ignora los NULL. Dos altas simultáneas del mismo libro pasan las dos
+-- la comprobación previa del servicio; la segunda espera aquí a que la primera termine y se rechaza con un 409
+ALTER TABLE prestamos ADD COLUMN IF NOT EXISTS libro_abierto BIGINT
+    GENERATED ALWAYS AS (CASE WHEN fecha_devolucion IS NULL THEN libro_id END);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_prestamos_libro_abierto ON prestamos (libro_abierto);
@@ -0,0 +1,303 @@
+package com.biblioteca.application.service.archivo;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.application.service.estadisticas.EstadisticasPrestamos;
+import com.biblioteca.application.service.estadisticas.ResumenesPrestamos;
+import com.biblioteca.domain.entity.Libro;
+import com.biblioteca.domain.entity.Prestamo;
+import com.biblioteca.domain.entity.Usuario;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.FiltroPrestamosDTORequest;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.repository.EstadisticaLibroRepositorio;
+import com.biblioteca.infrastructure.repository.EstadisticaUsuarioRepositorio;
+import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorio;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorioBusqueda.Orden;
+import com.biblioteca.infrastructure.repository.PuntoControlRepositorio;
+import com.biblioteca.infrastructure.repository.ResumenPrestamosDiarioRepositorio;
+import com.biblioteca.infrastructure.repository.ResumenPrestamosMensualRepositorio;
+import com.biblioteca.infrastructure.repository.UsuarioRepositorio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Sin transacción de test: cada lote del archivo confirma o deshace la suya como en producción
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Test del archivo de préstamos sobre la base de datos")
+public class ArchivoPrestamosTest {
+
+    private static final LocalDate HOY = LocalDate.of(2024, 6, 1);
+
+    @Autowired
+    private PrestamoRepositorio prestamoRepositorio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private ResumenPrestamosDiarioRepositorio resumenDiarioRepositorio;
+
+    @Autowired
+    private ResumenPrestamosMensualRepositorio resumenMensualRepositorio;
+
+    @Autowired
+    private PuntoControlRepositorio puntoControlRepositorio;
+
+    @Autowired
+    private EstadisticaLibroRepositorio estadisticaLibroRepositorio;
+
+    @Autowired
+    private EstadisticaUsuarioRepositorio estadisticaUsuarioRepositorio;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @TempDir
+    private Path directorio;
+
+    private JdbcTemplate jdbcTemplate;
+    private ResumenesPrestamos resumenesPrestamos;
+    private EstadisticasPrestamos estadisticasPrestamos;
+    private Libro libro;
+    private Usuario usuario;
+    private List<PrestamoDTOResponse> antiguos;
+    private PrestamoDTOResponse reciente;
+    private PrestamoDTOResponse abierto;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        resumenesPrestamos = new ResumenesPrestamos(prestamoRepositorio, resumenDiarioRepositorio, resumenMensualRepositorio,
+                puntoControlRepositorio, jdbcTemplate, transactionManager, 100);
+        estadisticasPrestamos = new EstadisticasPrestamos(estadisticaLibroRepositorio, estadisticaUsuarioRepositorio,
+                jdbcTemplate, transactionManager, 10);
+        jdbcTemplate.update("DELETE FROM prestamos"); // Los de data.sql no forman parte del escenario
+        libro = new Libro();
+        libro.setTitulo("Libro archivado");
+        libro.setAutor("Autor archivado");
+        libro.setIsbn("isbn-archivo");
+        libro = libroRepositorio.save(libro);
+        usuario = new Usuario();
+        usuario.setNombre("Usuario archivado");
+        usuario.setEmail("archivo@prueba.com");
+        usuario = usuarioRepositorio.save(usuario);
+
+        // Tres devueltos hace más de un año, uno devuelto hace poco y uno antiguo que sigue abierto
+        antiguos = List.of(
+                prestamo(LocalDate.of(2022, 1, 10), LocalDate.of(2022, 1, 30)),
+                prestamo(LocalDate.of(2022, 2, 10), LocalDate.of(2022, 3, 1)),
+                prestamo(LocalDate.of(2022, 2, 10), LocalDate.of(2022, 2, 20)));
+        reciente = prestamo(LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 20));
+        abierto = prestamo(LocalDate.of(2022, 1, 5), null);
+        estadisticasPrestamos.recalcular(); // Como al arrancar: los préstamos del escenario no pasan por los servicios
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM prestamos");
+        jdbcTemplate.update("DELETE FROM resumenes_prestamos_diarios");
+        jdbcTemplate.update("DELETE FROM estadisticas_libros");
+        jdbcTemplate.update("DELETE FROM estadisticas_usuarios");
+        puntoControlRepositorio.deleteById(ArchivoPrestamos.PUNTO_CONTROL);
+        libroRepositorio.deleteAll();
+        usuarioRepositorio.deleteAll();
+    }
+
+    private PrestamoDTOResponse prestamo(LocalDate fechaPrestamo, LocalDate fechaDevolucion) {
+        Prestamo prestamo = new Prestamo();
+        prestamo.setLibro(libro);
+        prestamo.setUsuario(usuario);
+        prestamo.setFechaPrestamo(fechaPrestamo);
+        prestamo.setFechaDevolucion(fechaDevolucion);
+        prestamo = prestamoRepositorio.save(prestamo);
+        return new PrestamoDTOResponse(prestamo.getId(), libro.getId(), usuario.getId(), fechaPrestamo, fechaDevolucion, prestamo.getVersion());
+    }
+
+    // Dos filas por segmento: los tres préstamos antiguos se archivan en dos lotes
+    private ArchivoPrestamos archivo(ResumenesPrestamos resumenes) throws IOException {
+        ArchivoPrestamos archivo = new ArchivoPrestamos(jdbcTemplate, resumenes, estadisticasPrestamos, puntoControlRepositorio,
+                transactionManager, new ArchivoPropiedades(directorio.toString(), 365, 2, 1, 32));
+        archivo.cargar();
+        return archivo;
+    }
+
+    private long enTabla() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM prestamos", Long.class);
+    }
+
+    private List<Path> ficheros() throws IOException {
+        try (Stream<Path> listado = Files.list(directorio)) {
+            return listado.toList();
+        }
+    }
+
+    @Test
+    @DisplayName("Archivar - Mueve los devueltos antiguos a segmentos y se leen por ID, en búsquedas y en la exportación")
+    void testArchivar_LecturasTrasArchivar() throws IOException {
+        // Arrange
+        ArchivoPrestamos archivo = archivo(resumenesPrestamos);
+
+        // Act
+        archivo.archivar(HOY);
+
+        // Assert: en la tabla solo quedan el reciente y el abierto
+        assertEquals(2, enTabla());
+        assertEquals(2, ficheros().size(), "Un segmento por lote");
+        assertEquals(3L, jdbcTemplate.queryForObject("SELECT SUM(archivados) FROM resumenes_prestamos_diarios", Long.class));
+
+        // Por ID
+        for (PrestamoDTOResponse antiguo : antiguos) {
+            assertEquals(antiguo, archivo.buscarPorId(antiguo.getId()).orElseThrow());
+        }
+        assertTrue(archivo.buscarPorId(reciente.getId()).isEmpty(), "El reciente sigue en la tabla");
+
+        // Búsqueda: la misma página de la tabla y del archivo, combinadas como en PrestamoServicioImpl
+        FiltroPrestamosDTORequest filtro = new FiltroPrestamosDTORequest(usuario.getId(), null, null, null, null, null, null);
+        List<PrestamoDTOResponse> pagina = ArchivoPrestamos.combinar(prestamoRepositorio.buscar(filtro, Orden.ID, null, 0L, 10),
+                archivo.buscar(filtro, Orden.ID, null, 0L, 10), Orden.ID, 10);
+        assertEquals(List.of(antiguos.get(0), antiguos.get(1), antiguos.get(2), reciente, abierto), pagina);
+        FiltroPrestamosDTORequest porFecha = new FiltroPrestamosDTORequest(null, null, LocalDate.of(2022, 2, 1), LocalDate.of(2022, 2, 28), null, null, null);
+        assertEquals(List.of(antiguos.get(1), antiguos.get(2)), archivo.buscar(porFecha, Orden.FECHA_PRESTAMO, null, 0L, 10));
+
+        // Exportación: tabla y archivo fusionados por ID
+        try (Stream<PrestamoDTOResponse> todos = ArchivoPrestamos.combinarPorId(prestamoRepositorio.findAllAsDTO().stream(), archivo.recorrer())) {
+            assertEquals(List.of(antiguos.get(0), antiguos.get(1), antiguos.get(2), reciente, abierto), todos.toList());
+        }
+
+        // Tras reiniciar, el archivo se vuelve a abrir desde el directorio
+        assertEquals(antiguos.get(1), archivo(resumenesPrestamos).buscarPorId(antiguos.get(1).getId()).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Archivar - El recuento de préstamos por libro y usuario al arrancar incluye los archivados")
+    void testArchivar_RecuentoConArchivados() throws IOException {
+        // Arrange
+        archivo(resumenesPrestamos).archivar(HOY);
+
+        // Act
+        estadisticasPrestamos.recalcular();
+
+        // Assert: tres en el archivo y dos en la tabla
+        assertEquals(5L, estadisticaLibroRepositorio.findPrestamosByLibroId(libro.getId()).orElseThrow());
+        assertEquals(5L, estadisticaUsuarioRepositorio.findPrestamosByUsuarioId(usuario.getId()).orElseThrow());
+        assertEquals(3L, estadisticaLibroRepositorio.findById(libro.getId()).orElseThrow().getArchivados());
+    }
+
+    @Test
+    @DisplayName("Cargar - Un segmento temporal se publica si la marca lo cubre y se descarta si no")
+    void testCargar_SegmentosTemporales() throws IOException {
+        // Arrange: el último lote se confirmó pero no llegó a renombrar su segmento, y otro lote no llegó al commit
+        archivo(resumenesPrestamos).archivar(HOY);
+        Path ultimo = ficheros().stream().sorted().reduce((primero, segundo) -> segundo).orElseThrow();
+        Path confirmado = ultimo.resolveSibling(ultimo.getFileName().toString().replace(".seg", ".tmp"));
+        Files.move(ultimo, confirmado);
+        Path sinConfirmar = ultimo.resolveSibling("prestamos-000000000099.tmp");
+        Files.copy(confirmado, sinConfirmar);
+
+        // Act
+        ArchivoPrestamos archivo = archivo(resumenesPrestamos);
+
+        // Assert
+        for (PrestamoDTOResponse antiguo : antiguos) {
+            assertEquals(antiguo, archivo.buscarPorId(antiguo.getId()).orElseThrow());
+        }
+        assertFalse(Files.exists(confirmado));
+        assertFalse(Files.exists(sinConfirmar));
+        assertEquals(2, ficheros().size());
+    }
+
+    @Test
+    @DisplayName("Cargar - Un directorio que no corresponde con la marca de la base de datos no se abre")
+    void testCargar_ArchivoDeOtraBaseDeDatos() throws IOException {
+        // Arrange: segmentos escritos contra una base de datos que ya no existe (H2 en memoria tras un reinicio)
+        archivo(resumenesPrestamos).archivar(HOY);
+        puntoControlRepositorio.deleteById(ArchivoPrestamos.PUNTO_CONTROL);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> archivo(resumenesPrestamos));
+    }
+
+    @Test
+    @DisplayName("Cargar - Una marca en la base de datos sin sus segmentos en el directorio no se abre")
+    void testCargar_SegmentosPerdidos() throws IOException {
+        // Arrange
+        archivo(resumenesPrestamos).archivar(HOY);
+        for (Path fichero : ficheros()) {
+            Files.delete(fichero);
+        }
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> archivo(resumenesPrestamos));
+    }
+
+    @Test
+    @DisplayName("Archivar - Si la transacción del lote falla, los préstamos siguen en la tabla y el segmento se descarta")
+    void testArchivar_RollbackDelLote() throws IOException {
+        // Arrange: el lote falla después de escribir y publicar su segmento, justo antes de borrar las filas
+        ResumenesPrestamos resumenesConFallo = mock(ResumenesPrestamos.class);
+        doThrow(new IllegalStateException("Fallo forzado")).when(resumenesConFallo).prestamosArchivados(any(), any());
+        ArchivoPrestamos archivo = archivo(resumenesConFallo);
+
+        // Act
+        assertThrows(IllegalStateException.class, () -> archivo.archivar(HOY));
+
+        // Assert
+        assertEquals(5, enTabla(), "La transacción se deshizo: no se borró ningún préstamo");
+        assertTrue(ficheros().isEmpty(), "El segmento del lote fallido se borra");
+        for (PrestamoDTOResponse antiguo : antiguos) {
+            assertTrue(archivo.buscarPorId(antiguo.getId()).isEmpty());
+        }
+        try (Stream<PrestamoDTOResponse> archivados = archivo.recorrer()) {
+            assertEquals(0, archivados.count());
+        }
+
+        // Act: el siguiente intento, ya sin fallo, archiva los mismos préstamos
+        archivo(resumenesPrestamos).archivar(HOY);
+
+        // Assert
+        assertEquals(2, enTabla());
+    }
+
+    @Test
+    @DisplayName("Archivar - Sin directorio configurado el archivo está desactivado y no toca la tabla")
+    void testArchivar_SinDirectorio() throws IOException {
+        // Arrange
+        ArchivoPrestamos archivo = new ArchivoPrestamos(jdbcTemplate, resumenesPrestamos, estadisticasPrestamos, puntoControlRepositorio,
+                transactionManager, new ArchivoPropiedades(null, 365, 2, 1, 32));
+        archivo.cargar();
+
+        // Act
+        archivo.archivar(HOY);
+
+        // Assert
+        assertFalse(archivo.habilitado());
+        assertEquals(5, enTabla());
+        assertTrue(archivo.buscarPorId(antiguos.get(0).getId()).isEmpty());
+    }
+}
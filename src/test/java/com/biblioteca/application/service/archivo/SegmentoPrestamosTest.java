@@ -0,0 +1,139 @@
+package com.biblioteca.application.service.archivo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.biblioteca.infrastructure.controllers.prestamo.dto.FiltroPrestamosDTORequest;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorioBusqueda.Orden;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+@DisplayName("Test del formato columnar de los préstamos archivados")
+public class SegmentoPrestamosTest {
+
+    private static final LocalDate INICIO = LocalDate.of(2020, 1, 1);
+
+    @TempDir
+    private Path directorio;
+
+    private List<PrestamoDTOResponse> prestamos;
+    private SegmentoPrestamos segmento;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // 1000 préstamos con IDs pares, un día de préstamo cada 10 y grupos de 64 filas
+        prestamos = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            LocalDate fechaPrestamo = INICIO.plusDays(i / 10);
+            prestamos.add(new PrestamoDTOResponse(2L * (i + 1), (long) (i % 37), (long) (i % 11), fechaPrestamo, fechaPrestamo.plusDays(i % 30), (long) (i % 3)));
+        }
+        Path ruta = directorio.resolve("prestamos-1" + SegmentoPrestamos.EXTENSION);
+        try (SegmentoPrestamos.Escritor escritor = new SegmentoPrestamos.Escritor(ruta, 64)) {
+            for (PrestamoDTOResponse prestamo : prestamos) {
+                escritor.agregar(prestamo);
+            }
+        }
+        segmento = SegmentoPrestamos.abrir(ruta);
+    }
+
+    @Test
+    @DisplayName("Recorrer - Devuelve todas las filas tal como se escribieron, por ID")
+    void testRecorrer() {
+        // Act
+        List<PrestamoDTOResponse> leidos = new ArrayList<>();
+        Iterator<PrestamoDTOResponse> iterador = segmento.recorrer();
+        iterador.forEachRemaining(leidos::add);
+
+        // Assert
+        assertEquals(prestamos, leidos);
+        assertEquals(1000, segmento.filas());
+        assertEquals(2L, segmento.minId());
+        assertEquals(2000L, segmento.maxId());
+    }
+
+    @Test
+    @DisplayName("Buscar por ID - Encuentra el préstamo y devuelve null para IDs que no están")
+    void testBuscarPorId() {
+        // Act & Assert
+        assertEquals(prestamos.get(500), segmento.buscar(1002L));
+        assertNull(segmento.buscar(1001L), "Los IDs impares no están en el segmento");
+        assertNull(segmento.buscar(5000L));
+    }
+
+    @Test
+    @DisplayName("Buscar - Filtra por usuario y continúa desde la posición del cursor")
+    void testBuscar_FiltroYCursor() {
+        // Arrange
+        FiltroPrestamosDTORequest filtro = new FiltroPrestamosDTORequest(3L, null, null, null, null, null, false);
+        List<PrestamoDTOResponse> esperados = prestamos.stream().filter(prestamo -> prestamo.getUsuarioId() == 3L && prestamo.getId() > 500L).limit(5).toList();
+
+        // Act
+        SegmentoPrestamos.Recolector recolector = new SegmentoPrestamos.Recolector(Orden.ID, 5);
+        segmento.buscar(filtro, Orden.ID, null, 500L, recolector);
+
+        // Assert
+        assertEquals(esperados, recolector.resultado());
+    }
+
+    @Test
+    @DisplayName("Buscar - Por rango de fecha de préstamo, ordenado por (fecha, ID)")
+    void testBuscar_PorFechaPrestamo() {
+        // Arrange
+        LocalDate desde = INICIO.plusDays(40);
+        LocalDate hasta = INICIO.plusDays(42);
+        FiltroPrestamosDTORequest filtro = new FiltroPrestamosDTORequest(null, null, desde, hasta, null, null, null);
+        List<PrestamoDTOResponse> esperados = prestamos.stream()
+                .filter(prestamo -> !prestamo.getFechaPrestamo().isBefore(desde) && !prestamo.getFechaPrestamo().isAfter(hasta))
+                .sorted(SegmentoPrestamos.comparador(Orden.FECHA_PRESTAMO))
+                .toList();
+
+        // Act
+        SegmentoPrestamos.Recolector recolector = new SegmentoPrestamos.Recolector(Orden.FECHA_PRESTAMO, 100);
+        segmento.buscar(filtro, Orden.FECHA_PRESTAMO, null, 0L, recolector);
+
+        // Assert
+        assertEquals(30, esperados.size());
+        assertEquals(esperados, recolector.resultado());
+    }
+
+    @Test
+    @DisplayName("Buscar - Los préstamos abiertos nunca están archivados")
+    void testBuscar_Abiertos() {
+        // Arrange
+        FiltroPrestamosDTORequest filtro = new FiltroPrestamosDTORequest(null, null, null, null, null, null, true);
+
+        // Act
+        SegmentoPrestamos.Recolector recolector = new SegmentoPrestamos.Recolector(Orden.ID, 10);
+        segmento.buscar(filtro, Orden.ID, null, 0L, recolector);
+
+        // Assert
+        assertTrue(recolector.resultado().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Escritor - Rechaza préstamos abiertos o fuera de orden, y un segmento sin cerrar no se puede abrir")
+    void testEscritor_Validaciones() throws IOException {
+        // Arrange
+        Path ruta = directorio.resolve("prestamos-2.tmp");
+        SegmentoPrestamos.Escritor escritor = new SegmentoPrestamos.Escritor(ruta, 64);
+        escritor.agregar(prestamos.get(1));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> escritor.agregar(prestamos.get(0)));
+        assertThrows(IllegalArgumentException.class, () -> escritor.agregar(new PrestamoDTOResponse(10_000L, 1L, 1L, INICIO, null, 0L)));
+        assertThrows(IOException.class, () -> SegmentoPrestamos.abrir(ruta), "Sin pie el segmento está incompleto");
+        escritor.close();
+        assertEquals(List.of(prestamos.get(1)), List.of(SegmentoPrestamos.abrir(ruta).buscar(prestamos.get(1).getId())));
+        assertTrue(Files.size(ruta) > 0);
+    }
+}
@@ -0,0 +1,123 @@
+package com.biblioteca.application.service.busqueda;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.infrastructure.controllers.libro.dto.SugerenciaDTOResponse;
+import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test del autocompletado de títulos y autores")
+public class AutocompletadoLibrosTest {
+
+    @Mock
+    private LibroRepositorio libroRepositorio;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AutocompletadoLibros autocompletado;
+
+    @BeforeEach
+    void setUp() {
+        autocompletado = new AutocompletadoLibros(libroRepositorio, transactionManager, 10_000);
+        when(libroRepositorio.streamTitulosConPrestamos()).thenReturn(Stream.of(
+                titulo("Cien años de soledad", 5),
+                titulo("Cien sonetos", 1),
+                titulo("Crónica de una muerte anunciada", 2)));
+        when(libroRepositorio.streamAutoresConPrestamos()).thenReturn(Stream.of(
+                autor("Gabriel García Márquez", 7),
+                autor("Miguel de Cervantes", 3)));
+        autocompletado.reconstruir();
+    }
+
+    @Test
+    @DisplayName("Sugerir - Por prefijo, sin distinguir tildes ni mayúsculas")
+    void testSugerir_Prefijo() {
+        // Act & Assert
+        assertEquals(List.of("Cien años de soledad"), textos(autocompletado.sugerir("CIEN A", 10)));
+        assertEquals(List.of("Crónica de una muerte anunciada"), textos(autocompletado.sugerir("cronica", 10)));
+        assertEquals(List.of(new SugerenciaDTOResponse("Gabriel García Márquez", SugerenciaDTOResponse.AUTOR, 7L)),
+                autocompletado.sugerir("gabriel garc", 10));
+        assertEquals(List.of(), autocompletado.sugerir("rayuela", 10));
+    }
+
+    @Test
+    @DisplayName("Sugerir - Ordena por préstamos y respeta el límite")
+    void testSugerir_Orden() {
+        // Act & Assert
+        assertEquals(List.of("Cien años de soledad", "Cien sonetos"), textos(autocompletado.sugerir("cien", 10)));
+        assertEquals(List.of("Cien años de soledad", "Crónica de una muerte anunciada"), textos(autocompletado.sugerir("c", 2)));
+    }
+
+    @Test
+    @DisplayName("Cambios - Altas, bajas y préstamos se ven sin reconstruir")
+    void testCambios() {
+        // Act
+        autocompletado.libroCreado("Cien noches", "Autora Nueva");
+        autocompletado.libroPrestado("Cien sonetos", "Miguel de Cervantes");
+        autocompletado.libroPrestado("Cien sonetos", "Miguel de Cervantes");
+        autocompletado.libroEliminado("Cien años de soledad", "Gabriel García Márquez");
+
+        // Assert
+        List<SugerenciaDTOResponse> sugerencias = autocompletado.sugerir("cien", 10);
+        assertEquals(List.of("Cien sonetos", "Cien noches"), textos(sugerencias));
+        assertEquals(3L, sugerencias.get(0).getPrestamos());
+        assertEquals(List.of("Autora Nueva"), textos(autocompletado.sugerir("autora", 10)));
+        assertEquals(List.of(), autocompletado.sugerir("gabriel", 10));
+        assertEquals(5L, autocompletado.sugerir("miguel", 10).get(0).getPrestamos());
+    }
+
+    @Test
+    @DisplayName("Cambios - Un título compartido con otro libro no se retira")
+    void testCambios_TituloCompartido() {
+        // Arrange
+        when(libroRepositorio.existsByTitulo("Cien sonetos")).thenReturn(true);
+
+        // Act
+        autocompletado.libroModificado("Cien sonetos", "Miguel de Cervantes", "Veinte poemas", "Miguel de Cervantes");
+
+        // Assert
+        assertEquals(List.of("Cien años de soledad", "Cien sonetos"), textos(autocompletado.sugerir("cien", 10)));
+        assertEquals(List.of("Veinte poemas"), textos(autocompletado.sugerir("veinte", 10)));
+        verify(libroRepositorio, never()).existsByAutor(anyString());
+    }
+
+    @Test
+    @DisplayName("Reconstruir - Incorpora los cambios al FST y vacía la capa incremental")
+    void testReconstruir() {
+        // Arrange
+        autocompletado.libroCreado("Cien noches", "Autora Nueva");
+        when(libroRepositorio.streamTitulosConPrestamos()).thenReturn(Stream.of(titulo("Cien sonetos", 4)));
+        when(libroRepositorio.streamAutoresConPrestamos()).thenReturn(Stream.empty());
+
+        // Act
+        autocompletado.reconstruir();
+
+        // Assert
+        assertEquals(List.of(new SugerenciaDTOResponse("Cien sonetos", SugerenciaDTOResponse.TITULO, 4L)),
+                autocompletado.sugerir("cien", 10));
+    }
+
+    private static SugerenciaDTOResponse titulo(String texto, long prestamos) {
+        return new SugerenciaDTOResponse(texto, SugerenciaDTOResponse.TITULO, prestamos);
+    }
+
+    private static SugerenciaDTOResponse autor(String texto, long prestamos) {
+        return new SugerenciaDTOResponse(texto, SugerenciaDTOResponse.AUTOR, prestamos);
+    }
+
+    private static List<String> textos(List<SugerenciaDTOResponse> sugerencias) {
+        return sugerencias.stream().map(SugerenciaDTOResponse::getTexto).toList();
+    }
+}
@@ -0,0 +1,89 @@
+package com.biblioteca.application.service.busqueda;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
+import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test del índice de búsqueda de texto completo de libros")
+public class IndiceBusquedaLibrosTest {
+
+    @Mock
+    private LibroRepositorio libroRepositorio;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IndiceBusquedaLibros indice;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        indice = new IndiceBusquedaLibros(libroRepositorio, transactionManager, "");
+        indice.indexar(List.of(
+                libro(1L, "Cien años de soledad", "Gabriel García Márquez"),
+                libro(2L, "Crónica de García", "Otro Autor"),
+                libro(3L, "Rayuela", "Julio Cortázar")));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        indice.cerrar();
+    }
+
+    @Test
+    @DisplayName("Buscar - Sin distinguir tildes ni mayúsculas")
+    void testBuscar_SinTildes() {
+        // Act & Assert
+        assertEquals(List.of(3L), indice.buscar("cortazar", 0, 10));
+        assertEquals(List.of(1L), indice.buscar("MÁRQUEZ", 0, 10));
+        assertEquals(List.of(1L), indice.buscar("soledades", 0, 10), "El plural debe coincidir con el singular");
+    }
+
+    @Test
+    @DisplayName("Buscar - El título pesa más que el autor y todos los términos son obligatorios")
+    void testBuscar_Relevancia() {
+        // Act & Assert
+        assertEquals(List.of(2L, 1L), indice.buscar("garcia", 0, 10));
+        assertEquals(List.of(1L), indice.buscar("garcia soledad", 0, 10));
+        assertEquals(List.of(), indice.buscar("de la", 0, 10), "Solo palabras vacías");
+    }
+
+    @Test
+    @DisplayName("Buscar - Pagina por desplazamiento")
+    void testBuscar_Desplazamiento() {
+        // Act & Assert
+        assertEquals(List.of(2L), indice.buscar("garcia", 0, 1));
+        assertEquals(List.of(1L), indice.buscar("garcia", 1, 1));
+        assertEquals(List.of(), indice.buscar("garcia", 2, 1));
+    }
+
+    @Test
+    @DisplayName("Indexar y eliminar - Las búsquedas ven los cambios en el acto")
+    void testIndexarYEliminar() {
+        // Act
+        indice.indexar(libro(3L, "Los premios", "Julio Cortázar"));
+        indice.eliminar(1L);
+
+        // Assert
+        assertEquals(List.of(), indice.buscar("rayuela", 0, 10), "El título anterior ya no debe encontrarse");
+        assertEquals(List.of(3L), indice.buscar("premios", 0, 10));
+        assertEquals(List.of(2L), indice.buscar("garcia", 0, 10));
+    }
+
+    private static LibroDTOResponse libro(Long id, String titulo, String autor) {
+        return new LibroDTOResponse(id, titulo, autor, "isbn-" + id, LocalDate.of(2000, 1, 1), 0L);
+    }
+}
@@ -0,0 +1,91 @@
+package com.biblioteca.application.service.disponibilidad;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.application.service.libro.LibroServicio;
+import com.biblioteca.infrastructure.controllers.libro.dto.DisponibilidadLibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.dto.DisponibilidadLibrosDTOResponse;
+import com.biblioteca.infrastructure.exceptions.PeticionInvalidaExcepcion;
+import com.biblioteca.infrastructure.exceptions.RecursoNoEncontradoExcepcion;
+import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test Unitarios para DisponibilidadServicioImpl")
+public class DisponibilidadServicioImplTest {
+
+    @Mock
+    private IndiceDisponibilidad indiceDisponibilidad;
+
+    @Mock
+    private LibroServicio libroServicio;
+
+    @Mock
+    private LibroRepositorio libroRepositorio;
+
+    @InjectMocks
+    private DisponibilidadServicioImpl disponibilidadServicio;
+
+    @Test
+    @DisplayName("Obtener Disponibilidad - Libro prestado")
+    void testObtenerDisponibilidad_Prestado() {
+        // Arrange
+        when(libroServicio.obtenerVersionLibro(3L)).thenReturn(0L);
+        when(indiceDisponibilidad.estaPrestado(3L)).thenReturn(true);
+
+        // Act
+        DisponibilidadLibroDTOResponse resultado = disponibilidadServicio.obtenerDisponibilidad(3L);
+
+        // Assert
+        assertEquals(new DisponibilidadLibroDTOResponse(3L, false), resultado);
+    }
+
+    @Test
+    @DisplayName("Obtener Disponibilidad - Libro no existente - Lanza RecursoNoEncontradoExcepcion")
+    void testObtenerDisponibilidad_NoExistente() {
+        // Arrange
+        when(libroServicio.obtenerVersionLibro(99L)).thenThrow(new RecursoNoEncontradoExcepcion("Libro no encontrado con ID: 99"));
+
+        // Act & Assert
+        assertThrows(RecursoNoEncontradoExcepcion.class, () -> disponibilidadServicio.obtenerDisponibilidad(99L));
+        verifyNoInteractions(indiceDisponibilidad);
+    }
+
+    @Test
+    @DisplayName("Obtener Disponibilidades - Separa los IDs inexistentes y quita repetidos")
+    void testObtenerDisponibilidades() {
+        // Arrange
+        when(libroRepositorio.findIdsExistentes(Set.of(1L, 3L, 99L))).thenReturn(Set.of(1L, 3L));
+        when(indiceDisponibilidad.estaPrestado(1L)).thenReturn(false);
+        when(indiceDisponibilidad.estaPrestado(3L)).thenReturn(true);
+
+        // Act
+        DisponibilidadLibrosDTOResponse resultado = disponibilidadServicio.obtenerDisponibilidades(List.of(3L, 99L, 1L, 3L));
+
+        // Assert
+        assertEquals(List.of(new DisponibilidadLibroDTOResponse(3L, false), new DisponibilidadLibroDTOResponse(1L, true)), resultado.getLibros());
+        assertEquals(List.of(99L), resultado.getNoEncontrados());
+        verify(libroRepositorio, times(1)).findIdsExistentes(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Obtener Disponibilidades - Demasiados IDs - Lanza PeticionInvalidaExcepcion")
+    void testObtenerDisponibilidades_DemasiadosIds() {
+        // Arrange
+        List<Long> ids = LongStream.rangeClosed(1, DisponibilidadServicioImpl.TAMANO_MAXIMO_CONSULTA + 1).boxed().toList();
+
+        // Act & Assert
+        assertThrows(PeticionInvalidaExcepcion.class, () -> disponibilidadServicio.obtenerDisponibilidades(ids));
+        verifyNoInteractions(libroRepositorio);
+    }
+}
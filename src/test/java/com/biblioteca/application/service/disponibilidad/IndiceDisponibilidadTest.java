@@ -0,0 +1,78 @@
+package com.biblioteca.application.service.disponibilidad;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.infrastructure.repository.PrestamoRepositorio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test Unitarios para IndiceDisponibilidad")
+public class IndiceDisponibilidadTest {
+
+    @Mock
+    private PrestamoRepositorio prestamoRepositorio;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private IndiceDisponibilidad indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceDisponibilidad(prestamoRepositorio, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Esta Prestado - Antes de construir el índice consulta la base de datos")
+    void testEstaPrestado_SinConstruir() {
+        // Arrange
+        when(prestamoRepositorio.existsByLibroIdAndFechaDevolucionIsNull(1L)).thenReturn(true);
+
+        // Act & Assert
+        assertTrue(indice.estaPrestado(1L));
+        verify(prestamoRepositorio, times(1)).existsByLibroIdAndFechaDevolucionIsNull(1L);
+    }
+
+    @Test
+    @DisplayName("Esta Prestado - Construido el índice responde sin consultar la base de datos")
+    void testEstaPrestado_Construido() {
+        // Arrange
+        when(prestamoRepositorio.streamIdsLibrosPrestados()).thenReturn(Stream.of(3L, 5_000_000_000L));
+
+        // Act
+        indice.reconstruir();
+
+        // Assert
+        assertTrue(indice.estaPrestado(3L));
+        assertTrue(indice.estaPrestado(5_000_000_000L), "Los IDs no caben necesariamente en un int");
+        assertFalse(indice.estaPrestado(1L));
+        verify(prestamoRepositorio, never()).existsByLibroIdAndFechaDevolucionIsNull(anyLong());
+    }
+
+    @Test
+    @DisplayName("Recalcular - Aplica el estado confirmado de cada libro")
+    void testRecalcular() {
+        // Arrange
+        when(prestamoRepositorio.streamIdsLibrosPrestados()).thenReturn(Stream.of(3L));
+        indice.reconstruir();
+        when(prestamoRepositorio.existsByLibroIdAndFechaDevolucionIsNull(3L)).thenReturn(false);
+        when(prestamoRepositorio.existsByLibroIdAndFechaDevolucionIsNull(7L)).thenReturn(true);
+
+        // Act
+        indice.recalcular(List.of(3L, 7L));
+
+        // Assert
+        assertFalse(indice.estaPrestado(3L), "El libro 3 se ha devuelto");
+        assertTrue(indice.estaPrestado(7L), "El libro 7 se ha prestado");
+    }
+}
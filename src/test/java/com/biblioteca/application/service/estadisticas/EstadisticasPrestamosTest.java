@@ -0,0 +1,153 @@
+package com.biblioteca.application.service.estadisticas;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.domain.entity.Libro;
+import com.biblioteca.domain.entity.Prestamo;
+import com.biblioteca.domain.entity.Usuario;
+import com.biblioteca.infrastructure.repository.EstadisticaLibroRepositorio;
+import com.biblioteca.infrastructure.repository.EstadisticaUsuarioRepositorio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test de los contadores de préstamos por libro y usuario")
+public class EstadisticasPrestamosTest {
+
+    @Mock
+    private EstadisticaLibroRepositorio estadisticaLibroRepositorio;
+
+    @Mock
+    private EstadisticaUsuarioRepositorio estadisticaUsuarioRepositorio;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EstadisticasPrestamos estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = new EstadisticasPrestamos(estadisticaLibroRepositorio, estadisticaUsuarioRepositorio, jdbcTemplate, transactionManager, 10);
+    }
+
+    @Test
+    @DisplayName("Préstamo creado - Suma uno al libro y al usuario y los recoloca en los rankings")
+    void testPrestamoCreado() {
+        // Arrange
+        estadisticas.recalcular(); // Rankings vacíos
+        when(estadisticaLibroRepositorio.sumar(1L, 1)).thenReturn(1);
+        when(estadisticaUsuarioRepositorio.sumar(2L, 1)).thenReturn(1);
+        when(estadisticaLibroRepositorio.findPrestamosByLibroId(1L)).thenReturn(Optional.of(7L));
+        when(estadisticaUsuarioRepositorio.findPrestamosByUsuarioId(2L)).thenReturn(Optional.of(3L));
+
+        // Act
+        estadisticas.prestamoCreado(1L, 2L);
+
+        // Assert
+        verifyNoInteractions(jdbcTemplate);
+        assertEquals(List.of(new RankingPrestamos.Entrada(1L, 7L)), estadisticas.librosMasPrestados(10));
+        assertEquals(List.of(new RankingPrestamos.Entrada(2L, 3L)), estadisticas.usuariosMasActivos(10));
+    }
+
+    @Test
+    @DisplayName("Préstamo creado - El primer préstamo de un libro o usuario crea su fila")
+    void testPrestamoCreado_PrimerPrestamo() {
+        // Act
+        estadisticas.prestamoCreado(1L, 2L);
+
+        // Assert
+        verify(jdbcTemplate).update("INSERT INTO estadisticas_libros (libro_id, prestamos) VALUES (?, ?)", 1L, 1L);
+        verify(jdbcTemplate).update("INSERT INTO estadisticas_usuarios (usuario_id, prestamos) VALUES (?, ?)", 2L, 1L);
+        verify(estadisticaLibroRepositorio, times(1)).sumar(1L, 1);
+    }
+
+    @Test
+    @DisplayName("Préstamo creado - Si otra transacción crea la fila a la vez, suma con un segundo UPDATE en lugar de fallar")
+    void testPrestamoCreado_FilaCreadaALaVez() {
+        // Arrange
+        when(estadisticaLibroRepositorio.sumar(1L, 1)).thenReturn(0, 1);
+        when(estadisticaUsuarioRepositorio.sumar(2L, 1)).thenReturn(1);
+        when(jdbcTemplate.update(anyString(), eq(1L), eq(1L))).thenThrow(new DuplicateKeyException("duplicada"));
+
+        // Act
+        estadisticas.prestamoCreado(1L, 2L);
+
+        // Assert
+        verify(estadisticaLibroRepositorio, times(2)).sumar(1L, 1);
+        verify(estadisticaUsuarioRepositorio, times(1)).sumar(2L, 1);
+    }
+
+    @Test
+    @DisplayName("Préstamos creados - Un UPDATE por libro y por usuario, en orden de ID")
+    void testPrestamosCreados() {
+        // Arrange
+        when(estadisticaLibroRepositorio.sumar(anyLong(), anyLong())).thenReturn(1);
+        when(estadisticaUsuarioRepositorio.sumar(anyLong(), anyLong())).thenReturn(1);
+        List<Prestamo> prestamos = List.of(prestamo(5L, 1L), prestamo(3L, 1L), prestamo(5L, 2L));
+
+        // Act
+        estadisticas.prestamosCreados(prestamos);
+
+        // Assert
+        InOrder orden = inOrder(estadisticaLibroRepositorio);
+        orden.verify(estadisticaLibroRepositorio).sumar(3L, 1);
+        orden.verify(estadisticaLibroRepositorio).sumar(5L, 2);
+        verify(estadisticaUsuarioRepositorio).sumar(1L, 2);
+        verify(estadisticaUsuarioRepositorio).sumar(2L, 1);
+    }
+
+    @Test
+    @DisplayName("Préstamo eliminado - Resta sin crear filas")
+    void testPrestamoEliminado() {
+        // Act
+        estadisticas.prestamoEliminado(1L, 2L);
+
+        // Assert
+        verify(estadisticaLibroRepositorio).sumar(1L, -1);
+        verify(estadisticaUsuarioRepositorio).sumar(2L, -1);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Préstamo reasignado - Solo cambia los contadores del libro o usuario que cambia")
+    void testPrestamoReasignado() {
+        // Arrange
+        when(estadisticaLibroRepositorio.sumar(anyLong(), anyLong())).thenReturn(1);
+
+        // Act
+        estadisticas.prestamoReasignado(1L, 2L, 4L, 2L);
+
+        // Assert
+        verify(estadisticaLibroRepositorio).sumar(1L, -1);
+        verify(estadisticaLibroRepositorio).sumar(4L, 1);
+        verifyNoInteractions(estadisticaUsuarioRepositorio);
+    }
+
+    private static Prestamo prestamo(Long libroId, Long usuarioId) {
+        Libro libro = new Libro();
+        libro.setId(libroId);
+        Usuario usuario = new Usuario();
+        usuario.setId(usuarioId);
+        Prestamo prestamo = new Prestamo();
+        prestamo.setLibro(libro);
+        prestamo.setUsuario(usuario);
+        return prestamo;
+    }
+}
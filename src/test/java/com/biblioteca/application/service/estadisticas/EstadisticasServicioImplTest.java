@@ -0,0 +1,125 @@
+package com.biblioteca.application.service.estadisticas;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.infrastructure.controllers.estadisticas.dto.PrestamosPorPeriodoDTOResponse;
+import com.biblioteca.infrastructure.exceptions.PeticionInvalidaExcepcion;
+import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import com.biblioteca.infrastructure.repository.ResumenPrestamosDiarioRepositorio;
+import com.biblioteca.infrastructure.repository.ResumenPrestamosMensualRepositorio;
+import com.biblioteca.infrastructure.repository.UsuarioRepositorio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test de los informes de préstamos por periodo")
+public class EstadisticasServicioImplTest {
+
+    @Mock
+    private EstadisticasPrestamos estadisticasPrestamos;
+
+    @Mock
+    private LibroRepositorio libroRepositorio;
+
+    @Mock
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Mock
+    private ResumenPrestamosDiarioRepositorio resumenDiarioRepositorio;
+
+    @Mock
+    private ResumenPrestamosMensualRepositorio resumenMensualRepositorio;
+
+    private EstadisticasServicioImpl estadisticasServicio;
+
+    @BeforeEach
+    void setUp() {
+        estadisticasServicio = new EstadisticasServicioImpl(estadisticasPrestamos, libroRepositorio, usuarioRepositorio,
+                resumenDiarioRepositorio, resumenMensualRepositorio, 10);
+    }
+
+    @Test
+    @DisplayName("Por semana - Suma los días de cada semana y recorta la primera y la última al rango")
+    void testPorSemana() {
+        // Arrange: del miércoles 6 al martes 19 de marzo de 2024
+        LocalDate desde = LocalDate.of(2024, 3, 6);
+        LocalDate hasta = LocalDate.of(2024, 3, 19);
+        when(resumenDiarioRepositorio.sumarPorDiaDeAutor(desde, hasta, "Julio Cortázar")).thenReturn(List.of(
+                dia(LocalDate.of(2024, 3, 6), 2), dia(LocalDate.of(2024, 3, 10), 3), dia(LocalDate.of(2024, 3, 18), 1)));
+
+        // Act
+        List<PrestamosPorPeriodoDTOResponse> periodos = estadisticasServicio.obtenerPrestamosPorPeriodo(desde, hasta, "semana", "Julio Cortázar");
+
+        // Assert
+        assertEquals(List.of(
+                new PrestamosPorPeriodoDTOResponse(desde, LocalDate.of(2024, 3, 10), 5L),
+                new PrestamosPorPeriodoDTOResponse(LocalDate.of(2024, 3, 11), LocalDate.of(2024, 3, 17), 0L),
+                new PrestamosPorPeriodoDTOResponse(LocalDate.of(2024, 3, 18), hasta, 1L)), periodos);
+        verifyNoInteractions(resumenMensualRepositorio);
+    }
+
+    @Test
+    @DisplayName("Por mes - Los meses completos salen de la tabla mensual y los días sueltos de la diaria")
+    void testPorMes() {
+        // Arrange: del 20 de enero al 10 de abril; febrero y marzo están completos
+        LocalDate desde = LocalDate.of(2024, 1, 20);
+        LocalDate hasta = LocalDate.of(2024, 4, 10);
+        when(resumenMensualRepositorio.sumarPorMes(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 3, 1))).thenReturn(List.of(
+                dia(LocalDate.of(2024, 2, 1), 40), dia(LocalDate.of(2024, 3, 1), 55)));
+        when(resumenDiarioRepositorio.sumarPorDia(desde, LocalDate.of(2024, 1, 31))).thenReturn(List.of(dia(LocalDate.of(2024, 1, 25), 7)));
+        when(resumenDiarioRepositorio.sumarPorDia(LocalDate.of(2024, 4, 1), hasta)).thenReturn(List.of(
+                dia(LocalDate.of(2024, 4, 2), 1), dia(LocalDate.of(2024, 4, 9), 2)));
+
+        // Act
+        List<PrestamosPorPeriodoDTOResponse> periodos = estadisticasServicio.obtenerPrestamosPorPeriodo(desde, hasta, "MES", null);
+
+        // Assert
+        assertEquals(List.of(
+                new PrestamosPorPeriodoDTOResponse(desde, LocalDate.of(2024, 1, 31), 7L),
+                new PrestamosPorPeriodoDTOResponse(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29), 40L),
+                new PrestamosPorPeriodoDTOResponse(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), 55L),
+                new PrestamosPorPeriodoDTOResponse(LocalDate.of(2024, 4, 1), hasta, 3L)), periodos);
+    }
+
+    @Test
+    @DisplayName("Por mes - Un rango dentro de un mes solo lee la tabla diaria")
+    void testPorMes_RangoParcial() {
+        // Arrange
+        LocalDate desde = LocalDate.of(2024, 3, 5);
+        LocalDate hasta = LocalDate.of(2024, 3, 20);
+        when(resumenDiarioRepositorio.sumarPorDia(desde, hasta)).thenReturn(List.of(dia(LocalDate.of(2024, 3, 7), 4)));
+
+        // Act
+        List<PrestamosPorPeriodoDTOResponse> periodos = estadisticasServicio.obtenerPrestamosPorPeriodo(desde, hasta, "mes", " ");
+
+        // Assert
+        assertEquals(List.of(new PrestamosPorPeriodoDTOResponse(desde, hasta, 4L)), periodos);
+        verifyNoInteractions(resumenMensualRepositorio);
+    }
+
+    @Test
+    @DisplayName("Petición inválida - Rango invertido, agrupación desconocida o demasiados periodos")
+    void testPeticionInvalida() {
+        // Arrange
+        LocalDate desde = LocalDate.of(2024, 3, 1);
+
+        // Act & Assert
+        assertThrows(PeticionInvalidaExcepcion.class, () -> estadisticasServicio.obtenerPrestamosPorPeriodo(desde, desde.minusDays(1), null, null));
+        assertThrows(PeticionInvalidaExcepcion.class, () -> estadisticasServicio.obtenerPrestamosPorPeriodo(desde, null, null, null));
+        assertThrows(PeticionInvalidaExcepcion.class, () -> estadisticasServicio.obtenerPrestamosPorPeriodo(desde, desde, "trimestre", null));
+        assertThrows(PeticionInvalidaExcepcion.class, () -> estadisticasServicio.obtenerPrestamosPorPeriodo(desde, desde.plusDays(10), "dia", null));
+        verifyNoInteractions(resumenDiarioRepositorio, resumenMensualRepositorio);
+    }
+
+    private static PrestamosPorPeriodoDTOResponse dia(LocalDate fecha, long prestamos) {
+        return new PrestamosPorPeriodoDTOResponse(fecha, fecha, prestamos);
+    }
+}
@@ -0,0 +1,96 @@
+package com.biblioteca.application.service.estadisticas;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@DisplayName("Test del ranking en memoria de préstamos")
+public class RankingPrestamosTest {
+
+    // Hace de tabla de estadísticas
+    private final Map<Long, Long> contadores = new HashMap<>();
+    private final AtomicInteger recargas = new AtomicInteger();
+    private RankingPrestamos ranking;
+
+    @BeforeEach
+    void setUp() {
+        for (long id = 1; id <= 10; id++) {
+            contadores.put(id, id * 10); // El 10 es el más prestado
+        }
+        ranking = new RankingPrestamos(4, id -> contadores.getOrDefault(id, 0L), n -> {
+            recargas.incrementAndGet();
+            return contadores.entrySet().stream()
+                    .filter(contador -> contador.getValue() > 0)
+                    .map(contador -> new RankingPrestamos.Entrada(contador.getKey(), contador.getValue()))
+                    .sorted(Comparator.comparingLong(RankingPrestamos.Entrada::prestamos).reversed().thenComparingLong(RankingPrestamos.Entrada::id))
+                    .limit(n)
+                    .toList();
+        });
+        ranking.recargar();
+        recargas.set(0);
+    }
+
+    @Test
+    @DisplayName("Primeros - Sirve los K primeros desde memoria")
+    void testPrimeros() {
+        // Act & Assert
+        assertEquals(List.of(10L, 9L, 8L), ids(ranking.primeros(3)));
+        assertEquals(0, recargas.get());
+    }
+
+    @Test
+    @DisplayName("Recalcular - Un ID de fuera que supera al último entra en el ranking")
+    void testRecalcular_Entra() {
+        // Arrange
+        contadores.put(2L, 95L);
+        contadores.put(11L, 1L);
+
+        // Act
+        ranking.recalcular(List.of(2L, 11L));
+
+        // Assert
+        assertEquals(List.of(10L, 2L, 9L, 8L), ids(ranking.primeros(4)));
+        assertEquals(95L, ranking.primeros(2).get(1).prestamos());
+        assertEquals(0, recargas.get());
+    }
+
+    @Test
+    @DisplayName("Primeros - Si los de dentro bajan por debajo de los de fuera, recarga de la base de datos")
+    void testPrimeros_RecargaTrasBajas() {
+        // Arrange
+        contadores.put(10L, 5L);
+        contadores.put(9L, 0L);
+        ranking.recalcular(List.of(10L, 9L));
+
+        // Act
+        List<RankingPrestamos.Entrada> primeros = ranking.primeros(3);
+
+        // Assert
+        assertEquals(List.of(8L, 7L, 6L), ids(primeros));
+        assertEquals(1, recargas.get());
+    }
+
+    @Test
+    @DisplayName("Invalidar - La siguiente consulta recarga")
+    void testInvalidar() {
+        // Arrange
+        contadores.put(1L, 1000L);
+        ranking.invalidar();
+
+        // Act & Assert
+        assertEquals(List.of(1L, 10L), ids(ranking.primeros(2)));
+        assertEquals(1, recargas.get());
+    }
+
+    private static List<Long> ids(List<RankingPrestamos.Entrada> entradas) {
+        return entradas.stream().map(RankingPrestamos.Entrada::id).toList();
+    }
+}
@@ -0,0 +1,178 @@
+package com.biblioteca.application.service.estadisticas;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.domain.entity.PuntoControl;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorio;
+import com.biblioteca.infrastructure.repository.PuntoControlRepositorio;
+import com.biblioteca.infrastructure.repository.ResumenPrestamosDiarioRepositorio;
+import com.biblioteca.infrastructure.repository.ResumenPrestamosMensualRepositorio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test de la agregación incremental de resúmenes de préstamos")
+public class ResumenesPrestamosTest {
+
+    private static final LocalDate DIA = LocalDate.of(2024, 3, 10);
+
+    @Mock
+    private PrestamoRepositorio prestamoRepositorio;
+
+    @Mock
+    private ResumenPrestamosDiarioRepositorio resumenDiarioRepositorio;
+
+    @Mock
+    private ResumenPrestamosMensualRepositorio resumenMensualRepositorio;
+
+    @Mock
+    private PuntoControlRepositorio puntoControlRepositorio;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ResumenesPrestamos resumenes;
+
+    @BeforeEach
+    void setUp() {
+        resumenes = new ResumenesPrestamos(prestamoRepositorio, resumenDiarioRepositorio, resumenMensualRepositorio, puntoControlRepositorio,
+                jdbcTemplate, transactionManager, 2);
+    }
+
+    @Test
+    @DisplayName("Actualizar - La primera ejecución agrega todo el historial")
+    void testActualizar_PrimeraEjecucion() {
+        // Arrange
+        when(prestamoRepositorio.findUltimoId()).thenReturn(Optional.of(100L));
+        when(puntoControlRepositorio.findById(ResumenesPrestamos.PUNTO_CONTROL)).thenReturn(Optional.empty());
+
+        // Act
+        resumenes.actualizar();
+
+        // Assert
+        verify(resumenDiarioRepositorio, times(1)).reiniciarTodos();
+        verify(resumenDiarioRepositorio, times(1)).sumarTodos();
+        verify(resumenDiarioRepositorio, times(1)).eliminarVacios();
+        verify(resumenMensualRepositorio, times(1)).insertarTodos();
+        verify(resumenDiarioRepositorio, never()).sumarDias(any());
+        verify(puntoControlRepositorio, times(1)).save(new PuntoControl(ResumenesPrestamos.PUNTO_CONTROL, null, 100L));
+    }
+
+    @Test
+    @DisplayName("Actualizar - Reagrega por lotes los días de los préstamos nuevos y los anotados, y después sus meses")
+    void testActualizar_Incremental() {
+        // Arrange
+        when(prestamoRepositorio.findUltimoId()).thenReturn(Optional.of(120L));
+        when(puntoControlRepositorio.findById(ResumenesPrestamos.PUNTO_CONTROL))
+                .thenReturn(Optional.of(new PuntoControl(ResumenesPrestamos.PUNTO_CONTROL, null, 100L)));
+        when(prestamoRepositorio.findFechasPrestamoPosteriores(100L)).thenReturn(List.of(DIA, DIA.plusDays(1)));
+        resumenes.prestamosModificados(List.of(LocalDate.of(2024, 1, 31), DIA));
+
+        // Act
+        resumenes.actualizar();
+
+        // Assert
+        verify(resumenDiarioRepositorio, times(1)).sumarDias(List.of(LocalDate.of(2024, 1, 31), DIA));
+        verify(resumenDiarioRepositorio, times(1)).sumarDias(List.of(DIA.plusDays(1)));
+        verify(resumenMensualRepositorio, times(1)).insertarMes(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+        verify(resumenMensualRepositorio, times(1)).insertarMes(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+        verify(resumenMensualRepositorio, never()).insertarTodos();
+        verify(puntoControlRepositorio, times(1)).save(new PuntoControl(ResumenesPrestamos.PUNTO_CONTROL, null, 120L));
+    }
+
+    @Test
+    @DisplayName("Actualizar - Sin préstamos nuevos ni días anotados no toca los resúmenes")
+    void testActualizar_SinCambios() {
+        // Arrange
+        when(prestamoRepositorio.findUltimoId()).thenReturn(Optional.of(100L));
+        when(puntoControlRepositorio.findById(ResumenesPrestamos.PUNTO_CONTROL))
+                .thenReturn(Optional.of(new PuntoControl(ResumenesPrestamos.PUNTO_CONTROL, null, 100L)));
+
+        // Act
+        resumenes.actualizar();
+
+        // Assert
+        verifyNoInteractions(resumenDiarioRepositorio, resumenMensualRepositorio);
+        verify(prestamoRepositorio, never()).findFechasPrestamoPosteriores(anyLong());
+    }
+
+    @Test
+    @DisplayName("Actualizar - Si falla, los días anotados se reintentan en la siguiente ejecución")
+    void testActualizar_Reintento() {
+        // Arrange
+        when(prestamoRepositorio.findUltimoId()).thenReturn(Optional.of(100L));
+        when(puntoControlRepositorio.findById(ResumenesPrestamos.PUNTO_CONTROL))
+                .thenReturn(Optional.of(new PuntoControl(ResumenesPrestamos.PUNTO_CONTROL, null, 100L)));
+        when(resumenDiarioRepositorio.sumarDias(List.of(DIA)))
+                .thenThrow(new IllegalStateException("Fallo de la base de datos"))
+                .thenReturn(3);
+        resumenes.prestamosModificados(List.of(DIA));
+
+        // Act
+        assertThrows(IllegalStateException.class, resumenes::actualizar);
+        resumenes.actualizar();
+
+        // Assert
+        verify(resumenDiarioRepositorio, times(2)).sumarDias(List.of(DIA));
+        verify(resumenMensualRepositorio, times(1)).insertarMes(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+        verify(puntoControlRepositorio, times(1)).save(any());
+    }
+
+    @Test
+    @DisplayName("Libro modificado - Anota los días de sus préstamos")
+    void testLibroModificado() {
+        // Arrange
+        when(prestamoRepositorio.findFechasPrestamoByLibroId(7L)).thenReturn(List.of(DIA));
+        when(prestamoRepositorio.findUltimoId()).thenReturn(Optional.of(100L));
+        when(puntoControlRepositorio.findById(ResumenesPrestamos.PUNTO_CONTROL))
+                .thenReturn(Optional.of(new PuntoControl(ResumenesPrestamos.PUNTO_CONTROL, null, 100L)));
+
+        // Act
+        resumenes.libroModificado(7L);
+        resumenes.actualizar();
+
+        // Assert
+        verify(resumenDiarioRepositorio, times(1)).reiniciarDias(List.of(DIA));
+        verify(resumenDiarioRepositorio, times(1)).sumarDias(List.of(DIA));
+        verify(resumenDiarioRepositorio, times(1)).eliminarDiasVacios(List.of(DIA));
+    }
+
+    @Test
+    @DisplayName("Préstamos archivados - Pasan a la cuenta de archivados y sus días se reagregan")
+    void testPrestamosArchivados() {
+        // Arrange
+        Long[] ids = {3L, 5L};
+        when(prestamoRepositorio.findUltimoId()).thenReturn(Optional.of(100L));
+        when(puntoControlRepositorio.findById(ResumenesPrestamos.PUNTO_CONTROL))
+                .thenReturn(Optional.of(new PuntoControl(ResumenesPrestamos.PUNTO_CONTROL, null, 100L)));
+
+        // Act
+        resumenes.prestamosArchivados(ids, List.of(DIA, DIA));
+        resumenes.actualizar();
+
+        // Assert
+        // Los IDs van como un único parámetro de tipo array (ANY(?)), no expandidos en varios parámetros
+        ArgumentCaptor<Object> parametros = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate, times(1)).update(anyString(), parametros.capture());
+        assertEquals(1, parametros.getAllValues().size());
+        assertArrayEquals(ids, (Object[]) parametros.getValue());
+        verify(resumenDiarioRepositorio, times(1)).reiniciarDias(List.of(DIA));
+        verify(resumenDiarioRepositorio, times(1)).sumarDias(List.of(DIA));
+        verify(resumenMensualRepositorio, times(1)).insertarMes(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+    }
+}
@@ -0,0 +1,178 @@
+package com.biblioteca.application.service.idempotencia;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.domain.entity.ClaveIdempotencia;
+import com.biblioteca.infrastructure.repository.ClaveIdempotenciaRepositorio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test del almacén de claves de idempotencia")
+public class AlmacenIdempotenciaTest {
+
+    @Mock
+    private ClaveIdempotenciaRepositorio claveIdempotenciaRepositorio;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AlmacenIdempotencia almacen;
+
+    @BeforeEach
+    void setUp() {
+        almacen = new AlmacenIdempotencia(claveIdempotenciaRepositorio, transactionManager,
+                new IdempotenciaPropiedades(true, Duration.ofHours(24), Duration.ofMinutes(10), DataSize.ofMegabytes(1), DataSize.ofKilobytes(64)));
+    }
+
+    @Test
+    @DisplayName("Reservar - Una clave nueva se inserta en curso y un segundo intento simultáneo no llega a la base de datos")
+    void testReservar_Nueva() {
+        // Arrange
+        when(claveIdempotenciaRepositorio.findById("clave")).thenReturn(Optional.empty());
+
+        // Act
+        AlmacenIdempotencia.Reserva primera = almacen.reservar("clave");
+        AlmacenIdempotencia.Reserva segunda = almacen.reservar("clave");
+
+        // Assert
+        assertEquals(AlmacenIdempotencia.Estado.NUEVA, primera.estado());
+        assertEquals(AlmacenIdempotencia.Estado.EN_CURSO, segunda.estado());
+        verify(claveIdempotenciaRepositorio, times(1)).findById("clave");
+        verify(claveIdempotenciaRepositorio).saveAndFlush(argThat(fila -> fila.getEstado() == null && fila.getExpira().isAfter(Instant.now())));
+    }
+
+    @Test
+    @DisplayName("Completar - Los reintentos reciben la respuesta desde memoria")
+    void testCompletar_RepiteDesdeMemoria() {
+        // Arrange
+        when(claveIdempotenciaRepositorio.findById("clave")).thenReturn(Optional.empty());
+        almacen.reservar("clave");
+        RespuestaIdempotente respuesta = respuesta();
+
+        // Act
+        almacen.completar("clave", respuesta);
+        AlmacenIdempotencia.Reserva reintento = almacen.reservar("clave");
+
+        // Assert
+        assertEquals(AlmacenIdempotencia.Estado.REPETIDA, reintento.estado());
+        assertSame(respuesta, reintento.respuesta());
+        verify(claveIdempotenciaRepositorio, times(2)).findById("clave");
+    }
+
+    @Test
+    @DisplayName("Reservar - Una respuesta guardada por otra instancia se lee de la base de datos")
+    void testReservar_RepetidaEnBaseDeDatos() {
+        // Arrange
+        ClaveIdempotencia fila = new ClaveIdempotencia("clave", "huella", 201, "application/json", "/libros/1",
+                "{}".getBytes(StandardCharsets.UTF_8), Instant.now().plus(Duration.ofHours(1)), 1L);
+        when(claveIdempotenciaRepositorio.findById("clave")).thenReturn(Optional.of(fila));
+
+        // Act
+        AlmacenIdempotencia.Reserva reserva = almacen.reservar("clave");
+
+        // Assert
+        assertEquals(AlmacenIdempotencia.Estado.REPETIDA, reserva.estado());
+        assertEquals(201, reserva.respuesta().estado());
+        assertEquals("/libros/1", reserva.respuesta().ubicacion());
+        verify(claveIdempotenciaRepositorio, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("Completar - Una respuesta sin cuerpo se guarda como tal y sus reintentos la reciben sin cuerpo")
+    void testCompletar_SinCuerpo() {
+        // Arrange
+        ClaveIdempotencia fila = new ClaveIdempotencia("clave", "", null, null, null, null, Instant.now().plus(Duration.ofMinutes(5)), 0L);
+        when(claveIdempotenciaRepositorio.findById("clave")).thenReturn(Optional.empty(), Optional.of(fila));
+        almacen.reservar("clave");
+
+        // Act
+        almacen.completar("clave", RespuestaIdempotente.sinCuerpo("huella", 201, "/libros/1"));
+        AlmacenIdempotencia.Reserva reintento = almacen.reservar("clave");
+
+        // Assert
+        assertEquals(201, fila.getEstado());
+        assertNull(fila.getCuerpo());
+        assertEquals(AlmacenIdempotencia.Estado.REPETIDA, reintento.estado());
+        assertFalse(reintento.respuesta().conCuerpo());
+    }
+
+    @Test
+    @DisplayName("Reservar - Una clave caducada se sustituye y una en curso en otra instancia se rechaza")
+    void testReservar_CaducadaYEnCurso() {
+        // Arrange
+        ClaveIdempotencia caducada = new ClaveIdempotencia("vieja", "huella", 201, null, null, new byte[0], Instant.now().minusSeconds(1), 1L);
+        ClaveIdempotencia enCurso = new ClaveIdempotencia("otra", "", null, null, null, null, Instant.now().plus(Duration.ofMinutes(5)), 0L);
+        when(claveIdempotenciaRepositorio.findById("vieja")).thenReturn(Optional.of(caducada));
+        when(claveIdempotenciaRepositorio.findById("otra")).thenReturn(Optional.of(enCurso));
+
+        // Act & Assert
+        assertEquals(AlmacenIdempotencia.Estado.NUEVA, almacen.reservar("vieja").estado());
+        assertEquals(AlmacenIdempotencia.Estado.EN_CURSO, almacen.reservar("otra").estado());
+        verify(claveIdempotenciaRepositorio).delete(caducada);
+    }
+
+    @Test
+    @DisplayName("Reservar - Si otra instancia inserta la misma clave a la vez, la petición está en curso")
+    void testReservar_InsercionSimultanea() {
+        // Arrange
+        when(claveIdempotenciaRepositorio.findById("clave")).thenReturn(Optional.empty());
+        when(claveIdempotenciaRepositorio.saveAndFlush(any())).thenThrow(new DataIntegrityViolationException("duplicada"));
+
+        // Act
+        AlmacenIdempotencia.Reserva reserva = almacen.reservar("clave");
+
+        // Assert
+        assertEquals(AlmacenIdempotencia.Estado.EN_CURSO, reserva.estado());
+        reset(claveIdempotenciaRepositorio);
+        when(claveIdempotenciaRepositorio.findById("clave")).thenReturn(Optional.empty());
+        assertEquals(AlmacenIdempotencia.Estado.NUEVA, almacen.reservar("clave").estado(), "La clave no debe quedar bloqueada en memoria");
+    }
+
+    @Test
+    @DisplayName("Reservar - Un error de conexión se propaga en lugar de tomarse por una petición en curso")
+    void testReservar_ErrorDeConexion() {
+        // Arrange
+        when(claveIdempotenciaRepositorio.findById("clave")).thenThrow(new QueryTimeoutException("Tiempo de espera agotado"));
+
+        // Act & Assert
+        assertThrows(QueryTimeoutException.class, () -> almacen.reservar("clave"));
+        reset(claveIdempotenciaRepositorio);
+        when(claveIdempotenciaRepositorio.findById("clave")).thenReturn(Optional.empty());
+        assertEquals(AlmacenIdempotencia.Estado.NUEVA, almacen.reservar("clave").estado(), "La clave no debe quedar bloqueada en memoria");
+    }
+
+    @Test
+    @DisplayName("Liberar - Borra la clave y permite volver a ejecutar la petición")
+    void testLiberar() {
+        // Arrange
+        when(claveIdempotenciaRepositorio.findById("clave")).thenReturn(Optional.empty());
+        almacen.reservar("clave");
+
+        // Act
+        almacen.liberar("clave");
+
+        // Assert
+        verify(claveIdempotenciaRepositorio).deleteById("clave");
+        assertEquals(AlmacenIdempotencia.Estado.NUEVA, almacen.reservar("clave").estado());
+    }
+
+    private static RespuestaIdempotente respuesta() {
+        return new RespuestaIdempotente("huella", 201, "application/json", "/libros/1", "{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,114 @@
+package com.biblioteca.application.service.libro;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.application.service.busqueda.AutocompletadoLibros;
+import com.biblioteca.application.service.busqueda.IndiceBusquedaLibros;
+import com.biblioteca.application.service.cache.VersionColecciones;
+import com.biblioteca.infrastructure.controllers.libro.dto.ResultadoImportacionDTOResponse;
+import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+@ExtendWith(MockitoExtension.class)
+public class ImportacionLibrosServicioImplTest {
+
+    @Mock
+    private LibroRepositorio libroRepositorio;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private IndiceBusquedaLibros indiceBusqueda;
+
+    @Mock
+    private AutocompletadoLibros autocompletado;
+
+    private ImportacionLibrosServicioImpl importacionLibrosServicio;
+
+    @BeforeEach
+    void setUp() {
+        importacionLibrosServicio = new ImportacionLibrosServicioImpl(libroRepositorio, jdbcTemplate, transactionManager,
+                new ObjectMapper().findAndRegisterModules(), new VersionColecciones(), indiceBusqueda, autocompletado, 2, 10);
+    }
+
+    @Test
+    @DisplayName("Importar CSV en lotes rechazando filas inválidas y duplicadas")
+    @SuppressWarnings("unchecked")
+    void testImportarLibrosCsv() {
+        // Arrange
+        String csv = """
+                titulo,autor,isbn,fechaPublicacion
+                "Cien años de soledad, edición especial",García Márquez,111,1967-05-30
+                Rayuela,Cortázar,222,
+                Sin ISBN,Anónimo
+                Duplicado,Cortázar,222,
+                Ficciones,Borges,333,1944-01-01
+                """;
+        when(libroRepositorio.findIsbnsExistentes(anyCollection())).thenReturn(Set.of(), Set.of("222", "333"));
+
+        // Act
+        ResultadoImportacionDTOResponse resultado = importacionLibrosServicio.importarLibros(flujo(csv), FormatoImportacion.CSV);
+
+        // Assert
+        assertEquals(5, resultado.getFilasLeidas(), "Se esperaban 5 filas leídas sin contar la cabecera");
+        assertEquals(2, resultado.getLibrosInsertados(), "Solo los dos primeros libros son nuevos");
+        assertEquals(3, resultado.getFilasRechazadas(), "Se esperaban 3 filas rechazadas");
+        assertEquals(List.of(4L, 5L, 6L), resultado.getRechazos().stream().map(r -> r.getLinea()).toList(),
+                "Los rechazos deben indicar la línea del fichero");
+
+        // El duplicado de la línea 5 cae en el segundo lote y se detecta contra lo ya confirmado; ese lote no llega a escribirse
+        ArgumentCaptor<List<Object[]>> parametros = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), parametros.capture());
+        assertEquals("Cien años de soledad, edición especial", parametros.getValue().get(0)[0], "Las comas entre comillas forman parte del campo");
+        assertEquals(LocalDate.of(1967, 5, 30), parametros.getValue().get(0)[3]);
+        assertNull(parametros.getValue().get(1)[3], "La fecha de publicación es opcional");
+    }
+
+    @Test
+    @DisplayName("Importar NDJSON")
+    void testImportarLibrosNdjson() {
+        // Arrange
+        String ndjson = """
+                {"titulo":"Rayuela","autor":"Cortázar","isbn":"222","fechaPublicacion":"1963-06-28"}
+                {"titulo":"Roto"
+                """;
+        when(libroRepositorio.findIsbnsExistentes(anyCollection())).thenReturn(Set.of());
+
+        // Act
+        ResultadoImportacionDTOResponse resultado = importacionLibrosServicio.importarLibros(flujo(ndjson), FormatoImportacion.NDJSON);
+
+        // Assert
+        assertEquals(1, resultado.getLibrosInsertados());
+        assertEquals(1, resultado.getFilasRechazadas(), "La línea con JSON inválido debe rechazarse");
+        assertTrue(resultado.getRechazos().get(0).getMotivo().startsWith("JSON inválido"));
+        verify(libroRepositorio, times(1)).findDTOByIsbnIn(List.of("222")); // Los libros confirmados se indexan para la búsqueda
+        verify(indiceBusqueda, times(1)).indexar(anyList());
+        verify(autocompletado, times(1)).libroCreado("Rayuela", "Cortázar");
+    }
+
+    private static InputStream flujo(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -3,23 +3,41 @@ package com.biblioteca.application.service.libro;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import com.biblioteca.application.service.busqueda.AutocompletadoLibros;
+import com.biblioteca.application.service.busqueda.IndiceBusquedaLibros;
+import com.biblioteca.application.service.cache.CacheRespuestas;
+import com.biblioteca.application.service.cache.VersionColecciones;
+import com.biblioteca.application.service.disponibilidad.IndiceDisponibilidad;
+import com.biblioteca.application.service.estadisticas.EstadisticasPrestamos;
+import com.biblioteca.application.service.estadisticas.ResumenesPrestamos;
+import com.biblioteca.application.service.paginacion.CursorPaginacion;
+import com.biblioteca.application.service.prestamo.CupoPrestamos;
 import com.biblioteca.domain.entity.Libro;
 import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTORequest;
 import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTOResponse;
+import com.biblioteca.infrastructure.controllers.libro.dto.SugerenciaDTOResponse;
 import com.biblioteca.infrastructure.controllers.libro.mapper.LibroMapper;
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
+import com.biblioteca.infrastructure.exceptions.PeticionInvalidaExcepcion;
+import com.biblioteca.infrastructure.exceptions.PrecondicionFallidaExcepcion;
 import com.biblioteca.infrastructure.exceptions.RecursoNoEncontradoExcepcion;
 import com.biblioteca.infrastructure.repository.LibroRepositorio;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
 import java.util.List;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Optional;
+import java.util.Set;
 
 @ExtendWith(MockitoExtension.class)
 public class LibroServicioImplTest {
@@ -30,6 +48,30 @@ public class LibroServicioImplTest {
     @Mock
     private LibroMapper libroMapper;
 
+    @Spy
+    private CacheRespuestas cacheRespuestas = new CacheRespuestas(new ObjectMapper().findAndRegisterModules(), 100, Duration.ofMinutes(1));
+
+    @Spy
+    private VersionColecciones versionColecciones = new VersionColecciones();
+
+    @Mock
+    private IndiceDisponibilidad indiceDisponibilidad;
+
+    @Mock
+    private IndiceBusquedaLibros indiceBusqueda;
+
+    @Mock
+    private AutocompletadoLibros autocompletado;
+
+    @Mock
+    private EstadisticasPrestamos estadisticasPrestamos;
+
+    @Mock
+    private ResumenesPrestamos resumenesPrestamos;
+
+    @Mock
+    private CupoPrestamos cupoPrestamos;
+
     @InjectMocks
     private LibroServicioImpl libroServicio;
 
@@ -61,10 +103,8 @@ public class LibroServicioImplTest {
     @DisplayName("Obtener todos los libros")
     void testObtenerTodosLosLibros() {
         // Arrange
-        // Create a list containing the sample book
-        List<Libro> listaLibros = List.of(libro);
-        when(libroRepositorio.findAll()).thenReturn(listaLibros);
-        when(libroMapper.toDTOResponse(libro)).thenReturn(libroDTOResponse);
+        // La proyección devuelve directamente los DTOs
+        when(libroRepositorio.findAllAsDTO()).thenReturn(List.of(libroDTOResponse));
 
         // Act
         List<LibroDTOResponse> resultados = libroServicio.obtenerTodosLosLibros();
@@ -74,9 +114,87 @@ public class LibroServicioImplTest {
         assertEquals(1, resultados.size(), "Se esperaba que la lista contenga 1 libro");
         assertEquals(libroDTOResponse, resultados.get(0), "El DTO del libro no coincide con el esperado");
 
-        // Verifica que el repositorio y el mapper se llamaron exactamente una vez
-        verify(libroRepositorio, times(1)).findAll();
-        verify(libroMapper, times(1)).toDTOResponse(libro);
+        // Verifica que se usó la proyección y que no se hidrataron entidades
+        verify(libroRepositorio, times(1)).findAllAsDTO();
+        verify(libroRepositorio, never()).findAll();
+        verifyNoInteractions(libroMapper);
+    }
+
+    @Test
+    @DisplayName("Obtener página de libros - Con página siguiente")
+    void testObtenerPaginaDeLibros_ConPaginaSiguiente() {
+        // Arrange
+        LibroDTOResponse otroLibroDTOResponse = new LibroDTOResponse();
+        otroLibroDTOResponse.setId(2L);
+        when(libroRepositorio.findDTOByIdGreaterThan(0L, PageRequest.of(0, 2))).thenReturn(List.of(libroDTOResponse, otroLibroDTOResponse));
+
+        // Act
+        PaginaDTOResponse<LibroDTOResponse> pagina = libroServicio.obtenerPaginaDeLibros(null, 1);
+
+        // Assert
+        assertEquals(List.of(libroDTOResponse), pagina.getContenido(), "La página solo debe contener el número de libros solicitado");
+        assertNotNull(pagina.getSiguienteCursor(), "Se esperaba un cursor para la página siguiente");
+        assertEquals(1L, CursorPaginacion.decodificar(pagina.getSiguienteCursor()), "El cursor debe apuntar al último libro entregado");
+    }
+
+    @Test
+    @DisplayName("Obtener página de libros - Última página")
+    void testObtenerPaginaDeLibros_UltimaPagina() {
+        // Arrange
+        String cursor = CursorPaginacion.codificar(5L);
+        when(libroRepositorio.findDTOByIdGreaterThan(5L, PageRequest.of(0, 11))).thenReturn(List.of(libroDTOResponse));
+
+        // Act
+        PaginaDTOResponse<LibroDTOResponse> pagina = libroServicio.obtenerPaginaDeLibros(cursor, 10);
+
+        // Assert
+        assertEquals(1, pagina.getContenido().size(), "Se esperaba que la página contenga 1 libro");
+        assertNull(pagina.getSiguienteCursor(), "La última página no debe devolver cursor");
+    }
+
+    @Test
+    @DisplayName("Obtener página de libros - Cursor inválido")
+    void testObtenerPaginaDeLibros_CursorInvalido() {
+        // Act & Assert
+        assertThrows(
+                PeticionInvalidaExcepcion.class,
+                () -> libroServicio.obtenerPaginaDeLibros("no-es-un-cursor", 10),
+                "Se esperaba PeticionInvalidaExcepcion con un cursor manipulado"
+        );
+        verifyNoInteractions(libroRepositorio);
+    }
+
+    @Test
+    @DisplayName("Buscar libros - Conserva el orden de relevancia y pagina por desplazamiento")
+    void testBuscarLibros_ConPaginaSiguiente() {
+        // Arrange
+        LibroDTOResponse otroLibroDTOResponse = new LibroDTOResponse();
+        otroLibroDTOResponse.setId(2L);
+        when(indiceBusqueda.buscar("garcia", 0, 3)).thenReturn(List.of(2L, 1L, 7L));
+        when(libroRepositorio.findDTOByIdIn(List.of(2L, 1L))).thenReturn(List.of(libroDTOResponse, otroLibroDTOResponse));
+
+        // Act
+        PaginaDTOResponse<LibroDTOResponse> pagina = libroServicio.buscarLibros("garcia", null, 2);
+
+        // Assert
+        assertEquals(List.of(otroLibroDTOResponse, libroDTOResponse), pagina.getContenido(), "Los libros deben seguir el orden del índice");
+        assertEquals(2, CursorPaginacion.decodificarDesplazamiento(pagina.getSiguienteCursor()), "El cursor debe saltar los resultados entregados");
+    }
+
+    @Test
+    @DisplayName("Buscar libros - Texto vacío")
+    void testBuscarLibros_TextoVacio() {
+        // Act & Assert
+        assertThrows(PeticionInvalidaExcepcion.class, () -> libroServicio.buscarLibros("  ", null, 10));
+        verifyNoInteractions(indiceBusqueda);
+    }
+
+    @Test
+    @DisplayName("Buscar libros - Un cursor de la paginación por ID no sirve")
+    void testBuscarLibros_CursorDeOtraPaginacion() {
+        // Act & Assert
+        assertThrows(PeticionInvalidaExcepcion.class, () -> libroServicio.buscarLibros("garcia", CursorPaginacion.codificar(5L), 10));
+        verifyNoInteractions(indiceBusqueda);
     }
 
     @Test
@@ -112,6 +230,110 @@ public class LibroServicioImplTest {
         verify(libroRepositorio, times(1)).findById(1L);
     }
 
+    @Test
+    @DisplayName("Obtener libro por ID en JSON - La segunda lectura sale de la caché de respuestas")
+    void testObtenerLibroSerializadoPorId_SegundaLecturaCacheada() throws Exception {
+        // Arrange
+        when(libroRepositorio.findById(1L)).thenReturn(Optional.of(libro));
+        when(libroMapper.toDTOResponse(libro)).thenReturn(libroDTOResponse);
+
+        // Act
+        byte[] primera = libroServicio.obtenerLibroSerializadoPorId(1L).json();
+        byte[] segunda = libroServicio.obtenerLibroSerializadoPorId(1L).json();
+
+        // Assert
+        assertSame(primera, segunda, "La segunda lectura debe devolver los mismos bytes ya serializados");
+        assertEquals(libroDTOResponse, new ObjectMapper().findAndRegisterModules().readValue(segunda, LibroDTOResponse.class));
+        verify(libroRepositorio, times(1)).findById(1L);
+        verify(libroMapper, times(1)).toDTOResponse(libro);
+    }
+
+    @Test
+    @DisplayName("Actualizar Libro - Invalida la respuesta cacheada")
+    void testActualizarLibro_InvalidaCache() {
+        // Arrange
+        when(libroRepositorio.findById(1L)).thenReturn(Optional.of(libro));
+        when(libroMapper.toDTOResponse(libro)).thenReturn(libroDTOResponse);
+        when(libroMapper.toEntity(libroDTORequest)).thenReturn(libro);
+        when(libroRepositorio.saveAndFlush(libro)).thenReturn(libro);
+        libroServicio.obtenerLibroPorId(1L);
+
+        // Act
+        libroServicio.actualizarLibro(1L, libroDTORequest);
+        libroServicio.obtenerLibroPorId(1L);
+
+        // Assert
+        // Una lectura antes de actualizar, otra dentro de actualizarLibro y otra tras la invalidación
+        verify(libroRepositorio, times(3)).findById(1L);
+    }
+
+    @Test
+    @DisplayName("Obtener versión del libro - Sin respuesta cacheada solo lee la versión")
+    void testObtenerVersionLibro_SinCache() {
+        // Arrange
+        when(libroRepositorio.findVersionById(1L)).thenReturn(Optional.of(4L));
+
+        // Act
+        Long version = libroServicio.obtenerVersionLibro(1L);
+
+        // Assert
+        assertEquals(4L, version);
+        verify(libroRepositorio, never()).findById(1L);
+        verifyNoInteractions(libroMapper);
+    }
+
+    @Test
+    @DisplayName("Obtener versión del libro - Con respuesta cacheada no consulta la base de datos")
+    void testObtenerVersionLibro_ConCache() {
+        // Arrange
+        libroDTOResponse.setVersion(2L);
+        when(libroRepositorio.findById(1L)).thenReturn(Optional.of(libro));
+        when(libroMapper.toDTOResponse(libro)).thenReturn(libroDTOResponse);
+        libroServicio.obtenerLibroPorId(1L);
+
+        // Act
+        Long version = libroServicio.obtenerVersionLibro(1L);
+
+        // Assert
+        assertEquals(2L, version);
+        verify(libroRepositorio, never()).findVersionById(1L);
+    }
+
+    @Test
+    @DisplayName("Actualizar Libro - If-Match con versión antigua")
+    void testActualizarLibro_VersionNoCoincide() {
+        // Arrange
+        libro.setVersion(3L);
+        when(libroRepositorio.findById(1L)).thenReturn(Optional.of(libro));
+        String versionColeccion = libroServicio.obtenerVersionColeccion();
+
+        // Act & Assert
+        PrecondicionFallidaExcepcion exception = assertThrows(
+                PrecondicionFallidaExcepcion.class,
+                () -> libroServicio.actualizarLibro(1L, libroDTORequest, Set.of(2L)),
+                "Se esperaba PrecondicionFallidaExcepcion con una versión desactualizada"
+        );
+        assertEquals("El libro con ID: 1 ha sido modificado; versión actual: 3", exception.getMessage());
+        verify(libroRepositorio, never()).saveAndFlush(any());
+        assertEquals(versionColeccion, libroServicio.obtenerVersionColeccion(), "Un rechazo no cambia la versión del catálogo");
+    }
+
+    @Test
+    @DisplayName("Guardar Libro - Cambia la versión del catálogo")
+    void testGuardarLibro_CambiaVersionColeccion() {
+        // Arrange
+        when(libroMapper.toEntity(libroDTORequest)).thenReturn(libro);
+        when(libroRepositorio.save(libro)).thenReturn(libro);
+        when(libroMapper.toDTOResponse(libro)).thenReturn(libroDTOResponse);
+        String versionColeccion = libroServicio.obtenerVersionColeccion();
+
+        // Act
+        libroServicio.guardarLibro(libroDTORequest);
+
+        // Assert
+        assertNotEquals(versionColeccion, libroServicio.obtenerVersionColeccion());
+    }
+
     @Test
     @DisplayName("Guardar Libro")
     void testGuardarLibro() {
@@ -129,6 +351,8 @@ public class LibroServicioImplTest {
         verify(libroMapper, times(1)).toEntity(libroDTORequest);
         verify(libroRepositorio, times(1)).save(libro);
         verify(libroMapper, times(1)).toDTOResponse(libro);
+        verify(indiceBusqueda, times(1)).indexar(libroDTOResponse);
+        verify(autocompletado, times(1)).libroCreado("Título", "Autor");
     }
 
     @Test
@@ -137,7 +361,7 @@ public class LibroServicioImplTest {
         // Arrange
         when(libroRepositorio.findById(1L)).thenReturn(Optional.of(libro));
         when(libroMapper.toEntity(libroDTORequest)).thenReturn(libro);
-        when(libroRepositorio.save(libro)).thenReturn(libro);
+        when(libroRepositorio.saveAndFlush(libro)).thenReturn(libro);
         when(libroMapper.toDTOResponse(libro)).thenReturn(libroDTOResponse);
 
         // Act
@@ -147,10 +371,76 @@ public class LibroServicioImplTest {
         assertNotNull(resultado, "El resultado no debería ser null");
         assertEquals(libroDTOResponse, resultado, "El DTO retornado no coincide con el esperado");
         verify(libroRepositorio, times(1)).findById(1L);
-        verify(libroRepositorio, times(1)).save(libro);
+        verify(libroRepositorio, times(1)).saveAndFlush(libro);
         verify(libroMapper, times(1)).toDTOResponse(libro);
     }
 
+    @Test
+    @DisplayName("Actualizar Libro - Pasa al autocompletado el título y el autor anteriores")
+    void testActualizarLibro_Autocompletado() {
+        // Arrange
+        Libro libroActualizado = new Libro();
+        libroActualizado.setTitulo("Título nuevo");
+        libroActualizado.setAutor("Autor");
+        LibroDTOResponse actualizadoDTOResponse = new LibroDTOResponse(1L, "Título nuevo", "Autor", null, null, 1L);
+        when(libroRepositorio.findById(1L)).thenReturn(Optional.of(libro));
+        when(libroMapper.toEntity(libroDTORequest)).thenReturn(libroActualizado);
+        when(libroRepositorio.saveAndFlush(libroActualizado)).thenReturn(libroActualizado);
+        when(libroMapper.toDTOResponse(libroActualizado)).thenReturn(actualizadoDTOResponse);
+
+        // Act
+        libroServicio.actualizarLibro(1L, libroDTORequest);
+
+        // Assert
+        verify(autocompletado, times(1)).libroModificado("Título", "Autor", "Título nuevo", "Autor");
+        verify(resumenesPrestamos, never()).libroModificado(anyLong());
+    }
+
+    @Test
+    @DisplayName("Actualizar Libro - Un cambio de autor vuelve a agregar los resúmenes de sus préstamos")
+    void testActualizarLibro_CambioDeAutor() {
+        // Arrange
+        Libro libroActualizado = new Libro();
+        libroActualizado.setTitulo("Título");
+        libroActualizado.setAutor("Otro autor");
+        when(libroRepositorio.findById(1L)).thenReturn(Optional.of(libro));
+        when(libroMapper.toEntity(libroDTORequest)).thenReturn(libroActualizado);
+        when(libroRepositorio.saveAndFlush(libroActualizado)).thenReturn(libroActualizado);
+        when(libroMapper.toDTOResponse(libroActualizado)).thenReturn(new LibroDTOResponse(1L, "Título", "Otro autor", null, null, 1L));
+
+        // Act
+        libroServicio.actualizarLibro(1L, libroDTORequest);
+
+        // Assert
+        verify(resumenesPrestamos, times(1)).libroModificado(1L);
+    }
+
+    @Test
+    @DisplayName("Autocompletar - Límite por defecto")
+    void testAutocompletar() {
+        // Arrange
+        List<SugerenciaDTOResponse> sugerencias = List.of(new SugerenciaDTOResponse("Título", SugerenciaDTOResponse.TITULO, 3L));
+        when(autocompletado.sugerir("tít", LibroServicioImpl.SUGERENCIAS_POR_DEFECTO)).thenReturn(sugerencias);
+
+        // Act
+        List<SugerenciaDTOResponse> resultado = libroServicio.autocompletar("tít", null);
+
+        // Assert
+        assertEquals(sugerencias, resultado);
+        verifyNoInteractions(libroRepositorio);
+    }
+
+    @Test
+    @DisplayName("Autocompletar - Prefijo vacío, demasiado largo o límite fuera de rango")
+    void testAutocompletar_PeticionInvalida() {
+        // Act & Assert
+        assertThrows(PeticionInvalidaExcepcion.class, () -> libroServicio.autocompletar(" ", null));
+        assertThrows(PeticionInvalidaExcepcion.class, () -> libroServicio.autocompletar("a".repeat(LibroServicioImpl.LONGITUD_MAXIMA_PREFIJO + 1), null));
+        assertThrows(PeticionInvalidaExcepcion.class, () -> libroServicio.autocompletar("a", LibroServicioImpl.SUGERENCIAS_MAXIMAS + 1));
+        assertThrows(PeticionInvalidaExcepcion.class, () -> libroServicio.autocompletar("a", 0));
+        verifyNoInteractions(autocompletado);
+    }
+
     @Test
     @DisplayName("Actualizar Libro - Libro No Existente")
     void testActualizarLibro_LibroNoExistente() {
@@ -171,21 +461,27 @@ public class LibroServicioImplTest {
     @DisplayName("Eliminar Libro - Libro Existente")
     void testEliminarLibro_LibroExistente() {
         // Arrange
-        when(libroRepositorio.existsById(1L)).thenReturn(true);
+        when(libroRepositorio.findById(1L)).thenReturn(Optional.of(libro));
 
         // Act
         libroServicio.eliminarLibro(1L);
 
         // Assert
-        verify(libroRepositorio, times(1)).existsById(1L);
+        verify(libroRepositorio, times(1)).findById(1L);
         verify(libroRepositorio, times(1)).deleteById(1L);
+        verify(estadisticasPrestamos, times(1)).libroEliminado(1L);
+        verify(resumenesPrestamos, times(1)).libroModificado(1L);
+        verify(cupoPrestamos, times(1)).libroEliminado(1L);
+        verify(indiceDisponibilidad, times(1)).recalcular(1L);
+        verify(indiceBusqueda, times(1)).eliminar(1L);
+        verify(autocompletado, times(1)).libroEliminado("Título", "Autor");
     }
 
     @Test
     @DisplayName("Eliminar Libro - Libro No Existente")
     void testEliminarLibro_LibroNoExistente() {
         // Arrange
-        when(libroRepositorio.existsById(1L)).thenReturn(false);
+        when(libroRepositorio.findById(1L)).thenReturn(Optional.empty());
 
         // Act & Assert
         RecursoNoEncontradoExcepcion exception = assertThrows(
@@ -194,6 +490,8 @@ public class LibroServicioImplTest {
                 "Se esperaba RecursoNoEncontradoExcepcion al eliminar un libro inexistente"
         );
         assertEquals("Libro no encontrado para eliminar con ID: 1", exception.getMessage());
-        verify(libroRepositorio, times(1)).existsById(1L);
+        verify(libroRepositorio, times(1)).findById(1L);
+        verify(libroRepositorio, never()).deleteById(1L);
+        verifyNoInteractions(estadisticasPrestamos, resumenesPrestamos, cupoPrestamos);
     }
 }
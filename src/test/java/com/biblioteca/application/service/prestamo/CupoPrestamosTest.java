@@ -0,0 +1,92 @@
+package com.biblioteca.application.service.prestamo;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.infrastructure.exceptions.ConflictoExcepcion;
+import com.biblioteca.infrastructure.repository.CupoUsuarioRepositorio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test del cupo de préstamos abiertos por usuario")
+public class CupoPrestamosTest {
+
+    private static final int MAXIMO = 5;
+
+    @Mock
+    private CupoUsuarioRepositorio cupoUsuarioRepositorio;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CupoPrestamos cupoPrestamos;
+
+    @BeforeEach
+    void setUp() {
+        cupoPrestamos = new CupoPrestamos(cupoUsuarioRepositorio, transactionManager, MAXIMO);
+    }
+
+    @Test
+    @DisplayName("Reservar - Con cupo libre actualiza el contador sin contar préstamos")
+    void testReservar() {
+        // Arrange
+        when(cupoUsuarioRepositorio.reservar(1L, 1, MAXIMO)).thenReturn(1);
+
+        // Act
+        cupoPrestamos.reservar(1L);
+
+        // Assert
+        verify(cupoUsuarioRepositorio, times(1)).reservar(1L, 1, MAXIMO);
+        verifyNoMoreInteractions(cupoUsuarioRepositorio);
+    }
+
+    @Test
+    @DisplayName("Reservar - Cupo agotado - Lanza ConflictoExcepcion")
+    void testReservar_CupoAgotado() {
+        // Arrange
+        when(cupoUsuarioRepositorio.reservar(1L, 1, MAXIMO)).thenReturn(0);
+
+        // Act & Assert
+        ConflictoExcepcion exception = assertThrows(ConflictoExcepcion.class, () -> cupoPrestamos.reservar(1L));
+        assertEquals("El usuario con ID: 1 ya tiene el máximo de 5 préstamos abiertos", exception.getMessage());
+    }
+
+    @Test
+    @DisplayName("Reservar varios - Concede solo los que caben")
+    void testReservarVarios_Parcial() {
+        // Arrange
+        when(cupoUsuarioRepositorio.reservar(1L, 4, MAXIMO)).thenReturn(0);
+        when(cupoUsuarioRepositorio.findAbiertosByUsuarioId(1L)).thenReturn(Optional.of(3));
+        when(cupoUsuarioRepositorio.reservar(1L, 2, MAXIMO)).thenReturn(1);
+
+        // Act & Assert
+        assertEquals(2, cupoPrestamos.reservar(1L, 4));
+    }
+
+    @Test
+    @DisplayName("Reservar varios - Sin cupo ni fila del usuario no concede ninguno")
+    void testReservarVarios_SinCupo() {
+        // Arrange
+        when(cupoUsuarioRepositorio.reservar(1L, 3, MAXIMO)).thenReturn(0);
+        when(cupoUsuarioRepositorio.findAbiertosByUsuarioId(1L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertEquals(0, cupoPrestamos.reservar(1L, 3));
+        verify(cupoUsuarioRepositorio, times(1)).reservar(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Constructor - Máximo inválido - Lanza IllegalArgumentException")
+    void testMaximoInvalido() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new CupoPrestamos(cupoUsuarioRepositorio, transactionManager, 0));
+    }
+}
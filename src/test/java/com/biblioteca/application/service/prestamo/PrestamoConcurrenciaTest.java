@@ -0,0 +1,206 @@
+package com.biblioteca.application.service.prestamo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.biblioteca.application.service.libro.LibroServicio;
+import com.biblioteca.application.service.usuario.UsuarioServicio;
+import com.biblioteca.infrastructure.controllers.libro.dto.LibroDTORequest;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTORequest;
+import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTORequest;
+import com.biblioteca.infrastructure.exceptions.ConflictoExcepcion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Espera de conexión corta: una alta que retuviera su conexión mientras espera a otra agotaría el pool enseguida
+@SpringBootTest(properties = {"spring.datasource.url=jdbc:h2:mem:concurrencia_db;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.connection-timeout=5000"})
+@DisplayName("Test de concurrencia de las altas de préstamos")
+public class PrestamoConcurrenciaTest {
+
+    private static final int LIBROS = 8;
+    private static final int MOSTRADORES = 16; // Altas simultáneas del mismo libro, cada una de un usuario distinto
+
+    @Autowired
+    private PrestamoServicio prestamoServicio;
+
+    @Autowired
+    private LibroServicio libroServicio;
+
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    @Test
+    @DisplayName("Guardar Prestamo - Altas simultáneas del mismo libro: una sola queda abierta y el resto recibe 409")
+    void testGuardarPrestamo_SinPrestamosDobles() throws Exception {
+        // Arrange
+        long ejecucion = System.nanoTime();
+        List<Long> libros = new ArrayList<>();
+        for (int i = 0; i < LIBROS; i++) {
+            libros.add(libroServicio.guardarLibro(new LibroDTORequest("Libro concurrente " + i, "Autor concurrente",
+                    "concurrencia-" + ejecucion + "-" + i, LocalDate.of(2000, 1, 1))).getId());
+        }
+        List<Long> usuarios = new ArrayList<>();
+        for (int i = 0; i < MOSTRADORES; i++) {
+            usuarios.add(usuarioServicio.guardarUsuario(new UsuarioDTORequest("Mostrador " + i,
+                    "mostrador-" + ejecucion + "-" + i + "@correo.example", "600-000-000", LocalDate.now())).getId());
+        }
+
+        // Act: todas las altas esperan a la misma señal para chocar de verdad
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Boolean>> altas = new ArrayList<>();
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Long libroId : libros) {
+                for (Long usuarioId : usuarios) {
+                    altas.add(hilos.submit(() -> {
+                        salida.await();
+                        try {
+                            prestamoServicio.guardarPrestamo(new PrestamoDTORequest(libroId, usuarioId, LocalDate.now(), null));
+                            return true;
+                        } catch (ConflictoExcepcion e) {
+                            return false;
+                        }
+                    }));
+                }
+            }
+            salida.countDown();
+        }
+
+        // Assert
+        int concedidas = 0;
+        for (Future<Boolean> alta : altas) {
+            // Cualquier error distinto de ConflictoExcepcion hace fallar get()
+            if (alta.get()) {
+                concedidas++;
+            }
+        }
+        assertEquals(LIBROS, concedidas, "Se esperaba exactamente un préstamo concedido por libro");
+        for (Long libroId : libros) {
+            Integer abiertos = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM prestamos WHERE libro_id = ? AND fecha_devolucion IS NULL", Integer.class, libroId);
+            assertEquals(1, abiertos, "El libro " + libroId + " no puede tener más de un préstamo abierto");
+        }
+    }
+
+    @Test
+    @DisplayName("Guardar Prestamo - Más altas de un mismo libro que conexiones: no frenan las de otros libros")
+    void testGuardarPrestamo_LibroMuyPedidoNoAgotaConexiones() throws Exception {
+        // Arrange: el triple de altas del libro muy pedido que conexiones tiene el pool, y un libro más por conexión
+        long ejecucion = System.nanoTime();
+        int conexiones = dataSource.getMaximumPoolSize();
+        Long libroMuyPedido = libroServicio.guardarLibro(new LibroDTORequest("Libro muy pedido", "Autor concurrente",
+                "muy-pedido-" + ejecucion, LocalDate.of(2000, 1, 1))).getId();
+        List<Long> otrosLibros = new ArrayList<>();
+        for (int i = 0; i < conexiones; i++) {
+            otrosLibros.add(libroServicio.guardarLibro(new LibroDTORequest("Libro tranquilo " + i, "Autor concurrente",
+                    "tranquilo-" + ejecucion + "-" + i, LocalDate.of(2000, 1, 1))).getId());
+        }
+        List<Long> usuarios = new ArrayList<>();
+        for (int i = 0; i < 3 * conexiones + otrosLibros.size(); i++) {
+            usuarios.add(usuarioServicio.guardarUsuario(new UsuarioDTORequest("Socio " + i,
+                    "socio-" + ejecucion + "-" + i + "@correo.example", "600-000-000", LocalDate.now())).getId());
+        }
+
+        // Act
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<Boolean>> muyPedido = new ArrayList<>();
+        List<Future<Boolean>> otros = new ArrayList<>();
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 3 * conexiones; i++) {
+                muyPedido.add(hilos.submit(alta(salida, libroMuyPedido, usuarios.get(i))));
+            }
+            for (int i = 0; i < otrosLibros.size(); i++) {
+                otros.add(hilos.submit(alta(salida, otrosLibros.get(i), usuarios.get(3 * conexiones + i))));
+            }
+            salida.countDown();
+        }
+
+        // Assert: cualquier error distinto de ConflictoExcepcion (por ejemplo, sin conexión a tiempo) hace fallar get()
+        int concedidas = 0;
+        for (Future<Boolean> alta : muyPedido) {
+            if (alta.get()) {
+                concedidas++;
+            }
+        }
+        assertEquals(1, concedidas, "Se esperaba un solo préstamo concedido del libro muy pedido");
+        for (Future<Boolean> alta : otros) {
+            assertTrue(alta.get(), "Las altas de otros libros no compiten con las del libro muy pedido");
+        }
+    }
+
+    private Callable<Boolean> alta(CountDownLatch salida, Long libroId, Long usuarioId) {
+        return () -> {
+            salida.await();
+            try {
+                prestamoServicio.guardarPrestamo(new PrestamoDTORequest(libroId, usuarioId, LocalDate.now(), null));
+                return true;
+            } catch (ConflictoExcepcion e) {
+                return false;
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Guardar Prestamo - Primeros préstamos devueltos simultáneos: ninguno falla y los contadores de estadísticas cuadran")
+    void testGuardarPrestamo_PrimerasFilasDeEstadisticas() throws Exception {
+        // Arrange: libros y usuarios sin préstamos, así que ninguno tiene aún fila de estadísticas
+        long ejecucion = System.nanoTime();
+        List<Long> libros = new ArrayList<>();
+        for (int i = 0; i < LIBROS; i++) {
+            libros.add(libroServicio.guardarLibro(new LibroDTORequest("Libro estadísticas " + i, "Autor estadísticas",
+                    "estadisticas-" + ejecucion + "-" + i, LocalDate.of(2000, 1, 1))).getId());
+        }
+        List<Long> usuarios = new ArrayList<>();
+        for (int i = 0; i < MOSTRADORES; i++) {
+            usuarios.add(usuarioServicio.guardarUsuario(new UsuarioDTORequest("Lector " + i,
+                    "lector-" + ejecucion + "-" + i + "@correo.example", "600-000-000", LocalDate.now())).getId());
+        }
+
+        // Act: préstamos ya devueltos, que no se serializan por libro ni por cupo
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> altas = new ArrayList<>();
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Long libroId : libros) {
+                for (Long usuarioId : usuarios) {
+                    altas.add(hilos.submit(() -> {
+                        salida.await();
+                        return prestamoServicio.guardarPrestamo(new PrestamoDTORequest(libroId, usuarioId,
+                                LocalDate.now().minusDays(10), LocalDate.now().minusDays(3)));
+                    }));
+                }
+            }
+            salida.countDown();
+        }
+
+        // Assert
+        for (Future<?> alta : altas) {
+            alta.get(); // Una clave duplicada en las estadísticas haría fallar get()
+        }
+        for (Long libroId : libros) {
+            assertEquals((long) MOSTRADORES, jdbcTemplate.queryForObject(
+                    "SELECT prestamos FROM estadisticas_libros WHERE libro_id = ?", Long.class, libroId));
+        }
+        for (Long usuarioId : usuarios) {
+            assertEquals((long) LIBROS, jdbcTemplate.queryForObject(
+                    "SELECT prestamos FROM estadisticas_usuarios WHERE usuario_id = ?", Long.class, usuarioId));
+        }
+    }
+}
@@ -3,28 +3,51 @@ package com.biblioteca.application.service.prestamo;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import com.biblioteca.application.service.archivo.ArchivoPrestamos;
+import com.biblioteca.application.service.busqueda.AutocompletadoLibros;
+import com.biblioteca.application.service.cache.CacheRespuestas;
+import com.biblioteca.application.service.cache.VersionColecciones;
+import com.biblioteca.application.service.disponibilidad.IndiceDisponibilidad;
+import com.biblioteca.application.service.estadisticas.EstadisticasPrestamos;
+import com.biblioteca.application.service.estadisticas.ResumenesPrestamos;
+import com.biblioteca.application.service.paginacion.CursorPaginacion;
+import com.biblioteca.application.service.vencidos.DeteccionVencidos;
 import com.biblioteca.domain.entity.Libro;
 import com.biblioteca.domain.entity.Prestamo;
 import com.biblioteca.domain.entity.Usuario;
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.FiltroPrestamosDTORequest;
 import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTORequest;
 import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.ResultadoLotePrestamoDTOResponse;
 import com.biblioteca.infrastructure.controllers.prestamo.mapper.PrestamoMapper;
+import com.biblioteca.infrastructure.exceptions.ConflictoExcepcion;
+import com.biblioteca.infrastructure.exceptions.PeticionInvalidaExcepcion;
 import com.biblioteca.infrastructure.exceptions.RecursoNoEncontradoExcepcion;
 import com.biblioteca.infrastructure.repository.LibroRepositorio;
 import com.biblioteca.infrastructure.repository.PrestamoRepositorio;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorioBusqueda.Orden;
+import com.biblioteca.infrastructure.repository.ReferenciasPrestamo;
 import com.biblioteca.infrastructure.repository.UsuarioRepositorio;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @ExtendWith(MockitoExtension.class)
 @DisplayName("Test Unitarios para PrestamoServicioImpl")
@@ -42,6 +65,33 @@ public class PrestamoServicioImplTest {
     @Mock
     private PrestamoMapper prestamoMapper;
 
+    @Spy
+    private CacheRespuestas cacheRespuestas = new CacheRespuestas(new ObjectMapper().findAndRegisterModules(), 100, Duration.ofMinutes(1));
+
+    @Spy
+    private VersionColecciones versionColecciones = new VersionColecciones();
+
+    @Mock
+    private IndiceDisponibilidad indiceDisponibilidad;
+
+    @Mock
+    private AutocompletadoLibros autocompletado;
+
+    @Mock
+    private CupoPrestamos cupoPrestamos;
+
+    @Mock
+    private EstadisticasPrestamos estadisticasPrestamos;
+
+    @Mock
+    private ResumenesPrestamos resumenesPrestamos;
+
+    @Mock
+    private ArchivoPrestamos archivoPrestamos;
+
+    @Mock
+    private DeteccionVencidos deteccionVencidos;
+
     @InjectMocks
     private PrestamoServicioImpl prestamoServicio;
 
@@ -59,7 +109,12 @@ public class PrestamoServicioImplTest {
         libro.setTitulo("El Quijote");
         libro.setAutor("Miguel de Cervantes");
         libro.setFechaPublicacion(LocalDate.of(1605, 1, 1));
-        usuario = new Usuario(1L, "Juan", "juan@example.com", "123456789", LocalDate.of(2020, 5, 20));
+        usuario = new Usuario();
+        usuario.setId(1L);
+        usuario.setNombre("Juan");
+        usuario.setEmail("juan@example.com");
+        usuario.setTelefono("123456789");
+        usuario.setFechaRegistro(LocalDate.of(2020, 5, 20));
 
         prestamo = new Prestamo();
         prestamo.setId(1L);
@@ -88,9 +143,8 @@ public class PrestamoServicioImplTest {
     @DisplayName("Obtener todos los prestamos - Éxito")
     void testObtenerTodosLosPrestamos() {
         // Arrange
-        List<Prestamo> prestamos = Arrays.asList(prestamo);
-        when(prestamoRepositorio.findAll()).thenReturn(prestamos);
-        when(prestamoMapper.toDTOResponse(prestamo)).thenReturn(prestamoDTOResponse);
+        List<PrestamoDTOResponse> prestamos = Arrays.asList(prestamoDTOResponse);
+        when(prestamoRepositorio.findAllAsDTO()).thenReturn(prestamos);
 
         // Act
         List<PrestamoDTOResponse> resultado = prestamoServicio.obtenerTodosLosPrestamos();
@@ -100,16 +154,114 @@ public class PrestamoServicioImplTest {
         assertFalse(resultado.isEmpty(), "La lista de préstamos no debería estar vacía");
         assertEquals(1, resultado.size(), "Se esperaba una lista con 1 préstamo");
         assertEquals(prestamoDTOResponse, resultado.get(0), "El DTO retornado no coincide con el esperado");
-        verify(prestamoRepositorio, times(1)).findAll();
-        verify(prestamoMapper, times(1)).toDTOResponse(prestamo);
+        verify(prestamoRepositorio, times(1)).findAllAsDTO();
+        verify(prestamoRepositorio, never()).findAll();
+        verifyNoInteractions(prestamoMapper);
+    }
+
+    @Test
+    @DisplayName("Exportar prestamos - Entrega cada préstamo al consumidor")
+    void testExportarPrestamos() {
+        // Arrange
+        when(prestamoRepositorio.streamAllAsDTO()).thenReturn(Stream.of(prestamoDTOResponse));
+        List<PrestamoDTOResponse> exportados = new ArrayList<>();
+
+        // Act
+        prestamoServicio.exportarPrestamos(exportados::add);
+
+        // Assert
+        assertEquals(List.of(prestamoDTOResponse), exportados, "Se esperaba que se exportara el préstamo");
+        verify(prestamoRepositorio, times(1)).streamAllAsDTO();
+        verify(prestamoRepositorio, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Exportar prestamos - Intercala por ID los archivados y, si uno está en los dos sitios, entrega el de la tabla")
+    void testExportarPrestamos_ConArchivados() {
+        // Arrange
+        PrestamoDTOResponse reciente = new PrestamoDTOResponse(9L, 2L, 1L, LocalDate.of(2024, 3, 1), null, 1L);
+        PrestamoDTOResponse archivado = new PrestamoDTOResponse(3L, 2L, 1L, LocalDate.of(2021, 3, 1), LocalDate.of(2021, 3, 15), 0L);
+        PrestamoDTOResponse copiaArchivada = new PrestamoDTOResponse(9L, 2L, 1L, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 5), 0L);
+        when(prestamoRepositorio.streamAllAsDTO()).thenReturn(Stream.of(prestamoDTOResponse, reciente));
+        when(archivoPrestamos.recorrer()).thenReturn(Stream.of(archivado, copiaArchivada));
+        List<PrestamoDTOResponse> exportados = new ArrayList<>();
+
+        // Act
+        prestamoServicio.exportarPrestamos(exportados::add);
+
+        // Assert
+        assertEquals(List.of(prestamoDTOResponse, archivado, reciente), exportados);
+    }
+
+    @Test
+    @DisplayName("Buscar prestamos - Sin rango de fechas pagina por ID")
+    void testBuscarPrestamos_PorId() {
+        // Arrange
+        FiltroPrestamosDTORequest filtro = new FiltroPrestamosDTORequest(1L, null, null, null, null, null, true);
+        PrestamoDTOResponse otroPrestamoDTOResponse = new PrestamoDTOResponse(7L, 2L, 1L, LocalDate.of(2023, 3, 1), null, 0L);
+        when(prestamoRepositorio.buscar(filtro, Orden.ID, null, 0L, 2)).thenReturn(List.of(prestamoDTOResponse, otroPrestamoDTOResponse));
+
+        // Act
+        PaginaDTOResponse<PrestamoDTOResponse> pagina = prestamoServicio.buscarPrestamos(filtro, null, 1);
+
+        // Assert
+        assertEquals(List.of(prestamoDTOResponse), pagina.getContenido());
+        assertEquals(CursorPaginacion.codificar(1L), pagina.getSiguienteCursor(), "El cursor continúa tras el último ID entregado");
+    }
+
+    @Test
+    @DisplayName("Buscar prestamos - Con rango de devolución pagina por (fecha de devolución, ID)")
+    void testBuscarPrestamos_PorFechaDevolucion() {
+        // Arrange
+        FiltroPrestamosDTORequest filtro = new FiltroPrestamosDTORequest(null, null, null, null, LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 7), null);
+        String cursor = CursorPaginacion.codificar(LocalDate.of(2023, 2, 1), 5L);
+        when(prestamoRepositorio.buscar(filtro, Orden.FECHA_DEVOLUCION, LocalDate.of(2023, 2, 1), 5L, 51)).thenReturn(List.of(prestamoDTOResponse));
+
+        // Act
+        PaginaDTOResponse<PrestamoDTOResponse> pagina = prestamoServicio.buscarPrestamos(filtro, cursor, null);
+
+        // Assert
+        assertEquals(List.of(prestamoDTOResponse), pagina.getContenido());
+        assertNull(pagina.getSiguienteCursor(), "No quedan más préstamos");
+    }
+
+    @Test
+    @DisplayName("Buscar prestamos - Combina la página de la tabla con la del archivo en el orden del listado")
+    void testBuscarPrestamos_ConArchivados() {
+        // Arrange
+        FiltroPrestamosDTORequest filtro = new FiltroPrestamosDTORequest(1L, null, null, null, null, null, null);
+        PrestamoDTOResponse reciente = new PrestamoDTOResponse(7L, 2L, 1L, LocalDate.of(2024, 3, 1), null, 0L);
+        PrestamoDTOResponse archivado = new PrestamoDTOResponse(4L, 3L, 1L, LocalDate.of(2021, 5, 1), LocalDate.of(2021, 5, 20), 0L);
+        when(prestamoRepositorio.buscar(filtro, Orden.ID, null, 0L, 3)).thenReturn(List.of(prestamoDTOResponse, reciente));
+        when(archivoPrestamos.buscar(filtro, Orden.ID, null, 0L, 3)).thenReturn(List.of(archivado));
+
+        // Act
+        PaginaDTOResponse<PrestamoDTOResponse> pagina = prestamoServicio.buscarPrestamos(filtro, null, 2);
+
+        // Assert
+        assertEquals(List.of(prestamoDTOResponse, archivado), pagina.getContenido());
+        assertEquals(CursorPaginacion.codificar(4L), pagina.getSiguienteCursor());
+    }
+
+    @Test
+    @DisplayName("Buscar prestamos - Rango invertido o cursor de otro orden")
+    void testBuscarPrestamos_PeticionInvalida() {
+        // Arrange
+        FiltroPrestamosDTORequest rangoInvertido = new FiltroPrestamosDTORequest(null, null, LocalDate.of(2023, 2, 1), LocalDate.of(2023, 1, 1), null, null, null);
+        FiltroPrestamosDTORequest porFecha = new FiltroPrestamosDTORequest(null, null, LocalDate.of(2023, 1, 1), null, null, null, null);
+
+        // Act & Assert
+        assertThrows(PeticionInvalidaExcepcion.class, () -> prestamoServicio.buscarPrestamos(rangoInvertido, null, null));
+        assertThrows(PeticionInvalidaExcepcion.class, () -> prestamoServicio.buscarPrestamos(porFecha, CursorPaginacion.codificar(5L), null),
+                "Un cursor por ID no sirve para un listado ordenado por fecha");
+        verify(prestamoRepositorio, never()).buscar(any(), any(), any(), anyLong(), anyInt());
     }
 
     @Test
     @DisplayName("Obtener prestamo por ID - Prestamo Existente - Éxito")
     void testObtenerPrestamoPorId_PrestamoExistente() {
         // Arrange
-        when(prestamoRepositorio.findById(1L)).thenReturn(Optional.of(prestamo));
-        when(prestamoMapper.toDTOResponse(prestamo)).thenReturn(prestamoDTOResponse);
+        when(prestamoRepositorio.findDTOById(1L)).thenReturn(Optional.of(prestamoDTOResponse));
 
         // Act
         Optional<PrestamoDTOResponse> resultado = prestamoServicio.obtenerPrestamoPorId(1L);
@@ -117,15 +269,15 @@ public class PrestamoServicioImplTest {
         // Assert
         assertTrue(resultado.isPresent(), "Se esperaba que el préstamo existiera");
         assertEquals(prestamoDTOResponse, resultado.get(), "El DTO retornado no coincide con el esperado");
-        verify(prestamoRepositorio, times(1)).findById(1L);
-        verify(prestamoMapper, times(1)).toDTOResponse(prestamo);
+        verify(prestamoRepositorio, times(1)).findDTOById(1L);
+        verifyNoInteractions(prestamoMapper);
     }
 
     @Test
     @DisplayName("Obtener prestamo por ID - Prestamo No Existente - Lanza RecursoNoEncontradoExcepcion")
     void testObtenerPrestamoPorId_PrestamoNoExistente() {
         // Arrange
-        when(prestamoRepositorio.findById(1L)).thenReturn(Optional.empty());
+        when(prestamoRepositorio.findDTOById(1L)).thenReturn(Optional.empty());
 
         // Act & Assert
         RecursoNoEncontradoExcepcion exception = assertThrows(
@@ -134,7 +286,79 @@ public class PrestamoServicioImplTest {
                 "Se esperaba RecursoNoEncontradoExcepcion al buscar un préstamo inexistente"
         );
         assertEquals("Prestamo no encontrado con ID: 1", exception.getMessage());
-        verify(prestamoRepositorio, times(1)).findById(1L);
+        verify(prestamoRepositorio, times(1)).findDTOById(1L);
+    }
+
+    @Test
+    @DisplayName("Obtener prestamo por ID - Prestamo Archivado - Se lee del archivo")
+    void testObtenerPrestamoPorId_PrestamoArchivado() {
+        // Arrange
+        when(prestamoRepositorio.findDTOById(1L)).thenReturn(Optional.empty());
+        when(archivoPrestamos.buscarPorId(1L)).thenReturn(Optional.of(prestamoDTOResponse));
+
+        // Act
+        Optional<PrestamoDTOResponse> resultado = prestamoServicio.obtenerPrestamoPorId(1L);
+
+        // Assert
+        assertEquals(Optional.of(prestamoDTOResponse), resultado);
+    }
+
+    @Test
+    @DisplayName("Obtener versión del prestamo - Sin respuesta cacheada solo lee la versión")
+    void testObtenerVersionPrestamo_SinCache() {
+        // Arrange
+        when(prestamoRepositorio.findVersionById(1L)).thenReturn(Optional.of(4L));
+
+        // Act
+        Long version = prestamoServicio.obtenerVersionPrestamo(1L);
+
+        // Assert
+        assertEquals(4L, version);
+        verify(prestamoRepositorio, never()).findDTOById(1L);
+        verifyNoInteractions(archivoPrestamos);
+    }
+
+    @Test
+    @DisplayName("Obtener versión del prestamo - Con respuesta cacheada no consulta la base de datos")
+    void testObtenerVersionPrestamo_ConCache() {
+        // Arrange
+        prestamoDTOResponse.setVersion(2L);
+        when(prestamoRepositorio.findDTOById(1L)).thenReturn(Optional.of(prestamoDTOResponse));
+        prestamoServicio.obtenerPrestamoPorId(1L);
+
+        // Act
+        Long version = prestamoServicio.obtenerVersionPrestamo(1L);
+
+        // Assert
+        assertEquals(2L, version);
+        verify(prestamoRepositorio, never()).findVersionById(1L);
+    }
+
+    @Test
+    @DisplayName("Obtener versión del prestamo - Prestamo Archivado - Se lee del archivo")
+    void testObtenerVersionPrestamo_PrestamoArchivado() {
+        // Arrange
+        prestamoDTOResponse.setVersion(3L);
+        when(prestamoRepositorio.findVersionById(1L)).thenReturn(Optional.empty());
+        when(archivoPrestamos.buscarPorId(1L)).thenReturn(Optional.of(prestamoDTOResponse));
+
+        // Act & Assert
+        assertEquals(3L, prestamoServicio.obtenerVersionPrestamo(1L));
+    }
+
+    @Test
+    @DisplayName("Obtener versión del prestamo - Prestamo No Existente")
+    void testObtenerVersionPrestamo_PrestamoNoExistente() {
+        // Arrange
+        when(prestamoRepositorio.findVersionById(1L)).thenReturn(Optional.empty());
+        when(archivoPrestamos.buscarPorId(1L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        RecursoNoEncontradoExcepcion exception = assertThrows(
+                RecursoNoEncontradoExcepcion.class,
+                () -> prestamoServicio.obtenerVersionPrestamo(1L)
+        );
+        assertEquals("Prestamo no encontrado con ID: 1", exception.getMessage());
     }
 
     @Test
@@ -157,6 +381,53 @@ public class PrestamoServicioImplTest {
         verify(usuarioRepositorio, times(1)).findById(usuario.getId());
         verify(prestamoRepositorio, times(1)).save(prestamo);
         verify(prestamoMapper, times(1)).toDTOResponse(prestamo);
+        verify(indiceDisponibilidad, times(1)).recalcular(libro.getId());
+        verify(autocompletado, times(1)).libroPrestado("El Quijote", "Miguel de Cervantes");
+        verify(estadisticasPrestamos, times(1)).prestamoCreado(libro.getId(), usuario.getId());
+        verify(resumenesPrestamos, times(1)).prestamosModificados(List.of(LocalDate.of(2023, 1, 1)));
+        verifyNoInteractions(cupoPrestamos); // Préstamo ya devuelto: no ocupa cupo
+    }
+
+    @Test
+    @DisplayName("Guardar Prestamo - Cupo del usuario agotado - Lanza ConflictoExcepcion")
+    void testGuardarPrestamo_CupoAgotado() {
+        // Arrange
+        prestamoDTORequest.setFechaDevolucion(null);
+        when(libroRepositorio.findById(libro.getId())).thenReturn(Optional.of(libro));
+        when(usuarioRepositorio.findById(usuario.getId())).thenReturn(Optional.of(usuario));
+        doThrow(new ConflictoExcepcion("El usuario con ID: 1 ya tiene el máximo de 10 préstamos abiertos"))
+                .when(cupoPrestamos).reservar(usuario.getId());
+
+        // Act & Assert
+        ConflictoExcepcion exception = assertThrows(
+                ConflictoExcepcion.class,
+                () -> prestamoServicio.guardarPrestamo(prestamoDTORequest),
+                "Se esperaba ConflictoExcepcion con el cupo agotado"
+        );
+        assertEquals("El usuario con ID: 1 ya tiene el máximo de 10 préstamos abiertos", exception.getMessage());
+        verify(prestamoRepositorio, never()).save(any());
+        verifyNoInteractions(indiceDisponibilidad);
+    }
+
+    @Test
+    @DisplayName("Guardar Prestamo - Libro con un préstamo abierto - Lanza ConflictoExcepcion")
+    void testGuardarPrestamo_LibroYaPrestado() {
+        // Arrange
+        prestamoDTORequest.setFechaDevolucion(null);
+        when(libroRepositorio.findById(libro.getId())).thenReturn(Optional.of(libro));
+        when(usuarioRepositorio.findById(usuario.getId())).thenReturn(Optional.of(usuario));
+        when(prestamoRepositorio.existsByLibroIdAndFechaDevolucionIsNull(libro.getId())).thenReturn(true);
+
+        // Act & Assert
+        ConflictoExcepcion exception = assertThrows(
+                ConflictoExcepcion.class,
+                () -> prestamoServicio.guardarPrestamo(prestamoDTORequest),
+                "Se esperaba ConflictoExcepcion con el libro ya prestado"
+        );
+        assertEquals("El libro con ID: 1 ya tiene un préstamo abierto", exception.getMessage());
+        // La comprobación va antes de consumir cupo
+        verify(prestamoRepositorio, never()).save(any());
+        verifyNoInteractions(cupoPrestamos);
     }
 
     @Test
@@ -204,6 +475,156 @@ public class PrestamoServicioImplTest {
     }
 
 
+    @Test
+    @DisplayName("Guardar Prestamos en Lote - Resultado por elemento")
+    void testGuardarPrestamosEnLote() {
+        // Arrange
+        PrestamoDTORequest prestamoLibroInexistente = new PrestamoDTORequest(99L, usuario.getId(), LocalDate.of(2023, 1, 1), null);
+        when(libroRepositorio.findAllById(anyIterable())).thenReturn(List.of(libro));
+        when(usuarioRepositorio.findAllById(anyIterable())).thenReturn(List.of(usuario));
+        when(prestamoMapper.toEntity(prestamoDTORequest)).thenReturn(prestamo);
+        when(prestamoRepositorio.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(prestamoMapper.toDTOResponse(prestamo)).thenReturn(prestamoDTOResponse);
+
+        // Act
+        List<ResultadoLotePrestamoDTOResponse> resultados = prestamoServicio.guardarPrestamosEnLote(List.of(prestamoDTORequest, prestamoLibroInexistente));
+
+        // Assert
+        assertEquals(2, resultados.size(), "Se esperaba un resultado por préstamo enviado");
+        assertEquals(prestamoDTOResponse, resultados.get(0).getPrestamo(), "El primer préstamo debería haberse creado");
+        assertNull(resultados.get(0).getError());
+        assertNull(resultados.get(1).getPrestamo(), "El segundo préstamo debería haberse rechazado");
+        assertEquals("Libro no encontrado con ID: 99 para préstamo", resultados.get(1).getError());
+        verify(libroRepositorio, times(1)).findAllById(anyIterable());
+        verify(usuarioRepositorio, times(1)).findAllById(anyIterable());
+        verify(libroRepositorio, never()).findById(anyLong());
+        verify(prestamoRepositorio, times(1)).saveAll(List.of(prestamo));
+        verify(estadisticasPrestamos, times(1)).prestamosCreados(List.of(prestamo));
+        verify(indiceDisponibilidad, times(1)).recalcular(Set.of(libro.getId()));
+        verify(autocompletado, times(1)).libroPrestado("El Quijote", "Miguel de Cervantes");
+    }
+
+    @Test
+    @DisplayName("Guardar Prestamos en Lote - Los préstamos abiertos que no caben en el cupo se rechazan")
+    void testGuardarPrestamosEnLote_CupoAgotado() {
+        // Arrange
+        Libro otroLibro = new Libro();
+        otroLibro.setId(2L);
+        PrestamoDTORequest primero = new PrestamoDTORequest(libro.getId(), usuario.getId(), LocalDate.of(2023, 1, 1), null);
+        PrestamoDTORequest segundo = new PrestamoDTORequest(otroLibro.getId(), usuario.getId(), LocalDate.of(2023, 1, 2), null);
+        when(libroRepositorio.findAllById(anyIterable())).thenReturn(List.of(libro, otroLibro));
+        when(usuarioRepositorio.findAllById(anyIterable())).thenReturn(List.of(usuario));
+        when(cupoPrestamos.reservar(usuario.getId(), 2)).thenReturn(1);
+        when(cupoPrestamos.mensajeCupoAgotado(usuario.getId())).thenReturn("El usuario con ID: 1 ya tiene el máximo de 10 préstamos abiertos");
+        when(prestamoMapper.toEntity(primero)).thenReturn(prestamo);
+        when(prestamoRepositorio.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(prestamoMapper.toDTOResponse(prestamo)).thenReturn(prestamoDTOResponse);
+
+        // Act
+        List<ResultadoLotePrestamoDTOResponse> resultados = prestamoServicio.guardarPrestamosEnLote(List.of(primero, segundo));
+
+        // Assert
+        assertEquals(prestamoDTOResponse, resultados.get(0).getPrestamo());
+        assertNull(resultados.get(1).getPrestamo(), "El segundo préstamo no cabe en el cupo");
+        assertEquals("El usuario con ID: 1 ya tiene el máximo de 10 préstamos abiertos", resultados.get(1).getError());
+        verify(cupoPrestamos, times(1)).reservar(usuario.getId(), 2); // Una sola reserva por usuario
+        verify(prestamoRepositorio, times(1)).saveAll(List.of(prestamo));
+    }
+
+    @Test
+    @DisplayName("Guardar Prestamos en Lote - El cupo se reserva en orden de ID de usuario, no en el del lote")
+    void testGuardarPrestamosEnLote_CupoEnOrdenDeUsuario() {
+        // Arrange
+        Libro otroLibro = new Libro();
+        otroLibro.setId(2L);
+        Usuario otroUsuario = new Usuario();
+        otroUsuario.setId(2L);
+        PrestamoDTORequest deOtroUsuario = new PrestamoDTORequest(otroLibro.getId(), otroUsuario.getId(), LocalDate.of(2023, 1, 1), null);
+        PrestamoDTORequest deUsuario = new PrestamoDTORequest(libro.getId(), usuario.getId(), LocalDate.of(2023, 1, 1), null);
+        when(libroRepositorio.findAllById(anyIterable())).thenReturn(List.of(libro, otroLibro));
+        when(usuarioRepositorio.findAllById(anyIterable())).thenReturn(List.of(usuario, otroUsuario));
+        when(cupoPrestamos.mensajeCupoAgotado(anyLong())).thenReturn("Sin cupo");
+
+        // Act
+        prestamoServicio.guardarPrestamosEnLote(List.of(deOtroUsuario, deUsuario));
+
+        // Assert
+        InOrder orden = inOrder(cupoPrestamos);
+        orden.verify(cupoPrestamos).reservar(usuario.getId(), 1);
+        orden.verify(cupoPrestamos).reservar(otroUsuario.getId(), 1);
+    }
+
+    @Test
+    @DisplayName("Guardar Prestamos en Lote - Los INSERT van en orden de libro y cada resultado en su posición del lote")
+    void testGuardarPrestamosEnLote_InsertsEnOrdenDeLibro() {
+        // Arrange
+        Libro otroLibro = new Libro();
+        otroLibro.setId(2L);
+        PrestamoDTORequest deOtroLibro = new PrestamoDTORequest(otroLibro.getId(), usuario.getId(), LocalDate.of(2023, 1, 1), null);
+        PrestamoDTORequest deLibro = new PrestamoDTORequest(libro.getId(), usuario.getId(), LocalDate.of(2023, 1, 2), null);
+        Prestamo prestamoDeOtroLibro = new Prestamo();
+        prestamoDeOtroLibro.setId(2L);
+        Prestamo prestamoDeLibro = new Prestamo();
+        prestamoDeLibro.setId(1L);
+        PrestamoDTOResponse respuestaDeOtroLibro = new PrestamoDTOResponse();
+        respuestaDeOtroLibro.setId(2L);
+        when(libroRepositorio.findAllById(anyIterable())).thenReturn(List.of(libro, otroLibro));
+        when(usuarioRepositorio.findAllById(anyIterable())).thenReturn(List.of(usuario));
+        when(cupoPrestamos.reservar(usuario.getId(), 2)).thenReturn(2);
+        when(prestamoMapper.toEntity(deOtroLibro)).thenReturn(prestamoDeOtroLibro);
+        when(prestamoMapper.toEntity(deLibro)).thenReturn(prestamoDeLibro);
+        when(prestamoRepositorio.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(prestamoMapper.toDTOResponse(prestamoDeOtroLibro)).thenReturn(respuestaDeOtroLibro);
+        when(prestamoMapper.toDTOResponse(prestamoDeLibro)).thenReturn(prestamoDTOResponse);
+
+        // Act
+        List<ResultadoLotePrestamoDTOResponse> resultados = prestamoServicio.guardarPrestamosEnLote(List.of(deOtroLibro, deLibro));
+
+        // Assert
+        verify(prestamoRepositorio, times(1)).saveAll(List.of(prestamoDeLibro, prestamoDeOtroLibro));
+        assertEquals(respuestaDeOtroLibro, resultados.get(0).getPrestamo());
+        assertEquals(prestamoDTOResponse, resultados.get(1).getPrestamo());
+    }
+
+    @Test
+    @DisplayName("Guardar Prestamos en Lote - Un solo préstamo abierto por libro, también dentro del lote")
+    void testGuardarPrestamosEnLote_LibroYaPrestado() {
+        // Arrange
+        Libro otroLibro = new Libro();
+        otroLibro.setId(2L);
+        PrestamoDTORequest libroPrestado = new PrestamoDTORequest(otroLibro.getId(), usuario.getId(), LocalDate.of(2023, 1, 1), null);
+        PrestamoDTORequest primero = new PrestamoDTORequest(libro.getId(), usuario.getId(), LocalDate.of(2023, 1, 1), null);
+        PrestamoDTORequest repetido = new PrestamoDTORequest(libro.getId(), usuario.getId(), LocalDate.of(2023, 1, 2), null);
+        when(libroRepositorio.findAllById(anyIterable())).thenReturn(List.of(libro, otroLibro));
+        when(usuarioRepositorio.findAllById(anyIterable())).thenReturn(List.of(usuario));
+        when(prestamoRepositorio.findIdsLibrosPrestadosEntre(Set.of(libro.getId(), otroLibro.getId()))).thenReturn(List.of(otroLibro.getId()));
+        when(cupoPrestamos.reservar(usuario.getId(), 1)).thenReturn(1);
+        when(prestamoMapper.toEntity(primero)).thenReturn(prestamo);
+        when(prestamoRepositorio.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(prestamoMapper.toDTOResponse(prestamo)).thenReturn(prestamoDTOResponse);
+
+        // Act
+        List<ResultadoLotePrestamoDTOResponse> resultados = prestamoServicio.guardarPrestamosEnLote(List.of(libroPrestado, primero, repetido));
+
+        // Assert
+        assertEquals("El libro con ID: 2 ya tiene un préstamo abierto", resultados.get(0).getError());
+        assertEquals(prestamoDTOResponse, resultados.get(1).getPrestamo());
+        assertEquals("El libro con ID: 1 ya tiene un préstamo abierto", resultados.get(2).getError());
+        verify(prestamoRepositorio, times(1)).saveAll(List.of(prestamo));
+    }
+
+    @Test
+    @DisplayName("Guardar Prestamos en Lote - Lote vacío - Lanza PeticionInvalidaExcepcion")
+    void testGuardarPrestamosEnLote_LoteVacio() {
+        // Act & Assert
+        assertThrows(
+                PeticionInvalidaExcepcion.class,
+                () -> prestamoServicio.guardarPrestamosEnLote(List.of()),
+                "Se esperaba PeticionInvalidaExcepcion con un lote vacío"
+        );
+        verifyNoInteractions(prestamoRepositorio);
+    }
+
     @Test
     @DisplayName("Actualizar Prestamo - Prestamo Existente - Éxito")
     void testActualizarPrestamo_PrestamoExistente() {
@@ -212,7 +633,7 @@ public class PrestamoServicioImplTest {
         when(libroRepositorio.findById(libro.getId())).thenReturn(Optional.of(libro));
         when(usuarioRepositorio.findById(usuario.getId())).thenReturn(Optional.of(usuario));
         when(prestamoMapper.toEntity(prestamoDTORequest)).thenReturn(prestamo);
-        when(prestamoRepositorio.save(prestamo)).thenReturn(prestamo);
+        when(prestamoRepositorio.saveAndFlush(prestamo)).thenReturn(prestamo);
         when(prestamoMapper.toDTOResponse(prestamo)).thenReturn(prestamoDTOResponse);
 
         // Act
@@ -224,8 +645,55 @@ public class PrestamoServicioImplTest {
         verify(prestamoRepositorio, times(1)).findById(1L);
         verify(libroRepositorio, times(1)).findById(libro.getId());
         verify(usuarioRepositorio, times(1)).findById(usuario.getId());
-        verify(prestamoRepositorio, times(1)).save(prestamo);
+        verify(prestamoRepositorio, times(1)).saveAndFlush(prestamo);
         verify(prestamoMapper, times(1)).toDTOResponse(prestamo);
+        verify(indiceDisponibilidad, times(1)).recalcular(libro.getId()); // Mismo libro: un solo recálculo
+        verifyNoInteractions(cupoPrestamos); // Sigue devuelto: el cupo no cambia
+        verifyNoInteractions(deteccionVencidos); // Mismas fechas: la detección periódica ya lo tiene en cuenta
+    }
+
+    @Test
+    @DisplayName("Actualizar Prestamo - Devolver un préstamo abierto libera cupo")
+    void testActualizarPrestamo_Devolucion() {
+        // Arrange
+        prestamo.setFechaDevolucion(null);
+        Prestamo prestamoDevuelto = new Prestamo(1L, libro, usuario, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 2, 1), 0L);
+        when(prestamoRepositorio.findById(1L)).thenReturn(Optional.of(prestamo));
+        when(libroRepositorio.findById(libro.getId())).thenReturn(Optional.of(libro));
+        when(usuarioRepositorio.findById(usuario.getId())).thenReturn(Optional.of(usuario));
+        when(prestamoMapper.toEntity(prestamoDTORequest)).thenReturn(prestamoDevuelto);
+        when(prestamoRepositorio.saveAndFlush(prestamoDevuelto)).thenReturn(prestamoDevuelto);
+        when(prestamoMapper.toDTOResponse(prestamoDevuelto)).thenReturn(prestamoDTOResponse);
+
+        // Act
+        prestamoServicio.actualizarPrestamo(1L, prestamoDTORequest);
+
+        // Assert
+        verify(cupoPrestamos, times(1)).liberar(usuario.getId());
+        verify(cupoPrestamos, never()).reservar(anyLong());
+        verify(deteccionVencidos, times(1)).prestamoModificado(1L);
+    }
+
+    @Test
+    @DisplayName("Actualizar Prestamo - Reabrir un préstamo antiguo lo revisa como vencido en la misma transacción")
+    void testActualizarPrestamo_ReaperturaRevisaVencido() {
+        // Arrange
+        prestamoDTORequest.setFechaDevolucion(null);
+        Prestamo prestamoReabierto = new Prestamo(1L, libro, usuario, LocalDate.of(2023, 1, 1), null, 0L);
+        when(prestamoRepositorio.findById(1L)).thenReturn(Optional.of(prestamo));
+        when(libroRepositorio.findById(libro.getId())).thenReturn(Optional.of(libro));
+        when(usuarioRepositorio.findById(usuario.getId())).thenReturn(Optional.of(usuario));
+        when(prestamoMapper.toEntity(prestamoDTORequest)).thenReturn(prestamoReabierto);
+        when(prestamoRepositorio.saveAndFlush(prestamoReabierto)).thenReturn(prestamoReabierto);
+        when(prestamoMapper.toDTOResponse(prestamoReabierto)).thenReturn(prestamoDTOResponse);
+
+        // Act
+        prestamoServicio.actualizarPrestamo(1L, prestamoDTORequest);
+
+        // Assert
+        InOrder orden = inOrder(prestamoRepositorio, deteccionVencidos);
+        orden.verify(prestamoRepositorio).saveAndFlush(prestamoReabierto);
+        orden.verify(deteccionVencidos).prestamoModificado(1L);
     }
 
     @Test
@@ -293,21 +761,27 @@ public class PrestamoServicioImplTest {
     @DisplayName("Eliminar Prestamo - Prestamo Existente - Éxito")
     void testEliminarPrestamo() {
         // Arrange
-        when(prestamoRepositorio.existsById(1L)).thenReturn(true);
+        when(prestamoRepositorio.findReferenciasById(1L))
+                .thenReturn(Optional.of(new ReferenciasPrestamo(libro.getId(), usuario.getId(), LocalDate.of(2023, 1, 1))));
 
         // Act
         prestamoServicio.eliminarPrestamo(1L);
 
         // Assert
-        verify(prestamoRepositorio, times(1)).existsById(1L);
-        verify(prestamoRepositorio, times(1)).deleteById(1L);
+        verify(prestamoRepositorio, times(1)).findReferenciasById(1L);
+        verify(cupoPrestamos, times(1)).liberarPrestamo(1L);
+        verify(estadisticasPrestamos, times(1)).prestamoEliminado(libro.getId(), usuario.getId());
+        verify(resumenesPrestamos, times(1)).prestamosModificados(List.of(LocalDate.of(2023, 1, 1)));
+        verify(prestamoRepositorio, times(1)).eliminarPorId(1L);
+        verify(prestamoRepositorio, never()).deleteById(anyLong());
+        verify(indiceDisponibilidad, times(1)).recalcular(libro.getId());
     }
 
     @Test
     @DisplayName("Eliminar Prestamo - Prestamo No Existente - Lanza RecursoNoEncontradoExcepcion")
     void testEliminarPrestamo_NoExistente() {
         // Arrange
-        when(prestamoRepositorio.existsById(1L)).thenReturn(false);
+        when(prestamoRepositorio.findReferenciasById(1L)).thenReturn(Optional.empty());
 
         // Act & Assert
         RecursoNoEncontradoExcepcion exception = assertThrows(
@@ -316,6 +790,21 @@ public class PrestamoServicioImplTest {
                 "Se esperaba RecursoNoEncontradoExcepcion al eliminar un préstamo inexistente"
         );
         assertEquals("Prestamo no encontrado para eliminar con ID: 1", exception.getMessage());
-        verify(prestamoRepositorio, times(1)).existsById(1L);
+        verify(prestamoRepositorio, times(1)).findReferenciasById(1L);
+        verify(prestamoRepositorio, never()).eliminarPorId(anyLong());
+        verifyNoInteractions(indiceDisponibilidad, cupoPrestamos, estadisticasPrestamos, resumenesPrestamos);
+    }
+
+    @Test
+    @DisplayName("Eliminar Prestamo - Prestamo Archivado - Lanza ConflictoExcepcion")
+    void testEliminarPrestamo_Archivado() {
+        // Arrange
+        when(prestamoRepositorio.findReferenciasById(1L)).thenReturn(Optional.empty());
+        when(archivoPrestamos.buscarPorId(1L)).thenReturn(Optional.of(prestamoDTOResponse));
+
+        // Act & Assert
+        assertThrows(ConflictoExcepcion.class, () -> prestamoServicio.eliminarPrestamo(1L));
+        verify(prestamoRepositorio, never()).eliminarPorId(anyLong());
+        verifyNoInteractions(cupoPrestamos, estadisticasPrestamos, resumenesPrestamos);
     }
-}
\ No newline at end of file
+}
@@ -3,20 +3,29 @@ package com.biblioteca.application.service.usuario;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import com.biblioteca.application.service.cache.CacheRespuestas;
+import com.biblioteca.application.service.cache.VersionColecciones;
+import com.biblioteca.application.service.disponibilidad.IndiceDisponibilidad;
+import com.biblioteca.application.service.estadisticas.EstadisticasPrestamos;
+import com.biblioteca.application.service.estadisticas.ResumenesPrestamos;
+import com.biblioteca.application.service.prestamo.CupoPrestamos;
 import com.biblioteca.domain.entity.Usuario;
 import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTORequest;
 import com.biblioteca.infrastructure.controllers.usuario.dto.UsuarioDTOResponse;
 import com.biblioteca.infrastructure.controllers.usuario.mapper.UsuarioMapper;
 import com.biblioteca.infrastructure.exceptions.RecursoNoEncontradoExcepcion;
 import com.biblioteca.infrastructure.repository.UsuarioRepositorio;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Optional;
@@ -31,6 +40,24 @@ public class UsuarioServicioImplTest {
     @Mock
     private UsuarioMapper usuarioMapper;
 
+    @Spy
+    private CacheRespuestas cacheRespuestas = new CacheRespuestas(new ObjectMapper().findAndRegisterModules(), 100, Duration.ofMinutes(1));
+
+    @Spy
+    private VersionColecciones versionColecciones = new VersionColecciones();
+
+    @Mock
+    private IndiceDisponibilidad indiceDisponibilidad;
+
+    @Mock
+    private CupoPrestamos cupoPrestamos;
+
+    @Mock
+    private EstadisticasPrestamos estadisticasPrestamos;
+
+    @Mock
+    private ResumenesPrestamos resumenesPrestamos;
+
     @InjectMocks
     private UsuarioServicioImpl usuarioServicio;
 
@@ -68,9 +95,8 @@ public class UsuarioServicioImplTest {
     @DisplayName("Obtener todos los usuarios")
     void testObtenerTodosLosUsuarios() {
         // Arrange
-        List<Usuario> usuarios = Arrays.asList(usuario);
-        when(usuarioRepositorio.findAll()).thenReturn(usuarios);
-        when(usuarioMapper.toDTOResponse(usuario)).thenReturn(usuarioDTOResponse);
+        List<UsuarioDTOResponse> usuarios = Arrays.asList(usuarioDTOResponse);
+        when(usuarioRepositorio.findAllAsDTO()).thenReturn(usuarios);
 
         // Act
         List<UsuarioDTOResponse> resultado = usuarioServicio.obtenerTodosLosUsuarios();
@@ -80,8 +106,9 @@ public class UsuarioServicioImplTest {
         assertFalse(resultado.isEmpty(), "La lista de usuarios no debería estar vacía");
         assertEquals(1, resultado.size(), "Se esperaba una lista con 1 usuario");
         assertEquals(usuarioDTOResponse, resultado.get(0), "El DTO retornado no coincide con el esperado");
-        verify(usuarioRepositorio, times(1)).findAll();
-        verify(usuarioMapper, times(1)).toDTOResponse(usuario);
+        verify(usuarioRepositorio, times(1)).findAllAsDTO();
+        verify(usuarioRepositorio, never()).findAll();
+        verifyNoInteractions(usuarioMapper);
     }
 
 
@@ -118,6 +145,52 @@ public class UsuarioServicioImplTest {
         verify(usuarioRepositorio, times(1)).findById(1L);
     }
 
+    @Test
+    @DisplayName("Obtener versión del usuario - Sin respuesta cacheada solo lee la versión")
+    void testObtenerVersionUsuario_SinCache() {
+        // Arrange
+        when(usuarioRepositorio.findVersionById(1L)).thenReturn(Optional.of(4L));
+
+        // Act
+        Long version = usuarioServicio.obtenerVersionUsuario(1L);
+
+        // Assert
+        assertEquals(4L, version);
+        verify(usuarioRepositorio, never()).findById(1L);
+        verifyNoInteractions(usuarioMapper);
+    }
+
+    @Test
+    @DisplayName("Obtener versión del usuario - Con respuesta cacheada no consulta la base de datos")
+    void testObtenerVersionUsuario_ConCache() {
+        // Arrange
+        usuarioDTOResponse.setVersion(2L);
+        when(usuarioRepositorio.findById(1L)).thenReturn(Optional.of(usuario));
+        when(usuarioMapper.toDTOResponse(usuario)).thenReturn(usuarioDTOResponse);
+        usuarioServicio.obtenerUsuarioPorId(1L);
+
+        // Act
+        Long version = usuarioServicio.obtenerVersionUsuario(1L);
+
+        // Assert
+        assertEquals(2L, version);
+        verify(usuarioRepositorio, never()).findVersionById(1L);
+    }
+
+    @Test
+    @DisplayName("Obtener versión del usuario - Usuario No Existente")
+    void testObtenerVersionUsuario_UsuarioNoExistente() {
+        // Arrange
+        when(usuarioRepositorio.findVersionById(1L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        RecursoNoEncontradoExcepcion exception = assertThrows(
+                RecursoNoEncontradoExcepcion.class,
+                () -> usuarioServicio.obtenerVersionUsuario(1L)
+        );
+        assertEquals("Usuario no encontrado con ID: 1", exception.getMessage());
+    }
+
     @Test
     @DisplayName("Guardar Usuario")
     void testGuardarUsuario() {
@@ -134,6 +207,7 @@ public class UsuarioServicioImplTest {
         assertEquals(usuarioDTOResponse, resultado, "El DTO retornado no coincide con el esperado");
         verify(usuarioMapper, times(1)).toEntity(usuarioDTORequest);
         verify(usuarioRepositorio, times(1)).save(usuario);
+        verify(cupoPrestamos, times(1)).usuarioCreado(1L);
         verify(usuarioMapper, times(1)).toDTOResponse(usuario);
     }
 
@@ -143,7 +217,7 @@ public class UsuarioServicioImplTest {
         // Arrange
         when(usuarioRepositorio.findById(1L)).thenReturn(Optional.of(usuario));
         when(usuarioMapper.toEntity(usuarioDTORequest)).thenReturn(usuario);
-        when(usuarioRepositorio.save(usuario)).thenReturn(usuario);
+        when(usuarioRepositorio.saveAndFlush(usuario)).thenReturn(usuario);
         when(usuarioMapper.toDTOResponse(usuario)).thenReturn(usuarioDTOResponse);
 
         // Act
@@ -153,7 +227,7 @@ public class UsuarioServicioImplTest {
         assertNotNull(resultado, "El resultado no debería ser null");
         assertEquals(usuarioDTOResponse, resultado, "El DTO retornado no coincide con el esperado");
         verify(usuarioRepositorio, times(1)).findById(1L);
-        verify(usuarioRepositorio, times(1)).save(usuario);
+        verify(usuarioRepositorio, times(1)).saveAndFlush(usuario);
         verify(usuarioMapper, times(1)).toDTOResponse(usuario);
     }
 
@@ -178,6 +252,7 @@ public class UsuarioServicioImplTest {
     void testEliminarUsuario_UsuarioExistente() {
         // Arrange
         when(usuarioRepositorio.existsById(1L)).thenReturn(true);
+        when(indiceDisponibilidad.librosPrestadosA(1L)).thenReturn(List.of(3L));
 
         // Act
         usuarioServicio.eliminarUsuario(1L);
@@ -185,6 +260,10 @@ public class UsuarioServicioImplTest {
         // Assert
         verify(usuarioRepositorio, times(1)).existsById(1L);
         verify(usuarioRepositorio, times(1)).deleteById(1L);
+        verify(cupoPrestamos, times(1)).usuarioEliminado(1L);
+        verify(estadisticasPrestamos, times(1)).usuarioEliminado(1L);
+        verify(resumenesPrestamos, times(1)).usuarioEliminado(1L);
+        verify(indiceDisponibilidad, times(1)).recalcular(List.of(3L)); // Sus préstamos abiertos se borran en cascada
     }
 
     @Test
@@ -0,0 +1,132 @@
+package com.biblioteca.application.service.vencidos;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.domain.entity.PuntoControl;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorio;
+import com.biblioteca.infrastructure.repository.PrestamoVencidoRepositorio;
+import com.biblioteca.infrastructure.repository.PuntoControlRepositorio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test de la detección incremental de préstamos vencidos")
+public class DeteccionVencidosTest {
+
+    private static final LocalDate HOY = LocalDate.of(2024, 3, 10);
+    // Con 30 días de plazo, el último día de préstamo ya vencido
+    private static final LocalDate LIMITE = LocalDate.of(2024, 2, 8);
+
+    @Mock
+    private PrestamoRepositorio prestamoRepositorio;
+
+    @Mock
+    private PrestamoVencidoRepositorio prestamoVencidoRepositorio;
+
+    @Mock
+    private PuntoControlRepositorio puntoControlRepositorio;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DeteccionVencidos deteccion;
+
+    @BeforeEach
+    void setUp() {
+        deteccion = new DeteccionVencidos(prestamoRepositorio, prestamoVencidoRepositorio, puntoControlRepositorio, transactionManager,
+                new VencidosPropiedades(30, 7, 2));
+    }
+
+    @Test
+    @DisplayName("Detectar - La primera ejecución recorre por tramos desde el préstamo abierto más antiguo")
+    void testDetectar_PrimeraEjecucion() {
+        // Arrange
+        when(prestamoRepositorio.findUltimoId()).thenReturn(Optional.of(100L));
+        when(puntoControlRepositorio.findById(DeteccionVencidos.PUNTO_CONTROL)).thenReturn(Optional.empty());
+        when(prestamoRepositorio.findFechaPrimerPrestamoAbierto()).thenReturn(Optional.of(LocalDate.of(2024, 1, 15)));
+
+        // Act
+        deteccion.detectar(HOY);
+
+        // Assert
+        verify(prestamoVencidoRepositorio).insertarVencidos(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 1, 21), HOY);
+        verify(prestamoVencidoRepositorio).insertarVencidos(LocalDate.of(2024, 1, 22), LocalDate.of(2024, 1, 28), HOY);
+        verify(prestamoVencidoRepositorio).insertarVencidos(LocalDate.of(2024, 1, 29), LocalDate.of(2024, 2, 4), HOY);
+        verify(prestamoVencidoRepositorio).insertarVencidos(LocalDate.of(2024, 2, 5), LIMITE, HOY);
+        verify(prestamoVencidoRepositorio, never()).insertarVencidosPosteriores(anyLong(), any(), any());
+        // Un punto de control por cada grupo de dos tramos y otro al terminar
+        verify(puntoControlRepositorio, times(3)).save(new PuntoControl(DeteccionVencidos.PUNTO_CONTROL, LIMITE, 100L));
+        verify(prestamoVencidoRepositorio, times(1)).eliminarResueltos();
+    }
+
+    @Test
+    @DisplayName("Detectar - Continúa desde el punto de control y revisa los préstamos registrados desde entonces")
+    void testDetectar_Incremental() {
+        // Arrange
+        when(prestamoRepositorio.findUltimoId()).thenReturn(Optional.of(120L));
+        when(puntoControlRepositorio.findById(DeteccionVencidos.PUNTO_CONTROL))
+                .thenReturn(Optional.of(new PuntoControl(DeteccionVencidos.PUNTO_CONTROL, LIMITE, 100L)));
+        LocalDate manana = HOY.plusDays(1);
+
+        // Act
+        deteccion.detectar(manana);
+
+        // Assert
+        verify(prestamoVencidoRepositorio, times(1)).insertarVencidosPosteriores(100L, LIMITE, manana);
+        verify(prestamoVencidoRepositorio, times(1)).insertarVencidos(LIMITE.plusDays(1), LIMITE.plusDays(1), manana);
+        verify(prestamoRepositorio, never()).findFechaPrimerPrestamoAbierto();
+        verify(puntoControlRepositorio, times(2)).save(new PuntoControl(DeteccionVencidos.PUNTO_CONTROL, LIMITE.plusDays(1), 120L));
+    }
+
+    @Test
+    @DisplayName("Detectar - Sin días vencidos ni préstamos nuevos solo retira los resueltos")
+    void testDetectar_SinCambios() {
+        // Arrange
+        when(prestamoRepositorio.findUltimoId()).thenReturn(Optional.of(100L));
+        when(puntoControlRepositorio.findById(DeteccionVencidos.PUNTO_CONTROL))
+                .thenReturn(Optional.of(new PuntoControl(DeteccionVencidos.PUNTO_CONTROL, LIMITE, 100L)));
+        when(prestamoVencidoRepositorio.eliminarResueltos()).thenReturn(2);
+
+        // Act
+        deteccion.detectar(HOY);
+
+        // Assert
+        verify(prestamoVencidoRepositorio, never()).insertarVencidos(any(), any(), any());
+        verify(prestamoVencidoRepositorio, never()).insertarVencidosPosteriores(anyLong(), any(), any());
+        verify(prestamoVencidoRepositorio, times(1)).eliminarResueltos();
+    }
+
+    @Test
+    @DisplayName("Propiedades - Rechaza tramos o paralelismo nulos")
+    void testPropiedades_Invalidas() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new VencidosPropiedades(30, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new VencidosPropiedades(30, 7, 0));
+    }
+
+    @Test
+    @DisplayName("Préstamo modificado - Retira su anotación y lo vuelve a anotar si sigue abierto y vencido")
+    void testPrestamoModificado() {
+        // Arrange
+        LocalDate hoy = LocalDate.now();
+
+        // Act
+        deteccion.prestamoModificado(7L);
+
+        // Assert
+        InOrder orden = inOrder(prestamoVencidoRepositorio);
+        orden.verify(prestamoVencidoRepositorio).eliminarPorPrestamo(7L);
+        orden.verify(prestamoVencidoRepositorio).insertarSiVencido(7L, hoy.minusDays(31), hoy);
+        verifyNoInteractions(puntoControlRepositorio);
+    }
+}
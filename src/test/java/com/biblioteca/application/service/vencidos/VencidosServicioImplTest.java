@@ -0,0 +1,68 @@
+package com.biblioteca.application.service.vencidos;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.application.service.paginacion.CursorPaginacion;
+import com.biblioteca.infrastructure.controllers.paginacion.PaginaDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoVencidoDTOResponse;
+import com.biblioteca.infrastructure.repository.PrestamoVencidoRepositorio;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test Unitarios para VencidosServicioImpl")
+public class VencidosServicioImplTest {
+
+    @Mock
+    private PrestamoVencidoRepositorio prestamoVencidoRepositorio;
+
+    private VencidosServicioImpl vencidosServicio;
+
+    @BeforeEach
+    void setUp() {
+        vencidosServicio = new VencidosServicioImpl(prestamoVencidoRepositorio, new VencidosPropiedades(30, 7, 4));
+    }
+
+    @Test
+    @DisplayName("Obtener vencidos - Calcula el vencimiento y pagina por (fecha de préstamo, ID)")
+    void testObtenerPrestamosVencidos() {
+        // Arrange
+        LocalDate fechaPrestamo = LocalDate.now().minusDays(40);
+        PrestamoDTOResponse primero = new PrestamoDTOResponse(3L, 1L, 2L, fechaPrestamo, null, 0L);
+        PrestamoDTOResponse segundo = new PrestamoDTOResponse(9L, 4L, 2L, fechaPrestamo, null, 0L);
+        when(prestamoVencidoRepositorio.findPrimeros(PageRequest.of(0, 2))).thenReturn(List.of(primero, segundo));
+
+        // Act
+        PaginaDTOResponse<PrestamoVencidoDTOResponse> pagina = vencidosServicio.obtenerPrestamosVencidos(null, 1);
+
+        // Assert
+        assertEquals(List.of(new PrestamoVencidoDTOResponse(3L, 1L, 2L, fechaPrestamo, fechaPrestamo.plusDays(30), 10L)), pagina.getContenido());
+        assertEquals(CursorPaginacion.codificar(fechaPrestamo, 3L), pagina.getSiguienteCursor());
+    }
+
+    @Test
+    @DisplayName("Obtener vencidos - Con cursor continúa tras la última posición")
+    void testObtenerPrestamosVencidos_ConCursor() {
+        // Arrange
+        LocalDate fecha = LocalDate.of(2024, 1, 15);
+        when(prestamoVencidoRepositorio.findSiguientes(fecha, 3L, PageRequest.of(0, 51))).thenReturn(List.of());
+
+        // Act
+        PaginaDTOResponse<PrestamoVencidoDTOResponse> pagina = vencidosServicio.obtenerPrestamosVencidos(CursorPaginacion.codificar(fecha, 3L), null);
+
+        // Assert
+        assertEquals(List.of(), pagina.getContenido());
+        assertNull(pagina.getSiguienteCursor());
+        verify(prestamoVencidoRepositorio, never()).findPrimeros(any());
+    }
+}
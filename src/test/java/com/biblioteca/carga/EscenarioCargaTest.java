@@ -0,0 +1,471 @@
+package com.biblioteca.carga;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.biblioteca.application.service.paginacion.CursorPaginacion;
+import com.biblioteca.infrastructure.cli.DistribucionZipf;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escenario de carga extremo a extremo: la aplicación arranca con datos sintéticos y un número fijo de clientes
+ * (modelo cerrado) recorre todos los endpoints de libros, usuarios y préstamos con una mezcla de lecturas y escrituras.
+ * Informa de rendimiento y latencias p50/p99/p999 por operación y escribe el resultado en target/carga-resultado.json.
+ * <p>
+ * {@code mvn test -Pcarga -Dcarga.clientes=128 -Dcarga.segundos=120 -Dcarga.libros=1000000}
+ */
+@Tag("carga")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:escenario_carga_db;DB_CLOSE_DELAY=-1",
+        "biblioteca.datos-sinteticos.libros=${carga.libros:100000}",
+        "biblioteca.datos-sinteticos.usuarios=${carga.usuarios:10000}",
+        "biblioteca.datos-sinteticos.prestamos=${carga.prestamos:500000}",
+        "spring.jpa.show-sql=false",
+        "logging.level.com.biblioteca=WARN"
+})
+@DisplayName("Escenario de carga HTTP sobre todos los endpoints")
+public class EscenarioCargaTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(EscenarioCargaTest.class);
+
+    private static final int CLIENTES = Integer.getInteger("carga.clientes", 64);
+    private static final long SEGUNDOS = Long.getLong("carga.segundos", 60);
+    private static final long SEGUNDOS_CALENTAMIENTO = Long.getLong("carga.calentamiento", 15);
+    private static final double EXPONENTE_ZIPF = 1.0;
+    // Fracción de préstamos que se crean abiertos; el resto se registra ya devuelto
+    private static final double FRACCION_ABIERTOS = 0.9;
+    private static final int PRESTAMOS_POR_LOTE = 20;
+    // Palabras de los títulos y autores del generador de datos sintéticos, sin tildes a propósito
+    private static final String[] BUSQUEDAS = {"garcia", "memoria", "sombra perdida", "lopez", "jardin secreto", "noche"};
+
+    @LocalServerPort
+    private int puerto;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong secuencia = new AtomicLong();
+    // Recursos creados por el propio escenario: solo estos se modifican o eliminan
+    private final ConcurrentLinkedQueue<Long> librosCreados = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> usuariosCreados = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> prestamosCreados = new ConcurrentLinkedQueue<>(); // Ya devueltos
+    private final ConcurrentLinkedQueue<PrestamoAbierto> prestamosAbiertos = new ConcurrentLinkedQueue<>(); // Por devolver
+
+    private HttpClient httpClient;
+    private long primerLibro;
+    private long libros;
+    private long primerUsuario;
+    private long usuarios;
+    private long[] idsPrestamos;
+    private DistribucionZipf popularidadLibros;
+    private DistribucionZipf actividadUsuarios;
+
+    @Test
+    @DisplayName("Mezcla de lecturas y escrituras con popularidad Zipf")
+    void testEscenarioCarga() throws Exception {
+        // Arrange
+        primerLibro = jdbcTemplate.queryForObject("SELECT MIN(id) FROM libros", Long.class);
+        libros = jdbcTemplate.queryForObject("SELECT MAX(id) FROM libros", Long.class) - primerLibro + 1;
+        primerUsuario = jdbcTemplate.queryForObject("SELECT MIN(id) FROM usuarios", Long.class);
+        usuarios = jdbcTemplate.queryForObject("SELECT MAX(id) FROM usuarios", Long.class) - primerUsuario + 1;
+        idsPrestamos = jdbcTemplate.queryForList("SELECT id FROM prestamos", Long.class).stream().mapToLong(Long::longValue).toArray();
+        popularidadLibros = new DistribucionZipf(libros, EXPONENTE_ZIPF);
+        actividadUsuarios = new DistribucionZipf(usuarios, EXPONENTE_ZIPF * 0.8);
+        List<Operacion> operaciones = operaciones();
+        int pesoTotal = operaciones.stream().mapToInt(Operacion::peso).sum();
+
+        // Act
+        List<Map<String, Latencias>> porCliente;
+        try (ExecutorService ejecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            httpClient = HttpClient.newBuilder().executor(ejecutor).connectTimeout(Duration.ofSeconds(10)).build();
+            long inicioMedicion = System.nanoTime() + Duration.ofSeconds(SEGUNDOS_CALENTAMIENTO).toNanos();
+            long fin = inicioMedicion + Duration.ofSeconds(SEGUNDOS).toNanos();
+            List<Future<Map<String, Latencias>>> clientes = new ArrayList<>(CLIENTES);
+            for (int i = 0; i < CLIENTES; i++) {
+                long semilla = i;
+                clientes.add(ejecutor.submit(() -> cliente(operaciones, pesoTotal, new SplittableRandom(semilla), inicioMedicion, fin)));
+            }
+            porCliente = new ArrayList<>(CLIENTES);
+            for (Future<Map<String, Latencias>> cliente : clientes) {
+                porCliente.add(cliente.get());
+            }
+        }
+
+        // Assert
+        Map<String, Latencias> resultado = combinar(operaciones, porCliente);
+        informar(resultado);
+        Latencias total = resultado.get("total");
+        assertTrue(total.cantidad() > 0, "El escenario no completó ninguna petición");
+        assertEquals(0, total.erroresServidor(), "Ninguna operación debe acabar en 5xx");
+    }
+
+    private List<Operacion> operaciones() {
+        List<Operacion> operaciones = new ArrayList<>();
+        // Lecturas (~80 %)
+        operaciones.add(new Operacion("GET /libros/{id}", 2600, a -> get("/libros/" + libroPopular(a))));
+        operaciones.add(new Operacion("GET /libros/{id} (If-None-Match)", 400, a -> enviar(peticion("/libros/" + libroPopular(a))
+                .header("If-None-Match", "\"0\"").GET().build()).statusCode()));
+        operaciones.add(new Operacion("GET /libros?cursor", 800, a -> get("/libros?limite=50&cursor="
+                + CursorPaginacion.codificar(primerLibro + a.nextLong(libros)))));
+        operaciones.add(new Operacion("GET /libros/search", 300, a -> get("/libros/search?limite=20&q="
+                + URLEncoder.encode(BUSQUEDAS[a.nextInt(BUSQUEDAS.length)], StandardCharsets.UTF_8))));
+        // Lo que teclea un usuario antes de elegir sugerencia: las tres primeras letras
+        operaciones.add(new Operacion("GET /libros/autocomplete", 300, a -> get("/libros/autocomplete?prefix="
+                + URLEncoder.encode(BUSQUEDAS[a.nextInt(BUSQUEDAS.length)].substring(0, 3), StandardCharsets.UTF_8))));
+        operaciones.add(new Operacion("GET /libros/{id}/disponibilidad", 300, a -> get("/libros/" + libroPopular(a) + "/disponibilidad")));
+        operaciones.add(new Operacion("GET /usuarios/{id}", 1200, a -> get("/usuarios/" + usuarioActivo(a))));
+        operaciones.add(new Operacion("GET /usuarios", 5, a -> get("/usuarios")));
+        operaciones.add(new Operacion("GET /prestamos/search?usuarioId", 200, a -> get("/prestamos/search?limite=20&usuarioId=" + usuarioActivo(a))));
+        operaciones.add(new Operacion("GET /prestamos/{id}", 1200, a -> get("/prestamos/" + idsPrestamos[a.nextInt(idsPrestamos.length)])));
+        // Listado y exportación completos: raros, pero son los que más memoria y conexión consumen
+        operaciones.add(new Operacion("GET /prestamos", 1, a -> get("/prestamos")));
+        operaciones.add(new Operacion("GET /prestamos/export", 1, a -> get("/prestamos/export")));
+        // Escrituras (~20 %)
+        operaciones.add(new Operacion("POST /libros", 300, a -> crear("/libros", libro(), librosCreados)));
+        operaciones.add(new Operacion("PUT /libros/{id}", 150, a -> modificar("PUT", "/libros/", librosCreados, this::libro)));
+        operaciones.add(new Operacion("PATCH /libros/{id}", 100, a -> modificar("PATCH", "/libros/", librosCreados, this::libro)));
+        operaciones.add(new Operacion("DELETE /libros/{id}", 80, a -> eliminar("/libros/", librosCreados)));
+        operaciones.add(new Operacion("POST /libros/importacion", 10, a -> importar()));
+        operaciones.add(new Operacion("POST /usuarios", 200, a -> crear("/usuarios", usuario(), usuariosCreados)));
+        operaciones.add(new Operacion("PUT /usuarios/{id}", 100, a -> modificar("PUT", "/usuarios/", usuariosCreados, this::usuario)));
+        operaciones.add(new Operacion("PATCH /usuarios/{id}", 50, a -> modificar("PATCH", "/usuarios/", usuariosCreados, this::usuario)));
+        operaciones.add(new Operacion("DELETE /usuarios/{id}", 50, a -> eliminar("/usuarios/", usuariosCreados)));
+        // Casi todos los préstamos quedan abiertos y se devuelven más tarde con PUT: así pasan por la comprobación de un préstamo
+        // abierto por libro, el cupo de cada usuario y el índice de disponibilidad, al prestar y al devolver
+        operaciones.add(new Operacion("POST /prestamos", 300, a -> prestar(a)));
+        operaciones.add(new Operacion("POST /prestamos/batch", 30, a -> lotePrestamos(a)));
+        operaciones.add(new Operacion("PUT /prestamos/{id} (devolución)", 400, a -> devolver()));
+        operaciones.add(new Operacion("PUT /prestamos/{id}", 100, a -> modificar("PUT", "/prestamos/", prestamosCreados, () -> prestamo(a, false))));
+        operaciones.add(new Operacion("PATCH /prestamos/{id}", 50, a -> modificar("PATCH", "/prestamos/", prestamosCreados, () -> prestamo(a, false))));
+        operaciones.add(new Operacion("DELETE /prestamos/{id}", 50, a -> eliminar("/prestamos/", prestamosCreados)));
+        return operaciones;
+    }
+
+    private Map<String, Latencias> cliente(List<Operacion> operaciones, int pesoTotal, SplittableRandom aleatorio,
+                                           long inicioMedicion, long fin) {
+        Map<String, Latencias> latencias = new LinkedHashMap<>();
+        while (System.nanoTime() < fin) {
+            Operacion operacion = elegir(operaciones, pesoTotal, aleatorio);
+            long inicio = System.nanoTime();
+            int estado;
+            try {
+                estado = operacion.accion().ejecutar(aleatorio);
+            } catch (Exception e) {
+                estado = 599; // Error de red o del cliente: cuenta como fallo del servidor
+            }
+            long duracion = System.nanoTime() - inicio;
+            if (inicio >= inicioMedicion) {
+                latencias.computeIfAbsent(operacion.nombre(), nombre -> new Latencias()).registrar(duracion, estado);
+            }
+        }
+        return latencias;
+    }
+
+    private static Operacion elegir(List<Operacion> operaciones, int pesoTotal, SplittableRandom aleatorio) {
+        int valor = aleatorio.nextInt(pesoTotal);
+        for (Operacion operacion : operaciones) {
+            valor -= operacion.peso();
+            if (valor < 0) {
+                return operacion;
+            }
+        }
+        throw new IllegalStateException("Pesos de operaciones incoherentes");
+    }
+
+    private long libroPopular(SplittableRandom aleatorio) {
+        return primerLibro + (popularidadLibros.muestra(aleatorio) * 7919) % libros;
+    }
+
+    private long usuarioActivo(SplittableRandom aleatorio) {
+        return primerUsuario + (actividadUsuarios.muestra(aleatorio) * 7919) % usuarios;
+    }
+
+    private ObjectNode libro() {
+        long n = secuencia.incrementAndGet();
+        return objectMapper.createObjectNode()
+                .put("titulo", "Libro de carga " + n)
+                .put("autor", "Autor de carga")
+                .put("isbn", "carga-" + n)
+                .put("fechaPublicacion", "2020-01-01");
+    }
+
+    private ObjectNode usuario() {
+        long n = secuencia.incrementAndGet();
+        return objectMapper.createObjectNode()
+                .put("nombre", "Usuario de carga " + n)
+                .put("email", "carga-" + n + "@correo.example")
+                .put("telefono", "600-000-000")
+                .put("fechaRegistro", LocalDate.now().toString());
+    }
+
+    // Los préstamos apuntan a libros y usuarios generados, que el escenario nunca elimina
+    private ObjectNode prestamo(SplittableRandom aleatorio, boolean abierto) {
+        LocalDate hoy = LocalDate.now();
+        ObjectNode prestamo = objectMapper.createObjectNode()
+                .put("libroId", libroPopular(aleatorio))
+                .put("usuarioId", usuarioActivo(aleatorio))
+                .put("fechaPrestamo", hoy.toString());
+        return abierto ? prestamo : prestamo.put("fechaDevolucion", hoy.toString());
+    }
+
+    private int prestar(SplittableRandom aleatorio) throws Exception {
+        ObjectNode cuerpo = prestamo(aleatorio, aleatorio.nextDouble() < FRACCION_ABIERTOS);
+        HttpResponse<byte[]> respuesta = enviarJson("POST", "/prestamos", cuerpo.toString());
+        if (respuesta.statusCode() / 100 == 2) {
+            registrarPrestamo(objectMapper.readTree(respuesta.body()));
+        }
+        return respuesta.statusCode();
+    }
+
+    private void registrarPrestamo(JsonNode prestamo) {
+        long id = prestamo.get("id").asLong();
+        if (prestamo.hasNonNull("fechaDevolucion")) {
+            prestamosCreados.add(id);
+        } else {
+            prestamosAbiertos.add(new PrestamoAbierto(id, prestamo.get("libroId").asLong(), prestamo.get("usuarioId").asLong(),
+                    prestamo.get("fechaPrestamo").asText()));
+        }
+    }
+
+    // Devuelve el préstamo abierto más antiguo del escenario, que pasa a poder modificarse o eliminarse
+    private int devolver() throws Exception {
+        PrestamoAbierto prestamo = prestamosAbiertos.poll();
+        if (prestamo == null) {
+            return get("/prestamos/0"); // Nada que devolver todavía: 404 esperado
+        }
+        ObjectNode cuerpo = objectMapper.createObjectNode()
+                .put("libroId", prestamo.libroId())
+                .put("usuarioId", prestamo.usuarioId())
+                .put("fechaPrestamo", prestamo.fechaPrestamo())
+                .put("fechaDevolucion", LocalDate.now().toString());
+        int estado = enviarJson("PUT", "/prestamos/" + prestamo.id(), cuerpo.toString()).statusCode();
+        if (estado / 100 == 2) {
+            prestamosCreados.add(prestamo.id());
+        }
+        return estado;
+    }
+
+    private int crear(String ruta, ObjectNode cuerpo, ConcurrentLinkedQueue<Long> creados) throws Exception {
+        HttpResponse<byte[]> respuesta = enviarJson("POST", ruta, cuerpo.toString());
+        if (respuesta.statusCode() / 100 == 2) {
+            creados.add(objectMapper.readTree(respuesta.body()).get("id").asLong());
+        }
+        return respuesta.statusCode();
+    }
+
+    // El recurso se saca de la cola mientras se modifica para que ningún otro cliente lo elimine a la vez
+    private int modificar(String metodo, String ruta, ConcurrentLinkedQueue<Long> creados, Cuerpo cuerpo) throws Exception {
+        Long id = creados.poll();
+        if (id == null) {
+            return get(ruta + "0"); // Nada que modificar todavía: 404 esperado
+        }
+        try {
+            return enviarJson(metodo, ruta + id, cuerpo.crear().toString()).statusCode();
+        } finally {
+            creados.add(id);
+        }
+    }
+
+    private int eliminar(String ruta, ConcurrentLinkedQueue<Long> creados) throws Exception {
+        Long id = creados.poll();
+        if (id == null) {
+            return get(ruta + "0");
+        }
+        return enviar(peticion(ruta + id).DELETE().build()).statusCode();
+    }
+
+    private int importar() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            ndjson.append(libro()).append('\n');
+        }
+        return enviar(peticion("/libros/importacion").header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson.toString())).build()).statusCode();
+    }
+
+    private int lotePrestamos(SplittableRandom aleatorio) throws Exception {
+        ArrayNode lote = objectMapper.createArrayNode();
+        for (int i = 0; i < PRESTAMOS_POR_LOTE; i++) {
+            lote.add(prestamo(aleatorio, aleatorio.nextDouble() < FRACCION_ABIERTOS));
+        }
+        HttpResponse<byte[]> respuesta = enviarJson("POST", "/prestamos/batch", lote.toString());
+        if (respuesta.statusCode() / 100 == 2) {
+            for (JsonNode resultado : objectMapper.readTree(respuesta.body())) {
+                if (resultado.hasNonNull("prestamo")) {
+                    registrarPrestamo(resultado.get("prestamo"));
+                }
+            }
+        }
+        return respuesta.statusCode();
+    }
+
+    private int get(String ruta) throws Exception {
+        return enviar(peticion(ruta).GET().build()).statusCode();
+    }
+
+    private HttpResponse<byte[]> enviarJson(String metodo, String ruta, String json) throws Exception {
+        return enviar(peticion(ruta).header("Content-Type", "application/json")
+                .method(metodo, HttpRequest.BodyPublishers.ofString(json)).build());
+    }
+
+    private HttpRequest.Builder peticion(String ruta) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta)).timeout(Duration.ofMinutes(2));
+    }
+
+    private HttpResponse<byte[]> enviar(HttpRequest peticion) throws IOException, InterruptedException {
+        return httpClient.send(peticion, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static Map<String, Latencias> combinar(List<Operacion> operaciones, List<Map<String, Latencias>> porCliente) {
+        Map<String, Latencias> resultado = new LinkedHashMap<>();
+        Latencias total = new Latencias();
+        for (Operacion operacion : operaciones) {
+            Latencias combinadas = new Latencias();
+            porCliente.forEach(latencias -> combinadas.anadir(latencias.get(operacion.nombre())));
+            if (combinadas.cantidad() > 0) {
+                resultado.put(operacion.nombre(), combinadas);
+                total.anadir(combinadas);
+            }
+        }
+        resultado.put("total", total);
+        return resultado;
+    }
+
+    private void informar(Map<String, Latencias> resultado) throws IOException {
+        ObjectNode json = objectMapper.createObjectNode()
+                .put("clientes", CLIENTES)
+                .put("segundos", SEGUNDOS)
+                .put("libros", libros)
+                .put("usuarios", usuarios)
+                .put("prestamos", idsPrestamos.length);
+        ObjectNode operacionesJson = json.putObject("operaciones");
+        StringBuilder tabla = new StringBuilder(String.format("%n%-36s %9s %9s %6s %6s %9s %9s %9s %9s%n",
+                "operación", "peticiones", "pet/s", "4xx", "5xx", "p50 ms", "p99 ms", "p999 ms", "máx ms"));
+        resultado.forEach((nombre, latencias) -> {
+            latencias.ordenar();
+            double porSegundo = latencias.cantidad() / (double) SEGUNDOS;
+            tabla.append(String.format("%-36s %9d %9.1f %6d %6d %9.2f %9.2f %9.2f %9.2f%n", nombre, latencias.cantidad(), porSegundo,
+                    latencias.erroresCliente(), latencias.erroresServidor(), latencias.percentilMs(0.50),
+                    latencias.percentilMs(0.99), latencias.percentilMs(0.999), latencias.percentilMs(1.0)));
+            operacionesJson.putObject(nombre)
+                    .put("peticiones", latencias.cantidad())
+                    .put("peticionesPorSegundo", porSegundo)
+                    .put("errores4xx", latencias.erroresCliente())
+                    .put("errores5xx", latencias.erroresServidor())
+                    .put("p50Ms", latencias.percentilMs(0.50))
+                    .put("p99Ms", latencias.percentilMs(0.99))
+                    .put("p999Ms", latencias.percentilMs(0.999))
+                    .put("maximoMs", latencias.percentilMs(1.0));
+        });
+        logger.info("Resultado del escenario de carga ({} clientes, {} s):{}", CLIENTES, SEGUNDOS, tabla);
+        Path fichero = Path.of("target", "carga-resultado.json");
+        Files.createDirectories(fichero.getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(fichero.toFile(), json);
+    }
+
+    private record Operacion(String nombre, int peso, Accion accion) {
+    }
+
+    private record PrestamoAbierto(long id, long libroId, long usuarioId, String fechaPrestamo) {
+    }
+
+    @FunctionalInterface
+    private interface Accion {
+        int ejecutar(SplittableRandom aleatorio) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface Cuerpo {
+        ObjectNode crear();
+    }
+
+    // Latencias en nanosegundos de un cliente u operación; cada cliente tiene las suyas, así que no hay contención
+    private static class Latencias {
+        private long[] valores = new long[1024];
+        private int cantidad;
+        private long erroresCliente;
+        private long erroresServidor;
+
+        void registrar(long nanos, int estado) {
+            if (cantidad == valores.length) {
+                valores = Arrays.copyOf(valores, cantidad * 2);
+            }
+            valores[cantidad++] = nanos;
+            if (estado >= 500) {
+                erroresServidor++;
+            } else if (estado >= 400) {
+                erroresCliente++;
+            }
+        }
+
+        void anadir(Latencias otras) {
+            if (otras == null) {
+                return;
+            }
+            if (cantidad + otras.cantidad > valores.length) {
+                valores = Arrays.copyOf(valores, Math.max(valores.length * 2, cantidad + otras.cantidad));
+            }
+            System.arraycopy(otras.valores, 0, valores, cantidad, otras.cantidad);
+            cantidad += otras.cantidad;
+            erroresCliente += otras.erroresCliente;
+            erroresServidor += otras.erroresServidor;
+        }
+
+        void ordenar() {
+            Arrays.sort(valores, 0, cantidad);
+        }
+
+        // Percentil por rango más cercano sobre los valores ya ordenados
+        double percentilMs(double percentil) {
+            int indice = (int) Math.ceil(percentil * cantidad) - 1;
+            return valores[Math.max(0, Math.min(cantidad - 1, indice))] / 1_000_000.0;
+        }
+
+        int cantidad() {
+            return cantidad;
+        }
+
+        long erroresCliente() {
+            return erroresCliente;
+        }
+
+        long erroresServidor() {
+            return erroresServidor;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.biblioteca.infrastructure.cli;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+@DisplayName("Test de la distribución de Zipf del generador de datos sintéticos")
+public class DistribucionZipfTest {
+
+    @Test
+    @DisplayName("Muestra - Las frecuencias siguen 1/k^s")
+    void testMuestra_FrecuenciasZipf() {
+        // Arrange
+        int elementos = 1000;
+        int muestras = 200_000;
+        DistribucionZipf distribucion = new DistribucionZipf(elementos, 1.0);
+        SplittableRandom aleatorio = new SplittableRandom(7);
+        double armonico = 0;
+        for (int k = 1; k <= elementos; k++) {
+            armonico += 1.0 / k;
+        }
+        long[] frecuencias = new long[elementos + 1];
+
+        // Act
+        for (int i = 0; i < muestras; i++) {
+            long rango = distribucion.muestra(aleatorio);
+            assertTrue(rango >= 1 && rango <= elementos, "Rango fuera de límites: " + rango);
+            frecuencias[(int) rango]++;
+        }
+
+        // Assert
+        assertEquals(1 / armonico, frecuencias[1] / (double) muestras, 0.005);
+        assertEquals(1 / (2 * armonico), frecuencias[2] / (double) muestras, 0.005);
+        assertEquals(1 / (10 * armonico), frecuencias[10] / (double) muestras, 0.003);
+    }
+
+    @Test
+    @DisplayName("Muestra - La misma semilla produce la misma secuencia")
+    void testMuestra_Reproducible() {
+        // Arrange
+        DistribucionZipf distribucion = new DistribucionZipf(1_000_000, 1.2);
+        SplittableRandom primera = new SplittableRandom(42);
+        SplittableRandom segunda = new SplittableRandom(42);
+
+        // Act & Assert
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(distribucion.muestra(primera), distribucion.muestra(segunda));
+        }
+    }
+
+    @Test
+    @DisplayName("Constructor - Exponente no positivo")
+    void testConstructor_ExponenteInvalido() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new DistribucionZipf(10, 0));
+    }
+}
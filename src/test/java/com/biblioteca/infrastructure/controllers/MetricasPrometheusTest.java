@@ -0,0 +1,44 @@
+package com.biblioteca.infrastructure.controllers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:metricas_db;DB_CLOSE_DELAY=-1")
+@AutoConfigureObservability(tracing = false)
+@DisplayName("Test de las métricas expuestas en /actuator/prometheus")
+public class MetricasPrometheusTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    @DisplayName("GET /libros/{id} - Deja timers de endpoint, servicio, repositorio y pool de conexiones")
+    void testPrometheus_TrasObtenerLibro() {
+        // Arrange
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity("/libros/1", byte[].class).getStatusCode());
+
+        // Act
+        ResponseEntity<String> respuesta = restTemplate.getForEntity("/actuator/prometheus", String.class);
+
+        // Assert
+        assertEquals(HttpStatus.OK, respuesta.getStatusCode());
+        String metricas = respuesta.getBody();
+        assertNotNull(metricas);
+        assertTrue(metricas.contains("http_server_requests_seconds_bucket{"), "Falta el histograma de peticiones HTTP");
+        assertTrue(metricas.contains("uri=\"/libros/{id}\""), "Falta la etiqueta del endpoint");
+        assertTrue(metricas.contains("biblioteca_servicio_seconds_bucket{"), "Falta el histograma de los servicios");
+        assertTrue(metricas.contains("method=\"obtenerLibroSerializadoPorId\""), "Falta el timer del método de servicio");
+        assertTrue(metricas.contains("spring_data_repository_invocations_seconds_bucket{"), "Falta el histograma de los repositorios");
+        assertTrue(metricas.contains("repository=\"LibroRepositorio\""), "Falta la etiqueta del repositorio");
+        assertTrue(metricas.contains("hikaricp_connections_pending{"), "Falta el gauge de saturación del pool");
+    }
+}
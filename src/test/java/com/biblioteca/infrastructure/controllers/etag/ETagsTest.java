@@ -0,0 +1,40 @@
+package com.biblioteca.infrastructure.controllers.etag;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+@DisplayName("Test de la lectura de If-Match")
+public class ETagsTest {
+
+    @Test
+    @DisplayName("If-Match - Sin cabecera o con * no hay condición")
+    void testVersionesDeIfMatch_SinCondicion() {
+        // Act & Assert
+        assertNull(ETags.versionesDeIfMatch(null));
+        assertNull(ETags.versionesDeIfMatch(" "));
+        assertNull(ETags.versionesDeIfMatch("*"));
+    }
+
+    @Test
+    @DisplayName("If-Match - Una versión o una lista separada por comas")
+    void testVersionesDeIfMatch_Lista() {
+        // Act & Assert
+        assertEquals(Set.of(3L), ETags.versionesDeIfMatch("\"3\""));
+        assertEquals(Set.of(3L, 4L), ETags.versionesDeIfMatch("\"3\", \"4\""));
+        assertEquals(Set.of(3L, 4L), ETags.versionesDeIfMatch("\"3\",\"4\","), "Elementos vacíos de la lista");
+    }
+
+    @Test
+    @DisplayName("If-Match - Los ETag débiles o ajenos se descartan y una lista mal formada no coincide con nada")
+    void testVersionesDeIfMatch_Descartados() {
+        // Act & Assert
+        assertEquals(Set.of(4L), ETags.versionesDeIfMatch("W/\"3\", \"c-1-2\", \"4\""));
+        assertEquals(Set.of(), ETags.versionesDeIfMatch("W/\"3\""));
+        assertEquals(Set.of(), ETags.versionesDeIfMatch("3"));
+        assertEquals(Set.of(), ETags.versionesDeIfMatch("\"3\", \"4"));
+    }
+}
@@ -0,0 +1,160 @@
+package com.biblioteca.infrastructure.controllers.prestamo;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Miles de clientes concurrentes contra GET /prestamos con una base de datos lenta: cada sentencia JDBC
+ * tarda {@link #LATENCIA_BD_MS} ms mientras retiene su conexión. Se ejecuta con {@code mvn test -Pcarga}.
+ */
+@Tag("carga")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:carga_hilos_virtuales_db;DB_CLOSE_DELAY=-1",
+        "spring.datasource.hikari.maximum-pool-size=" + PrestamoCargaHilosVirtualesTest.CONEXIONES_BD,
+        "spring.jpa.show-sql=false"
+})
+@ActiveProfiles("hilos-virtuales")
+@DisplayName("Prueba de carga de préstamos con hilos virtuales")
+public class PrestamoCargaHilosVirtualesTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PrestamoCargaHilosVirtualesTest.class);
+
+    static final int CONEXIONES_BD = 10;
+    private static final long LATENCIA_BD_MS = 20;
+    private static final int CLIENTES = 2000;
+
+    // Solo se activa durante la prueba, para no ralentizar el arranque ni la carga de data.sql
+    private static volatile boolean bdLenta;
+
+    @LocalServerPort
+    private int puerto;
+
+    private ExecutorService clientes;
+    private HttpClient httpClient;
+
+    @BeforeEach
+    void setUp() {
+        clientes = Executors.newVirtualThreadPerTaskExecutor();
+        httpClient = HttpClient.newBuilder().executor(clientes).connectTimeout(Duration.ofSeconds(30)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bdLenta = false;
+        httpClient.close();
+        clientes.close();
+    }
+
+    @Test
+    @DisplayName("GET /prestamos - Miles de clientes bloqueados en la base de datos no agotan los hilos de petición")
+    void testObtenerPrestamos_ClientesConcurrentesConBaseDeDatosLenta() throws Exception {
+        // Arrange: GET /prestamos/1 queda en la caché de respuestas y ya no necesita conexión
+        assertEquals(200, get("/prestamos/1").statusCode());
+        bdLenta = true;
+
+        // Act
+        long inicio = System.nanoTime();
+        List<Future<HttpResponse<Void>>> respuestas = new ArrayList<>(CLIENTES);
+        for (int i = 0; i < CLIENTES; i++) {
+            respuestas.add(clientes.submit(() -> get("/prestamos")));
+        }
+        Thread.sleep(LATENCIA_BD_MS * 10); // Con el pool ya saturado
+        long inicioSonda = System.nanoTime();
+        HttpResponse<Void> sonda = get("/prestamos/1");
+        long latenciaSondaMs = (System.nanoTime() - inicioSonda) / 1_000_000;
+        int correctas = 0;
+        for (Future<HttpResponse<Void>> respuesta : respuestas) {
+            if (respuesta.get().statusCode() == 200) {
+                correctas++;
+            }
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        // Assert
+        double rendimiento = CLIENTES / segundos;
+        double rendimientoMaximo = CONEXIONES_BD * 1000.0 / LATENCIA_BD_MS;
+        logger.info("{} peticiones en {} s: {} peticiones/s (máximo teórico con {} conexiones: {}); petición cacheada durante la carga: {} ms",
+                CLIENTES, String.format("%.2f", segundos), String.format("%.0f", rendimiento), CONEXIONES_BD,
+                String.format("%.0f", rendimientoMaximo), latenciaSondaMs);
+        assertEquals(CLIENTES, correctas, "Todas las peticiones deben esperar su conexión y completarse");
+        assertTrue(rendimiento >= rendimientoMaximo / 4, "El pool de conexiones debe ser el único cuello de botella");
+        assertEquals(200, sonda.statusCode());
+        assertTrue(latenciaSondaMs < 1000, "Una petición que no usa la base de datos no debe esperar a las que sí");
+    }
+
+    private HttpResponse<Void> get(String ruta) throws Exception {
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create("http://localhost:" + puerto + ruta))
+                .timeout(Duration.ofMinutes(1))
+                .GET()
+                .build();
+        return httpClient.send(peticion, HttpResponse.BodyHandlers.discarding());
+    }
+
+    @TestConfiguration
+    static class BaseDeDatosLentaConfiguracion {
+
+        // Envuelve el pool de Hikari: la espera ocurre con la conexión ya obtenida, como una consulta lenta real
+        @Bean
+        static BeanPostProcessor baseDeDatosLenta() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String nombre) {
+                    return bean instanceof DataSource dataSource ? new DataSourceLento(dataSource) : bean;
+                }
+            };
+        }
+    }
+
+    private static class DataSourceLento extends DelegatingDataSource {
+
+        DataSourceLento(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection conexion = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, metodo, argumentos) -> {
+                        if (bdLenta && metodo.getName().startsWith("prepare")) {
+                            Thread.sleep(LATENCIA_BD_MS);
+                        }
+                        try {
+                            return metodo.invoke(conexion, argumentos);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.biblioteca.infrastructure.filtros;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import com.biblioteca.application.service.idempotencia.AlmacenIdempotencia;
+import com.biblioteca.application.service.idempotencia.RespuestaIdempotente;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Test del filtro de idempotencia de los POST")
+public class IdempotenciaFiltroTest {
+
+    @Mock
+    private AlmacenIdempotencia almacen;
+
+    private IdempotenciaFiltro filtro;
+    private AtomicInteger ejecuciones;
+
+    @BeforeEach
+    void setUp() {
+        filtro = new IdempotenciaFiltro(almacen);
+        ejecuciones = new AtomicInteger();
+        when(almacen.habilitado()).thenReturn(true);
+    }
+
+    @Test
+    @DisplayName("Filtrar - La primera ejecución guarda la respuesta 2xx con la huella de la petición")
+    void testFiltrar_PrimeraEjecucion() throws Exception {
+        // Arrange
+        when(almacen.reservar("clave")).thenReturn(new AlmacenIdempotencia.Reserva(AlmacenIdempotencia.Estado.NUEVA, null));
+        when(almacen.tamanoMaximoRespuesta()).thenReturn(1024L);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filtro.doFilter(peticion("clave", "{\"titulo\":\"Rayuela\"}"), response, controlador(201));
+
+        // Assert
+        ArgumentCaptor<RespuestaIdempotente> guardada = ArgumentCaptor.forClass(RespuestaIdempotente.class);
+        verify(almacen).completar(eq("clave"), guardada.capture());
+        assertEquals(201, guardada.getValue().estado());
+        assertEquals("/libros/1", guardada.getValue().ubicacion());
+        assertEquals("{\"id\":1}", new String(guardada.getValue().cuerpo(), StandardCharsets.UTF_8));
+        assertEquals(64, guardada.getValue().huella().length());
+        assertEquals("{\"id\":1}", response.getContentAsString(), "El cliente recibe la respuesta completa");
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Filtrar - Un reintento con la misma petición recibe la respuesta guardada sin ejecutarse")
+    void testFiltrar_Repetida() throws Exception {
+        // Arrange
+        String huella = huellaDe("{\"titulo\":\"Rayuela\"}");
+        when(almacen.reservar("clave")).thenReturn(new AlmacenIdempotencia.Reserva(AlmacenIdempotencia.Estado.REPETIDA,
+                new RespuestaIdempotente(huella, 201, "application/json", "/libros/1", "{\"id\":1}".getBytes(StandardCharsets.UTF_8))));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filtro.doFilter(peticion("clave", "{\"titulo\":\"Rayuela\"}"), response, controlador(201));
+
+        // Assert
+        assertEquals(0, ejecuciones.get());
+        assertEquals(201, response.getStatus());
+        assertEquals("/libros/1", response.getHeader("Location"));
+        assertEquals("true", response.getHeader(IdempotenciaFiltro.CABECERA_REPETIDA));
+        assertEquals("{\"id\":1}", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Filtrar - Reutilizar la clave con otro cuerpo responde 422")
+    void testFiltrar_OtroCuerpo() throws Exception {
+        // Arrange
+        String huella = huellaDe("{\"titulo\":\"Rayuela\"}");
+        when(almacen.reservar("clave")).thenReturn(new AlmacenIdempotencia.Reserva(AlmacenIdempotencia.Estado.REPETIDA,
+                new RespuestaIdempotente(huella, 201, "application/json", null, new byte[0])));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filtro.doFilter(peticion("clave", "{\"titulo\":\"Los premios\"}"), response, controlador(201));
+
+        // Assert
+        assertEquals(422, response.getStatus());
+        assertEquals(0, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Filtrar - Con la primera ejecución en curso responde 409")
+    void testFiltrar_EnCurso() throws Exception {
+        // Arrange
+        when(almacen.reservar("clave")).thenReturn(new AlmacenIdempotencia.Reserva(AlmacenIdempotencia.Estado.EN_CURSO, null));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filtro.doFilter(peticion("clave", "{}"), response, controlador(201));
+
+        // Assert
+        assertEquals(HttpServletResponse.SC_CONFLICT, response.getStatus());
+        assertEquals(0, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Filtrar - Una respuesta de error libera la clave para que el reintento se ejecute")
+    void testFiltrar_ErrorLibera() throws Exception {
+        // Arrange
+        when(almacen.reservar("clave")).thenReturn(new AlmacenIdempotencia.Reserva(AlmacenIdempotencia.Estado.NUEVA, null));
+
+        // Act
+        filtro.doFilter(peticion("clave", "{}"), new MockHttpServletResponse(), controlador(409));
+
+        // Assert
+        verify(almacen).liberar("clave");
+        verify(almacen, never()).completar(any(), any());
+    }
+
+    @Test
+    @DisplayName("Filtrar - Una respuesta 2xx demasiado grande completa la clave sin cuerpo en lugar de liberarla")
+    void testFiltrar_RespuestaDemasiadoGrande() throws Exception {
+        // Arrange
+        when(almacen.reservar("clave")).thenReturn(new AlmacenIdempotencia.Reserva(AlmacenIdempotencia.Estado.NUEVA, null));
+        when(almacen.tamanoMaximoRespuesta()).thenReturn(4L);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filtro.doFilter(peticion("clave", "{}"), response, controlador(201));
+
+        // Assert
+        ArgumentCaptor<RespuestaIdempotente> guardada = ArgumentCaptor.forClass(RespuestaIdempotente.class);
+        verify(almacen).completar(eq("clave"), guardada.capture());
+        verify(almacen, never()).liberar(any());
+        assertFalse(guardada.getValue().conCuerpo());
+        assertEquals(201, guardada.getValue().estado());
+        assertEquals("/libros/1", guardada.getValue().ubicacion());
+        assertEquals("{\"id\":1}", response.getContentAsString(), "El cliente recibe la respuesta completa");
+    }
+
+    @Test
+    @DisplayName("Filtrar - Si falla el guardado de una respuesta 2xx la clave no se libera y el cliente recibe su respuesta")
+    void testFiltrar_FalloAlCompletar() throws Exception {
+        // Arrange
+        when(almacen.reservar("clave")).thenReturn(new AlmacenIdempotencia.Reserva(AlmacenIdempotencia.Estado.NUEVA, null));
+        when(almacen.tamanoMaximoRespuesta()).thenReturn(1024L);
+        doThrow(new QueryTimeoutException("Tiempo de espera agotado")).when(almacen).completar(eq("clave"), any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filtro.doFilter(peticion("clave", "{}"), response, controlador(201));
+
+        // Assert
+        verify(almacen, never()).liberar(any());
+        assertEquals(201, response.getStatus());
+        assertEquals("{\"id\":1}", response.getContentAsString());
+        assertEquals(1, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Filtrar - Un reintento de una respuesta que no se guardó responde 409 sin volver a ejecutarse")
+    void testFiltrar_RepetidaSinCuerpo() throws Exception {
+        // Arrange
+        when(almacen.reservar("clave")).thenReturn(new AlmacenIdempotencia.Reserva(AlmacenIdempotencia.Estado.REPETIDA,
+                RespuestaIdempotente.sinCuerpo(huellaDe("{}"), 201, "/libros/1")));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filtro.doFilter(peticion("clave", "{}"), response, controlador(201));
+
+        // Assert
+        assertEquals(HttpServletResponse.SC_CONFLICT, response.getStatus());
+        assertEquals("/libros/1", response.getHeader("Location"));
+        assertEquals(0, ejecuciones.get());
+    }
+
+    @Test
+    @DisplayName("Filtrar - Sin cabecera, o fuera de los POST de la API, no pasa por el almacén")
+    void testFiltrar_SinCabecera() throws Exception {
+        // Arrange
+        MockHttpServletRequest sinCabecera = peticion(null, "{}");
+        MockHttpServletRequest otraRuta = peticion("clave", "{}");
+        otraRuta.setRequestURI("/cache/vaciar");
+        MockHttpServletRequest get = peticion("clave", "");
+        get.setMethod("GET");
+
+        // Act
+        filtro.doFilter(sinCabecera, new MockHttpServletResponse(), controlador(201));
+        filtro.doFilter(otraRuta, new MockHttpServletResponse(), controlador(201));
+        filtro.doFilter(get, new MockHttpServletResponse(), controlador(200));
+
+        // Assert
+        assertEquals(3, ejecuciones.get());
+        verify(almacen, never()).reservar(any());
+    }
+
+    private MockFilterChain controlador(int estado) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                ejecuciones.incrementAndGet();
+                request.getInputStream().readAllBytes();
+                response.setStatus(estado);
+                response.setContentType("application/json");
+                response.setHeader("Location", "/libros/1");
+                response.getOutputStream().write("{\"id\":1}".getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+
+    private static MockHttpServletRequest peticion(String clave, String cuerpo) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/libros");
+        if (clave != null) {
+            request.addHeader(IdempotenciaFiltro.CABECERA, clave);
+        }
+        request.setContentType("application/json");
+        request.setContent(cuerpo.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static String huellaDe(String cuerpo) throws Exception {
+        return new PeticionConHuella(peticion("clave", cuerpo)).huella();
+    }
+}
@@ -0,0 +1,73 @@
+package com.biblioteca.infrastructure.filtros;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Map;
+
+@DisplayName("Test del filtro de registro de accesos muestreado")
+public class RegistroAccesoFiltroTest {
+
+    private static final long RAPIDA = Duration.ofMillis(5).toNanos();
+
+    private RegistroAccesoFiltro filtro(double muestreo, Map<String, Double> muestreoPorEndpoint) {
+        return new RegistroAccesoFiltro(new RegistroAccesoPropiedades(true, muestreo, Duration.ofSeconds(1), muestreoPorEndpoint));
+    }
+
+    @Test
+    @DisplayName("Debe registrar - Sin muestreo no registra peticiones correctas y rápidas")
+    void testDebeRegistrar_SinMuestreo() {
+        // Arrange
+        RegistroAccesoFiltro filtro = filtro(0, null);
+
+        // Act & Assert
+        assertFalse(filtro.debeRegistrar("GET:/libros/{id}", 200, RAPIDA));
+        assertFalse(filtro.debeRegistrar("GET:/libros/{id}", 404, RAPIDA));
+    }
+
+    @Test
+    @DisplayName("Debe registrar - Los errores 5xx y las peticiones lentas se registran siempre")
+    void testDebeRegistrar_ErroresYLentas() {
+        // Arrange
+        RegistroAccesoFiltro filtro = filtro(0, null);
+
+        // Act & Assert
+        assertTrue(filtro.debeRegistrar("GET:/libros/{id}", 500, RAPIDA));
+        assertTrue(filtro.debeRegistrar("GET:/libros/{id}", 200, Duration.ofSeconds(2).toNanos()));
+    }
+
+    @Test
+    @DisplayName("Debe registrar - El muestreo por endpoint prevalece sobre el general")
+    void testDebeRegistrar_MuestreoPorEndpoint() {
+        // Arrange
+        RegistroAccesoFiltro filtro = filtro(1, Map.of("GET:/actuator/prometheus", 0.0));
+
+        // Act & Assert
+        assertTrue(filtro.debeRegistrar("GET:/libros/{id}", 200, RAPIDA));
+        assertFalse(filtro.debeRegistrar("GET:/actuator/prometheus", 200, RAPIDA));
+    }
+
+    @Test
+    @DisplayName("Filtrar - Continúa la cadena y propaga las excepciones")
+    void testDoFilter_PropagaExcepcion() {
+        // Arrange
+        RegistroAccesoFiltro filtro = filtro(1, null);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/libros/1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain cadena = new MockFilterChain() {
+            @Override
+            public void doFilter(jakarta.servlet.ServletRequest request, jakarta.servlet.ServletResponse response) {
+                throw new IllegalStateException("fallo en el controlador");
+            }
+        };
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> filtro.doFilter(request, response, cadena));
+    }
+}
@@ -0,0 +1,88 @@
+package com.biblioteca.infrastructure.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.biblioteca.domain.entity.Libro;
+import com.biblioteca.domain.entity.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Sin transacción de test: Hibernate no guarda en la caché lo insertado en la transacción en curso, así que cada
+// llamada al repositorio confirma la suya y los datos se borran al acabar cada test
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Test de la caché de segundo nivel para Libro y Usuario")
+public class CacheSegundoNivelTest {
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private UsuarioRepositorio usuarioRepositorio;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estadisticas;
+
+    @BeforeEach
+    void setUp() {
+        estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        libroRepositorio.deleteAll();
+        usuarioRepositorio.deleteAll();
+    }
+
+    @Test
+    @DisplayName("findById - La segunda lectura de un libro no consulta la base de datos")
+    void testFindByIdLibro_SegundaLecturaDesdeCache() {
+        // Arrange
+        Libro libro = new Libro();
+        libro.setTitulo("Libro cacheado");
+        libro.setAutor("Autor");
+        libro.setIsbn("isbn-cache-libro");
+        Long id = libroRepositorio.save(libro).getId();
+        libroRepositorio.findById(id);
+        estadisticas.clear();
+
+        // Act
+        Libro encontrado = libroRepositorio.findById(id).orElseThrow();
+
+        // Assert
+        assertEquals("Libro cacheado", encontrado.getTitulo());
+        assertEquals(0, estadisticas.getPrepareStatementCount(), "La segunda lectura debe servirse desde la caché");
+        assertEquals(1, estadisticas.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    @DisplayName("findById - La segunda lectura de un usuario no consulta la base de datos")
+    void testFindByIdUsuario_SegundaLecturaDesdeCache() {
+        // Arrange
+        Usuario usuario = new Usuario();
+        usuario.setNombre("Usuario cacheado");
+        usuario.setEmail("cache@prueba.com");
+        Long id = usuarioRepositorio.save(usuario).getId();
+        usuarioRepositorio.findById(id);
+        estadisticas.clear();
+
+        // Act
+        Usuario encontrado = usuarioRepositorio.findById(id).orElseThrow();
+
+        // Assert
+        assertEquals("Usuario cacheado", encontrado.getNombre());
+        assertEquals(0, estadisticas.getPrepareStatementCount(), "La segunda lectura debe servirse desde la caché");
+        assertEquals(1, estadisticas.getSecondLevelCacheHitCount());
+    }
+}
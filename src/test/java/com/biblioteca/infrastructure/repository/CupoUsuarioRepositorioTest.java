@@ -0,0 +1,110 @@
+package com.biblioteca.infrastructure.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.biblioteca.application.service.prestamo.CupoPrestamos;
+import com.biblioteca.domain.entity.CupoUsuario;
+import com.biblioteca.domain.entity.Libro;
+import com.biblioteca.domain.entity.Prestamo;
+import com.biblioteca.domain.entity.Usuario;
+import com.biblioteca.infrastructure.exceptions.ConflictoExcepcion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+
+@DataJpaTest
+@DisplayName("Test del cupo de préstamos abiertos sobre la base de datos")
+public class CupoUsuarioRepositorioTest {
+
+    private static final int MAXIMO = 2;
+
+    @Autowired
+    private CupoUsuarioRepositorio cupoUsuarioRepositorio;
+
+    @Autowired
+    private LibroRepositorio libroRepositorio;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private CupoPrestamos cupoPrestamos;
+    private int libros;
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() {
+        cupoPrestamos = new CupoPrestamos(cupoUsuarioRepositorio, transactionManager, MAXIMO);
+        usuario = new Usuario();
+        usuario.setNombre("Usuario cupo");
+        usuario.setEmail("cupo@prueba.com");
+        entityManager.persist(usuario);
+        entityManager.persist(new CupoUsuario(usuario.getId(), 0));
+    }
+
+    private Libro prestar() {
+        Libro libro = new Libro();
+        libro.setTitulo("Libro cupo " + libros);
+        libro.setAutor("Autor cupo");
+        libro.setIsbn("isbn-cupo-" + libros++);
+        entityManager.persist(libro);
+        cupoPrestamos.reservar(usuario.getId());
+        Prestamo prestamo = new Prestamo();
+        prestamo.setLibro(libro);
+        prestamo.setUsuario(usuario);
+        prestamo.setFechaPrestamo(LocalDate.of(2024, 3, 1));
+        entityManager.persist(prestamo);
+        entityManager.flush();
+        return libro;
+    }
+
+    @Test
+    @DisplayName("Libro eliminado - El usuario que tenía el máximo puede volver a pedir prestado")
+    void testLibroEliminado_LiberaCupo() {
+        // Arrange: el usuario llega al máximo con dos libros
+        Libro primero = prestar();
+        prestar();
+        assertThrows(ConflictoExcepcion.class, this::prestar);
+        entityManager.clear(); // Como una petición nueva: el borrado carga el libro con sus préstamos
+
+        // Act: como en LibroServicioImpl.eliminarLibro, el cupo se libera antes de borrar el libro y sus préstamos
+        cupoPrestamos.libroEliminado(primero.getId());
+        libroRepositorio.deleteById(primero.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        // Assert
+        assertEquals(1, cupoUsuarioRepositorio.findAbiertosByUsuarioId(usuario.getId()).orElseThrow());
+        assertDoesNotThrow(this::prestar);
+    }
+
+    @Test
+    @DisplayName("Liberar por libro - Los préstamos ya devueltos del libro no liberan cupo")
+    void testLiberarPorLibro_SoloAbiertos() {
+        // Arrange
+        Libro libro = prestar();
+        Prestamo devuelto = new Prestamo();
+        devuelto.setLibro(libro);
+        devuelto.setUsuario(usuario);
+        devuelto.setFechaPrestamo(LocalDate.of(2024, 1, 1));
+        devuelto.setFechaDevolucion(LocalDate.of(2024, 1, 15));
+        entityManager.persist(devuelto);
+        prestar();
+        entityManager.flush();
+
+        // Act
+        int liberados = cupoUsuarioRepositorio.liberarPorLibro(libro.getId());
+
+        // Assert
+        assertEquals(1, liberados);
+        assertEquals(1, cupoUsuarioRepositorio.findAbiertosByUsuarioId(usuario.getId()).orElseThrow());
+    }
+}
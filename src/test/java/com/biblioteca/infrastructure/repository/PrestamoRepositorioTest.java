@@ -0,0 +1,168 @@
+package com.biblioteca.infrastructure.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.biblioteca.domain.entity.Libro;
+import com.biblioteca.domain.entity.Prestamo;
+import com.biblioteca.domain.entity.Usuario;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.FiltroPrestamosDTORequest;
+import com.biblioteca.infrastructure.controllers.prestamo.dto.PrestamoDTOResponse;
+import com.biblioteca.infrastructure.repository.PrestamoRepositorioBusqueda.Orden;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@DisplayName("Test de número de consultas para PrestamoRepositorio")
+public class PrestamoRepositorioTest {
+
+    private static final int NUMERO_PRESTAMOS = 20;
+
+    @Autowired
+    private PrestamoRepositorio prestamoRepositorio;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics estadisticas;
+
+    private final List<Long> idsUsuarios = new ArrayList<>();
+    private final List<Long> idsPrestamos = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Cada préstamo apunta a un libro y un usuario distintos: el peor caso para N+1
+        for (int i = 0; i < NUMERO_PRESTAMOS; i++) {
+            Libro libro = new Libro();
+            libro.setTitulo("Libro de prueba " + i);
+            libro.setAutor("Autor " + i);
+            libro.setIsbn("isbn-prueba-" + i);
+            entityManager.persist(libro);
+
+            Usuario usuario = new Usuario();
+            usuario.setNombre("Usuario " + i);
+            usuario.setEmail("usuario" + i + "@prueba.com");
+            entityManager.persist(usuario);
+            idsUsuarios.add(usuario.getId());
+
+            Prestamo prestamo = new Prestamo();
+            prestamo.setLibro(libro);
+            prestamo.setUsuario(usuario);
+            prestamo.setFechaPrestamo(LocalDate.of(2024, 3, 1));
+            entityManager.persist(prestamo);
+            idsPrestamos.add(prestamo.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        estadisticas = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        estadisticas.clear();
+    }
+
+    @Test
+    @DisplayName("findAll - Carga libros y usuarios con una sola sentencia SQL")
+    void testFindAll_UnaSolaSentencia() {
+        // Act
+        List<Prestamo> prestamos = prestamoRepositorio.findAll();
+        prestamos.forEach(prestamo -> {
+            assertNotNull(prestamo.getLibro().getTitulo());
+            assertNotNull(prestamo.getUsuario().getNombre());
+        });
+
+        // Assert
+        assertTrue(prestamos.size() >= NUMERO_PRESTAMOS, "Se esperaban al menos " + NUMERO_PRESTAMOS + " préstamos");
+        assertEquals(1, estadisticas.getPrepareStatementCount(), "Listar préstamos debe costar una única sentencia SQL");
+    }
+
+    @Test
+    @DisplayName("findAllAsDTO - Lista los préstamos con una sola sentencia SQL")
+    void testFindAllAsDTO_UnaSolaSentencia() {
+        // Act
+        List<PrestamoDTOResponse> prestamos = prestamoRepositorio.findAllAsDTO();
+
+        // Assert
+        assertTrue(prestamos.size() >= NUMERO_PRESTAMOS, "Se esperaban al menos " + NUMERO_PRESTAMOS + " préstamos");
+        prestamos.forEach(prestamo -> {
+            assertNotNull(prestamo.getLibroId());
+            assertNotNull(prestamo.getUsuarioId());
+        });
+        assertEquals(1, estadisticas.getPrepareStatementCount(), "Listar préstamos debe costar una única sentencia SQL");
+        assertEquals(0, estadisticas.getEntityLoadCount(), "La proyección no debe cargar entidades");
+    }
+
+    @Test
+    @DisplayName("findReferenciasById y eliminarPorId - Eliminar un préstamo cuesta dos sentencias SQL sin cargar la entidad")
+    void testEliminarPorId_SinCargarEntidad() {
+        // Arrange
+        Long id = idsPrestamos.get(5);
+
+        // Act
+        ReferenciasPrestamo referencias = prestamoRepositorio.findReferenciasById(id).orElseThrow();
+        int eliminados = prestamoRepositorio.eliminarPorId(id);
+
+        // Assert
+        assertEquals(idsUsuarios.get(5), referencias.usuarioId());
+        assertEquals(LocalDate.of(2024, 3, 1), referencias.fechaPrestamo());
+        assertNotNull(referencias.libroId());
+        assertEquals(1, eliminados);
+        assertEquals(2, estadisticas.getPrepareStatementCount(), "Una consulta para las referencias y un DELETE");
+        assertEquals(0, estadisticas.getEntityLoadCount(), "Ni la proyección ni el borrado en bloque deben cargar entidades");
+        assertTrue(prestamoRepositorio.findReferenciasById(id).isEmpty());
+    }
+
+    @Test
+    @DisplayName("buscar - Filtra por usuario y estado con una sola sentencia SQL")
+    void testBuscar_PorUsuario() {
+        // Arrange
+        Long usuarioId = idsUsuarios.get(3);
+
+        // Act
+        List<PrestamoDTOResponse> abiertos = prestamoRepositorio.buscar(new FiltroPrestamosDTORequest(usuarioId, null, null, null, null, null, true), Orden.ID, null, 0L, 10);
+        List<PrestamoDTOResponse> devueltos = prestamoRepositorio.buscar(new FiltroPrestamosDTORequest(usuarioId, null, null, null, null, null, false), Orden.ID, null, 0L, 10);
+
+        // Assert
+        assertEquals(1, abiertos.size());
+        assertEquals(usuarioId, abiertos.get(0).getUsuarioId());
+        assertEquals(List.of(), devueltos);
+        assertEquals(2, estadisticas.getPrepareStatementCount(), "Cada búsqueda debe costar una única sentencia SQL");
+        assertEquals(0, estadisticas.getEntityLoadCount(), "La proyección no debe cargar entidades");
+    }
+
+    @Test
+    @DisplayName("buscar - Pagina por (fecha, ID) sin repetir ni saltar préstamos con la misma fecha")
+    void testBuscar_PaginaPorFecha() {
+        // Arrange
+        FiltroPrestamosDTORequest filtro = new FiltroPrestamosDTORequest(null, null, LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 1), null, null, null);
+        Set<Long> vistos = new HashSet<>();
+        LocalDate fechaAnterior = null;
+        long ultimoId = 0L;
+
+        // Act
+        List<PrestamoDTOResponse> pagina;
+        do {
+            pagina = prestamoRepositorio.buscar(filtro, Orden.FECHA_PRESTAMO, fechaAnterior, ultimoId, 6);
+            for (PrestamoDTOResponse prestamo : pagina) {
+                assertTrue(prestamo.getId() > ultimoId, "Los préstamos de la misma fecha deben llegar ordenados por ID");
+                assertTrue(vistos.add(prestamo.getId()), "Préstamo repetido entre páginas: " + prestamo.getId());
+                fechaAnterior = prestamo.getFechaPrestamo();
+                ultimoId = prestamo.getId();
+            }
+        } while (!pagina.isEmpty());
+
+        // Assert
+        assertEquals(NUMERO_PRESTAMOS, vistos.size());
+    }
+}
@@ -0,0 +1,96 @@
+package com.biblioteca.infrastructure.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.biblioteca.domain.entity.Libro;
+import com.biblioteca.domain.entity.Prestamo;
+import com.biblioteca.domain.entity.PrestamoVencido;
+import com.biblioteca.domain.entity.Usuario;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.LocalDate;
+
+@DataJpaTest
+@DisplayName("Test de la anotación de préstamos vencidos modificados")
+public class PrestamoVencidoRepositorioTest {
+
+    private static final LocalDate HOY = LocalDate.of(2024, 3, 10);
+    private static final LocalDate LIMITE = LocalDate.of(2024, 2, 8);
+
+    @Autowired
+    private PrestamoVencidoRepositorio prestamoVencidoRepositorio;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private int libros;
+    private Usuario usuario;
+
+    @BeforeEach
+    void setUp() {
+        usuario = new Usuario();
+        usuario.setNombre("Usuario vencidos");
+        usuario.setEmail("vencidos@prueba.com");
+        entityManager.persist(usuario);
+    }
+
+    private Long prestamo(LocalDate fechaPrestamo, LocalDate fechaDevolucion) {
+        Libro libro = new Libro();
+        libro.setTitulo("Libro vencidos " + libros);
+        libro.setAutor("Autor vencidos");
+        libro.setIsbn("isbn-vencidos-" + libros++);
+        entityManager.persist(libro);
+        Prestamo prestamo = new Prestamo();
+        prestamo.setLibro(libro);
+        prestamo.setUsuario(usuario);
+        prestamo.setFechaPrestamo(fechaPrestamo);
+        prestamo.setFechaDevolucion(fechaDevolucion);
+        entityManager.persist(prestamo);
+        entityManager.flush();
+        return prestamo.getId();
+    }
+
+    @Test
+    @DisplayName("Insertar si vencido - Solo anota el préstamo pedido si está abierto y su plazo ya terminó")
+    void testInsertarSiVencido() {
+        // Arrange
+        Long reabierto = prestamo(LocalDate.of(2024, 1, 5), null);
+        Long enPlazo = prestamo(LIMITE.plusDays(1), null);
+        Long devuelto = prestamo(LocalDate.of(2024, 1, 5), LocalDate.of(2024, 1, 20));
+
+        // Act
+        int anotados = prestamoVencidoRepositorio.insertarSiVencido(reabierto, LIMITE, HOY)
+                + prestamoVencidoRepositorio.insertarSiVencido(enPlazo, LIMITE, HOY)
+                + prestamoVencidoRepositorio.insertarSiVencido(devuelto, LIMITE, HOY);
+
+        // Assert
+        assertEquals(1, anotados);
+        PrestamoVencido vencido = entityManager.find(PrestamoVencido.class, reabierto);
+        assertEquals(LocalDate.of(2024, 1, 5), vencido.getFechaPrestamo());
+        assertEquals(HOY, vencido.getFechaDeteccion());
+    }
+
+    @Test
+    @DisplayName("Eliminar por préstamo - Retira solo la anotación de ese préstamo")
+    void testEliminarPorPrestamo() {
+        // Arrange
+        Long primero = prestamo(LocalDate.of(2024, 1, 5), null);
+        Long segundo = prestamo(LocalDate.of(2024, 1, 6), null);
+        entityManager.persist(new PrestamoVencido(primero, LocalDate.of(2024, 1, 5), HOY));
+        entityManager.persist(new PrestamoVencido(segundo, LocalDate.of(2024, 1, 6), HOY));
+        entityManager.flush();
+
+        // Act
+        int eliminados = prestamoVencidoRepositorio.eliminarPorPrestamo(primero);
+
+        // Assert
+        assertEquals(1, eliminados);
+        assertFalse(prestamoVencidoRepositorio.existsById(primero));
+        assertTrue(prestamoVencidoRepositorio.existsById(segundo));
+    }
+}